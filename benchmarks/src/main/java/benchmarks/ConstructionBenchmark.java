@@ -0,0 +1,165 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/*
+ * How long each ConstructionHeuristic takes, and how long its tours are (the tourLength counter), next to
+ * the O(n^2) nearest neighbor scan that nnLength used to come from.
+ *
+ * Instances are uniform random cities (rand<n>), or n cities on a single line (line<n>: no area, which is
+ * what used to make the GridIndex fall over). Every problem is read as a large instance, so nothing needs an
+ * n x n matrix; the scan gets instances of its own, since it's too slow for 100000 cities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstructionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Problem {
+
+		@Param({ "rand1000", "rand10000", "rand100000", "line100000" })
+		public String instance;
+
+		@Param({ "NEAREST_NEIGHBOR", "GREEDY_EDGE", "SPACE_FILLING_CURVE", "CHEAPEST_INSERTION" })
+		public String heuristic;
+
+		private Object problem;
+		private Object nodeDists;
+		private Object constructionHeuristic;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Throwable {
+			this.problem = loadInstance(this.instance);
+			this.nodeDists = (Object) Solver.GET_NODE_DISTS.invokeExact(this.problem);
+			this.constructionHeuristic = (Object) Solver.CONSTRUCTION_HEURISTIC_VALUE_OF.invokeExact(this.heuristic);
+		}
+
+	}
+
+	@State(Scope.Benchmark)
+	public static class ScanProblem {
+
+		@Param({ "rand1000", "rand10000" })
+		public String scanInstance;
+
+		private Object nodeDists;
+		private int numNodes;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Throwable {
+			Object problem = loadInstance(this.scanInstance);
+			this.nodeDists = (Object) Solver.GET_NODE_DISTS.invokeExact(problem);
+			this.numNodes = (int) Solver.GET_NUM_NODES.invokeExact(problem);
+		}
+
+	}
+
+	/*
+	 * JMH adds up an EVENTS counter over the measurement iterations (of all forks), so each iteration leaves
+	 * its share of the mean in it. The tours don't change from one invocation to the next.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class TourLength {
+
+		public double tourLength;
+
+		private int numIterations;
+
+		@Setup(Level.Trial)
+		public void setUp(BenchmarkParams params) {
+			this.numIterations = Math.max(1, params.getForks()) * params.getMeasurement().getCount();
+		}
+
+		void set(double length) {
+			this.tourLength = length / this.numIterations;
+		}
+
+	}
+
+	@Benchmark
+	public int[] buildTour(Problem problem, TourLength length) throws Throwable {
+		int[] tour = (int[]) (Object) Solver.BUILD_TOUR.invokeExact(problem.constructionHeuristic, problem.problem);
+		length.set((double) Solver.TOUR_LENGTH.invokeExact(problem.nodeDists, tour));
+		return tour;
+	}
+
+	// what calcNearestNeighborTourLength did before: a walk that scans every unvisited node at every step
+	@Benchmark
+	public double nearestNeighborScan(ScanProblem scan) throws Throwable {
+		Object nodeDists = scan.nodeDists;
+		int numNodes = scan.numNodes;
+		boolean[] visited = new boolean[numNodes];
+		visited[0] = true;
+		int currNode = 0;
+		double length = 0;
+		for (int step = 1; step < numNodes; step++) {
+			int nextNode = -1;
+			double nearestDist = Double.MAX_VALUE;
+			for (int j = 0; j < numNodes; j++) {
+				if (!visited[j]) {
+					double dist = (double) Solver.GET_DIST.invokeExact(nodeDists, currNode, j);
+					if (dist < nearestDist) {
+						nearestDist = dist;
+						nextNode = j;
+					}
+				}
+			}
+			visited[nextNode] = true;
+			length += nearestDist;
+			currNode = nextNode;
+		}
+		return length + (double) Solver.GET_DIST.invokeExact(nodeDists, currNode, 0);
+	}
+
+	// rand<n> or line<n>, read as a large instance
+	private static Object loadInstance(String instance) throws Throwable {
+		boolean collinear = instance.startsWith("line");
+		int numNodes = Integer.parseInt(instance.substring(4));
+		Path file = collinear ? writeLineInstance(numNodes) : Solver.writeSyntheticInstance(numNodes, 42);
+		return (Object) Solver.NEW_LARGE_TSP.invokeExact(file.toString(), true);
+	}
+
+	// every city at the same y
+	private static Path writeLineInstance(int numNodes) throws IOException {
+		Path file = Files.createTempFile("line" + numNodes + "_", ".tsp");
+		file.toFile().deleteOnExit();
+		Random random = new Random(42);
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+			out.println("NAME : line" + numNodes);
+			out.println("TYPE : TSP");
+			out.println("DIMENSION : " + numNodes);
+			out.println("EDGE_WEIGHT_TYPE : EUC_2D");
+			out.println("NODE_COORD_SECTION");
+			for (int i = 0; i < numNodes; i++) {
+				out.printf("%d %.3f %.3f%n", i + 1, random.nextDouble() * 10000, 5000.0);
+			}
+			out.println("EOF");
+		}
+		return file;
+	}
+
+}
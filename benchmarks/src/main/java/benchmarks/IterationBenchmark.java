@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * One full AntSystem.singleIterationAllAnts: construction, tour lengths, BSF, pheromone update.
+ * The solver is built once per trial and keeps iterating, like in a real run.
+ * With pipelineDepth above 1 the pheromone update overlaps the next iteration's construction (ACS can't be
+ * pipelined and stays at 1); PipelineBenchmark covers what that does to tour quality.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IterationBenchmark {
+
+	@Param({ "EAS", "ACS", "MMAS" })
+	public String variant;
+
+	@Param({ "500", "1000", "2000" })
+	public int numNodes;
+
+	// path to a TSPLIB file to use instead of a synthetic instance (numNodes is ignored then)
+	@Param({ "" })
+	public String tsplibFile;
+
+	// 0 = ants scan every unvisited node
+	@Param({ "0", "20" })
+	public int numCandidates;
+
+	// 1 = not pipelined
+	@Param({ "1" })
+	public int pipelineDepth;
+
+	private Object problem;
+	private Object solver;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		this.problem = Solver.loadProblem(this.tsplibFile, this.numNodes);
+		this.solver = Solver.newSolver(this.variant, this.problem, 42);
+		Solver.SET_NUM_CANDIDATES.invokeExact(this.solver, this.numCandidates);
+		if (this.pipelineDepth > 1 && !this.variant.equals("ACS")) {
+			Solver.SET_PIPELINE_DEPTH.invokeExact(this.solver, this.pipelineDepth);
+		}
+	}
+
+	// stops the pipeline's updater thread, if there is one
+	@TearDown(Level.Trial)
+	public void tearDown() throws Throwable {
+		Solver.SHUTDOWN.invokeExact(this.solver);
+	}
+
+	@Benchmark
+	public boolean singleIterationAllAnts() throws Throwable {
+		return (boolean) Solver.SINGLE_ITERATION_ALL_ANTS.invokeExact(this.solver);
+	}
+
+}
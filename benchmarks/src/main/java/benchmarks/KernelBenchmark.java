@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * The whole-matrix sweeps (distances, heuristic info, next node weights, evaporation) with the vector kernels
+ * and with the scalar ones, on dense double matrices. Before timing the vector kernels, the setup checks them
+ * against the scalar ones and gives up if they don't match.
+ *
+ * kernels=vector needs the forks to have the Vector API module (RunBenchmarks adds it); without it the setup
+ * fails rather than time the scalar kernels twice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KernelBenchmark {
+
+	@Param({ "vector", "scalar" })
+	public String kernels;
+
+	@Param({ "2000" })
+	public int numNodes;
+
+	private double[][] nodeCoords;
+	private Object dists;
+	private Object pheromone;
+	private Object heuristic;
+	private Object nextNodeWeights;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		if (!(boolean) Solver.USE_KERNELS.invokeExact(this.kernels)) {
+			throw new IllegalStateException(this.kernels + " kernels are not available");
+		}
+		if (this.kernels.equals("vector")) {
+			Object scalar = (Object) Solver.NEW_MATRIX_KERNELS.invokeExact();
+			Object vector = (Object) Solver.GET_KERNELS.invokeExact();
+			if (!(boolean) Solver.CHECK_KERNEL_EQUIVALENCE.invokeExact(scalar, vector, this.numNodes * 8 + 1, 7L)) {
+				throw new IllegalStateException("vector kernels don't match the scalar ones");
+			}
+		}
+
+		Random random = new Random(42);
+		this.nodeCoords = new double[this.numNodes][];
+		for (int i = 0; i < this.numNodes; i++) {
+			this.nodeCoords[i] = new double[] { random.nextDouble() * 10000, random.nextDouble() * 10000 };
+		}
+		this.dists = (Object) Solver.NEW_DENSE_MATRIX.invokeExact(this.numNodes);
+		this.pheromone = (Object) Solver.NEW_DENSE_MATRIX.invokeExact(this.numNodes);
+		this.heuristic = (Object) Solver.NEW_DENSE_MATRIX.invokeExact(this.numNodes);
+		this.nextNodeWeights = (Object) Solver.NEW_DENSE_MATRIX.invokeExact(this.numNodes);
+		Solver.FILL.invokeExact(this.pheromone, 1e-4);
+		// so the heuristic and next node weight sweeps start from real distances
+		if (!(boolean) Solver.FILL_DISTANCES.invokeExact(this.dists, this.nodeCoords)
+				|| !(boolean) Solver.BUILD_HEURISTIC_INFO.invokeExact(this.dists, this.heuristic, 3.0)) {
+			throw new IllegalStateException("dense matrices should take the whole matrix kernels");
+		}
+	}
+
+	@Benchmark
+	public boolean fillDistances() throws Throwable {
+		return (boolean) Solver.FILL_DISTANCES.invokeExact(this.dists, this.nodeCoords);
+	}
+
+	@Benchmark
+	public boolean buildHeuristicInfo() throws Throwable {
+		return (boolean) Solver.BUILD_HEURISTIC_INFO.invokeExact(this.dists, this.heuristic, 3.0);
+	}
+
+	@Benchmark
+	public boolean updateNextNodeWeights() throws Throwable {
+		return (boolean) Solver.UPDATE_NEXT_NODE_WEIGHTS.invokeExact(this.pheromone, this.heuristic,
+				this.nextNodeWeights, 1.0);
+	}
+
+	@Benchmark
+	public boolean scale() throws Throwable {
+		return (boolean) Solver.SCALE.invokeExact(this.pheromone, 0.999);
+	}
+
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * The whole-matrix sweeps: rebuilding the next node weights, EAS evaporation, and the distance matrix,
+ * each with scalar and vector kernels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+
+	@Param({ "500", "1000", "2000" })
+	public int numNodes;
+
+	@Param({ "" })
+	public String tsplibFile;
+
+	// lazy evaporation turns evapPheromone into an O(1) scale update
+	@Param({ "false", "true" })
+	public boolean lazyEvaporation;
+
+	// scalar loops or the Vector API ones (see MatrixKernels)
+	@Param({ "vector", "scalar" })
+	public String kernels;
+
+	private Object problem;
+	private Object solver;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		if (!(boolean) Solver.USE_KERNELS.invokeExact(this.kernels)) {
+			throw new IllegalStateException(this.kernels + " kernels aren't available");
+		}
+		this.problem = Solver.loadProblem(this.tsplibFile, this.numNodes);
+		this.solver = Solver.newSolver("EAS", this.problem, 42);
+		Solver.SET_LAZY_EVAPORATION.invokeExact(this.solver, this.lazyEvaporation);
+	}
+
+	@Benchmark
+	public void updateNextNodeWeightsMatrix() throws Throwable {
+		Solver.UPDATE_NEXT_NODE_WEIGHTS_MATRIX.invokeExact(this.solver);
+	}
+
+	// evaporating forever drives the pheromone towards 0, but the time per sweep doesn't care
+	@Benchmark
+	public void evapPheromone() throws Throwable {
+		Solver.EVAP_PHEROMONE.invokeExact(this.solver);
+	}
+
+	@Benchmark
+	public Object calcNodeDistances() throws Throwable {
+		return (Object) Solver.CALC_NODE_DISTANCES.invokeExact(this.problem);
+	}
+
+}
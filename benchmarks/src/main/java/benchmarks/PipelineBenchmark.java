@@ -0,0 +1,127 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+/*
+ * What pipelined iterations (see IterationPipeline in the solver sources) cost in tour quality, and what they
+ * save in time. Each invocation is a whole run: a fresh seeded solver does the given number of iterations, and
+ * the score is how long that took. The measured runs use seeds 0, 1, 2, ..., so every depth and staleness
+ * sees the same seeds, and the mean bsf length over them is reported as the meanBsfLength counter.
+ *
+ * The time saved depends on how long the pheromone update takes next to construction, and needs a spare
+ * core for the updater thread; on a single core the pipeline can only cost time. The quality lost depends on
+ * how quickly the variant converges: stale pheromone slows down a colony that's still learning more than one
+ * that has settled. -p pipelineStaleness=4 (with depth 2) takes snapshots less often.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class PipelineBenchmark {
+
+	// ACS can't be pipelined
+	@Param({ "EAS", "MMAS" })
+	public String variant;
+
+	// 1 = not pipelined
+	@Param({ "1", "2", "3" })
+	public int pipelineDepth;
+
+	// 0 = depth - 1
+	@Param({ "0" })
+	public int pipelineStaleness;
+
+	@Param({ "1000" })
+	public int numNodes;
+
+	// path to a TSPLIB file to use instead of a synthetic instance (numNodes is ignored then)
+	@Param({ "" })
+	public String tsplibFile;
+
+	// iterations per run
+	@Param({ "300" })
+	public int iterations;
+
+	private Object problem;
+	private Object solver;
+	private long nextSeed;
+	private long warmupSeed = 1000;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		this.problem = Solver.loadProblem(this.tsplibFile, this.numNodes);
+	}
+
+	// warm up runs get seeds of their own, so the measured ones are 0, 1, 2, ... whatever the warm up
+	@Setup(Level.Iteration)
+	public void newSolver(IterationParams iteration) throws Throwable {
+		long seed = (iteration.getType() == IterationType.WARMUP) ? this.warmupSeed++ : this.nextSeed++;
+		this.solver = Solver.newSolver(this.variant, this.problem, seed);
+		Solver.SET_NUM_CANDIDATES.invokeExact(this.solver, 20);
+		Solver.SET_PIPELINE_DEPTH.invokeExact(this.solver, this.pipelineDepth);
+		Solver.SET_PIPELINE_STALENESS.invokeExact(this.solver, this.pipelineStaleness);
+	}
+
+	@TearDown(Level.Iteration)
+	public void shutdown() throws Throwable {
+		Solver.SHUTDOWN.invokeExact(this.solver);
+	}
+
+	@Benchmark
+	public void run(BsfLength bsf) throws Throwable {
+		for (int i = 0; i < this.iterations; i++) {
+			boolean newBsf = (boolean) Solver.SINGLE_ITERATION_ALL_ANTS.invokeExact(this.solver);
+		}
+		Solver.DRAIN_PIPELINE.invokeExact(this.solver);
+		bsf.add((double) Solver.GET_BSF_LENGTH.invokeExact(this.solver));
+	}
+
+	/*
+	 * JMH adds up an EVENTS counter over the measurement iterations (of all forks), so each run puts in its
+	 * share of the mean.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class BsfLength {
+
+		public double meanBsfLength;
+
+		private int numRuns;
+
+		@Setup(Level.Trial)
+		public void setUp(BenchmarkParams params) {
+			this.numRuns = Math.max(1, params.getForks()) * params.getMeasurement().getCount();
+		}
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.meanBsfLength = 0;
+		}
+
+		void add(double bsfLength) {
+			this.meanBsfLength += bsfLength / this.numRuns;
+		}
+
+	}
+
+}
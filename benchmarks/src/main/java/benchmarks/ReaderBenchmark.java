@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Reading a TSPLIB file: TSPLIBReader against the original Scanner based reader (TSP.readFileWithScanner),
+ * on the same file. Just the parse; neither builds a distance matrix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int numNodes;
+
+	@Param({ "" })
+	public String tsplibFile;
+
+	private String fileName;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		this.fileName = this.tsplibFile.isEmpty() ? Solver.writeSyntheticInstance(this.numNodes, 42).toString()
+				: this.tsplibFile;
+	}
+
+	@Benchmark
+	public boolean scannerReader() throws Throwable {
+		Object problem = (Object) Solver.NEW_EMPTY_TSP.invokeExact();
+		return (boolean) Solver.READ_FILE_WITH_SCANNER.invokeExact(problem, this.fileName);
+	}
+
+	@Benchmark
+	public Object tsplibReader() throws Throwable {
+		return (Object) Solver.READ_TSPLIB.invokeExact(this.fileName);
+	}
+
+}
@@ -0,0 +1,46 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Entry point of benchmarks.jar. Takes the usual JMH command line (benchmark regexps, -p, -f, -wi, ...), but
+ * results always get written as JSON, to jmh-result.json unless -rff says otherwise, so runs can be
+ * compared afterwards (i.e. with https://jmh.morethan.io). Forks get the Vector API module, so the solver can
+ * use its vector kernels, unless -jvmArgsAppend says something else.
+ */
+public class RunBenchmarks {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if (!commandLine.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			options.result("jmh-result.json");
+		}
+		if (!commandLine.getJvmArgsAppend().hasValue()) {
+			options.jvmArgsAppend("--add-modules=jdk.incubator.vector");
+		}
+		Runner runner = new Runner(options.build());
+		// the same listing and help flags org.openjdk.jmh.Main answers without running anything
+		if (commandLine.shouldHelp()) {
+			commandLine.showHelp();
+		} else if (commandLine.shouldList()) {
+			runner.list();
+		} else if (commandLine.shouldListWithParams()) {
+			runner.listWithParams(commandLine);
+		} else if (commandLine.shouldListProfilers()) {
+			commandLine.listProfilers();
+		} else if (commandLine.shouldListResultFormats()) {
+			commandLine.listResultFormats();
+		} else {
+			runner.run();
+		}
+	}
+
+}
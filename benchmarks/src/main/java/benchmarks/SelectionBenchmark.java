@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * A single roulette wheel step: chooseNextNodeForAntProbabilistically for an ant that has only visited its
+ * home node (so every other node is in the wheel), and BinarySearch.binarySearchForIndex on its own over a
+ * prefix sum array of the same size. rouletteWheelSpin is the kernel the solver actually uses, over the
+ * first wheelSize entries of that array (20 is a candidate list, and gets the linear scan).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectionBenchmark {
+
+	@Param({ "500", "1000", "2000" })
+	public int numNodes;
+
+	@Param({ "" })
+	public String tsplibFile;
+
+	@Param({ "20", "500" })
+	public int wheelSize;
+
+	private Object solver;
+	private Object ant;
+	private double[] prefixSums;
+	private double[] randWeights;
+	private double[] randoms;
+	private int nextRandWeight;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		Object problem = Solver.loadProblem(this.tsplibFile, this.numNodes);
+		this.solver = Solver.newSolver("EAS", problem, 42);
+		this.ant = ((Object[]) (Object) Solver.GET_ANTS.invokeExact(this.solver))[0];
+
+		// prefix sums of random weights, starting at 0 like the solver's
+		Random random = new Random(42);
+		this.prefixSums = new double[this.numNodes + 1];
+		for (int i = 0; i < this.numNodes; i++) {
+			this.prefixSums[i + 1] = this.prefixSums[i] + random.nextDouble();
+		}
+		this.randWeights = new double[1024];
+		this.randoms = new double[1024];
+		for (int i = 0; i < this.randWeights.length; i++) {
+			this.randoms[i] = random.nextDouble();
+			this.randWeights[i] = this.randoms[i] * this.prefixSums[this.numNodes];
+		}
+	}
+
+	@Benchmark
+	public int chooseNextNodeForAntProbabilistically() throws Throwable {
+		return (int) Solver.CHOOSE_NEXT_NODE_PROBABILISTICALLY.invokeExact(this.solver, this.ant);
+	}
+
+	@Benchmark
+	public int binarySearchForIndex() throws Throwable {
+		double randWeight = this.randWeights[this.nextRandWeight++ & (this.randWeights.length - 1)];
+		return (int) Solver.BINARY_SEARCH_FOR_INDEX.invokeExact(this.prefixSums, randWeight);
+	}
+
+	@Benchmark
+	public int rouletteWheelSpin() throws Throwable {
+		double random = this.randoms[this.nextRandWeight++ & (this.randoms.length - 1)];
+		return (int) Solver.ROULETTE_WHEEL_SPIN.invokeExact(this.prefixSums, Math.min(this.wheelSize, this.numNodes),
+				random);
+	}
+
+}
@@ -0,0 +1,131 @@
+package benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * What a job costs on top of its iterations when it goes through SolverService. The trial starts a warmed up
+ * service in the benchmark's JVM, and sends it an EAS job (seed 1, random coordinates as the body) per
+ * invocation:
+ * -jobOverHttp: the same problem every time, so it comes out of the service's cache; client side end to end
+ * -jobInProcess: the same solve without the service: a new EAS with the same seed and parameters on the same
+ *  problem's SharedProblemData, kept across invocations like the service's cache keeps it. jobOverHttp minus
+ *  this is the service's overhead (HTTP, the cache lookup, the job's bookkeeping)
+ * -coldJob: new coordinates every time, so the job also pays for parsing the problem and building its shared
+ *  data (distances, heuristic info, candidate lists)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+	@Param({ "50", "200", "1000" })
+	public int numNodes;
+
+	// iterations per job
+	@Param({ "20" })
+	public int iterations;
+
+	private Object service;
+	private HttpClient client;
+	private URI uri;
+	private byte[] body;
+	private Object shared;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		this.service = (Object) Solver.NEW_SOLVER_SERVICE.invokeExact(0, 1);
+		Solver.WARM_UP_SERVICE.invokeExact(this.service);
+		Solver.START_SERVICE.invokeExact(this.service);
+		this.client = HttpClient.newHttpClient();
+		this.uri = URI.create("http://localhost:" + (int) Solver.GET_SERVICE_PORT.invokeExact(this.service)
+				+ "/solve?variant=EAS&seed=1&iterations=" + this.iterations);
+		this.body = randomCoordinates(this.numNodes, this.numNodes);
+		Object problem = (Object) Solver.NEW_TSP_FROM_CONTENTS.invokeExact(this.body);
+		this.shared = (Object) Solver.NEW_SHARED_PROBLEM_DATA.invokeExact(problem);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Throwable {
+		Solver.STOP_SERVICE.invokeExact(this.service);
+	}
+
+	@Benchmark
+	public String jobOverHttp() throws Exception {
+		return this.send(this.body);
+	}
+
+	@Benchmark
+	public double jobInProcess() throws Throwable {
+		Object random = (Object) Solver.NEW_RANDOM_STREAM.invokeExact(1L);
+		Object solver = (Object) Solver.NEW_SHARED_EAS.invokeExact(this.shared, 20, 1.0, 3.0, 0.1, 20.0, random);
+		Solver.SET_NUM_CANDIDATES.invokeExact(solver, 20);
+		for (int i = 0; i < this.iterations; i++) {
+			boolean newBsf = (boolean) Solver.SINGLE_ITERATION_ALL_ANTS.invokeExact(solver);
+		}
+		double bsfLength = (double) Solver.GET_BSF_LENGTH.invokeExact(solver);
+		Solver.SHUTDOWN.invokeExact(solver);
+		return bsfLength;
+	}
+
+	@Benchmark
+	public String coldJob(ColdProblem cold) throws Exception {
+		return this.send(cold.body);
+	}
+
+	// a problem the service hasn't seen yet, made before every coldJob invocation
+	@State(Scope.Thread)
+	public static class ColdProblem {
+
+		private long nextSeed = 1000;
+		private byte[] body;
+
+		@Setup(Level.Invocation)
+		public void newCoordinates(ServiceBenchmark benchmark) {
+			this.body = randomCoordinates(benchmark.numNodes, this.nextSeed++);
+		}
+
+	}
+
+	private String send(byte[] body) throws Exception {
+		HttpResponse<String> response = this.client.send(
+				HttpRequest.newBuilder(this.uri).POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(),
+				HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("job failed: " + response.body());
+		}
+		return response.body();
+	}
+
+	private static byte[] randomCoordinates(int numNodes, long seed) {
+		Random random = new Random(seed);
+		StringBuilder coords = new StringBuilder();
+		for (int i = 0; i < numNodes; i++) {
+			coords.append(random.nextDouble() * 10000).append(' ').append(random.nextDouble() * 10000).append('\n');
+		}
+		return coords.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+}
@@ -0,0 +1,216 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/*
+ * Solver: the benchmarks' way into the solver classes.
+ * 
+ * The solver lives in the default package, and JMH refuses benchmark classes in the default package, but
+ * code in a named package can't refer to default package classes by name. So everything the benchmarks
+ * call goes through method handles, looked up once. They're static final, so the JIT treats them as
+ * constants and inlines straight through them; the benchmarks measure the solver, not the indirection.
+ * 
+ * Solver objects are passed around as plain Objects.
+ * 
+ */
+final class Solver {
+
+	static final Class<?> TSP = load("TSP");
+	static final Class<?> ANT_SYSTEM = load("AntSystem");
+	static final Class<?> EAS = load("EAS");
+	static final Class<?> ACS = load("ACS");
+	static final Class<?> MMAS = load("MMAS");
+	static final Class<?> ANT = load("Ant");
+	static final Class<?> RANDOM_STREAM = load("RandomStream");
+	static final Class<?> MATRIX = load("Matrix");
+	static final Class<?> SHARED_PROBLEM_DATA = load("SharedProblemData");
+	static final Class<?> SOLVER_SERVICE = load("SolverService");
+	static final Class<?> CONSTRUCTION_HEURISTIC = load("ConstructionHeuristic");
+	static final Class<?> MATRIX_KERNELS = load("MatrixKernels");
+
+	// new TSP(String fileName)
+	static final MethodHandle NEW_TSP = constructor(TSP, String.class);
+	// new TSP() and readFileWithScanner(String fileName): the original, Scanner based reader
+	static final MethodHandle NEW_EMPTY_TSP = constructor(TSP);
+	static final MethodHandle READ_FILE_WITH_SCANNER = method(TSP, "readFileWithScanner", String.class);
+	// TSPLIBReader.read(String fileName)
+	static final MethodHandle READ_TSPLIB = staticMethod(load("TSPLIBReader"), "read", String.class);
+	// new TSP(String fileName, boolean largeInstance)
+	static final MethodHandle NEW_LARGE_TSP = constructor(TSP, String.class, boolean.class);
+	// new TSP(byte[] contents): a TSPLIB file's contents or "x y" lines, like a SolverService request body
+	static final MethodHandle NEW_TSP_FROM_CONTENTS = constructor(TSP, byte[].class);
+	// new SharedProblemData(TSP)
+	static final MethodHandle NEW_SHARED_PROBLEM_DATA = constructor(SHARED_PROBLEM_DATA, TSP);
+	// new RandomStream(long seed)
+	static final MethodHandle NEW_RANDOM_STREAM = constructor(RANDOM_STREAM, long.class);
+	// new EAS(TSP, numAnts, alpha, beta, evapFactor, elitism, RandomStream)
+	static final MethodHandle NEW_EAS = constructor(EAS, TSP, int.class, double.class, double.class, double.class,
+			double.class, RANDOM_STREAM);
+	// new EAS(SharedProblemData, numAnts, alpha, beta, evapFactor, elitism, RandomStream)
+	static final MethodHandle NEW_SHARED_EAS = constructor(EAS, SHARED_PROBLEM_DATA, int.class, double.class,
+			double.class, double.class, double.class, RANDOM_STREAM);
+	// new ACS(TSP, numAnts, alpha, beta, evapFactor, wearFactor, bestNextNodeSelectionProb, RandomStream)
+	static final MethodHandle NEW_ACS = constructor(ACS, TSP, int.class, double.class, double.class, double.class,
+			double.class, double.class, RANDOM_STREAM);
+	// new MMAS(TSP, numAnts, alpha, beta, evapFactor, RandomStream)
+	static final MethodHandle NEW_MMAS = constructor(MMAS, TSP, int.class, double.class, double.class, double.class,
+			RANDOM_STREAM);
+
+	static final MethodHandle CALC_NODE_DISTANCES = method(TSP, "calcNodeDistances");
+	static final MethodHandle GET_NODE_DISTS = method(TSP, "getNodeDists");
+	static final MethodHandle GET_NUM_NODES = method(TSP, "getNumNodes");
+	// Matrix.get(node1, node2)
+	static final MethodHandle GET_DIST = method(MATRIX, "get", int.class, int.class);
+	// ConstructionHeuristic.valueOf(String name), heuristic.buildTour(TSP) (an int[]) and
+	// TourConstruction.tourLength(Matrix nodeDists, int[] tour)
+	static final MethodHandle CONSTRUCTION_HEURISTIC_VALUE_OF = staticMethod(CONSTRUCTION_HEURISTIC, "valueOf",
+			String.class);
+	static final MethodHandle BUILD_TOUR = method(CONSTRUCTION_HEURISTIC, "buildTour", TSP);
+	static final MethodHandle TOUR_LENGTH = staticMethod(load("TourConstruction"), "tourLength", MATRIX,
+			int[].class);
+	static final MethodHandle SINGLE_ITERATION_ALL_ANTS = method(ANT_SYSTEM, "singleIterationAllAnts");
+	static final MethodHandle SET_NUM_CANDIDATES = method(ANT_SYSTEM, "setNumCandidates", int.class);
+	static final MethodHandle SET_LAZY_EVAPORATION = method(ANT_SYSTEM, "setLazyEvaporation", boolean.class);
+	static final MethodHandle SET_PIPELINE_DEPTH = method(ANT_SYSTEM, "setPipelineDepth", int.class);
+	static final MethodHandle SET_PIPELINE_STALENESS = method(ANT_SYSTEM, "setPipelineStaleness", int.class);
+	static final MethodHandle DRAIN_PIPELINE = method(ANT_SYSTEM, "drainPipeline");
+	static final MethodHandle GET_BSF_LENGTH = method(ANT_SYSTEM, "getBsfLength");
+	static final MethodHandle SHUTDOWN = method(ANT_SYSTEM, "shutdown");
+	static final MethodHandle GET_ANTS = method(ANT_SYSTEM, "getAnts");
+	static final MethodHandle CHOOSE_NEXT_NODE_PROBABILISTICALLY = method(ANT_SYSTEM,
+			"chooseNextNodeForAntProbabilistically", ANT);
+	static final MethodHandle UPDATE_NEXT_NODE_WEIGHTS_MATRIX = method(ANT_SYSTEM, "updateNextNodeWeightsMatrix");
+	static final MethodHandle EVAP_PHEROMONE = method(EAS, "evapPheromone");
+	static final MethodHandle BINARY_SEARCH_FOR_INDEX = staticMethod(load("BinarySearch"), "binarySearchForIndex",
+			double[].class, double.class);
+	// MatrixKernels.use("scalar" or "vector")
+	static final MethodHandle USE_KERNELS = staticMethod(MATRIX_KERNELS, "use", String.class);
+	// new MatrixKernels() (the scalar ones), MatrixKernels.get() (the active ones) and
+	// checkEquivalence(expected, actual, size, seed)
+	static final MethodHandle NEW_MATRIX_KERNELS = constructor(MATRIX_KERNELS);
+	static final MethodHandle GET_KERNELS = staticMethod(MATRIX_KERNELS, "get");
+	static final MethodHandle CHECK_KERNEL_EQUIVALENCE = staticMethod(MATRIX_KERNELS, "checkEquivalence",
+			MATRIX_KERNELS, MATRIX_KERNELS, int.class, long.class);
+	// the whole-matrix sweeps
+	static final MethodHandle FILL_DISTANCES = staticMethod(MATRIX_KERNELS, "fillDistances", MATRIX,
+			double[][].class);
+	static final MethodHandle BUILD_HEURISTIC_INFO = staticMethod(MATRIX_KERNELS, "buildHeuristicInfo", MATRIX,
+			MATRIX, double.class);
+	static final MethodHandle UPDATE_NEXT_NODE_WEIGHTS = staticMethod(MATRIX_KERNELS, "updateNextNodeWeights",
+			MATRIX, MATRIX, MATRIX, double.class);
+	static final MethodHandle SCALE = staticMethod(MATRIX_KERNELS, "scale", MATRIX, double.class);
+	// new DenseMatrix(int numNodes) and Matrix.fill(double value)
+	static final MethodHandle NEW_DENSE_MATRIX = constructor(load("DenseMatrix"), int.class);
+	static final MethodHandle FILL = method(MATRIX, "fill", double.class);
+	static final MethodHandle ROULETTE_WHEEL_SPIN = staticMethod(load("RouletteWheel"), "spin", double[].class,
+			int.class, double.class);
+
+	// new SolverService(int port, int numWorkers) and what it takes to run one
+	static final MethodHandle NEW_SOLVER_SERVICE = constructor(SOLVER_SERVICE, int.class, int.class);
+	static final MethodHandle WARM_UP_SERVICE = method(SOLVER_SERVICE, "warmUp");
+	static final MethodHandle START_SERVICE = method(SOLVER_SERVICE, "start");
+	static final MethodHandle STOP_SERVICE = method(SOLVER_SERVICE, "stop");
+	static final MethodHandle GET_SERVICE_PORT = method(SOLVER_SERVICE, "getPort");
+
+	private Solver() {
+	}
+
+	// EUC_2D instance with uniformly random cities, written out as a TSPLIB file so it's loaded the same
+	// way a real one would be
+	static Path writeSyntheticInstance(int numNodes, long seed) throws IOException {
+		Path file = Files.createTempFile("synthetic" + numNodes + "_", ".tsp");
+		file.toFile().deleteOnExit();
+		Random random = new Random(seed);
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+			out.println("NAME : synthetic" + numNodes);
+			out.println("TYPE : TSP");
+			out.println("DIMENSION : " + numNodes);
+			out.println("EDGE_WEIGHT_TYPE : EUC_2D");
+			out.println("NODE_COORD_SECTION");
+			for (int i = 0; i < numNodes; i++) {
+				out.printf("%d %.3f %.3f%n", i + 1, random.nextDouble() * 10000, random.nextDouble() * 10000);
+			}
+			out.println("EOF");
+		}
+		return file;
+	}
+
+	// the problem for a benchmark: a TSPLIB file if one was given, otherwise a synthetic instance
+	static Object loadProblem(String tsplibFile, int numNodes) throws Throwable {
+		String fileName = tsplibFile.isEmpty() ? writeSyntheticInstance(numNodes, 42).toString() : tsplibFile;
+		return (Object) NEW_TSP.invokeExact(fileName);
+	}
+
+	// a seeded EAS, ACS or MMAS with the parameters Playground uses
+	static Object newSolver(String variant, Object problem, long seed) throws Throwable {
+		Object random = (Object) NEW_RANDOM_STREAM.invokeExact(seed);
+		if (variant.equals("ACS")) {
+			return (Object) NEW_ACS.invokeExact(problem, 10, 1.0, 3.0, 0.1, 0.1, 0.9, random);
+		}
+		if (variant.equals("MMAS")) {
+			return (Object) NEW_MMAS.invokeExact(problem, 20, 1.0, 3.0, 0.02, random);
+		}
+		return (Object) NEW_EAS.invokeExact(problem, 20, 1.0, 3.0, 0.1, 20.0, random);
+	}
+
+	private static Class<?> load(String name) {
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	// handles get their types erased to Object, so call sites don't need the default package classes
+	private static MethodType erase(MethodType type) {
+		MethodType erased = type;
+		for (int i = 0; i < type.parameterCount(); i++) {
+			if (!type.parameterType(i).isPrimitive() && !type.parameterType(i).isArray()
+					&& type.parameterType(i) != String.class) {
+				erased = erased.changeParameterType(i, Object.class);
+			}
+		}
+		if (!type.returnType().isPrimitive()) {
+			erased = erased.changeReturnType(Object.class);
+		}
+		return erased;
+	}
+
+	private static MethodHandle constructor(Class<?> owner, Class<?>... parameterTypes) {
+		try {
+			// getDeclaredConstructor, since some (i.e. new TSP()) are package private
+			Constructor<?> constructor = owner.getDeclaredConstructor(parameterTypes);
+			constructor.setAccessible(true);
+			MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor);
+			return handle.asType(erase(handle.type()));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static MethodHandle method(Class<?> owner, String name, Class<?>... parameterTypes) {
+		try {
+			Method method = owner.getMethod(name, parameterTypes);
+			// AntSystem isn't a public class, so its public methods need this to be callable from here
+			method.setAccessible(true);
+			MethodHandle handle = MethodHandles.lookup().unreflect(method);
+			return handle.asType(erase(handle.type()));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static MethodHandle staticMethod(Class<?> owner, String name, Class<?>... parameterTypes) {
+		return method(owner, name, parameterTypes);
+	}
+
+}
@@ -1,122 +1,214 @@
-/*
- * Ant Colony System variant
- * 
- * 
- * updatepheromone requirements:
- * -pheromone only added to bsf
- * -pheromone evaporated from the bsf
- * -pheromone removed as ants build tours (which means a diff addNextNode method)
- * 
- * ants choose nodes in two ways: probabilistically, or just the best one based on weighted pheromones
- * ants choose between the above two method probabilistically, as well
- * 
- */
-
-
-import java.util.ArrayList;
-
-// Ant Colony System
-
-public class ACS extends AntSystem {
-
-	private double evapBalanceConstant; // generally equal to pheromone init value
-	private double wearFactor; // how much pheromone is removed as ants choose nodes to build tours 
-	// probability that ant chooses bestNextNode method to get next node
-	private double bestNextNodeSelectionProb; 
-
-	// default evapbalance constant
-	public ACS(TSP problem, int numAnts, double alpha, double beta, double evapFactor,
-			double wearFactor, double bestNextNodeSelectionProb){
-		super(problem, numAnts, alpha, beta, evapFactor);
-
-		this.evapBalanceConstant = super.getInitPheromoneWeight();
-		this.wearFactor = wearFactor;
-		this.bestNextNodeSelectionProb = bestNextNodeSelectionProb;
-	}
-
-	// input evapbalance constant
-	public ACS(TSP problem, int numAnts, double alpha, double beta, double evapFactor,
-			double wearFactor, double bestNextNodeSelectionProb, double evapBalanceConstant){
-		this(problem, numAnts, alpha, beta, evapFactor, wearFactor, bestNextNodeSelectionProb);
-		
-		this.evapBalanceConstant = evapBalanceConstant;
-		
-	}
-	
-	@Override
-	// Dorigo recommended value
-	public double calcInitPheromoneWeight(int numAnts, double nnLength) {
-		return 1 / (numAnts * nnLength);
-	}
-
-	// gotta evaporate those cheetohs
-	// returns false when ant tour is full
-	public boolean addNextNodeForAnt(Ant ant) {
-		int currNode = ant.getCurrNode();
-		int nextNode = this.chooseNextNodeForAnt(ant);
-		double distanceToNextNode = super.getNodeDists()[currNode][nextNode];
-		
-		// evaporating pheromone based on wearFactor on the chosen node
-		double newWeight = (1 - this.wearFactor) * super.getPheromoneWeights()[currNode][nextNode]
-				+ this.wearFactor * this.evapBalanceConstant;
-		super.updateSinglePheromoneWeight(currNode, nextNode, newWeight);
-		
-		return ant.addNodeToTour(nextNode, distanceToNextNode);
-	}
-
-	// deterministically pick the best next node
-	public int chooseBestNextNodeForAnt(Ant ant) {
-		int currNode = ant.getCurrNode();
-		ArrayList<Integer> unvisitedNodes = ant.getUnvisitedNodes();
-		
-		// extremes...to be changed!
-		double maxWeight = 0;
-		int nextNodeIndex = -1;
-		
-		// find the maximal weight; return the node index associated with that weight
-		for (int i = 0; i < unvisitedNodes.size(); i++) {
-			double prospectiveNodeWeight = super.getNextNodeWeights()[currNode][unvisitedNodes.get(i)];
-			if (maxWeight < prospectiveNodeWeight) {
-				maxWeight = prospectiveNodeWeight;
-				nextNodeIndex = i;
-			}
-		}
-		
-		return unvisitedNodes.get(nextNodeIndex);
-	}
-
-	// chooses a selection method based on a probability 
-	public int chooseNextNodeForAnt(Ant ant) {
-		// probabilistically
-		if (Math.random() > this.bestNextNodeSelectionProb) {
-			return super.chooseNextNodeForAntProbabilistically(ant);
-		}
-		// node with highest weighted pheromone
-		return this.chooseBestNextNodeForAnt(ant);
-	}
-
-	// update pheromone, but only dependent on bsf
-	public void updatePheromone() {
-		double[][] pheromoneWeights = super.getPheromoneWeights();
-		pheromoneWeights = this.updatePheromoneBSF(super.getBsfTour(), pheromoneWeights);
-		super.setPheromoneWeights(pheromoneWeights);
-	
-	}
-
-	// update pheromone (through addition and evaporation) only on the bsfTour
-	public double[][] updatePheromoneBSF(ArrayList<Integer> bsfTour, double[][] pheromoneWeights) {
-		// amount to deposit
-		double deposit = super.getEvapFactor() / super.getBsfLength();
-		
-		// for each arc on the bsf tour
-		for (int i = 0; i < bsfTour.size(); i++) {
-			int node1 = bsfTour.get(i);
-			int node2 = bsfTour.get((i+1) % bsfTour.size());
-			
-			pheromoneWeights[node1][node2] = 
-					(1 - super.getEvapFactor()) * pheromoneWeights[node1][node2] + deposit;
-		}
-		
-		return pheromoneWeights;
-	}
-}
+/*
+ * Ant Colony System variant
+ * 
+ * 
+ * updatepheromone requirements:
+ * -pheromone only added to bsf
+ * -pheromone evaporated from the bsf
+ * -pheromone removed as ants build tours (which means a diff addNextNode method)
+ * 
+ * ants choose nodes in two ways: probabilistically, or just the best one based on weighted pheromones
+ * ants choose between the above two method probabilistically, as well
+ * 
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Ant Colony System
+
+public class ACS extends AntSystem {
+
+	private double evapBalanceConstant; // generally equal to pheromone init value
+	private double wearFactor; // how much pheromone is removed as ants choose nodes to build tours 
+	// probability that ant chooses bestNextNode method to get next node
+	private double bestNextNodeSelectionProb; 
+
+	// default evapbalance constant
+	public ACS(TSP problem, int numAnts, double alpha, double beta, double evapFactor,
+			double wearFactor, double bestNextNodeSelectionProb){
+		super(problem, numAnts, alpha, beta, evapFactor);
+
+		this.evapBalanceConstant = super.getInitPheromoneWeight();
+		this.wearFactor = wearFactor;
+		this.bestNextNodeSelectionProb = bestNextNodeSelectionProb;
+	}
+
+	// default evapbalance constant, seeded: all randomness comes from the given stream
+	public ACS(TSP problem, int numAnts, double alpha, double beta, double evapFactor,
+			double wearFactor, double bestNextNodeSelectionProb, RandomStream random){
+		this(problem, numAnts, alpha, beta, evapFactor, wearFactor, bestNextNodeSelectionProb, random,
+				MatrixStorage.DENSE_DOUBLE);
+	}
+
+	// default evapbalance constant, seeded, with the given storage for the solver's matrices
+	public ACS(TSP problem, int numAnts, double alpha, double beta, double evapFactor,
+			double wearFactor, double bestNextNodeSelectionProb, RandomStream random, MatrixStorage storage){
+		super(problem, numAnts, alpha, beta, evapFactor, random, storage);
+
+		this.evapBalanceConstant = super.getInitPheromoneWeight();
+		this.wearFactor = wearFactor;
+		this.bestNextNodeSelectionProb = bestNextNodeSelectionProb;
+	}
+
+	// default evapbalance constant, seeded, sharing the nearest neighbor length, candidate lists and heuristic
+	// info with other solvers
+	public ACS(SharedProblemData shared, int numAnts, double alpha, double beta, double evapFactor,
+			double wearFactor, double bestNextNodeSelectionProb, RandomStream random){
+		super(shared, numAnts, alpha, beta, evapFactor, random);
+
+		this.evapBalanceConstant = super.getInitPheromoneWeight();
+		this.wearFactor = wearFactor;
+		this.bestNextNodeSelectionProb = bestNextNodeSelectionProb;
+	}
+
+	// input evapbalance constant
+	public ACS(TSP problem, int numAnts, double alpha, double beta, double evapFactor,
+			double wearFactor, double bestNextNodeSelectionProb, double evapBalanceConstant){
+		this(problem, numAnts, alpha, beta, evapFactor, wearFactor, bestNextNodeSelectionProb);
+		
+		this.evapBalanceConstant = evapBalanceConstant;
+		
+	}
+
+	// input evapbalance constant, seeded
+	public ACS(TSP problem, int numAnts, double alpha, double beta, double evapFactor,
+			double wearFactor, double bestNextNodeSelectionProb, double evapBalanceConstant, RandomStream random){
+		this(problem, numAnts, alpha, beta, evapFactor, wearFactor, bestNextNodeSelectionProb, random);
+		
+		this.evapBalanceConstant = evapBalanceConstant;
+		
+	}
+
+	// input evapbalance constant, seeded, with the given storage for the solver's matrices
+	public ACS(TSP problem, int numAnts, double alpha, double beta, double evapFactor,
+			double wearFactor, double bestNextNodeSelectionProb, double evapBalanceConstant, RandomStream random,
+			MatrixStorage storage){
+		this(problem, numAnts, alpha, beta, evapFactor, wearFactor, bestNextNodeSelectionProb, random, storage);
+		
+		this.evapBalanceConstant = evapBalanceConstant;
+		
+	}
+	
+	@Override
+	// Dorigo recommended value
+	public double calcInitPheromoneWeight(int numAnts, double nnLength) {
+		return 1 / (numAnts * nnLength);
+	}
+
+	// gotta evaporate those cheetohs
+	// returns false when ant tour is full
+	public boolean addNextNodeForAnt(Ant ant) {
+		int currNode = ant.getCurrNode();
+		int nextNode = this.chooseNextNodeForAnt(ant);
+		double distanceToNextNode = super.getNodeDists().get(currNode, nextNode);
+		
+		// evaporating pheromone based on wearFactor on the chosen node. other ants might be doing the
+		// same to this row at the same time, so the read and the write happen under the row's lock
+		synchronized (super.getPheromoneLock(currNode, nextNode)) {
+			double newWeight = (1 - this.wearFactor) * super.getPheromoneWeights().get(currNode, nextNode)
+					+ this.wearFactor * this.evapBalanceConstant;
+			super.updateSinglePheromoneWeight(currNode, nextNode, newWeight);
+		}
+		
+		return ant.addNodeToTour(nextNode, distanceToNextNode);
+	}
+
+	// deterministically pick the best next node
+	public int chooseBestNextNodeForAnt(Ant ant) {
+		int[][] candidateLists = super.getCandidateLists();
+		if (candidateLists == null) {
+			return super.chooseBestUnvisitedNode(ant);
+		}
+
+		int currNode = ant.getCurrNode();
+		int[] candidates = candidateLists[currNode];
+
+		// extremes...to be changed!
+		double maxWeight = -1;
+		int nextNode = -1;
+
+		// find the maximal weight among the unvisited candidates
+		for (int i = 0; i < candidates.length; i++) {
+			if (ant.isVisited(candidates[i])) {
+				continue;
+			}
+			double prospectiveNodeWeight = super.getNextNodeWeights().getCandidate(currNode, i, candidates[i]);
+			if (maxWeight < prospectiveNodeWeight) {
+				maxWeight = prospectiveNodeWeight;
+				nextNode = candidates[i];
+			}
+		}
+
+		// all candidates visited: best of the rest
+		if (nextNode == -1) {
+			return super.chooseBestUnvisitedNode(ant);
+		}
+		return nextNode;
+	}
+
+	// chooses a selection method based on a probability 
+	public int chooseNextNodeForAnt(Ant ant) {
+		// probabilistically
+		if (ant.getRandom().nextDouble() > this.bestNextNodeSelectionProb) {
+			return super.chooseNextNodeForAntProbabilistically(ant);
+		}
+		// node with highest weighted pheromone
+		return this.chooseBestNextNodeForAnt(ant);
+	}
+
+	// ants wear pheromone down as they go, and the next ant has to see it, so construction can't run on a
+	// snapshot while an update finishes elsewhere
+	public boolean canPipeline() {
+		return false;
+	}
+
+	// update pheromone, but only dependent on bsf
+	public void updatePheromone() {
+		this.updatePheromoneBSF(super.getBsfTour());
+	}
+
+	// update pheromone (through addition and evaporation) only on the bsfTour. the next node weights of those
+	// arcs are updated right away, so the next iteration's ants already see them
+	public void updatePheromoneBSF(int[] bsfTour) {
+		Matrix pheromoneWeights = super.getPheromoneWeights();
+		// amount to deposit
+		double deposit = super.getEvapFactor() / super.getBsfLength();
+		
+		// for each arc on the bsf tour
+		for (int i = 0; i < bsfTour.length; i++) {
+			int node1 = bsfTour[i];
+			int node2 = bsfTour[(i+1) % bsfTour.length];
+			
+			super.updateSinglePheromoneWeight(node1, node2,
+					(1 - super.getEvapFactor()) * pheromoneWeights.get(node1, node2) + deposit);
+		}
+	}
+
+	@Override
+	public void writeVariantState(DataOutput out) throws IOException {
+		out.writeDouble(this.evapBalanceConstant);
+		out.writeDouble(this.wearFactor);
+		out.writeDouble(this.bestNextNodeSelectionProb);
+	}
+
+	@Override
+	public void readVariantState(DataInput in) throws IOException {
+		this.evapBalanceConstant = in.readDouble();
+		this.wearFactor = in.readDouble();
+		this.bestNextNodeSelectionProb = in.readDouble();
+	}
+
+	public double getEvapBalanceConstant() {
+		return evapBalanceConstant;
+	}
+
+	public double getWearFactor() {
+		return wearFactor;
+	}
+
+	public double getBestNextNodeSelectionProb() {
+		return bestNextNodeSelectionProb;
+	}
+}
@@ -1,149 +1,203 @@
-/*
- * Ant class. 
- * 
- * Important variables are basically a ton of arraylists, since it's easy to add/remove stuff, 
- * easy containment checks. Plus a nice cloning method.
- * 
- */
-
-import java.util.ArrayList;
-
-public class Ant {
-
-	// number of nodes in the problem
-	private int numNodes;
-	public ArrayList<Integer> allNodes; // ArrayList of all nodes: sequence from 1 to numNodes
-
-	private double tourLength; 	// length of the tour
-	private int homeNode; // first node in the tour
-	private int currNode; // curr node in the tour
-	private ArrayList<Integer> visitedNodes; // ArrayList of visited nodes, in
-												// order
-	private ArrayList<Integer> unvisitedNodes; // ArrayList of unvisited nodes
-
-	
-	//initialize with random homeNode
-	public Ant(int numNodes) {
-		this.numNodes = numNodes;
-		this.allNodes = this.generateSequentialArrayList(0, this.numNodes);
-		this.visitedNodes = new ArrayList<Integer>(this.numNodes);
-		this.clearCurrTourHistory();
-
-	}
-
-	//initialize with specific homeNode
-	public Ant(int numNodes, int homeNode) {
-		this(numNodes);
-		this.visitedNodes.clear();
-		this.unvisitedNodes = (ArrayList<Integer>) this.allNodes.clone();
-		this.addNodeToTour(homeNode, 0);
-		this.homeNode = homeNode;
-	}
-
-	// constructs ArrayList whose values are sequence from start to stop,
-	// excluding stop
-	public ArrayList<Integer> generateSequentialArrayList(int start, int stop) {
-		ArrayList<Integer> sequence = new ArrayList<Integer>(stop - start);
-		for (int i = start; i < stop; i++) {
-			sequence.add(i);
-		}
-		return sequence;
-	}
-
-	// returns false once the path is full
-	public boolean addNodeToTour(int addedNode, double distanceToAddedNode) {
-
-		this.currNode = addedNode; // set current node to added node
-		this.visitedNodes.add(addedNode); // add node to the path
-		// remove the node from unvisited nodes
-		this.unvisitedNodes.remove(unvisitedNodes.indexOf(addedNode));
-		this.tourLength += distanceToAddedNode; // add dist to the tour length
-		if (this.unvisitedNodes.isEmpty()) {
-			return false;
-		}
-		return true;
-	}
-
-	// returns the homeNode
-	public int setHomeNode(int homeNode) {
-		this.addNodeToTour(homeNode, 0); // add homenode to the path
-		this.tourLength = 0; // set pathLength to 0
-		this.homeNode = homeNode;
-		return homeNode;
-	}
-
-	public int getHomeNode() {
-		return this.homeNode;
-	}
-
-	public int setHomeNodeRand() {
-		// note that Math.random() never actually returns value of 1.00
-		// ie max returned value is infinitesimally smaller than that
-		int homeNode = (int) Math.floor(Math.random() * this.numNodes);
-		this.setHomeNode(homeNode);
-		return homeNode;
-	}
-
-	// empties the current tour; resets the nodes to visit to all nodes
-	public void clearCurrTourHistory() {
-		this.visitedNodes.clear();
-		this.unvisitedNodes = (ArrayList<Integer>) this.allNodes.clone();
-		this.setHomeNodeRand();
-	}
-
-	public String toString() {
-		return "Ant(numNodes=" + this.numNodes + ", currNode=" + this.currNode + ", pathLength=" + this.tourLength
-				+ ", sizeCurrPath=" + this.visitedNodes.size() + ", sizeNodesToVisit=" + this.unvisitedNodes.size()
-				+ ")";
-	}
-
-	// Getters & Setters
-	public int getNumNodes() {
-		return numNodes;
-	}
-
-	public void setNumNodes(int numNodes) {
-		this.numNodes = numNodes;
-	}
-
-	public ArrayList<Integer> getAllNodes() {
-		return allNodes;
-	}
-
-	public void setAllNodes(ArrayList<Integer> allNodes) {
-		this.allNodes = allNodes;
-	}
-
-	public double getTourLength() {
-		return tourLength;
-	}
-
-	public void setTourLength(double tourLength) {
-		this.tourLength = tourLength;
-	}
-
-	public int getCurrNode() {
-		return currNode;
-	}
-
-	public void setCurrNode(int currNode) {
-		this.currNode = currNode;
-	}
-
-	public ArrayList<Integer> getVisitedNodes() {
-		return visitedNodes;
-	}
-
-	public void setVisitedNodes(ArrayList<Integer> visitedNodes) {
-		this.visitedNodes = visitedNodes;
-	}
-
-	public ArrayList<Integer> getUnvisitedNodes() {
-		return unvisitedNodes;
-	}
-
-	public void setUnvisitedNodes(ArrayList<Integer> unvisitedNodes) {
-		this.unvisitedNodes = unvisitedNodes;
-	}
-
-}
+/*
+ * Ant class. 
+ * 
+ * Important variables are all primitive arrays, so an ant never allocates once it's built:
+ * -the tour itself, as an int[] filled in order
+ * -the unvisited nodes, as an int[] where the first numUnvisitedNodes entries are the unvisited ones.
+ *  removing a node swaps it with the last unvisited one, and unvisitedPositions says where each node sits
+ * -a bitset of visited nodes for O(1) containment checks
+ * 
+ * Adding a node is O(1), and resetting for the next iteration is just resetting a couple of counters.
+ * 
+ * Each ant also carries the scratch array for its roulette wheel (see RouletteWheel), so choosing a node
+ * doesn't allocate either, and ants built on different threads never share one.
+ * 
+ */
+
+import java.util.Arrays;
+
+public class Ant {
+
+	// number of nodes in the problem
+	private int numNodes;
+
+	private double tourLength; 	// length of the tour
+	private int homeNode; // first node in the tour
+	private int currNode; // curr node in the tour
+	private int[] tour; // visited nodes, in order. only the first tourSize entries are part of the tour
+	private int tourSize;
+	private int[] unvisitedNodes; // unvisited nodes are the first numUnvisitedNodes entries, in no order
+	private int numUnvisitedNodes;
+	private int[] unvisitedPositions; // unvisitedPositions[node] is the index of node in unvisitedNodes
+	private long[] visitedBits; // bit i is set once node i is in the tour
+	private RandomStream random; // this ant's own random numbers, not shared with any other ant
+	private double[] selectionWeights = new double[0]; // roulette wheel scratch, grown on first use
+
+	
+	//initialize with random homeNode
+	public Ant(int numNodes) {
+		this(numNodes, new RandomStream());
+	}
+
+	//initialize with random homeNode, drawn from the given stream
+	public Ant(int numNodes, RandomStream random) {
+		this.numNodes = numNodes;
+		this.random = random;
+		this.tour = new int[this.numNodes];
+		this.unvisitedNodes = new int[this.numNodes];
+		this.unvisitedPositions = new int[this.numNodes];
+		for (int i = 0; i < this.numNodes; i++) {
+			this.unvisitedNodes[i] = i;
+			this.unvisitedPositions[i] = i;
+		}
+		this.visitedBits = new long[(this.numNodes + 63) >>> 6];
+		this.clearCurrTourHistory();
+
+	}
+
+	//initialize with specific homeNode
+	public Ant(int numNodes, int homeNode) {
+		this(numNodes);
+		this.resetTour();
+		this.setHomeNode(homeNode);
+	}
+
+	// returns false once the path is full
+	public boolean addNodeToTour(int addedNode, double distanceToAddedNode) {
+
+		this.currNode = addedNode; // set current node to added node
+		this.tour[this.tourSize++] = addedNode; // add node to the path
+		this.visitedBits[addedNode >>> 6] |= 1L << addedNode;
+
+		// remove the node from unvisited nodes: swap it with the last unvisited node
+		int position = this.unvisitedPositions[addedNode];
+		int lastNode = this.unvisitedNodes[--this.numUnvisitedNodes];
+		this.unvisitedNodes[position] = lastNode;
+		this.unvisitedPositions[lastNode] = position;
+		this.unvisitedNodes[this.numUnvisitedNodes] = addedNode;
+		this.unvisitedPositions[addedNode] = this.numUnvisitedNodes;
+
+		this.tourLength += distanceToAddedNode; // add dist to the tour length
+		if (this.numUnvisitedNodes == 0) {
+			return false;
+		}
+		return true;
+	}
+
+	// returns the homeNode
+	public int setHomeNode(int homeNode) {
+		this.addNodeToTour(homeNode, 0); // add homenode to the path
+		this.tourLength = 0; // set pathLength to 0
+		this.homeNode = homeNode;
+		return homeNode;
+	}
+
+	public int getHomeNode() {
+		return this.homeNode;
+	}
+
+	public int setHomeNodeRand() {
+		int homeNode = this.random.nextInt(this.numNodes);
+		this.setHomeNode(homeNode);
+		return homeNode;
+	}
+
+	// empties the current tour; resets the nodes to visit to all nodes
+	public void clearCurrTourHistory() {
+		this.resetTour();
+		this.setHomeNodeRand();
+	}
+
+	// empties the current tour and starts it again at the given node (e.g. the one it had before a checkpoint)
+	public void restartTour(int homeNode) {
+		this.resetTour();
+		this.setHomeNode(homeNode);
+	}
+
+	// the removed nodes all sit past numUnvisitedNodes, and swapping keeps unvisitedPositions correct,
+	// so everything is unvisited again just by resetting the counter
+	private void resetTour() {
+		this.tourSize = 0;
+		this.tourLength = 0;
+		this.numUnvisitedNodes = this.numNodes;
+		Arrays.fill(this.visitedBits, 0L);
+	}
+
+	// true if the node is already part of the current tour
+	public boolean isVisited(int node) {
+		return (this.visitedBits[node >>> 6] & (1L << node)) != 0;
+	}
+
+	// the i-th node of the tour
+	public int getTourNode(int i) {
+		return this.tour[i];
+	}
+
+	// the i-th unvisited node, for 0 <= i < getNumUnvisitedNodes()
+	public int getUnvisitedNode(int i) {
+		return this.unvisitedNodes[i];
+	}
+
+	// scratch for a roulette wheel of numEntries entries (numEntries + 1 prefix sums). only allocates the
+	// first time a wheel that big comes up, and large instances only ever need candidate list sized ones
+	public double[] getSelectionWeights(int numEntries) {
+		if (this.selectionWeights.length < numEntries + 1) {
+			this.selectionWeights = new double[numEntries + 1];
+		}
+		return this.selectionWeights;
+	}
+
+	// a copy of the tour that's safe to keep around after the ant is cleared
+	public int[] copyTour() {
+		return Arrays.copyOf(this.tour, this.tourSize);
+	}
+
+	public String toString() {
+		return "Ant(numNodes=" + this.numNodes + ", currNode=" + this.currNode + ", pathLength=" + this.tourLength
+				+ ", sizeCurrPath=" + this.tourSize + ", sizeNodesToVisit=" + this.numUnvisitedNodes
+				+ ")";
+	}
+
+	// Getters & Setters
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+	public double getTourLength() {
+		return tourLength;
+	}
+
+	public void setTourLength(double tourLength) {
+		this.tourLength = tourLength;
+	}
+
+	public int getCurrNode() {
+		return currNode;
+	}
+
+	public void setCurrNode(int currNode) {
+		this.currNode = currNode;
+	}
+
+	// backing array, not a copy. only the first getTourSize() entries are the tour
+	public int[] getTour() {
+		return tour;
+	}
+
+	public int getTourSize() {
+		return tourSize;
+	}
+
+	public int getNumUnvisitedNodes() {
+		return numUnvisitedNodes;
+	}
+
+	public RandomStream getRandom() {
+		return random;
+	}
+
+	public void setRandom(RandomStream random) {
+		this.random = random;
+	}
+
+}
@@ -1,415 +1,1590 @@
-
-/*
- * AntSystem class: abstract class from which variants of Ant System can be extended.
- * Note that in our work, the variants differed only in a few places: 
- * -update method
- * -calculating initial pheromone
- * -ant selection of the next node when building a tour
- * 
- * Furthermore, by "differing," they still took inspiration from base ant system. So it made most
- * sense to make an abstract class.
- */
-
-import java.util.ArrayList;
-import java.util.Random;
-import java.util.Arrays;
-
-abstract class AntSystem {
-
-	// the following three variables are imported from TSP
-	private int numNodes;
-	private double[][] nodeCoords;
-	private double[][] nodeDists;
-
-	// the following variables are directly based on the input parameters
-	private final static double HUUUUUUUUUUUUGE = 100000000;
-	private double alpha;
-	private double beta;
-	private double evapFactor;
-	private int numAnts;
-	private Ant[] ants;
-
-	// the following variables are indirectly based on input parameters
-	private double nnLength; // length of nearest neighbor tour
-	private double initPheromoneWeight; // the value of the initial pheromone weight
-	private double[][] pheromoneWeights; // matrix of pheromone weights
-	private double[][] heuristicInfo; // this matrix is essentially nodeDists, but the entries are inverses
-	private double[][] nextNodeWeights; // element-wise product of powers of the above two matrices
-	
-
-	// Best so far variables; determined as the algorithm progresses
-	private double bsfLength;
-	private ArrayList<Integer> bsfTour;
-
-	public AntSystem(TSP problem, int numAnts, double alpha, double beta, double evapFactor) {
-		// import from TSP
-		this.numNodes = problem.getNumNodes();
-		this.nodeCoords = problem.getNodeCoords();
-		this.nodeDists = problem.getNodeDists();
-		
-		// create Ants array
-		this.numAnts = numAnts;
-		Ant[] ants = new Ant[this.numAnts];
-		for (int i = 0; i < this.numAnts; i++) {
-			ants[i] = new Ant(this.numNodes);
-		}
-		this.ants = ants;
-
-		// import from parameters
-		this.alpha = alpha;
-		this.beta = beta;
-		this.evapFactor = evapFactor;
-		this.bsfLength = this.getHuuuuuuuuuuuuge(); // yeeeeeeeeeeeeaaaaa
-
-		this.nnLength = this.calcNearestNeighborTourLength();
-		this.initPheromoneWeight = this.calcInitPheromoneWeight(this.numAnts, this.nnLength);
-		this.pheromoneWeights = this.buildPheromoneWeightsMatrix(this.numNodes, this.initPheromoneWeight);
-		this.heuristicInfo = this.buildHeuristicInfoMatrix(this.nodeDists, this.beta);
-		this.nextNodeWeights = this.updateNextNodeWeightsMatrix(this.pheromoneWeights, this.heuristicInfo, this.alpha);
-
-	}
-
-	// yessir
-	public static double getHuuuuuuuuuuuuge() {
-		return HUUUUUUUUUUUUGE;
-	}
-
-	// calculate the nearest neighbor tour length
-	public double calcNearestNeighborTourLength() {
-	
-		// create an ant. this ant goes on his own special tour, because he/she is special!
-		Ant nnAnt = new Ant(this.numNodes, 0);
-		int nextNode = chooseNearestNeighborNode(nnAnt); // specific next node method
-		double distanceToNextNode = this.nodeDists[nnAnt.getCurrNode()][nextNode];
-		// while the ants tour is not full
-		while (nnAnt.addNodeToTour(nextNode, distanceToNextNode)) {
-			nextNode = chooseNearestNeighborNode(nnAnt);
-			distanceToNextNode = this.nodeDists[nnAnt.getCurrNode()][nextNode];
-		}
-	
-		// note that the distance does not include dist(currNode, homeNode), so add that
-		return nnAnt.getTourLength() + this.nodeDists[nnAnt.getHomeNode()][nnAnt.getHomeNode()];
-	}
-
-	// pick the nearest node for the ant, given its current node
-	public int chooseNearestNeighborNode(Ant ant) {
-		int currNode = ant.getCurrNode();
-		ArrayList<Integer> unvisitedNodes = ant.getUnvisitedNodes();
-	
-		// extreme values that will be changed
-		double distanceToNextNode = this.getHuuuuuuuuuuuuge();
-		int nextNode = -1;
-		
-		for (int i = 0; i < unvisitedNodes.size(); i++) {
-			int prospectiveNode = unvisitedNodes.get(i);
-			// if prospectiveNode is closer thant he current "hiscore"
-			if (this.nodeDists[currNode][prospectiveNode] < distanceToNextNode) {
-				distanceToNextNode = nodeDists[currNode][prospectiveNode];
-				nextNode = prospectiveNode;
-			}
-		}
-	
-		return nextNode;
-	
-	}
-
-	// calculate intial pheromone levels. this is dependent on choice of variant, but it always
-	// involves the nnLength and usually the numAnts as well
-	public abstract double calcInitPheromoneWeight(int numAnts, double nnLength);
-
-	
-	//build the initial pheromoneWeightsMatrix using the initial pheromone weight
-	// essentially just fill an entire array with the exact same value
-	public double[][] buildPheromoneWeightsMatrix(int numNodes, double initPheromoneWeight) {
-		double[][] pheromoneWeights = new double[numNodes][numNodes];
-		for (int i = 0; i < numNodes; i++) {
-			// start j at i to be twice as fast. speedkills 
-			for (int j = i; j < numNodes; j++) {
-				pheromoneWeights[i][j] = initPheromoneWeight;
-				pheromoneWeights[j][i] = pheromoneWeights[i][j];
-			}
-		}
-		return pheromoneWeights;
-	}
-
-	// basically just reciprocal of distances
-	public double[][] buildHeuristicInfoMatrix(double[][] nodeDists, double beta) {
-		int numNodes = nodeDists.length;
-		double[][] heuristicInfo = new double[numNodes][numNodes];
-		for (int i = 0; i < numNodes; i++) {
-			for (int j = i; j < numNodes; j++) {
-				heuristicInfo[i][j] = Math.pow(1 / nodeDists[i][j], beta);
-				heuristicInfo[j][i] = heuristicInfo[i][j];
-			}
-		}
-		return heuristicInfo;
-	}
-
-	// product of pheromone weights and heuristic info
-	public double[][] updateNextNodeWeightsMatrix(double[][] pheromoneWeights, double[][] heuristicInfo, double alpha) {
-		int numNodes = pheromoneWeights.length;
-		double[][] nextNodeWeights = new double[numNodes][numNodes];
-
-		for (int i = 0; i < numNodes; i++) {
-			for (int j = 0; j < numNodes; j++) {
-				nextNodeWeights[i][j] = Math.pow(pheromoneWeights[i][j], alpha) * heuristicInfo[i][j];
-			}
-		}
-
-		return nextNodeWeights;
-	}
-
-	// iterate through all ants once: build tours, update pheromones, etc.
-	public boolean singleIterationAllAnts() {
-	
-		// change to true if we find the BSF
-		boolean newBSFWasFound = false;
-	
-		// update next node weights: note that in one iteration, all ants use the same weights, so this avoids
-		// constant recalculation during an iteration
-		this.nextNodeWeights = this.updateNextNodeWeightsMatrix(this.pheromoneWeights, this.heuristicInfo, this.alpha);
-		// while tour construction incomplete, this while loop will continue
-		while (this.addNextNodeForAllAnts()) {
-		}
-	
-		// calculate final distances for the ants, since they don't include
-		// dist(homeNode, currNode)
-		for (int i = 0; i < this.numAnts; i++) {
-			this.updateSingleAntTourLengths(this.ants[i]);
-		}
-	
-		// check for BSF
-		if (this.identifyInterimBSF()) {
-			newBSFWasFound = true;
-		}
-	
-		// update pheromones
-		this.updatePheromone();
-	
-		// clear ants, ready for the next iteration
-		// has to be below pheromone udpate because pheromone update needs ant
-		// info still, specifically the 2d array of the path
-		for (int i = 0; i < this.numAnts; i++) {
-			this.ants[i].clearCurrTourHistory();
-		}
-	
-		return newBSFWasFound;
-	
-	}
-
-	// returns false if ants[0] has finished building a tour...thus all ants
-	// have finished building tours
-	public boolean addNextNodeForAllAnts() {
-		// every ant except for ant[0]
-		for (int i = 1; i < this.numAnts; i++) {
-			this.addNextNodeForAnt(this.ants[i]);
-		}
-		
-		// now do ant[0]
-		return this.addNextNodeForAnt(this.ants[0]);
-	}
-
-	// returns false if the ant has finished building a tour
-	// this needs to be abstract, since some variants (i.e. ACS) have ants that remove pheromone
-	// as they build their tours
-	public abstract boolean addNextNodeForAnt(Ant ant);
-
-	// also abstract, since variants have different ways for ants to choose the next node
-	public abstract int chooseNextNodeForAnt(Ant ant);
-
-	// probabilistically chooses the next node; returns that node (not the
-	// index!)
-	// EAS: same method
-	// ACS: extend this method by adding ability to directly exploit the best
-	// neighbor
-	public int chooseNextNodeForAntProbabilistically(Ant ant) {
-		int currNode = ant.getCurrNode();
-		ArrayList<Integer> unvisitedNodes = ant.getUnvisitedNodes();
-		int numUnvisitedNodes = unvisitedNodes.size();
-
-		// the first entry in "weights" is 0
-		// this facilitates the use of the array as a pseudo-probability space..
-		// i.e. 1 is scaled to the sum of weights
-		double[] weights = new double[numUnvisitedNodes + 1];
-
-		for (int i = 0; i < numUnvisitedNodes; i++) {
-
-			// note that there's no need to divide by total weight...the
-			// probability is exactly the same (b/c using a pseudo-probability
-			// space)
-			weights[i + 1] = this.nextNodeWeights[currNode][unvisitedNodes.get(i)] + weights[i];
-		}
-
-		double sumOfWeights = weights[numUnvisitedNodes];
-
-		// returns a double in the range: (0, sumOfWeights) which is exactly
-		// what we want
-		double randWeight = Math.random() * sumOfWeights;
-
-		// binarySearch returns i such that: weights[i] <= randWeight <
-		// weights[i + 1]
-		// thus, for our program: our chosen node has index of i in
-		// unvisitedNodes
-		int nextNodeIndex = BinarySearch.binarySearchForIndex(weights, randWeight);
-		return unvisitedNodes.get(nextNodeIndex);
-
-	}
-
-	// retrieve the best tour found (in a given iteration)
-	public boolean identifyInterimBSF() {
-	
-		double interimBsfLength = this.getHuuuuuuuuuuuuge(); // I love using this getter, for obvious reasons
-		ArrayList<Integer> interimBsfTour = new ArrayList<Integer>();
-	
-		for (int i = 0; i < this.numAnts; i++) {
-			if (interimBsfLength > this.ants[i].getTourLength()) {
-				interimBsfLength = this.ants[i].getTourLength();
-				interimBsfTour = this.ants[i].getVisitedNodes();
-			}
-		}
-	
-		// hiscore!!!!!!!!!
-		if (this.bsfLength > interimBsfLength) {
-			this.bsfLength = interimBsfLength;
-			this.bsfTour = (ArrayList<Integer>) interimBsfTour.clone();
-			return true;
-		}
-	
-		// :(
-		return false;
-	}
-
-	// because the tour lengths don't include the dist between last city and the
-	// first
-	public void updateSingleAntTourLengths(Ant ant) {
-		double tourLength = ant.getTourLength();
-		tourLength += nodeDists[ant.getCurrNode()][ant.getHomeNode()];
-		ant.setTourLength(tourLength);
-	}
-
-	// template: given a tour (i.e. bsf tour, an ant's tour), calculates the amount of pheromone
-	// to deposit. 
-	public void depositPheromoneSingleTour(double tourLength, ArrayList<Integer> tour, double factor) {
-
-		double deposit = factor / tourLength;
-		for (int i = 0; i < tour.size(); i++) {
-			int node1 = tour.get(i);
-			int node2 = tour.get((i + 1) % tour.size());
-			this.pheromoneWeights[node1][node2] += deposit;
-		}
-	}
-
-	// heavily dependent on choice of variant
-	public abstract void updatePheromone();
-
-	// update a single weight in the matrix
-	public void updateSinglePheromoneWeight(int node1, int node2, double newWeight) {
-		this.pheromoneWeights[node1][node2] = newWeight;
-	}
-
-	// Getters and Setters
-	public int getNumNodes() {
-		return numNodes;
-	}
-
-	public void setNumNodes(int numNodes) {
-		this.numNodes = numNodes;
-	}
-
-	public double getAlpha() {
-		return alpha;
-	}
-
-	public void setAlpha(double alpha) {
-		this.alpha = alpha;
-	}
-
-	public double getBeta() {
-		return beta;
-	}
-
-	public void setBeta(double beta) {
-		this.beta = beta;
-	}
-
-	public int getNumAnts() {
-		return numAnts;
-	}
-
-	public void setNumAnts(int numAnts) {
-		this.numAnts = numAnts;
-	}
-
-	public Ant[] getAnts() {
-		return ants;
-	}
-
-	public void setAnts(Ant[] ants) {
-		this.ants = ants;
-	}
-
-	public double[][] getPheromoneWeights() {
-		return pheromoneWeights;
-	}
-
-	public void setPheromoneWeights(double[][] pheromoneWeights) {
-		this.pheromoneWeights = pheromoneWeights;
-	}
-
-	public double getBsfLength() {
-		return bsfLength;
-	}
-
-	public void setBsfLength(double bsfLength) {
-		this.bsfLength = bsfLength;
-	}
-
-	public ArrayList<Integer> getBsfTour() {
-		return bsfTour;
-	}
-
-	public void setBsfTour(ArrayList<Integer> bsfTour) {
-		this.bsfTour = bsfTour;
-	}
-
-	public double getEvapFactor() {
-		return evapFactor;
-	}
-
-	public void setEvapFactor(double evapFactor) {
-		this.evapFactor = evapFactor;
-	}
-
-	public double[][] getNodeDists() {
-		return nodeDists;
-	}
-
-	public void setNodeDists(double[][] nodeDists) {
-		this.nodeDists = nodeDists;
-	}
-
-	public double getNnLength() {
-		return nnLength;
-	}
-
-	public void setNnLength(double nnLength) {
-		this.nnLength = nnLength;
-	}
-
-	public double getInitPheromoneWeight() {
-		return initPheromoneWeight;
-	}
-
-	public void setInitPheromoneWeight(double initPheromoneWeight) {
-		this.initPheromoneWeight = initPheromoneWeight;
-	}
-
-	public double[][] getNextNodeWeights() {
-		return nextNodeWeights;
-	}
-
-	public void setNextNodeWeights(double[][] nextNodeWeights) {
-		this.nextNodeWeights = nextNodeWeights;
-	}
-
-}
+
+/*
+ * AntSystem class: abstract class from which variants of Ant System can be extended.
+ * Note that in our work, the variants differed only in a few places: 
+ * -update method
+ * -calculating initial pheromone
+ * -ant selection of the next node when building a tour
+ * 
+ * Furthermore, by "differing," they still took inspiration from base ant system. So it made most
+ * sense to make an abstract class.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.DoubleUnaryOperator;
+
+abstract class AntSystem {
+
+	// the following three variables are imported from TSP
+	private int numNodes;
+	private double[][] nodeCoords;
+	private Matrix nodeDists;
+
+	// the following variables are directly based on the input parameters
+	private final static double HUUUUUUUUUUUUGE = Double.MAX_VALUE; // country sized tours blow way past 1e8
+	private double alpha;
+	private double beta;
+	private double evapFactor;
+	private int numAnts;
+	private Ant[] ants;
+
+	// the following variables are indirectly based on input parameters
+	private double nnLength; // length of nearest neighbor tour
+	private double initPheromoneWeight; // the value of the initial pheromone weight
+	private MatrixStorage storage; // how the three matrices below are stored
+	private Matrix pheromoneWeights; // matrix of pheromone weights
+	private Matrix heuristicInfo; // this matrix is essentially nodeDists, but the entries are inverses
+	private Matrix nextNodeWeights; // element-wise product of powers of the above two matrices
+	private Matrix constructionWeights; // what ants build tours from: a pipeline snapshot, or null for the above
+
+	// candidate lists: candidateLists[i] holds the numCandidates nearest nodes to i, nearest first.
+	// null means the ants consider every unvisited node (the classic O(n^2) per tour behaviour)
+	private int numCandidates;
+	private int[][] candidateLists;
+
+	// large instances (see TSP) have no distance matrix. the solver then always uses candidate lists, built
+	// from the spatial index, and its matrices only store the candidate arcs (CandidateMatrix)
+	private final static int DEFAULT_NUM_CANDIDATES = 20;
+	private boolean largeInstance;
+	private GridIndex spatialIndex;
+
+	// parallel tour construction: with more than one thread, every ant builds its whole tour as its own task
+	// on constructionPool. with one thread the ants step forward together on the calling thread, like always
+	private final static int NUM_PHEROMONE_LOCKS = 256; // power of two, so a node maps to a lock with a mask
+	private int numThreads = 1;
+	private ForkJoinPool constructionPool;
+	private volatile Thread[] workerThreads = new Thread[0];
+	private ForkJoinTask<?>[] constructionTasks;
+	private final Object[] pheromoneLocks = new Object[NUM_PHEROMONE_LOCKS]; // striped by the row's node
+
+	// lazy evaporation: pheromone and next node weights sit behind a LazyScaledMatrix, so scaling all of
+	// them (evaporation) only touches a global factor, and an iteration costs what the deposits touch.
+	// the scale gets pushed into the entries before the stored values could overflow; floats run out of
+	// range a lot sooner than doubles do
+	private final static double MIN_LAZY_SCALE_DOUBLE = 1e-100;
+	private final static double MIN_LAZY_SCALE_FLOAT = 1e-15;
+	private boolean lazyEvaporation = false;
+
+	// instrumentation: nothing gets timed or counted unless a listener is attached (iterationStats stays
+	// null until then), so with it off each phase costs a null check
+	private IterationListener[] iterationListeners = new IterationListener[0];
+	private IterationStats iterationStats;
+	private int iterationCount = 0;
+	private int branchingFactorInterval = 0; // measure the branching factor every this many iterations; 0: never
+
+	// pipelined iterations (see IterationPipeline); depth 1 is off
+	private int pipelineDepth = 1;
+	private int pipelineStaleness = 0; // 0: depth - 1
+	private IterationPipeline pipeline;
+	private final static double BRANCHING_FACTOR_LAMBDA = 0.05;
+
+	// local search: after the tours are built (and before anything looks at their lengths), the tours picked
+	// by localSearchMode go through tourImprover (LocalSearch unless something else is plugged in)
+	private final static int DEFAULT_NUM_LOCAL_SEARCH_NEIGHBORS = 10;
+	private LocalSearchMode localSearchMode = LocalSearchMode.NONE;
+	private TourImprover tourImprover;
+	
+
+	// nearest neighbor tour length, candidate lists and heuristic info, possibly shared with other solvers
+	private SharedProblemData shared;
+
+	// master random stream; every ant gets its own stream split off of it
+	private RandomStream random;
+
+	// Best so far variables; determined as the algorithm progresses
+	private double bsfLength;
+	private int[] bsfTour;
+
+	public AntSystem(TSP problem, int numAnts, double alpha, double beta, double evapFactor) {
+		this(problem, numAnts, alpha, beta, evapFactor, new RandomStream());
+	}
+
+	// same, but all the randomness comes from the given stream. a stream with a fixed seed gives the
+	// same tours every run
+	public AntSystem(TSP problem, int numAnts, double alpha, double beta, double evapFactor, RandomStream random) {
+		this(problem, numAnts, alpha, beta, evapFactor, random, MatrixStorage.DENSE_DOUBLE);
+	}
+
+	// same, and the pheromone, heuristic and next node weight matrices use the given storage.
+	// packed storage treats pheromone as symmetric
+	public AntSystem(TSP problem, int numAnts, double alpha, double beta, double evapFactor, RandomStream random,
+			MatrixStorage storage) {
+		this(new SharedProblemData(problem, storage), numAnts, alpha, beta, evapFactor, random);
+	}
+
+	// same, but the nearest neighbor tour length, candidate lists and heuristic info come from (and go into)
+	// the shared data, so solvers on the same problem don't each work them out again. matrix storage is the
+	// shared data's
+	public AntSystem(SharedProblemData shared, int numAnts, double alpha, double beta, double evapFactor,
+			RandomStream random) {
+		// import from TSP
+		TSP problem = shared.getProblem();
+		this.shared = shared;
+		this.numNodes = problem.getNumNodes();
+		this.nodeCoords = problem.getNodeCoords();
+		this.nodeDists = problem.getNodeDists();
+		this.largeInstance = problem.isLargeInstance();
+		if (this.largeInstance) {
+			this.spatialIndex = problem.getSpatialIndex();
+			this.numCandidates = Math.min(DEFAULT_NUM_CANDIDATES, this.numNodes - 1);
+			this.candidateLists = shared.getCandidateLists(this.numCandidates, this);
+		}
+		
+		// create Ants array
+		this.numAnts = numAnts;
+		this.random = random;
+		Ant[] ants = new Ant[this.numAnts];
+		for (int i = 0; i < this.numAnts; i++) {
+			ants[i] = new Ant(this.numNodes, this.random.split());
+		}
+		this.ants = ants;
+		for (int i = 0; i < NUM_PHEROMONE_LOCKS; i++) {
+			this.pheromoneLocks[i] = new Object();
+		}
+
+		// say so up front if the matrices aren't going to fit
+		MatrixStorage storage = shared.getStorage();
+		this.storage = storage;
+		long estimatedBytes = this.largeInstance ? estimateMemoryFootprint(this.numNodes, numAnts, this.numCandidates)
+				: estimateMemoryFootprint(this.numNodes, numAnts, storage);
+		if (estimatedBytes > Runtime.getRuntime().maxMemory()) {
+			System.out.println("Warning: solver needs about " + (estimatedBytes >> 20) + " MB, but the heap is only "
+					+ (Runtime.getRuntime().maxMemory() >> 20) + " MB");
+		}
+
+		// import from parameters
+		this.alpha = alpha;
+		this.beta = beta;
+		this.evapFactor = evapFactor;
+		this.bsfLength = this.getHuuuuuuuuuuuuge(); // yeeeeeeeeeeeeaaaaa
+
+		this.nnLength = shared.getNnLength(this);
+		this.initPheromoneWeight = this.calcInitPheromoneWeight(this.numAnts, this.nnLength);
+		this.pheromoneWeights = this.buildPheromoneWeightsMatrix(this.numNodes, this.initPheromoneWeight);
+		this.heuristicInfo = shared.getHeuristicInfo(this.beta, this.numCandidates, this);
+		this.updateNextNodeWeightsMatrix();
+
+	}
+
+	// yessir
+	public static double getHuuuuuuuuuuuuge() {
+		return HUUUUUUUUUUUUGE;
+	}
+
+	// rough bytes a solver will allocate (the three matrices and the ants), so it can be checked before
+	// building one. doesn't count the distance matrix, which belongs to the TSP
+	public static long estimateMemoryFootprint(int numNodes, int numAnts, MatrixStorage storage) {
+		long matrixBytes = 3 * storage.estimateBytes(numNodes);
+		// tour, unvisited nodes and their positions are int[numNodes] each, plus the visited bitset
+		long antBytes = (long) numAnts * (3L * 4 * numNodes + numNodes / 8);
+		return matrixBytes + antBytes;
+	}
+
+	// same, for a large instance solver with the given candidate list size
+	public static long estimateMemoryFootprint(int numNodes, int numAnts, int numCandidates) {
+		long matrixBytes = 3 * 8L * numNodes * numCandidates;
+		long candidateListBytes = 4L * numNodes * numCandidates;
+		long antBytes = (long) numAnts * (3L * 4 * numNodes + numNodes / 8);
+		return matrixBytes + candidateListBytes + antBytes;
+	}
+
+	// bytes actually taken up by the three matrices, the ants, and the candidate lists if any
+	public long getMemoryFootprint() {
+		long bytes = this.pheromoneWeights.getMemoryFootprint() + this.heuristicInfo.getMemoryFootprint()
+				+ this.nextNodeWeights.getMemoryFootprint();
+		bytes += (long) this.numAnts * (3L * 4 * this.numNodes + this.numNodes / 8);
+		if (this.candidateLists != null) {
+			bytes += 4L * this.numNodes * this.numCandidates;
+		}
+		return bytes;
+	}
+
+	// calculate the nearest neighbor tour length, all the way back home (see TourConstruction)
+	public double calcNearestNeighborTourLength() {
+		return this.calcTourLength(TourConstruction.nearestNeighborTour(this.shared.getProblem()));
+	}
+
+	// start the bsf off with a tour built the given way, instead of whatever the first iteration finds. the
+	// tour only replaces a longer bsf, like any other offered tour. returns its length
+	public double seedBsf(ConstructionHeuristic heuristic) {
+		int[] tour = heuristic.buildTour(this.shared.getProblem());
+		double tourLength = this.calcTourLength(tour);
+		this.offerTour(tour, tourLength);
+		return tourLength;
+	}
+
+	// pick the nearest node for the ant, given its current node
+	public int chooseNearestNeighborNode(Ant ant) {
+		int currNode = ant.getCurrNode();
+		if (this.spatialIndex != null) {
+			return this.spatialIndex.nearestUnvisited(currNode, ant);
+		}
+
+		int numUnvisitedNodes = ant.getNumUnvisitedNodes();
+	
+		// extreme values that will be changed
+		double distanceToNextNode = this.getHuuuuuuuuuuuuge();
+		int nextNode = -1;
+		
+		for (int i = 0; i < numUnvisitedNodes; i++) {
+			int prospectiveNode = ant.getUnvisitedNode(i);
+			// if prospectiveNode is closer thant he current "hiscore"
+			if (this.nodeDists.get(currNode, prospectiveNode) < distanceToNextNode) {
+				distanceToNextNode = nodeDists.get(currNode, prospectiveNode);
+				nextNode = prospectiveNode;
+			}
+		}
+	
+		return nextNode;
+	
+	}
+
+	// switch candidate lists on (numCandidates > 0) or off (numCandidates <= 0). with candidate lists on,
+	// ants only look at the unvisited nodes among the numCandidates nearest ones, so a tour costs
+	// O(n * numCandidates) instead of O(n^2)
+	// large instances can't turn candidate lists off, and changing their size rebuilds the candidate matrices,
+	// which starts the pheromone over
+	public void setNumCandidates(int numCandidates) {
+		if (numCandidates <= 0) {
+			if (this.largeInstance) {
+				System.out.println("Error: large instances always use candidate lists");
+				return;
+			}
+			this.numCandidates = 0;
+			this.candidateLists = null;
+			return;
+		}
+		// can't have more candidates than other nodes
+		this.numCandidates = Math.min(numCandidates, this.numNodes - 1);
+		this.candidateLists = this.shared.getCandidateLists(this.numCandidates, this);
+
+		if (this.largeInstance) {
+			this.pheromoneWeights = this.buildPheromoneWeightsMatrix(this.numNodes, this.initPheromoneWeight);
+			this.heuristicInfo = this.shared.getHeuristicInfo(this.beta, this.numCandidates, this);
+			this.nextNodeWeights = null;
+			this.updateNextNodeWeightsMatrix();
+			if (this.lazyEvaporation) {
+				this.wrapForLazyEvaporation();
+			}
+			// the pipeline's snapshots are laid out by the old candidate lists
+			this.restartPipeline();
+		}
+	}
+
+	// for each node, find the numCandidates nearest other nodes, sorted nearest first.
+	// keeps a small sorted list per row and insertion sorts into it, which beats sorting whole rows
+	public int[][] buildCandidateLists(Matrix nodeDists, int numCandidates) {
+		int numNodes = nodeDists.getNumNodes();
+
+		// the spatial index answers this without touching all n^2 distances
+		if (this.spatialIndex != null) {
+			int[][] candidateLists = new int[numNodes][];
+			for (int i = 0; i < numNodes; i++) {
+				candidateLists[i] = this.spatialIndex.kNearest(i, numCandidates);
+			}
+			return candidateLists;
+		}
+
+		int[][] candidateLists = new int[numNodes][numCandidates];
+		double[] candidateDists = new double[numCandidates];
+		for (int i = 0; i < numNodes; i++) {
+			fillCandidateList(nodeDists, i, candidateLists[i], candidateDists);
+		}
+		return candidateLists;
+	}
+
+	// one row of the above: the candidates.length nearest other nodes to node, nearest first.
+	// candidateDists is scratch of the same length
+	private static void fillCandidateList(Matrix nodeDists, int node, int[] candidates, double[] candidateDists) {
+		int numCandidates = candidates.length;
+		int numFound = 0;
+		for (int j = 0; j < nodeDists.getNumNodes(); j++) {
+			if (node == j) {
+				continue;
+			}
+			double dist = nodeDists.get(node, j);
+			// list is full and j is no closer than the furthest candidate
+			if (numFound == numCandidates && dist >= candidateDists[numFound - 1]) {
+				continue;
+			}
+			// shift further candidates back until j's spot is found
+			int spot = (numFound < numCandidates) ? numFound++ : numFound - 1;
+			while (spot > 0 && candidateDists[spot - 1] > dist) {
+				candidateDists[spot] = candidateDists[spot - 1];
+				candidates[spot] = candidates[spot - 1];
+				spot--;
+			}
+			candidateDists[spot] = dist;
+			candidates[spot] = j;
+		}
+	}
+
+	// pick the unvisited node with the largest next node weight. this is the full O(n) scan, so with
+	// candidate lists on it's only the fallback for when every candidate has been visited.
+	// on large instances every arc outside the candidate lists has the same pheromone, so the best of them
+	// is just the nearest one, and the spatial index finds that without the scan
+	public int chooseBestUnvisitedNode(Ant ant) {
+		int currNode = ant.getCurrNode();
+		if (this.largeInstance) {
+			// explicit problems have no index, and get the scan by distance instead
+			return this.chooseNearestNeighborNode(ant);
+		}
+
+		int numUnvisitedNodes = ant.getNumUnvisitedNodes();
+		Matrix weights = this.getConstructionWeights();
+
+		double maxWeight = -1;
+		int nextNode = -1;
+		for (int i = 0; i < numUnvisitedNodes; i++) {
+			int prospectiveNode = ant.getUnvisitedNode(i);
+			if (maxWeight < weights.get(currNode, prospectiveNode)) {
+				maxWeight = weights.get(currNode, prospectiveNode);
+				nextNode = prospectiveNode;
+			}
+		}
+		return nextNode;
+	}
+
+	// calculate intial pheromone levels. this is dependent on choice of variant, but it always
+	// involves the nnLength and usually the numAnts as well
+	public abstract double calcInitPheromoneWeight(int numAnts, double nnLength);
+
+	
+	//build the initial pheromoneWeightsMatrix using the initial pheromone weight
+	// essentially just fill an entire array with the exact same value
+	public Matrix buildPheromoneWeightsMatrix(int numNodes, double initPheromoneWeight) {
+		Matrix pheromoneWeights = this.createMatrix(numNodes);
+		pheromoneWeights.fill(initPheromoneWeight);
+		return pheromoneWeights;
+	}
+
+	// basically just reciprocal of distances (to the power beta; see MatrixKernels.power)
+	public Matrix buildHeuristicInfoMatrix(Matrix nodeDists, double beta) {
+		int numNodes = nodeDists.getNumNodes();
+		Matrix heuristicInfo = this.createMatrix(numNodes);
+
+		// candidate matrices only have the candidate arcs to fill
+		if (this.largeInstance) {
+			for (int i = 0; i < numNodes; i++) {
+				for (int node : this.candidateLists[i]) {
+					heuristicInfo.set(i, node, MatrixKernels.power(1 / nodeDists.get(i, node), beta));
+				}
+			}
+			return heuristicInfo;
+		}
+
+		// distances stored the same way: one sweep over the flat arrays
+		if (MatrixKernels.buildHeuristicInfo(nodeDists, heuristicInfo, beta)) {
+			return heuristicInfo;
+		}
+
+		for (int i = 0; i < numNodes; i++) {
+			for (int j = i; j < numNodes; j++) {
+				double weight = MatrixKernels.power(1 / nodeDists.get(i, j), beta);
+				heuristicInfo.set(i, j, weight);
+				// symmetric matrices already got (j, i) with that set. the distances themselves needn't be
+				// symmetric though (explicit problems)
+				if (!heuristicInfo.isSymmetric()) {
+					heuristicInfo.set(j, i, MatrixKernels.power(1 / nodeDists.get(j, i), beta));
+				}
+			}
+		}
+		return heuristicInfo;
+	}
+
+	// product of pheromone weights and heuristic info, rebuilt from scratch (in place, once the matrix exists).
+	// only needed when everything changes at once (construction, new alpha/beta, a whole new pheromone
+	// matrix). from then on every pheromone change goes through updateSinglePheromoneWeight or
+	// scaleAllPheromoneWeights, which keep the next node weights in sync as they go
+	public void updateNextNodeWeightsMatrix() {
+		if (this.nextNodeWeights == null || this.nextNodeWeights.getNumNodes() != this.numNodes) {
+			this.nextNodeWeights = this.createMatrix(this.numNodes);
+		}
+
+		if (this.largeInstance) {
+			for (int i = 0; i < this.numNodes; i++) {
+				for (int node : this.candidateLists[i]) {
+					this.updateSingleNextNodeWeight(i, node);
+				}
+			}
+			return;
+		}
+
+		// all three stored the same way (the usual case, unless lazy evaporation has wrapped some of them):
+		// one sweep over the flat arrays
+		if (MatrixKernels.updateNextNodeWeights(this.pheromoneWeights, this.heuristicInfo, this.nextNodeWeights,
+				this.alpha)) {
+			return;
+		}
+
+		// symmetric storage only needs the upper triangle
+		boolean symmetric = this.nextNodeWeights.isSymmetric();
+		for (int i = 0; i < this.numNodes; i++) {
+			for (int j = symmetric ? i : 0; j < this.numNodes; j++) {
+				this.updateSingleNextNodeWeight(i, j);
+			}
+		}
+	}
+
+	// new, empty solver matrix: candidate arcs only for large instances, otherwise whatever storage was asked for
+	public Matrix createMatrix(int numNodes) {
+		if (this.largeInstance) {
+			return new CandidateMatrix(this.candidateLists);
+		}
+		return this.storage.create(numNodes);
+	}
+
+	// recompute one next node weight from its pheromone weight
+	public void updateSingleNextNodeWeight(int node1, int node2) {
+		// alpha = 1 (or 2, 3) is common enough to skip the pow
+		double pheromoneWeight = MatrixKernels.power(this.pheromoneWeights.get(node1, node2), this.alpha);
+		this.nextNodeWeights.set(node1, node2, pheromoneWeight * this.heuristicInfo.get(node1, node2));
+	}
+
+	// multiply every pheromone weight by the same factor (i.e. evaporation). the next node weights all get
+	// multiplied by factor^alpha in the same sweep, so there's no pow per entry
+	public void scaleAllPheromoneWeights(double factor) {
+		this.pheromoneWeights.scale(factor);
+		this.nextNodeWeights.scale(Math.pow(factor, this.alpha));
+	}
+
+	// apply f to every stored pheromone weight (i.e. bounding, smoothing), recomputing the next node weights
+	// of just the entries that actually changed. large instances only have their candidate arcs to go over;
+	// the shared weight of the other arcs is left alone, since ants never choose by it
+	public void transformAllPheromoneWeights(DoubleUnaryOperator f) {
+		if (this.largeInstance) {
+			for (int i = 0; i < this.numNodes; i++) {
+				for (int node : this.candidateLists[i]) {
+					this.transformSinglePheromoneWeight(i, node, f);
+				}
+			}
+			return;
+		}
+
+		boolean symmetric = this.pheromoneWeights.isSymmetric();
+		for (int i = 0; i < this.numNodes; i++) {
+			for (int j = symmetric ? i + 1 : 0; j < this.numNodes; j++) {
+				if (i != j) {
+					this.transformSinglePheromoneWeight(i, j, f);
+				}
+			}
+		}
+	}
+
+	private void transformSinglePheromoneWeight(int node1, int node2, DoubleUnaryOperator f) {
+		double pheromoneWeight = this.pheromoneWeights.get(node1, node2);
+		double newWeight = f.applyAsDouble(pheromoneWeight);
+		if (newWeight != pheromoneWeight) {
+			this.updateSinglePheromoneWeight(node1, node2, newWeight);
+		}
+	}
+
+	// copy of the pheromone weights, in the same kind of matrix, for when they're about to change but the
+	// old values are still needed (i.e. blending colonies' pheromone)
+	public Matrix snapshotPheromoneWeights() {
+		this.drainPipeline();
+		Matrix snapshot = this.createMatrix(this.numNodes);
+		if (this.largeInstance) {
+			for (int i = 0; i < this.numNodes; i++) {
+				for (int node : this.candidateLists[i]) {
+					snapshot.set(i, node, this.pheromoneWeights.get(i, node));
+				}
+			}
+			return snapshot;
+		}
+
+		boolean symmetric = snapshot.isSymmetric();
+		for (int i = 0; i < this.numNodes; i++) {
+			for (int j = symmetric ? i : 0; j < this.numNodes; j++) {
+				snapshot.set(i, j, this.pheromoneWeights.get(i, j));
+			}
+		}
+		return snapshot;
+	}
+
+	// move every pheromone weight part of the way towards source's: tau = (1 - weight) * tau + weight * source
+	public void blendPheromoneWeights(Matrix source, double weight) {
+		this.drainPipeline();
+		if (this.largeInstance) {
+			for (int i = 0; i < this.numNodes; i++) {
+				for (int node : this.candidateLists[i]) {
+					this.blendSinglePheromoneWeight(i, node, source, weight);
+				}
+			}
+			return;
+		}
+
+		boolean symmetric = this.pheromoneWeights.isSymmetric();
+		for (int i = 0; i < this.numNodes; i++) {
+			for (int j = symmetric ? i + 1 : 0; j < this.numNodes; j++) {
+				if (i != j) {
+					this.blendSinglePheromoneWeight(i, j, source, weight);
+				}
+			}
+		}
+	}
+
+	private void blendSinglePheromoneWeight(int node1, int node2, Matrix source, double weight) {
+		double newWeight = (1 - weight) * this.pheromoneWeights.get(node1, node2) + weight * source.get(node1, node2);
+		this.updateSinglePheromoneWeight(node1, node2, newWeight);
+	}
+
+	// a tour from somewhere else (another colony, a file, a construction heuristic). becomes the bsf if it's
+	// shorter, in which case it's copied and true comes back
+	public boolean offerTour(int[] tour, double tourLength) {
+		this.drainPipeline();
+		if (tour == null || tour.length != this.numNodes || tourLength >= this.bsfLength) {
+			return false;
+		}
+		this.bsfLength = tourLength;
+		this.bsfTour = tour.clone();
+		return true;
+	}
+
+	// cities coming and going while the solver runs (see TSP.addCity for how nodes get numbered). the problem
+	// changes along with the solver, and the solver keeps what it has learned: only the rows and columns of the
+	// city that changed get worked out, the rest of the pheromone carries on, and the bsf tour is patched up
+	// rather than thrown away. other solvers on the same shared data don't come along, and have to be rebuilt
+
+	// returns the new city's node number. it's inserted into the bsf tour where it adds the least length
+	public int addCity(double x, double y) {
+		this.drainPipeline();
+		int oldNumNodes = this.numNodes;
+		int node = this.shared.getProblem().addCity(x, y);
+		if (node < 0) {
+			return -1;
+		}
+		this.citiesChanged(TSP.sourceNodesAfterAdd(oldNumNodes), node);
+		return node;
+	}
+
+	// the city is cut out of the bsf tour, and its neighbors there are joined up
+	public boolean removeCity(int node) {
+		this.drainPipeline();
+		int oldNumNodes = this.numNodes;
+		if (!this.shared.getProblem().removeCity(node)) {
+			return false;
+		}
+		this.citiesChanged(TSP.sourceNodesAfterRemove(oldNumNodes, node), -1);
+		return true;
+	}
+
+	// the city is cut out of the bsf tour and inserted again wherever is cheapest from its new spot
+	public boolean moveCity(int node, double x, double y) {
+		this.drainPipeline();
+		if (!this.shared.getProblem().moveCity(node, x, y)) {
+			return false;
+		}
+		this.citiesChanged(null, node);
+		return true;
+	}
+
+	// bring everything over to the problem's new nodes. sourceNodes maps new nodes to old ones (null: same
+	// nodes), changedNode is the city with new distances (-1: none)
+	private void citiesChanged(int[] sourceNodes, int changedNode) {
+		TSP problem = this.shared.getProblem();
+		int oldNumNodes = this.numNodes;
+		this.numNodes = problem.getNumNodes();
+		this.nodeCoords = problem.getNodeCoords();
+		this.nodeDists = problem.getNodeDists();
+		if (this.largeInstance) {
+			this.spatialIndex = problem.getSpatialIndex();
+		}
+		if (sourceNodes == null) {
+			sourceNodes = new int[this.numNodes];
+			for (int i = 0; i < this.numNodes; i++) {
+				sourceNodes[i] = i;
+			}
+		}
+		int[] newNodes = new int[oldNumNodes]; // the other way round: old node to new one, -1 if it's gone
+		Arrays.fill(newNodes, -1);
+		for (int i = 0; i < this.numNodes; i++) {
+			if (sourceNodes[i] >= 0) {
+				newNodes[sourceNodes[i]] = i;
+			}
+		}
+
+		// candidate lists first, candidate matrices are laid out by them
+		boolean[] changedRows = new boolean[this.numNodes];
+		if (changedNode >= 0) {
+			changedRows[changedNode] = true;
+		}
+		if (this.candidateLists != null) {
+			this.candidateLists = this.repairCandidateLists(sourceNodes, newNodes, changedNode, changedRows);
+		}
+
+		// same nodes in dense matrices: everything can stay where it is. otherwise copy into matrices of the
+		// new size (or candidate lists)
+		boolean lazy = this.lazyEvaporation;
+		if (this.largeInstance || oldNumNodes != this.numNodes) {
+			this.heuristicInfo = this.remapMatrix(this.heuristicInfo, sourceNodes);
+			this.pheromoneWeights = this.remapMatrix(this.pheromoneWeights, sourceNodes);
+			this.nextNodeWeights = this.remapMatrix(this.nextNodeWeights, sourceNodes);
+			if (lazy) {
+				this.wrapForLazyEvaporation();
+			}
+		}
+
+		// the arcs that changed: heuristic info from the new distances, and pheromone borrowed from the
+		// changed city's nearest neighbor, which has been learning about that part of the map all along.
+		// candidate matrices have whole rows of new arcs wherever a candidate list changed; otherwise it's
+		// just the changed city's row and column
+		int nearestNode = (changedNode >= 0) ? this.nearestOtherNode(changedNode) : -1;
+		if (this.largeInstance) {
+			for (int i = 0; i < this.numNodes; i++) {
+				if (changedRows[i]) {
+					for (int node : this.candidateLists[i]) {
+						this.resetArc(i, node, changedNode, nearestNode);
+					}
+				}
+			}
+		} else if (changedNode >= 0) {
+			boolean symmetric = this.pheromoneWeights.isSymmetric();
+			for (int j = 0; j < this.numNodes; j++) {
+				this.resetArc(changedNode, j, changedNode, nearestNode);
+				if (!symmetric) {
+					this.resetArc(j, changedNode, changedNode, nearestNode);
+				}
+			}
+		}
+
+		// same ants (and random streams), sized for the new problem
+		Ant[] ants = new Ant[this.numAnts];
+		for (int i = 0; i < this.numAnts; i++) {
+			ants[i] = new Ant(this.numNodes, this.ants[i].getRandom());
+		}
+		this.setAnts(ants);
+
+		this.shared.problemChanged(this.numCandidates, this.candidateLists, this.beta, this.heuristicInfo);
+		if (this.tourImprover instanceof LocalSearch) {
+			this.tourImprover = null;
+			this.setLocalSearchMode(this.localSearchMode);
+		}
+		this.repairBsfTour(newNodes, changedNode);
+		this.problemChanged();
+	}
+
+	// copy of matrix laid out for the new nodes (entries of new nodes are left at 0)
+	private Matrix remapMatrix(Matrix matrix, int[] sourceNodes) {
+		Matrix remapped = this.createMatrix(this.numNodes);
+		remapped.copyFrom(matrix, sourceNodes);
+		return remapped;
+	}
+
+	// heuristic info of (node1, node2) from its distance. an arc of the changed city gets the pheromone of the
+	// same arc from its nearest neighbor, and the arc between the two the best pheromone that neighbor has.
+	// anything else keeps its pheromone; either way the next node weight follows
+	private void resetArc(int node1, int node2, int changedNode, int nearestNode) {
+		this.heuristicInfo.set(node1, node2, MatrixKernels.power(1 / this.nodeDists.get(node1, node2), this.beta));
+		double pheromoneWeight = this.pheromoneWeights.get(node1, node2);
+		if (node1 == changedNode || node2 == changedNode) {
+			int otherNode = (node1 == changedNode) ? node2 : node1;
+			if (otherNode == changedNode) {
+				pheromoneWeight = this.pheromoneWeights.get(nearestNode, nearestNode);
+			} else if (otherNode == nearestNode) {
+				pheromoneWeight = this.maxPheromoneWeight(nearestNode, changedNode);
+			} else {
+				pheromoneWeight = (node1 == changedNode) ? this.pheromoneWeights.get(nearestNode, node2)
+						: this.pheromoneWeights.get(node1, nearestNode);
+			}
+		}
+		this.updateSinglePheromoneWeight(node1, node2, pheromoneWeight);
+	}
+
+	private int nearestOtherNode(int node) {
+		if (this.spatialIndex != null) {
+			return this.spatialIndex.kNearest(node, 1)[0];
+		}
+		int nearest = -1;
+		double nearestDist = HUUUUUUUUUUUUGE;
+		for (int j = 0; j < this.numNodes; j++) {
+			if (j != node && this.nodeDists.get(node, j) < nearestDist) {
+				nearestDist = this.nodeDists.get(node, j);
+				nearest = j;
+			}
+		}
+		return nearest;
+	}
+
+	// largest pheromone weight on any of node's arcs (its candidate arcs, on large instances), apart from
+	// the one to skippedNode
+	private double maxPheromoneWeight(int node, int skippedNode) {
+		double max = 0;
+		int numArcs = this.largeInstance ? this.candidateLists[node].length : this.numNodes;
+		for (int c = 0; c < numArcs; c++) {
+			int otherNode = this.largeInstance ? this.candidateLists[node][c] : c;
+			if (otherNode != node && otherNode != skippedNode) {
+				max = Math.max(max, this.pheromoneWeights.get(node, otherNode));
+			}
+		}
+		return max;
+	}
+
+	// candidate lists for the new nodes. a list that lost a node (or has the changed city in it) gets
+	// rebuilt, the changed city gets inserted into any list it's now close enough for, and the rest are just
+	// renumbered. rows whose lists changed are marked in changedRows
+	private int[][] repairCandidateLists(int[] sourceNodes, int[] newNodes, int changedNode, boolean[] changedRows) {
+		int numCandidates = Math.min(this.numCandidates, this.numNodes - 1);
+		if (numCandidates != this.numCandidates) {
+			// fewer cities than candidates: every list changes size anyway
+			this.numCandidates = numCandidates;
+			Arrays.fill(changedRows, true);
+			return this.buildCandidateLists(this.nodeDists, numCandidates);
+		}
+
+		int[][] candidateLists = new int[this.numNodes][];
+		for (int i = 0; i < this.numNodes; i++) {
+			int sourceNode = sourceNodes[i];
+			if (sourceNode < 0 || i == changedNode) {
+				candidateLists[i] = this.buildCandidateList(i, numCandidates);
+				changedRows[i] = true;
+				continue;
+			}
+
+			int[] candidates = this.candidateLists[sourceNode].clone();
+			boolean rebuild = false;
+			for (int c = 0; c < candidates.length; c++) {
+				candidates[c] = newNodes[candidates[c]];
+				rebuild |= candidates[c] < 0 || candidates[c] == changedNode;
+			}
+			if (rebuild) {
+				candidates = this.buildCandidateList(i, numCandidates);
+				changedRows[i] = true;
+			} else if (changedNode >= 0 && this.nodeDists.get(i, changedNode) < this.nodeDists.get(i,
+					candidates[candidates.length - 1])) {
+				// the furthest candidate drops out, the changed city goes in where it belongs
+				int spot = candidates.length - 1;
+				double dist = this.nodeDists.get(i, changedNode);
+				while (spot > 0 && this.nodeDists.get(i, candidates[spot - 1]) > dist) {
+					candidates[spot] = candidates[spot - 1];
+					spot--;
+				}
+				candidates[spot] = changedNode;
+				changedRows[i] = true;
+			}
+			candidateLists[i] = candidates;
+		}
+		return candidateLists;
+	}
+
+	// one node's candidate list, same as its row of buildCandidateLists
+	private int[] buildCandidateList(int node, int numCandidates) {
+		if (this.spatialIndex != null) {
+			return this.spatialIndex.kNearest(node, numCandidates);
+		}
+		int[] candidates = new int[numCandidates];
+		fillCandidateList(this.nodeDists, node, candidates, new double[numCandidates]);
+		return candidates;
+	}
+
+	// bsf tour in the new node numbers: nodes that are gone (or moved) are cut out, and the changed city is
+	// put back in by cheapest insertion. the length is worked out again from the new distances
+	private void repairBsfTour(int[] newNodes, int changedNode) {
+		if (this.bsfTour == null) {
+			return;
+		}
+		int[] tour = new int[this.numNodes];
+		int tourSize = 0;
+		for (int oldNode : this.bsfTour) {
+			int node = newNodes[oldNode];
+			if (node >= 0 && node != changedNode) {
+				tour[tourSize++] = node;
+			}
+		}
+
+		if (changedNode >= 0) {
+			int bestSpot = 0;
+			double bestIncrease = HUUUUUUUUUUUUGE;
+			for (int i = 0; i < tourSize; i++) {
+				int node1 = tour[i];
+				int node2 = tour[(i + 1) % tourSize];
+				double increase = this.nodeDists.get(node1, changedNode) + this.nodeDists.get(changedNode, node2)
+						- this.nodeDists.get(node1, node2);
+				if (increase < bestIncrease) {
+					bestIncrease = increase;
+					bestSpot = i + 1;
+				}
+			}
+			System.arraycopy(tour, bestSpot, tour, bestSpot + 1, tourSize - bestSpot);
+			tour[bestSpot] = changedNode;
+			tourSize++;
+		}
+
+		this.bsfTour = tour;
+		this.bsfLength = this.calcTourLength(tour);
+	}
+
+	// length of a closed tour, back to the first node at the end
+	public double calcTourLength(int[] tour) {
+		return TourConstruction.tourLength(this.nodeDists, tour);
+	}
+
+	// for variants with state that depends on the problem (i.e. MMAS's pheromone bounds). called after a
+	// city was added, removed or moved, once the bsf has been patched up
+	public void problemChanged() {
+	}
+
+	// average lambda branching factor: for each node, how many of its arcs have pheromone within lambda of the
+	// top of that node's range (min + lambda * (max - min)). only looks at the candidate arcs when there are
+	// candidate lists. how low it gets once the colony has settled on one tour depends on the pheromone
+	// matrix, see getSettledBranchingFactor
+	public double calcBranchingFactor(double lambda) {
+		this.drainPipeline();
+		long numBranches = 0;
+		for (int i = 0; i < this.numNodes; i++) {
+			double min = Double.MAX_VALUE;
+			double max = -Double.MAX_VALUE;
+			int numArcs = (this.candidateLists == null) ? this.numNodes : this.candidateLists[i].length;
+			for (int c = 0; c < numArcs; c++) {
+				int node = (this.candidateLists == null) ? c : this.candidateLists[i][c];
+				if (node == i) {
+					continue;
+				}
+				double pheromoneWeight = this.pheromoneWeights.get(i, node);
+				min = Math.min(min, pheromoneWeight);
+				max = Math.max(max, pheromoneWeight);
+			}
+			double threshold = min + lambda * (max - min);
+			for (int c = 0; c < numArcs; c++) {
+				int node = (this.candidateLists == null) ? c : this.candidateLists[i][c];
+				if (node != i && this.pheromoneWeights.get(i, node) >= threshold) {
+					numBranches++;
+				}
+			}
+		}
+		return (double) numBranches / this.numNodes;
+	}
+
+	// the branching factor of a colony that has settled on one tour: 2 when a deposit on i-j also lands on
+	// j-i (symmetric matrices), 1 when deposits only go the way the tour went (full matrices, where a
+	// tour deposited in the same direction every time leaves each node one strong arc out)
+	public double getSettledBranchingFactor() {
+		return this.pheromoneWeights.isSymmetric() ? 2 : 1;
+	}
+
+	// put the pheromone and next node weights behind LazyScaledMatrix (if they aren't already)
+	private void wrapForLazyEvaporation() {
+		double minScale = (!this.largeInstance && this.storage.getBytesPerEntry() == 4) ? MIN_LAZY_SCALE_FLOAT
+				: MIN_LAZY_SCALE_DOUBLE;
+		if (!(this.pheromoneWeights instanceof LazyScaledMatrix)) {
+			this.pheromoneWeights = new LazyScaledMatrix(this.pheromoneWeights, minScale);
+		}
+		if (!(this.nextNodeWeights instanceof LazyScaledMatrix)) {
+			this.nextNodeWeights = new LazyScaledMatrix(this.nextNodeWeights, minScale);
+		}
+	}
+
+	// the other way: push the scales into the entries and drop the wrappers
+	private void unwrapFromLazyEvaporation() {
+		if (this.pheromoneWeights instanceof LazyScaledMatrix) {
+			LazyScaledMatrix lazy = (LazyScaledMatrix) this.pheromoneWeights;
+			lazy.materialize();
+			this.pheromoneWeights = lazy.getInner();
+		}
+		if (this.nextNodeWeights instanceof LazyScaledMatrix) {
+			LazyScaledMatrix lazy = (LazyScaledMatrix) this.nextNodeWeights;
+			lazy.materialize();
+			this.nextNodeWeights = lazy.getInner();
+		}
+	}
+
+	// iterate through all ants once: build tours, update pheromones, etc.
+	public boolean singleIterationAllAnts() {
+		if (this.pipeline != null) {
+			return this.pipeline.iterate();
+		}
+	
+		// change to true if we find the BSF
+		boolean newBSFWasFound = false;
+		this.iterationCount++;
+		IterationStats stats = this.iterationStats;
+		if (stats != null) {
+			stats.startIteration(this.iterationCount);
+		}
+	
+		// no need to rebuild the next node weights here: pheromone updates keep them current
+		// build all the tours, either in lockstep or in parallel
+		this.constructAllTours();
+		if (stats != null) {
+			stats.endPhase(IterationPhase.CONSTRUCTION);
+		}
+	
+		// calculate final distances for the ants, since they don't include
+		// dist(homeNode, currNode)
+		for (int i = 0; i < this.numAnts; i++) {
+			this.updateSingleAntTourLengths(this.ants[i]);
+		}
+		if (stats != null) {
+			stats.endPhase(IterationPhase.TOUR_LENGTHS);
+		}
+
+		// local search, if any. has to come after the lengths are final, since it updates them move by move
+		this.improveTours();
+		if (stats != null) {
+			stats.endPhase(IterationPhase.LOCAL_SEARCH);
+		}
+	
+		// check for BSF
+		if (this.identifyInterimBSF()) {
+			newBSFWasFound = true;
+		}
+		if (stats != null) {
+			stats.endPhase(IterationPhase.BSF_CHECK);
+		}
+	
+		// update pheromones
+		this.updatePheromone();
+		if (stats != null) {
+			stats.endPhase(IterationPhase.PHEROMONE_UPDATE);
+			this.notifyIterationListeners(stats, newBSFWasFound);
+		}
+	
+		// clear ants, ready for the next iteration
+		// has to be below pheromone udpate because pheromone update needs ant
+		// info still, specifically the 2d array of the path
+		for (int i = 0; i < this.numAnts; i++) {
+			this.ants[i].clearCurrTourHistory();
+		}
+	
+		return newBSFWasFound;
+	
+	}
+
+	// finish off the iteration's stats (the ants still have their tours) and hand them to the listeners.
+	// pipelined, this runs on the updater thread, by which time iterationCount may have moved on
+	void notifyIterationListeners(IterationStats stats, boolean newBSFWasFound) {
+		stats.endIteration(this.ants, this.bsfLength, newBSFWasFound);
+		if (this.branchingFactorInterval > 0 && stats.getIteration() % this.branchingFactorInterval == 0) {
+			stats.setBranchingFactor(this.calcBranchingFactor(BRANCHING_FACTOR_LAMBDA));
+		}
+		for (IterationListener listener : this.iterationListeners) {
+			listener.iterationCompleted(stats);
+		}
+	}
+
+	// attaching the first listener switches instrumentation on
+	public void addIterationListener(IterationListener listener) {
+		this.iterationListeners = Arrays.copyOf(this.iterationListeners, this.iterationListeners.length + 1);
+		this.iterationListeners[this.iterationListeners.length - 1] = listener;
+		if (this.iterationStats == null) {
+			this.iterationStats = new IterationStats(this);
+		}
+	}
+
+	boolean hasIterationListeners() {
+		return this.iterationStats != null;
+	}
+
+	// removing the last one switches it back off
+	public void removeIterationListener(IterationListener listener) {
+		for (int i = 0; i < this.iterationListeners.length; i++) {
+			if (this.iterationListeners[i] == listener) {
+				IterationListener[] listeners = new IterationListener[this.iterationListeners.length - 1];
+				System.arraycopy(this.iterationListeners, 0, listeners, 0, i);
+				System.arraycopy(this.iterationListeners, i + 1, listeners, i, listeners.length - i);
+				this.iterationListeners = listeners;
+				break;
+			}
+		}
+		if (this.iterationListeners.length == 0) {
+			this.iterationStats = null;
+		}
+	}
+
+	// sets how many threads build tours. anything above 1 builds each ant's tour as a separate task on a
+	// ForkJoinPool, so tours are built all at once rather than one step at a time. everything after
+	// construction (tour lengths, BSF, pheromone update) still runs on the calling thread in ant order, so
+	// the iteration result is the same whichever thread built which tour
+	public void setNumThreads(int numThreads) {
+		numThreads = Math.max(1, numThreads);
+		if (numThreads == this.numThreads) {
+			return;
+		}
+		this.stopConstructionPool();
+		this.numThreads = numThreads;
+		if (numThreads > 1) {
+			this.constructionPool = new ForkJoinPool(numThreads, pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				this.addWorkerThread(thread);
+				return thread;
+			}, null, false);
+			this.constructionTasks = new ForkJoinTask<?>[this.numAnts];
+		}
+	}
+
+	// the threads besides the caller's that work for this solver: the construction pool's and the pipeline's
+	// updater. only IterationStats needs them, to count allocations
+	Thread[] getWorkerThreads() {
+		return this.workerThreads;
+	}
+
+	// a new pool or updater thread. the array is replaced rather than changed, so getWorkerThreads needs no
+	// lock; threads that have finished get dropped here
+	synchronized void addWorkerThread(Thread thread) {
+		int numAlive = 0;
+		Thread[] threads = new Thread[this.workerThreads.length + 1];
+		for (Thread worker : this.workerThreads) {
+			if (worker.getState() != Thread.State.TERMINATED) {
+				threads[numAlive++] = worker;
+			}
+		}
+		threads[numAlive++] = thread;
+		this.workerThreads = Arrays.copyOf(threads, numAlive);
+	}
+
+	// pipelined iterations (see IterationPipeline): with a depth above 1, the tours of the next iteration are
+	// built while earlier iterations' pheromone updates are still running on another thread, from a snapshot
+	// of the next node weights that's up to depth - 1 iterations old. 1 turns it back off. a seeded run stays
+	// reproducible, but isn't the same run as without the pipeline
+	public void setPipelineDepth(int pipelineDepth) {
+		pipelineDepth = Math.max(1, pipelineDepth);
+		if (pipelineDepth > 1 && !this.canPipeline()) {
+			System.out.println("Error: " + this.getClass().getSimpleName()
+					+ " changes pheromone while ants build tours, so its iterations can't be pipelined");
+			return;
+		}
+		this.pipelineDepth = pipelineDepth;
+		this.restartPipeline();
+	}
+
+	// how many iterations old the pheromone ants build from is allowed to get. can't be less than
+	// depth - 1 (0 means just that); more than that takes snapshots less often, see IterationPipeline
+	public void setPipelineStaleness(int pipelineStaleness) {
+		this.pipelineStaleness = Math.max(0, pipelineStaleness);
+		this.restartPipeline();
+	}
+
+	// false for variants whose ants change pheromone as they go
+	public boolean canPipeline() {
+		return true;
+	}
+
+	// wait for the pipeline's pending pheromone updates, so pheromone, next node weights and bsf are all
+	// caught up with the iterations run so far. does nothing when iterations aren't pipelined
+	public void drainPipeline() {
+		if (this.pipeline != null) {
+			this.pipeline.drain();
+		}
+	}
+
+	// drain the pipeline and start it again from the solver's current state, for when something the pipeline
+	// copied at the start (ants, next node weights) has been replaced
+	public void restartPipeline() {
+		if (this.pipeline != null) {
+			this.pipeline.close();
+			this.pipeline = null;
+			this.constructionWeights = null;
+		}
+		if (this.pipelineDepth > 1) {
+			int staleness = Math.max(this.pipelineStaleness, this.pipelineDepth - 1);
+			this.pipeline = new IterationPipeline(this, this.pipelineDepth, staleness);
+		}
+	}
+
+	// the ants the bsf check and pheromone update look at. the pipeline swaps its ant sets in here, without
+	// anything else setAnts does
+	void useAnts(Ant[] ants) {
+		this.ants = ants;
+	}
+
+	// stop the construction threads and the pipeline's updater, if any. the solver goes back to single
+	// threaded, unpipelined iterations
+	public void shutdown() {
+		this.setPipelineDepth(1);
+		this.stopConstructionPool();
+	}
+
+	private void stopConstructionPool() {
+		if (this.constructionPool != null) {
+			this.constructionPool.shutdown();
+		}
+		this.constructionPool = null;
+		this.constructionTasks = null;
+		this.numThreads = 1;
+	}
+
+	// build a full tour for every ant
+	public void constructAllTours() {
+		this.constructAllTours(this.ants);
+	}
+
+	// same, for a given set of ants (the pipeline has one per iteration in flight)
+	public void constructAllTours(Ant[] ants) {
+		if (this.constructionPool == null) {
+			// while tour construction incomplete, this while loop will continue
+			while (this.addNextNodeForAllAnts(ants)) {
+			}
+			return;
+		}
+
+		for (int i = 0; i < this.numAnts; i++) {
+			final Ant ant = ants[i];
+			this.constructionTasks[i] = this.constructionPool.submit(() -> this.buildTourForAnt(ant));
+		}
+		// join also makes the ants' tours (and any pheromone the tasks wrote) visible to this thread
+		for (int i = 0; i < this.numAnts; i++) {
+			this.constructionTasks[i].join();
+			this.constructionTasks[i] = null;
+		}
+	}
+
+	// run the tour improver over the tours localSearchMode asks for. with ALL_ANTS and several threads,
+	// each ant's tour is improved as its own task, same as construction
+	public void improveTours() {
+		this.improveTours(this.ants);
+	}
+
+	public void improveTours(Ant[] ants) {
+		if (this.localSearchMode == LocalSearchMode.NONE || this.tourImprover == null) {
+			return;
+		}
+
+		if (this.localSearchMode == LocalSearchMode.ITERATION_BEST) {
+			Ant iterationBestAnt = ants[0];
+			for (int i = 1; i < this.numAnts; i++) {
+				if (ants[i].getTourLength() < iterationBestAnt.getTourLength()) {
+					iterationBestAnt = ants[i];
+				}
+			}
+			this.improveTourForAnt(iterationBestAnt);
+			return;
+		}
+
+		if (this.constructionPool == null) {
+			for (int i = 0; i < this.numAnts; i++) {
+				this.improveTourForAnt(ants[i]);
+			}
+			return;
+		}
+
+		for (int i = 0; i < this.numAnts; i++) {
+			final Ant ant = ants[i];
+			this.constructionTasks[i] = this.constructionPool.submit(() -> this.improveTourForAnt(ant));
+		}
+		for (int i = 0; i < this.numAnts; i++) {
+			this.constructionTasks[i].join();
+			this.constructionTasks[i] = null;
+		}
+	}
+
+	// improves the ant's tour in place; the new length goes straight back into the ant
+	public void improveTourForAnt(Ant ant) {
+		double tourLength = this.tourImprover.improveTour(ant.getTour(), ant.getTourSize(), ant.getTourLength());
+		ant.setTourLength(tourLength);
+	}
+
+	// one ant builds its entire tour
+	public void buildTourForAnt(Ant ant) {
+		while (this.addNextNodeForAnt(ant)) {
+		}
+	}
+
+	// lock guarding the pheromone weight of the arc (node1, node2). variants that change pheromone while ants
+	// are building tours (i.e. ACS) have to hold it, since with parallel construction other ants do the same.
+	// with symmetric storage (node1, node2) and (node2, node1) are one entry, so they share a lock
+	public Object getPheromoneLock(int node1, int node2) {
+		int node = this.pheromoneWeights.isSymmetric() ? Math.min(node1, node2) : node1;
+		return this.pheromoneLocks[node & (NUM_PHEROMONE_LOCKS - 1)];
+	}
+
+	// returns false if ants[0] has finished building a tour...thus all ants
+	// have finished building tours
+	public boolean addNextNodeForAllAnts() {
+		return this.addNextNodeForAllAnts(this.ants);
+	}
+
+	public boolean addNextNodeForAllAnts(Ant[] ants) {
+		// every ant except for ant[0]
+		for (int i = 1; i < this.numAnts; i++) {
+			this.addNextNodeForAnt(ants[i]);
+		}
+		
+		// now do ant[0]
+		return this.addNextNodeForAnt(ants[0]);
+	}
+
+	// returns false if the ant has finished building a tour
+	// this needs to be abstract, since some variants (i.e. ACS) have ants that remove pheromone
+	// as they build their tours
+	public abstract boolean addNextNodeForAnt(Ant ant);
+
+	// also abstract, since variants have different ways for ants to choose the next node
+	public abstract int chooseNextNodeForAnt(Ant ant);
+
+	// probabilistically chooses the next node; returns that node (not the
+	// index!)
+	// EAS: same method
+	// ACS: extend this method by adding ability to directly exploit the best
+	// neighbor
+	public int chooseNextNodeForAntProbabilistically(Ant ant) {
+		if (this.candidateLists != null) {
+			return this.chooseCandidateNodeForAntProbabilistically(ant);
+		}
+
+		int currNode = ant.getCurrNode();
+		int numUnvisitedNodes = ant.getNumUnvisitedNodes();
+		Matrix nextNodeWeights = this.getConstructionWeights();
+
+		// the first entry in "weights" is 0
+		// this facilitates the use of the array as a pseudo-probability space..
+		// i.e. 1 is scaled to the sum of weights
+		// the array is the ant's own scratch, so nothing gets allocated per step
+		double[] weights = ant.getSelectionWeights(numUnvisitedNodes);
+		weights[0] = 0;
+
+		double sumOfWeights = 0;
+		for (int i = 0; i < numUnvisitedNodes; i++) {
+
+			// note that there's no need to divide by total weight...the
+			// probability is exactly the same (b/c using a pseudo-probability
+			// space)
+			sumOfWeights += nextNodeWeights.get(currNode, ant.getUnvisitedNode(i));
+			weights[i + 1] = sumOfWeights;
+		}
+
+		// weights that all underflowed (or blew up) leave nothing to spin
+		if (!RouletteWheel.isSpinnable(sumOfWeights)) {
+			return this.chooseBestUnvisitedNode(ant);
+		}
+
+		// the spin returns i such that: weights[i] <= randWeight < weights[i + 1]
+		// thus, for our program: our chosen node has index of i in
+		// unvisitedNodes
+		int nextNodeIndex = RouletteWheel.spin(weights, numUnvisitedNodes, ant.getRandom().nextDouble());
+		return ant.getUnvisitedNode(nextNodeIndex);
+
+	}
+
+	// same roulette wheel as above, but only over the unvisited nodes in the current node's candidate list.
+	// visited candidates get a weight of 0, so the spin can never land on them
+	public int chooseCandidateNodeForAntProbabilistically(Ant ant) {
+		int currNode = ant.getCurrNode();
+		int[] candidates = this.candidateLists[currNode];
+		Matrix nextNodeWeights = this.getConstructionWeights();
+
+		double[] weights = ant.getSelectionWeights(candidates.length);
+		weights[0] = 0;
+		double sumOfWeights = 0;
+		for (int i = 0; i < candidates.length; i++) {
+			if (!ant.isVisited(candidates[i])) {
+				sumOfWeights += nextNodeWeights.getCandidate(currNode, i, candidates[i]);
+			}
+			weights[i + 1] = sumOfWeights;
+		}
+
+		// every candidate is used up
+		if (!RouletteWheel.isSpinnable(sumOfWeights)) {
+			return this.chooseBestUnvisitedNode(ant);
+		}
+
+		int nextNodeIndex = RouletteWheel.spin(weights, candidates.length, ant.getRandom().nextDouble());
+		return candidates[nextNodeIndex];
+	}
+
+	// retrieve the best tour found (in a given iteration)
+	public boolean identifyInterimBSF() {
+	
+		double interimBsfLength = this.getHuuuuuuuuuuuuge(); // I love using this getter, for obvious reasons
+		Ant interimBsfAnt = null;
+	
+		for (int i = 0; i < this.numAnts; i++) {
+			if (interimBsfLength > this.ants[i].getTourLength()) {
+				interimBsfLength = this.ants[i].getTourLength();
+				interimBsfAnt = this.ants[i];
+			}
+		}
+	
+		// hiscore!!!!!!!!!
+		// only copy the tour out of the ant when it's actually a new bsf
+		if (this.bsfLength > interimBsfLength) {
+			this.bsfLength = interimBsfLength;
+			this.bsfTour = interimBsfAnt.copyTour();
+			return true;
+		}
+	
+		// :(
+		return false;
+	}
+
+	// because the tour lengths don't include the dist between last city and the
+	// first
+	public void updateSingleAntTourLengths(Ant ant) {
+		double tourLength = ant.getTourLength();
+		tourLength += nodeDists.get(ant.getCurrNode(), ant.getHomeNode());
+		ant.setTourLength(tourLength);
+	}
+
+	// template: given a tour (i.e. bsf tour, an ant's tour), calculates the amount of pheromone
+	// to deposit. 
+	public void depositPheromoneSingleTour(double tourLength, int[] tour, double factor) {
+
+		double deposit = factor / tourLength;
+		for (int i = 0; i < tour.length; i++) {
+			int node1 = tour[i];
+			int node2 = tour[(i + 1) % tour.length];
+			this.updateSinglePheromoneWeight(node1, node2, this.pheromoneWeights.get(node1, node2) + deposit);
+		}
+	}
+
+	// heavily dependent on choice of variant
+	public abstract void updatePheromone();
+
+	// the variant's own parameters and whatever it carries from one iteration to the next, for checkpoints.
+	// reading has to go in the same order as writing
+	public void writeVariantState(DataOutput out) throws IOException {
+	}
+
+	public void readVariantState(DataInput in) throws IOException {
+	}
+
+	// update a single weight in the matrix, and the next node weight that depends on it
+	public void updateSinglePheromoneWeight(int node1, int node2, double newWeight) {
+		this.pheromoneWeights.set(node1, node2, newWeight);
+		this.updateSingleNextNodeWeight(node1, node2);
+	}
+
+	// Getters and Setters
+	public LocalSearchMode getLocalSearchMode() {
+		return localSearchMode;
+	}
+
+	// turning local search on for the first time sets up a LocalSearch (2-opt + Or-opt), using the candidate
+	// lists as its neighbor lists if there are any
+	public void setLocalSearchMode(LocalSearchMode localSearchMode) {
+		// 2-opt reverses part of the tour, and Or-opt can turn segments round, which changes their length when
+		// the distances are asymmetric
+		if (localSearchMode != LocalSearchMode.NONE && !this.shared.getProblem().isSymmetric()) {
+			System.out.println("Error: local search needs symmetric distances");
+			return;
+		}
+		this.localSearchMode = localSearchMode;
+		if (localSearchMode != LocalSearchMode.NONE && this.tourImprover == null) {
+			int[][] neighborLists = this.candidateLists;
+			if (neighborLists == null) {
+				neighborLists = this.shared.getCandidateLists(
+						Math.min(DEFAULT_NUM_LOCAL_SEARCH_NEIGHBORS, this.numNodes - 1), this);
+			}
+			this.tourImprover = new LocalSearch(this.nodeDists, neighborLists);
+		}
+	}
+
+	public boolean isLazyEvaporation() {
+		return lazyEvaporation;
+	}
+
+	// with lazy evaporation on, evaporating is O(1) instead of a sweep over every pheromone weight (see
+	// LazyScaledMatrix). values come out the same up to rounding, so runs aren't bit for bit identical
+	// to eager evaporation
+	public void setLazyEvaporation(boolean lazyEvaporation) {
+		this.lazyEvaporation = lazyEvaporation;
+		if (lazyEvaporation) {
+			this.wrapForLazyEvaporation();
+		} else {
+			this.unwrapFromLazyEvaporation();
+		}
+	}
+
+	public int getIterationCount() {
+		return iterationCount;
+	}
+
+	// for picking up from a checkpoint
+	public void setIterationCount(int iterationCount) {
+		this.iterationCount = iterationCount;
+	}
+
+	public int getBranchingFactorInterval() {
+		return branchingFactorInterval;
+	}
+
+	// the branching factor is a sweep over the pheromone, so it's only measured every so often (0: never)
+	public void setBranchingFactorInterval(int branchingFactorInterval) {
+		this.branchingFactorInterval = branchingFactorInterval;
+	}
+
+	public TourImprover getTourImprover() {
+		return tourImprover;
+	}
+
+	// plug in a different improvement stage. it only runs when localSearchMode isn't NONE
+	public void setTourImprover(TourImprover tourImprover) {
+		this.tourImprover = tourImprover;
+	}
+
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+	public void setNumNodes(int numNodes) {
+		this.numNodes = numNodes;
+	}
+
+	public double getAlpha() {
+		return alpha;
+	}
+
+	public void setAlpha(double alpha) {
+		this.alpha = alpha;
+		this.updateNextNodeWeightsMatrix();
+	}
+
+	public double getBeta() {
+		return beta;
+	}
+
+	public void setBeta(double beta) {
+		this.beta = beta;
+		this.heuristicInfo = this.shared.getHeuristicInfo(this.beta, this.numCandidates, this);
+		this.updateNextNodeWeightsMatrix();
+	}
+
+	public int getNumAnts() {
+		return numAnts;
+	}
+
+	// goes with a setAnts of that many ants. the construction pool's task slots follow right away
+	public void setNumAnts(int numAnts) {
+		this.numAnts = numAnts;
+		if (this.constructionPool != null) {
+			this.constructionTasks = new ForkJoinTask<?>[numAnts];
+		}
+	}
+
+	public Ant[] getAnts() {
+		return ants;
+	}
+
+	public void setAnts(Ant[] ants) {
+		this.ants = ants;
+		for (int i = 0; i < NUM_PHEROMONE_LOCKS; i++) {
+			this.pheromoneLocks[i] = new Object();
+		}
+		this.restartPipeline();
+	}
+
+	public RandomStream getRandom() {
+		return random;
+	}
+
+	public Matrix getPheromoneWeights() {
+		return pheromoneWeights;
+	}
+
+	// a whole new matrix means all the next node weights have to be rebuilt
+	public void setPheromoneWeights(Matrix pheromoneWeights) {
+		this.pheromoneWeights = pheromoneWeights;
+		this.updateNextNodeWeightsMatrix();
+		if (this.lazyEvaporation) {
+			this.wrapForLazyEvaporation();
+		}
+	}
+
+	public double getBsfLength() {
+		return bsfLength;
+	}
+
+	public void setBsfLength(double bsfLength) {
+		this.bsfLength = bsfLength;
+	}
+
+	public int[] getBsfTour() {
+		return bsfTour;
+	}
+
+	public void setBsfTour(int[] bsfTour) {
+		this.bsfTour = bsfTour;
+	}
+
+	public double getEvapFactor() {
+		return evapFactor;
+	}
+
+	public void setEvapFactor(double evapFactor) {
+		this.evapFactor = evapFactor;
+	}
+
+	public Matrix getNodeDists() {
+		return nodeDists;
+	}
+
+	public void setNodeDists(Matrix nodeDists) {
+		this.nodeDists = nodeDists;
+	}
+
+	public double getNnLength() {
+		return nnLength;
+	}
+
+	public void setNnLength(double nnLength) {
+		this.nnLength = nnLength;
+	}
+
+	public double getInitPheromoneWeight() {
+		return initPheromoneWeight;
+	}
+
+	public void setInitPheromoneWeight(double initPheromoneWeight) {
+		this.initPheromoneWeight = initPheromoneWeight;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	public int getNumCandidates() {
+		return numCandidates;
+	}
+
+	public int[][] getCandidateLists() {
+		return candidateLists;
+	}
+
+	public boolean isLargeInstance() {
+		return largeInstance;
+	}
+
+	public SharedProblemData getShared() {
+		return shared;
+	}
+
+	public MatrixStorage getStorage() {
+		return storage;
+	}
+
+	public Matrix getHeuristicInfo() {
+		return heuristicInfo;
+	}
+
+	public Matrix getNextNodeWeights() {
+		return nextNodeWeights;
+	}
+
+	public void setNextNodeWeights(Matrix nextNodeWeights) {
+		this.nextNodeWeights = nextNodeWeights;
+	}
+
+	// what ants build tours from: the next node weights, or a snapshot of them when iterations are pipelined
+	public Matrix getConstructionWeights() {
+		return (this.constructionWeights != null) ? this.constructionWeights : this.nextNodeWeights;
+	}
+
+	void setConstructionWeights(Matrix constructionWeights) {
+		this.constructionWeights = constructionWeights;
+	}
+
+	public int getPipelineDepth() {
+		return pipelineDepth;
+	}
+
+	public int getPipelineStaleness() {
+		return Math.max(this.pipelineStaleness, this.pipelineDepth - 1);
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * CandidateMatrix: sparse matrix that only stores entries for the arcs in the candidate lists.
+ * 
+ * Row i holds one entry per candidate of node i (so n * k entries in total, instead of n * n). Every other
+ * arc shares a single default value: setting one of those is ignored, and fill/scale change the default
+ * along with the stored entries. For pheromone that means arcs outside the candidate lists all carry the
+ * same (evaporating) weight, which is what lets a 100k node colony fit in memory.
+ * 
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class CandidateMatrix extends Matrix {
+
+	private final int[][] candidateLists;
+	private final int numCandidates;
+	private final double[] entries; // entry for (i, candidateLists[i][c]) is at i * numCandidates + c
+	private double defaultValue; // value of every arc not in a candidate list
+
+	public CandidateMatrix(int[][] candidateLists) {
+		super(candidateLists.length);
+		this.candidateLists = candidateLists;
+		this.numCandidates = (this.numNodes == 0) ? 0 : candidateLists[0].length;
+		this.entries = new double[this.numNodes * this.numCandidates];
+	}
+
+	// position of node2 in node1's candidate list, or -1 if it isn't there
+	private int slotOf(int node1, int node2) {
+		int[] candidates = this.candidateLists[node1];
+		for (int c = 0; c < candidates.length; c++) {
+			if (candidates[c] == node2) {
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	public double get(int node1, int node2) {
+		int slot = this.slotOf(node1, node2);
+		if (slot == -1) {
+			return this.defaultValue;
+		}
+		return this.entries[node1 * this.numCandidates + slot];
+	}
+
+	// no search needed when the caller already knows the slot
+	public double getCandidate(int node1, int slot, int node2) {
+		return this.entries[node1 * this.numCandidates + slot];
+	}
+
+	public void set(int node1, int node2, double value) {
+		int slot = this.slotOf(node1, node2);
+		if (slot != -1) {
+			this.entries[node1 * this.numCandidates + slot] = value;
+		}
+	}
+
+	public void fill(double value) {
+		Arrays.fill(this.entries, value);
+		this.defaultValue = value;
+	}
+
+	public void scale(double factor) {
+		MatrixKernels.get().scale(this.entries, 0, this.entries.length, factor);
+		this.defaultValue *= factor;
+	}
+
+	// only a candidate matrix over the same lists can be copied straight across. anything else goes through
+	// get/set, which leaves the default value alone
+	public void copyFrom(Matrix source) {
+		if (source instanceof CandidateMatrix && ((CandidateMatrix) source).candidateLists == this.candidateLists) {
+			CandidateMatrix candidates = (CandidateMatrix) source;
+			System.arraycopy(candidates.entries, 0, this.entries, 0, this.entries.length);
+			this.defaultValue = candidates.defaultValue;
+			return;
+		}
+		super.copyFrom(source);
+	}
+
+	// every candidate arc whose ends were both in source gets source's value for it (its default, if it
+	// wasn't a candidate arc there). the default value comes along too
+	public void copyFrom(Matrix source, int[] sourceNodes) {
+		if (!(source instanceof CandidateMatrix)) {
+			super.copyFrom(source, sourceNodes);
+			return;
+		}
+		for (int i = 0; i < this.numNodes; i++) {
+			if (sourceNodes[i] < 0) {
+				continue;
+			}
+			int[] candidates = this.candidateLists[i];
+			for (int c = 0; c < candidates.length; c++) {
+				int sourceNode = sourceNodes[candidates[c]];
+				if (sourceNode >= 0) {
+					this.entries[i * this.numCandidates + c] = source.get(sourceNodes[i], sourceNode);
+				}
+			}
+		}
+		this.defaultValue = ((CandidateMatrix) source).defaultValue;
+	}
+
+	public boolean isSymmetric() {
+		return false;
+	}
+
+	public long getMemoryFootprint() {
+		return 8L * this.entries.length;
+	}
+
+	// the default value goes first
+	public long writeEntries(FileChannel channel, long position) throws IOException {
+		position = MappedIO.writeDouble(channel, position, this.defaultValue);
+		return MappedIO.writeDoubles(channel, position, this.entries);
+	}
+
+	public long readEntries(FileChannel channel, long position) throws IOException {
+		this.defaultValue = MappedIO.readDouble(channel, position);
+		return MappedIO.readDoubles(channel, position + 8, this.entries);
+	}
+
+	public double getDefaultValue() {
+		return defaultValue;
+	}
+
+	public int[][] getCandidateLists() {
+		return candidateLists;
+	}
+
+}
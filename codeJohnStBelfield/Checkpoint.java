@@ -0,0 +1,377 @@
+/*
+ * Checkpoint: saves a solver to a binary file and picks it up again later, exactly where it stopped.
+ *
+ * What goes in:
+ * -variant, storage, sizes and parameters (alpha, beta, evapFactor, candidates, lazy evaporation, local search)
+ * -iteration count, bsf tour and length
+ * -the solver's random stream and every ant's (plus the home node each ant is about to start from)
+ * -the variant's own state (elitism, ACS wear, MMAS bounds and counters...)
+ * -the pheromone and next node weights, entry for entry
+ *
+ * The next node weights are saved rather than rebuilt, since the incremental updates round a little
+ * differently from a rebuild and then the resumed run wouldn't match. Local search picks its neighbor lists
+ * when it's switched on, so a solver that switched it on before setting its candidate lists won't quite
+ * match after a resume either.
+ *
+ * Layout: header length (int), header (DataOutput, so big endian), then padding to 8 bytes, then the two
+ * matrices through memory mapped buffers (see MappedIO), which is a straight copy even at n = 10000.
+ * Saving goes through a temp file that's moved over the old checkpoint, so a crash mid-save leaves the
+ * last good one.
+ *
+ * A pipelined solver (see IterationPipeline) is drained before it's saved, and starts a fresh pipeline from
+ * the restored state, so it carries on from the same pheromone but not with the same tours.
+ *
+ * warmStart() is the light version: a tour from a TSPLIB .tour file becomes the bsf and gets a head start
+ * in pheromone.
+ *
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class Checkpoint {
+
+	private final static int MAGIC = 0x41434f43; // "ACOC"
+	private final static int VERSION = 2; // 2: MMAS keeps a branching margin, not a branching factor
+
+	private Checkpoint() {
+	}
+
+	// everything in the file before the matrices
+	private static class Header {
+		SolverConfig.Variant variant;
+		MatrixStorage storage;
+		boolean largeInstance;
+		int numNodes;
+		int numAnts;
+		double alpha;
+		double beta;
+		double evapFactor;
+		int numCandidates;
+		boolean lazyEvaporation;
+		LocalSearchMode localSearchMode;
+		int iterationCount;
+		double bsfLength;
+		int[] bsfTour;
+		long seed;
+		long gamma;
+		long[] antSeeds;
+		long[] antGammas;
+		int[] antHomeNodes;
+		byte[] variantState;
+		String pheromoneLayout;
+		String nextNodeWeightsLayout;
+		long dataStart; // file position of the first matrix
+	}
+
+	// write the solver to fileName. false (and an error message) if it couldn't be done
+	public static boolean save(AntSystem solver, String fileName) {
+		SolverConfig.Variant variant = variantOf(solver);
+		if (variant == null) {
+			System.out.println("Error: can't checkpoint a " + solver.getClass().getSimpleName());
+			return false;
+		}
+		Path path = Paths.get(fileName);
+		Path tempPath = Paths.get(fileName + ".tmp");
+		solver.drainPipeline();
+		try {
+			byte[] header = writeHeader(solver, variant);
+			try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = MappedIO.map(channel, FileChannel.MapMode.READ_WRITE, 0, 4 + header.length);
+				buffer.order(ByteOrder.BIG_ENDIAN).putInt(header.length).put(header);
+				long position = align(4 + header.length);
+				position = solver.getPheromoneWeights().writeEntries(channel, position);
+				solver.getNextNodeWeights().writeEntries(channel, position);
+				channel.force(true);
+			}
+			Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException | UnsupportedOperationException e) {
+			System.out.println("Error: could not write checkpoint " + fileName + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	// a new solver for the problem, carrying on from the checkpoint. null (and an error message) if the
+	// checkpoint can't be read or is for some other problem
+	public static AntSystem resume(TSP problem, String fileName) {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			Header header = readHeader(channel);
+			if (problem.getNumNodes() != header.numNodes) {
+				throw new IOException("checkpoint has " + header.numNodes + " nodes, problem has "
+						+ problem.getNumNodes());
+			}
+			// the random stream and the variant's parameters are overwritten by the restore
+			SolverConfig config = new SolverConfig(header.variant, header.numAnts, header.alpha, header.beta,
+					header.evapFactor, 0, 0, 0);
+			AntSystem solver = config.createSolver(new SharedProblemData(problem, header.storage),
+					new RandomStream(header.seed));
+			restore(solver, header, channel);
+			return solver;
+		} catch (NoSuchFileException e) {
+			System.out.println("Error: checkpoint " + fileName + " not found");
+			return null;
+		} catch (IOException | UnsupportedOperationException e) {
+			System.out.println("Error: could not resume from " + fileName + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	// same, into a solver that's already there. it has to be the same variant, on the same problem, with the
+	// same number of ants and the same storage
+	public static boolean restore(AntSystem solver, String fileName) {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			Header header = readHeader(channel);
+			if (header.variant != variantOf(solver) || header.numNodes != solver.getNumNodes()
+					|| header.numAnts != solver.getNumAnts() || header.largeInstance != solver.isLargeInstance()
+					|| (!header.largeInstance && header.storage != solver.getStorage())) {
+				throw new IOException("checkpoint is for a " + header.variant + " with " + header.numAnts
+						+ " ants on " + header.numNodes + " nodes (" + header.storage + ")");
+			}
+			restore(solver, header, channel);
+			return true;
+		} catch (NoSuchFileException e) {
+			System.out.println("Error: checkpoint " + fileName + " not found");
+			return false;
+		} catch (IOException | UnsupportedOperationException e) {
+			System.out.println("Error: could not restore from " + fileName + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	// seed the solver from a TSPLIB .tour file: the tour becomes the bsf (if it beats the current one) and
+	// each of its arcs gets an extra initial pheromone weight's worth of pheromone
+	public static boolean warmStart(AntSystem solver, String tourFileName) {
+		return warmStart(solver, tourFileName, 1.0);
+	}
+
+	// same, with the extra pheromone as a multiple of the initial pheromone weight
+	public static boolean warmStart(AntSystem solver, String tourFileName, double weight) {
+		int[] tour;
+		try {
+			tour = TSPLIBReader.read(tourFileName).getTour();
+		} catch (IOException e) {
+			System.out.println("Error: could not read " + tourFileName + ": " + e.getMessage());
+			return false;
+		}
+		if (tour == null || !isTour(tour, solver.getNumNodes())) {
+			System.out.println("Error: " + tourFileName + " isn't a tour of this problem");
+			return false;
+		}
+
+		solver.offerTour(tour, TourConstruction.tourLength(solver.getNodeDists(), tour));
+		double deposit = weight * solver.getInitPheromoneWeight();
+		Matrix pheromoneWeights = solver.getPheromoneWeights();
+		for (int i = 0; i < tour.length; i++) {
+			int node1 = tour[i];
+			int node2 = tour[(i + 1) % tour.length];
+			solver.updateSinglePheromoneWeight(node1, node2, pheromoneWeights.get(node1, node2) + deposit);
+		}
+		return true;
+	}
+
+	private static void restore(AntSystem solver, Header header, FileChannel channel) throws IOException {
+		// a bsf tour that doesn't have the length the checkpoint says means a different problem
+		if (header.bsfTour != null) {
+			double length = TourConstruction.tourLength(solver.getNodeDists(), header.bsfTour);
+			if (Math.abs(length - header.bsfLength) > 1e-9 * header.bsfLength) {
+				throw new IOException("bsf tour has length " + length + " on this problem, but the checkpoint says "
+						+ header.bsfLength);
+			}
+		}
+
+		// parameters first, since some of them rebuild the matrices that get overwritten next
+		if (solver.getAlpha() != header.alpha) {
+			solver.setAlpha(header.alpha);
+		}
+		if (solver.getBeta() != header.beta) {
+			solver.setBeta(header.beta);
+		}
+		solver.setEvapFactor(header.evapFactor);
+		if (solver.getNumCandidates() != header.numCandidates) {
+			solver.setNumCandidates(header.numCandidates);
+		}
+		solver.drainPipeline();
+		solver.setLazyEvaporation(header.lazyEvaporation);
+		solver.setLocalSearchMode(header.localSearchMode);
+
+		Matrix pheromoneWeights = solver.getPheromoneWeights();
+		Matrix nextNodeWeights = solver.getNextNodeWeights();
+		if (!layout(pheromoneWeights).equals(header.pheromoneLayout)
+				|| !layout(nextNodeWeights).equals(header.nextNodeWeightsLayout)) {
+			throw new IOException("checkpoint matrices are " + header.pheromoneLayout + ", solver's are "
+					+ layout(pheromoneWeights));
+		}
+		long position = pheromoneWeights.readEntries(channel, header.dataStart);
+		nextNodeWeights.readEntries(channel, position);
+
+		solver.setIterationCount(header.iterationCount);
+		solver.setBsfLength(header.bsfLength);
+		solver.setBsfTour(header.bsfTour);
+		solver.getRandom().setState(header.seed, header.gamma);
+		Ant[] ants = solver.getAnts();
+		for (int i = 0; i < ants.length; i++) {
+			ants[i].getRandom().setState(header.antSeeds[i], header.antGammas[i]);
+			ants[i].restartTour(header.antHomeNodes[i]);
+		}
+		solver.readVariantState(new DataInputStream(new ByteArrayInputStream(header.variantState)));
+		solver.restartPipeline();
+	}
+
+	private static byte[] writeHeader(AntSystem solver, SolverConfig.Variant variant) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(variant.name());
+		out.writeUTF(solver.getStorage().name());
+		out.writeBoolean(solver.isLargeInstance());
+		out.writeInt(solver.getNumNodes());
+		out.writeInt(solver.getNumAnts());
+		out.writeDouble(solver.getAlpha());
+		out.writeDouble(solver.getBeta());
+		out.writeDouble(solver.getEvapFactor());
+		out.writeInt(solver.getNumCandidates());
+		out.writeBoolean(solver.isLazyEvaporation());
+		out.writeUTF(solver.getLocalSearchMode().name());
+		out.writeInt(solver.getIterationCount());
+		out.writeDouble(solver.getBsfLength());
+		int[] bsfTour = solver.getBsfTour();
+		out.writeInt((bsfTour == null) ? -1 : bsfTour.length);
+		if (bsfTour != null) {
+			for (int node : bsfTour) {
+				out.writeInt(node);
+			}
+		}
+		out.writeLong(solver.getRandom().getSeed());
+		out.writeLong(solver.getRandom().getGamma());
+		for (Ant ant : solver.getAnts()) {
+			out.writeLong(ant.getRandom().getSeed());
+			out.writeLong(ant.getRandom().getGamma());
+			out.writeInt(ant.getHomeNode());
+		}
+		ByteArrayOutputStream variantBytes = new ByteArrayOutputStream();
+		solver.writeVariantState(new DataOutputStream(variantBytes));
+		out.writeInt(variantBytes.size());
+		variantBytes.writeTo(out);
+		out.writeUTF(layout(solver.getPheromoneWeights()));
+		out.writeUTF(layout(solver.getNextNodeWeights()));
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static Header readHeader(FileChannel channel) throws IOException {
+		if (channel.size() < 4) {
+			throw new IOException("not a checkpoint");
+		}
+		ByteBuffer buffer = MappedIO.map(channel, FileChannel.MapMode.READ_ONLY, 0, 4);
+		int headerLength = buffer.order(ByteOrder.BIG_ENDIAN).getInt();
+		if (headerLength < 8 || 4L + headerLength > channel.size()) {
+			throw new IOException("not a checkpoint");
+		}
+		byte[] bytes = new byte[headerLength];
+		MappedIO.map(channel, FileChannel.MapMode.READ_ONLY, 4, headerLength).get(bytes);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a checkpoint");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("checkpoint version " + version + ", expected " + VERSION);
+		}
+		Header header = new Header();
+		header.variant = SolverConfig.Variant.valueOf(in.readUTF());
+		header.storage = MatrixStorage.valueOf(in.readUTF());
+		header.largeInstance = in.readBoolean();
+		header.numNodes = in.readInt();
+		header.numAnts = in.readInt();
+		header.alpha = in.readDouble();
+		header.beta = in.readDouble();
+		header.evapFactor = in.readDouble();
+		header.numCandidates = in.readInt();
+		header.lazyEvaporation = in.readBoolean();
+		header.localSearchMode = LocalSearchMode.valueOf(in.readUTF());
+		header.iterationCount = in.readInt();
+		header.bsfLength = in.readDouble();
+		int bsfTourLength = in.readInt();
+		if (bsfTourLength >= 0) {
+			header.bsfTour = new int[bsfTourLength];
+			for (int i = 0; i < bsfTourLength; i++) {
+				header.bsfTour[i] = in.readInt();
+			}
+			if (!isTour(header.bsfTour, header.numNodes)) {
+				throw new IOException("bsf tour is corrupt");
+			}
+		}
+		header.seed = in.readLong();
+		header.gamma = in.readLong();
+		header.antSeeds = new long[header.numAnts];
+		header.antGammas = new long[header.numAnts];
+		header.antHomeNodes = new int[header.numAnts];
+		for (int i = 0; i < header.numAnts; i++) {
+			header.antSeeds[i] = in.readLong();
+			header.antGammas[i] = in.readLong();
+			header.antHomeNodes[i] = in.readInt();
+		}
+		header.variantState = new byte[in.readInt()];
+		in.readFully(header.variantState);
+		header.pheromoneLayout = in.readUTF();
+		header.nextNodeWeightsLayout = in.readUTF();
+		header.dataStart = align(4 + headerLength);
+		return header;
+	}
+
+	private static SolverConfig.Variant variantOf(AntSystem solver) {
+		if (solver instanceof MMAS) {
+			return SolverConfig.Variant.MMAS;
+		} else if (solver instanceof ACS) {
+			return SolverConfig.Variant.ACS;
+		} else if (solver instanceof EAS) {
+			return SolverConfig.Variant.EAS;
+		}
+		return null;
+	}
+
+	// what kind of matrix and how big, e.g. LazyScaledMatrix(PackedFloatMatrix, 1000)
+	private static String layout(Matrix matrix) {
+		if (matrix instanceof LazyScaledMatrix) {
+			Matrix inner = ((LazyScaledMatrix) matrix).getInner();
+			return "LazyScaledMatrix(" + inner.getClass().getSimpleName() + ", " + inner.getNumNodes() + ")";
+		}
+		return matrix.getClass().getSimpleName() + "(" + matrix.getNumNodes() + ")";
+	}
+
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	// every node exactly once
+	private static boolean isTour(int[] tour, int numNodes) {
+		if (tour.length != numNodes) {
+			return false;
+		}
+		boolean[] seen = new boolean[numNodes];
+		for (int node : tour) {
+			if (node < 0 || node >= numNodes || seen[node]) {
+				return false;
+			}
+			seen[node] = true;
+		}
+		return true;
+	}
+
+}
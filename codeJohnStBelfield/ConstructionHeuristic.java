@@ -0,0 +1,26 @@
+/*
+ * ConstructionHeuristic: how to build a tour without any ants (see TourConstruction).
+ * 
+ * NEAREST_NEIGHBOR: always on to the nearest unvisited node. What nnLength is worked out from.
+ * GREEDY_EDGE: shortest candidate arcs first, then the leftover paths joined up. Good and quick.
+ * SPACE_FILLING_CURVE: the order along a Hilbert curve. Quickest, but the longest tours.
+ * CHEAPEST_INSERTION: nodes inserted one at a time where they add the least. Usually the shortest.
+ * 
+ */
+
+public enum ConstructionHeuristic {
+	NEAREST_NEIGHBOR, GREEDY_EDGE, SPACE_FILLING_CURVE, CHEAPEST_INSERTION;
+
+	public int[] buildTour(TSP problem) {
+		switch (this) {
+		case GREEDY_EDGE:
+			return TourConstruction.greedyEdgeTour(problem);
+		case SPACE_FILLING_CURVE:
+			return TourConstruction.spaceFillingCurveTour(problem);
+		case CHEAPEST_INSERTION:
+			return TourConstruction.cheapestInsertionTour(problem);
+		default:
+			return TourConstruction.nearestNeighborTour(problem);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * CoordinateDistanceMatrix: distance "matrix" that doesn't store anything. Every get works the euclidean
+ * distance out from the node coordinates, so memory stays O(n) however many nodes there are.
+ * 
+ * Read only: distances come from the coordinates, so there's nothing to set.
+ * 
+ */
+
+public class CoordinateDistanceMatrix extends Matrix {
+
+	private final double[][] nodeCoords;
+
+	public CoordinateDistanceMatrix(double[][] nodeCoords) {
+		super(nodeCoords.length);
+		this.nodeCoords = nodeCoords;
+	}
+
+	public double get(int node1, int node2) {
+		double deltaX = this.nodeCoords[node1][0] - this.nodeCoords[node2][0];
+		double deltaY = this.nodeCoords[node1][1] - this.nodeCoords[node2][1];
+		return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+	}
+
+	public void set(int node1, int node2, double value) {
+		throw new UnsupportedOperationException("distances come from the node coordinates");
+	}
+
+	public void fill(double value) {
+		throw new UnsupportedOperationException("distances come from the node coordinates");
+	}
+
+	public void scale(double factor) {
+		throw new UnsupportedOperationException("distances come from the node coordinates");
+	}
+
+	public boolean isSymmetric() {
+		return true;
+	}
+
+	// the coordinates belong to the TSP
+	public long getMemoryFootprint() {
+		return 0;
+	}
+
+}
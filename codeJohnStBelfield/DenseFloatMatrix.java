@@ -0,0 +1,91 @@
+/*
+ * DenseFloatMatrix: DenseMatrix, but entries are stored as floats. Half the memory, and about 7
+ * significant digits per entry, which is plenty for pheromone and heuristic weights.
+ * 
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class DenseFloatMatrix extends Matrix {
+
+	private final float[] entries; // entry (i, j) is at i * numNodes + j
+
+	public DenseFloatMatrix(int numNodes) {
+		super(numNodes);
+		this.entries = new float[MatrixStorage.DENSE_FLOAT.checkedNumEntries(numNodes)];
+	}
+
+	public double get(int node1, int node2) {
+		return this.entries[node1 * this.numNodes + node2];
+	}
+
+	public void set(int node1, int node2, double value) {
+		this.entries[node1 * this.numNodes + node2] = (float) value;
+	}
+
+	public void fill(double value) {
+		Arrays.fill(this.entries, (float) value);
+	}
+
+	public void scale(double factor) {
+		MatrixKernels.get().scale(this.entries, 0, this.entries.length, (float) factor);
+	}
+
+	public void copyFrom(Matrix source) {
+		if (source instanceof DenseFloatMatrix && source.getNumNodes() == this.numNodes) {
+			System.arraycopy(((DenseFloatMatrix) source).getEntries(), 0, this.entries, 0, this.entries.length);
+			return;
+		}
+		super.copyFrom(source);
+	}
+
+	// row by row, a run of consecutive source nodes at a time
+	public void copyFrom(Matrix source, int[] sourceNodes) {
+		if (!(source instanceof DenseFloatMatrix)) {
+			super.copyFrom(source, sourceNodes);
+			return;
+		}
+		float[] sourceEntries = ((DenseFloatMatrix) source).getEntries();
+		int sourceNumNodes = source.getNumNodes();
+		for (int i = 0; i < this.numNodes; i++) {
+			if (sourceNodes[i] < 0) {
+				continue;
+			}
+			int j = 0;
+			while (j < this.numNodes) {
+				if (sourceNodes[j] < 0) {
+					j++;
+					continue;
+				}
+				int run = runLength(sourceNodes, j, this.numNodes);
+				System.arraycopy(sourceEntries, sourceNodes[i] * sourceNumNodes + sourceNodes[j], this.entries,
+						i * this.numNodes + j, run);
+				j += run;
+			}
+		}
+	}
+
+	public boolean isSymmetric() {
+		return false;
+	}
+
+	public long getMemoryFootprint() {
+		return 4L * this.entries.length;
+	}
+
+	// backing array, for loops that want to run straight over the entries
+	public float[] getEntries() {
+		return entries;
+	}
+
+	public long writeEntries(FileChannel channel, long position) throws IOException {
+		return MappedIO.writeFloats(channel, position, this.entries);
+	}
+
+	public long readEntries(FileChannel channel, long position) throws IOException {
+		return MappedIO.readFloats(channel, position, this.entries);
+	}
+
+}
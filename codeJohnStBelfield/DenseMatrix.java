@@ -0,0 +1,92 @@
+/*
+ * DenseMatrix: every entry stored as a double, in one flat row-major array.
+ * One array instead of an array of rows means one object, no row pointers to chase, and rows that
+ * sit next to each other in memory.
+ * 
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class DenseMatrix extends Matrix {
+
+	private final double[] entries; // entry (i, j) is at i * numNodes + j
+
+	public DenseMatrix(int numNodes) {
+		super(numNodes);
+		this.entries = new double[MatrixStorage.DENSE_DOUBLE.checkedNumEntries(numNodes)];
+	}
+
+	public double get(int node1, int node2) {
+		return this.entries[node1 * this.numNodes + node2];
+	}
+
+	public void set(int node1, int node2, double value) {
+		this.entries[node1 * this.numNodes + node2] = value;
+	}
+
+	public void fill(double value) {
+		Arrays.fill(this.entries, value);
+	}
+
+	public void scale(double factor) {
+		MatrixKernels.get().scale(this.entries, 0, this.entries.length, factor);
+	}
+
+	public void copyFrom(Matrix source) {
+		if (source instanceof DenseMatrix && source.getNumNodes() == this.numNodes) {
+			System.arraycopy(((DenseMatrix) source).getEntries(), 0, this.entries, 0, this.entries.length);
+			return;
+		}
+		super.copyFrom(source);
+	}
+
+	// row by row, a run of consecutive source nodes at a time
+	public void copyFrom(Matrix source, int[] sourceNodes) {
+		if (!(source instanceof DenseMatrix)) {
+			super.copyFrom(source, sourceNodes);
+			return;
+		}
+		double[] sourceEntries = ((DenseMatrix) source).getEntries();
+		int sourceNumNodes = source.getNumNodes();
+		for (int i = 0; i < this.numNodes; i++) {
+			if (sourceNodes[i] < 0) {
+				continue;
+			}
+			int j = 0;
+			while (j < this.numNodes) {
+				if (sourceNodes[j] < 0) {
+					j++;
+					continue;
+				}
+				int run = runLength(sourceNodes, j, this.numNodes);
+				System.arraycopy(sourceEntries, sourceNodes[i] * sourceNumNodes + sourceNodes[j], this.entries,
+						i * this.numNodes + j, run);
+				j += run;
+			}
+		}
+	}
+
+	public boolean isSymmetric() {
+		return false;
+	}
+
+	public long getMemoryFootprint() {
+		return 8L * this.entries.length;
+	}
+
+	// backing array, for loops that want to run straight over the entries
+	public double[] getEntries() {
+		return entries;
+	}
+
+	public long writeEntries(FileChannel channel, long position) throws IOException {
+		return MappedIO.writeDoubles(channel, position, this.entries);
+	}
+
+	public long readEntries(FileChannel channel, long position) throws IOException {
+		return MappedIO.readDoubles(channel, position, this.entries);
+	}
+
+}
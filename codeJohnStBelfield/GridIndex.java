@@ -0,0 +1,236 @@
+/*
+ * GridIndex: spatial index over the node coordinates, for nearest neighbor queries without a distance matrix.
+ * 
+ * The bounding box of the nodes is cut into square cells, about two nodes per cell. Nodes are bucketed by
+ * cell (one flat array, with cellStarts marking where each cell's nodes begin). A query starts at the
+ * query node's cell and searches rings of cells around it, stopping once the next ring can't possibly
+ * hold anything closer than what's already been found.
+ * 
+ * Building it is O(n), and a query only looks at a handful of cells, so it stays fast at 100k+ nodes.
+ * 
+ */
+
+public class GridIndex {
+
+	private final static double NODES_PER_CELL = 2.0;
+	private final static int MAX_CELLS_PER_SIDE = 1 << 15;
+
+	private final double[][] nodeCoords;
+	private final int numNodes;
+	private final double minX;
+	private final double minY;
+	private final double cellSize;
+	private final int numCellsX;
+	private final int numCellsY;
+	private final int[] cellStarts; // nodes of cell c are cellNodes[cellStarts[c]] ... cellNodes[cellStarts[c + 1] - 1]
+	private final int[] cellNodes;
+
+	public GridIndex(double[][] nodeCoords) {
+		this.nodeCoords = nodeCoords;
+		this.numNodes = nodeCoords.length;
+
+		// bounding box
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < this.numNodes; i++) {
+			minX = Math.min(minX, nodeCoords[i][0]);
+			minY = Math.min(minY, nodeCoords[i][1]);
+			maxX = Math.max(maxX, nodeCoords[i][0]);
+			maxY = Math.max(maxY, nodeCoords[i][1]);
+		}
+		this.minX = minX;
+		this.minY = minY;
+
+		// square cells, sized so there are about NODES_PER_CELL nodes in each. nodes all on one line have no
+		// area to share out, so there the cells go along the line instead (otherwise they'd be microscopic,
+		// and there'd be tens of thousands of empty ones to search through)
+		double width = maxX - minX;
+		double height = maxY - minY;
+		double numNodes = Math.max(this.numNodes, 1);
+		double cellSize = Math.max(Math.sqrt(width * height * NODES_PER_CELL / numNodes),
+				Math.max(width, height) * NODES_PER_CELL / numNodes);
+		// no more than MAX_CELLS_PER_SIDE along either side, and those have to cover the whole box: a node
+		// past the last cell would be clamped into it, and with enough of them that cell holds half the nodes
+		cellSize = Math.max(cellSize, Math.max(width, height) / (MAX_CELLS_PER_SIDE - 1));
+		if (!(cellSize > 0)) {
+			cellSize = 1; // all in the same spot
+		}
+		this.cellSize = cellSize;
+		this.numCellsX = (int) Math.min(Math.floor(width / cellSize) + 1, MAX_CELLS_PER_SIDE);
+		this.numCellsY = (int) Math.min(Math.floor(height / cellSize) + 1, MAX_CELLS_PER_SIDE);
+
+		// counting sort of the nodes into their cells
+		int numCells = this.numCellsX * this.numCellsY;
+		this.cellStarts = new int[numCells + 1];
+		int[] nodeCells = new int[this.numNodes];
+		for (int i = 0; i < this.numNodes; i++) {
+			nodeCells[i] = this.cellOf(nodeCoords[i][0], nodeCoords[i][1]);
+			this.cellStarts[nodeCells[i] + 1]++;
+		}
+		for (int c = 0; c < numCells; c++) {
+			this.cellStarts[c + 1] += this.cellStarts[c];
+		}
+		this.cellNodes = new int[this.numNodes];
+		int[] fill = new int[numCells];
+		for (int i = 0; i < this.numNodes; i++) {
+			int c = nodeCells[i];
+			this.cellNodes[this.cellStarts[c] + fill[c]++] = i;
+		}
+	}
+
+	private int cellX(double x) {
+		return Math.min(Math.max((int) ((x - this.minX) / this.cellSize), 0), this.numCellsX - 1);
+	}
+
+	private int cellY(double y) {
+		return Math.min(Math.max((int) ((y - this.minY) / this.cellSize), 0), this.numCellsY - 1);
+	}
+
+	private int cellOf(double x, double y) {
+		return this.cellY(y) * this.numCellsX + this.cellX(x);
+	}
+
+	// euclidean distance between two nodes
+	public double dist(int node1, int node2) {
+		double deltaX = this.nodeCoords[node1][0] - this.nodeCoords[node2][0];
+		double deltaY = this.nodeCoords[node1][1] - this.nodeCoords[node2][1];
+		return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+	}
+
+	// smallest possible distance from the node to anything in ring r (the cells exactly r steps from the
+	// node's cell). everything in ring r is outside the block of rings 0 ... r - 1
+	private double ringDistLowerBound(int node, int ring) {
+		if (ring == 0) {
+			return 0;
+		}
+		double x = this.nodeCoords[node][0] - this.minX;
+		double y = this.nodeCoords[node][1] - this.minY;
+		int cx = this.cellX(this.nodeCoords[node][0]);
+		int cy = this.cellY(this.nodeCoords[node][1]);
+		double left = x - (cx - ring + 1) * this.cellSize;
+		double right = (cx + ring) * this.cellSize - x;
+		double down = y - (cy - ring + 1) * this.cellSize;
+		double up = (cy + ring) * this.cellSize - y;
+		return Math.max(0, Math.min(Math.min(left, right), Math.min(down, up)));
+	}
+
+	// true once ring r around the node's cell falls entirely outside the grid
+	private boolean ringOutsideGrid(int node, int ring) {
+		int cx = this.cellX(this.nodeCoords[node][0]);
+		int cy = this.cellY(this.nodeCoords[node][1]);
+		return cx - ring < 0 && cy - ring < 0 && cx + ring >= this.numCellsX && cy + ring >= this.numCellsY;
+	}
+
+	// the k nearest other nodes to the given node, nearest first
+	public int[] kNearest(int node, int k) {
+		k = Math.min(k, this.numNodes - 1);
+		int[] nearest = new int[k];
+		double[] nearestDists = new double[k];
+		int numFound = 0;
+
+		int cx = this.cellX(this.nodeCoords[node][0]);
+		int cy = this.cellY(this.nodeCoords[node][1]);
+		int maxRing = Math.max(this.numCellsX, this.numCellsY); // past this every ring is outside the grid
+		for (int ring = 0; ring <= maxRing; ring++) {
+			// nothing in this ring (or further out) can beat the k-th nearest so far
+			if (numFound == k && this.ringDistLowerBound(node, ring) >= nearestDists[k - 1]) {
+				break;
+			}
+			for (int y = Math.max(cy - ring, 0); y <= Math.min(cy + ring, this.numCellsY - 1); y++) {
+				// inner rows of the ring only have their two end cells
+				int step = (y == cy - ring || y == cy + ring) ? 1 : Math.max(2 * ring, 1);
+				for (int x = cx - ring; x <= cx + ring; x += step) {
+					if (x < 0 || x >= this.numCellsX) {
+						continue;
+					}
+					int c = y * this.numCellsX + x;
+					for (int p = this.cellStarts[c]; p < this.cellStarts[c + 1]; p++) {
+						int other = this.cellNodes[p];
+						if (other == node) {
+							continue;
+						}
+						double dist = this.dist(node, other);
+						if (numFound == k && dist >= nearestDists[k - 1]) {
+							continue;
+						}
+						// insertion sort into the nearest list
+						int spot = (numFound < k) ? numFound++ : k - 1;
+						while (spot > 0 && nearestDists[spot - 1] > dist) {
+							nearestDists[spot] = nearestDists[spot - 1];
+							nearest[spot] = nearest[spot - 1];
+							spot--;
+						}
+						nearestDists[spot] = dist;
+						nearest[spot] = other;
+					}
+				}
+			}
+			if (this.ringOutsideGrid(node, ring)) {
+				break;
+			}
+		}
+		return nearest;
+	}
+
+	// the nearest node the ant hasn't visited yet, or -1 if it has visited them all.
+	// late in a tour most cells are empty of unvisited nodes, so once the ring search has looked at more
+	// nodes than the ant has left, it's cheaper to just scan the ant's unvisited nodes
+	public int nearestUnvisited(int node, Ant ant) {
+		int numUnvisitedNodes = ant.getNumUnvisitedNodes();
+		int nearest = -1;
+		double nearestDist = Double.MAX_VALUE;
+		int numExamined = 0;
+
+		int cx = this.cellX(this.nodeCoords[node][0]);
+		int cy = this.cellY(this.nodeCoords[node][1]);
+		int maxRing = Math.max(this.numCellsX, this.numCellsY); // past this every ring is outside the grid
+		for (int ring = 0; ring <= maxRing; ring++) {
+			if (nearest != -1 && this.ringDistLowerBound(node, ring) >= nearestDist) {
+				return nearest;
+			}
+			if (numExamined > numUnvisitedNodes) {
+				break;
+			}
+			for (int y = Math.max(cy - ring, 0); y <= Math.min(cy + ring, this.numCellsY - 1); y++) {
+				int step = (y == cy - ring || y == cy + ring) ? 1 : Math.max(2 * ring, 1);
+				for (int x = cx - ring; x <= cx + ring; x += step) {
+					if (x < 0 || x >= this.numCellsX) {
+						continue;
+					}
+					int c = y * this.numCellsX + x;
+					numExamined += this.cellStarts[c + 1] - this.cellStarts[c] + 1;
+					for (int p = this.cellStarts[c]; p < this.cellStarts[c + 1]; p++) {
+						int other = this.cellNodes[p];
+						if (ant.isVisited(other)) {
+							continue;
+						}
+						double dist = this.dist(node, other);
+						if (dist < nearestDist) {
+							nearestDist = dist;
+							nearest = other;
+						}
+					}
+				}
+			}
+			if (this.ringOutsideGrid(node, ring)) {
+				return nearest;
+			}
+		}
+
+		// plain scan over what's left
+		for (int i = 0; i < numUnvisitedNodes; i++) {
+			int other = ant.getUnvisitedNode(i);
+			double dist = this.dist(node, other);
+			if (dist < nearestDist) {
+				nearestDist = dist;
+				nearest = other;
+			}
+		}
+		return nearest;
+	}
+
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+}
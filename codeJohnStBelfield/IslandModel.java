@@ -0,0 +1,288 @@
+/*
+ * IslandModel: several colonies (any mix of AntSystem variants) working on the same problem, each on its
+ * own thread, swapping their best tours every so often.
+ * 
+ * Every migrationInterval iterations all colonies stop at a barrier and migrate along the topology:
+ * -tours: each colony is offered the best bsf among the colonies it hears from, and takes it if it beats
+ *  its own (from then on it gets reinforced like any other bsf)
+ * -pheromone (if pheromoneBlendWeight > 0): each colony's pheromone moves that far towards its source's
+ *  (RING: the previous colony, FULLY_CONNECTED: the colony with the best bsf). only makes sense between
+ *  colonies of the same variant, since i.e. EAS and ACS keep pheromone on completely different scales
+ * 
+ * Stops on the first of: maxIterations per colony, time limit, target length, or cancel(). The colonies
+ * check for a stop between iterations, so they don't have to wait for the end of a migration interval. If a
+ * colony fails (an exception out of its iteration, a listener, or the migration), the others are stopped and
+ * let go of the barrier, and run() throws the failure.
+ * For colonies in separate processes see ProcessIslandModel.
+ * 
+ */
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class IslandModel {
+
+	private final AntSystem[] colonies;
+
+	private MigrationTopology topology = MigrationTopology.RING;
+	private int migrationInterval = 25;
+	private double pheromoneBlendWeight = 0; // 0: only tours migrate
+	private int maxIterations = 1000; // per colony
+	private long timeLimitNanos = 0;
+	private double targetLength = 0;
+
+	private volatile boolean stopped;
+	private volatile StopReason stopReason;
+	private volatile Throwable failure; // first colony to fail
+	private int[] iterations; // per colony
+	private long start;
+
+	// global best, guarded by this
+	private double bestLength;
+	private int[] bestTour;
+	private long timeToBest;
+	private int iterationOfBest;
+
+	public IslandModel(List<AntSystem> colonies) {
+		this.colonies = colonies.toArray(new AntSystem[colonies.size()]);
+	}
+
+	// run every colony on its own thread until something says stop
+	public SolverResult run() {
+		final int numColonies = this.colonies.length;
+		// stopped and stopReason are left alone, so a cancel() from before the run still counts
+		this.failure = null;
+		this.iterations = new int[numColonies];
+		this.bestLength = AntSystem.getHuuuuuuuuuuuuge();
+		this.bestTour = null;
+		this.timeToBest = 0;
+		this.iterationOfBest = 0;
+		this.start = System.nanoTime();
+
+		final CyclicBarrier barrier = new CyclicBarrier(numColonies, this::endOfInterval);
+		Thread[] threads = new Thread[numColonies];
+		for (int c = 0; c < numColonies; c++) {
+			final int colony = c;
+			threads[c] = new Thread(() -> this.runColony(colony, barrier), "colony-" + c);
+			threads[c].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				this.stop(StopReason.CANCELLED);
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		int maxColonyIterations = 0;
+		for (int colonyIterations : this.iterations) {
+			maxColonyIterations = Math.max(maxColonyIterations, colonyIterations);
+		}
+		StopReason reason = this.stopReason;
+		// the stop belonged to this run, the next one starts fresh
+		this.stopped = false;
+		this.stopReason = null;
+		if (this.failure != null) {
+			throw new IllegalStateException("island colony failed", this.failure);
+		}
+		synchronized (this) {
+			return new SolverResult((this.bestTour == null) ? null : this.bestTour.clone(), this.bestLength,
+					maxColonyIterations, this.iterationOfBest, this.timeToBest, System.nanoTime() - this.start,
+					reason);
+		}
+	}
+
+	private void runColony(int colony, CyclicBarrier barrier) {
+		AntSystem solver = this.colonies[colony];
+		try {
+			while (!this.stopped) {
+				for (int i = 0; i < this.migrationInterval && !this.stopped && !this.doneIterating(colony); i++) {
+					this.iterations[colony]++;
+					if (solver.singleIterationAllAnts()) {
+						this.recordBest(solver, this.iterations[colony]);
+					}
+					if (this.timeLimitNanos > 0 && System.nanoTime() - this.start >= this.timeLimitNanos) {
+						this.stop(StopReason.TIME_LIMIT);
+					}
+				}
+				// everybody meets here, stop or not, so nobody waits on a colony that has quit
+				barrier.await();
+			}
+		} catch (InterruptedException e) {
+			this.stop(StopReason.CANCELLED);
+			releaseBarrier(barrier);
+		} catch (BrokenBarrierException e) {
+			this.stop(StopReason.CANCELLED);
+		} catch (Throwable e) {
+			synchronized (this) {
+				if (this.failure == null) {
+					this.failure = e;
+				}
+			}
+			this.stop(StopReason.CANCELLED);
+			releaseBarrier(barrier);
+		}
+	}
+
+	// for a colony that quits without meeting the others: reset() lets go of the ones already waiting, and
+	// a zero timeout await leaves the barrier broken, so one that only gets there later doesn't wait on the
+	// quitter forever either (its await throws straight away). if everybody else is already waiting, that
+	// await trips the barrier instead, and they see the stop
+	private static void releaseBarrier(CyclicBarrier barrier) {
+		barrier.reset();
+		try {
+			barrier.await(0, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (BrokenBarrierException | TimeoutException e) {
+			// broken, as intended
+		}
+	}
+
+	private boolean doneIterating(int colony) {
+		return this.maxIterations > 0 && this.iterations[colony] >= this.maxIterations;
+	}
+
+	private synchronized void recordBest(AntSystem solver, int iteration) {
+		if (solver.getBsfLength() < this.bestLength) {
+			this.bestLength = solver.getBsfLength();
+			this.bestTour = solver.getBsfTour().clone();
+			this.timeToBest = System.nanoTime() - this.start;
+			this.iterationOfBest = iteration;
+			if (this.targetLength > 0 && this.bestLength <= this.targetLength) {
+				this.stop(StopReason.TARGET_REACHED);
+			}
+		}
+	}
+
+	// runs on one colony's thread while the rest wait at the barrier
+	private void endOfInterval() {
+		if (!this.stopped && this.doneIterating(0)) {
+			this.stop(StopReason.MAX_ITERATIONS);
+		}
+		if (!this.stopped) {
+			this.migrate();
+		}
+	}
+
+	// tours first, then pheromone
+	public void migrate() {
+		int numColonies = this.colonies.length;
+		// the bsfs from before anyone took a migrant, so a tour moves one step along the topology per interval
+		double[] bsfLengths = new double[numColonies];
+		int[][] bsfTours = new int[numColonies][];
+		for (int c = 0; c < numColonies; c++) {
+			bsfLengths[c] = this.colonies[c].getBsfLength();
+			bsfTours[c] = this.colonies[c].getBsfTour();
+		}
+		for (int c = 0; c < numColonies; c++) {
+			int best = -1;
+			for (int source : this.topology.sources(c, numColonies)) {
+				if (bsfTours[source] != null && (best == -1 || bsfLengths[source] < bsfLengths[best])) {
+					best = source;
+				}
+			}
+			if (best != -1) {
+				this.colonies[c].offerTour(bsfTours[best], bsfLengths[best]);
+			}
+		}
+
+		if (this.pheromoneBlendWeight <= 0 || numColonies < 2) {
+			return;
+		}
+		if (this.topology == MigrationTopology.RING) {
+			// going backwards, colony c - 1 hasn't been blended yet when c reads it. colony 0 reads the last
+			// one, which has, so that one gets snapshotted first
+			Matrix last = this.colonies[numColonies - 1].snapshotPheromoneWeights();
+			for (int c = numColonies - 1; c >= 0; c--) {
+				Matrix source = (c == 0) ? last : this.colonies[c - 1].getPheromoneWeights();
+				this.colonies[c].blendPheromoneWeights(source, this.pheromoneBlendWeight);
+			}
+		} else {
+			int best = 0;
+			for (int c = 1; c < numColonies; c++) {
+				if (bsfLengths[c] < bsfLengths[best]) {
+					best = c;
+				}
+			}
+			Matrix source = this.colonies[best].getPheromoneWeights();
+			for (int c = 0; c < numColonies; c++) {
+				if (c != best) {
+					this.colonies[c].blendPheromoneWeights(source, this.pheromoneBlendWeight);
+				}
+			}
+		}
+	}
+
+	// first reason wins
+	private void stop(StopReason reason) {
+		if (this.stopReason == null) {
+			this.stopReason = reason;
+		}
+		this.stopped = true;
+	}
+
+	// ask the colonies to stop after the iteration they're on. safe to call from any thread, also before run()
+	// (or while it's starting), in which case the run stops before its first iteration
+	public void cancel() {
+		this.stop(StopReason.CANCELLED);
+	}
+
+	public AntSystem[] getColonies() {
+		return colonies;
+	}
+
+	public MigrationTopology getTopology() {
+		return topology;
+	}
+
+	public void setTopology(MigrationTopology topology) {
+		this.topology = topology;
+	}
+
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	public void setMigrationInterval(int migrationInterval) {
+		this.migrationInterval = Math.max(1, migrationInterval);
+	}
+
+	public double getPheromoneBlendWeight() {
+		return pheromoneBlendWeight;
+	}
+
+	public void setPheromoneBlendWeight(double pheromoneBlendWeight) {
+		this.pheromoneBlendWeight = pheromoneBlendWeight;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	// per colony; 0 means no limit (so some other criterion had better be set)
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public long getTimeLimitMillis() {
+		return timeLimitNanos / 1000000;
+	}
+
+	public void setTimeLimitMillis(long timeLimitMillis) {
+		this.timeLimitNanos = timeLimitMillis * 1000000;
+	}
+
+	public double getTargetLength() {
+		return targetLength;
+	}
+
+	public void setTargetLength(double targetLength) {
+		this.targetLength = targetLength;
+	}
+
+}
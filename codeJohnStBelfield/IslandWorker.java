@@ -0,0 +1,103 @@
+/*
+ * IslandWorker: one colony of a ProcessIslandModel, in its own JVM. Not meant to be started by hand;
+ * ProcessIslandModel launches these with the arguments below.
+ * 
+ * Talks to the coordinator over a local socket:
+ * -on connect: the colony index
+ * -every migrationInterval iterations: iterations so far, bsf length, bsf tour
+ * -answer: CONTINUE plus a migrant tour (length, then the tour; an empty tour means none), or STOP
+ * 
+ * args: port colonyIndex tspFile largeInstance seed numCandidates localSearchMode migrationInterval
+ *       variant numAnts alpha beta evapFactor elitism wearFactor bestNextNodeSelectionProb
+ * 
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+public class IslandWorker {
+
+	public final static int CONTINUE = 0;
+	public final static int STOP = 1;
+
+	public static void main(String[] args) {
+		if (args.length != 16) {
+			System.out.println("Error: IslandWorker expects 16 arguments, got " + args.length);
+			return;
+		}
+		int port = Integer.parseInt(args[0]);
+		int colonyIndex = Integer.parseInt(args[1]);
+		TSP problem = new TSP(args[2], Boolean.parseBoolean(args[3]));
+		RandomStream random = new RandomStream(Long.parseLong(args[4]));
+		int numCandidates = Integer.parseInt(args[5]);
+		LocalSearchMode localSearchMode = LocalSearchMode.valueOf(args[6]);
+		int migrationInterval = Integer.parseInt(args[7]);
+		SolverConfig config = new SolverConfig(SolverConfig.Variant.valueOf(args[8]), Integer.parseInt(args[9]),
+				Double.parseDouble(args[10]), Double.parseDouble(args[11]), Double.parseDouble(args[12]),
+				Double.parseDouble(args[13]), Double.parseDouble(args[14]), Double.parseDouble(args[15]));
+
+		AntSystem solver = config.createSolver(new SharedProblemData(problem), random);
+		if (numCandidates > 0 && numCandidates != solver.getNumCandidates()) {
+			solver.setNumCandidates(numCandidates);
+		}
+		solver.setLocalSearchMode(localSearchMode);
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeInt(colonyIndex);
+			out.flush();
+
+			while (true) {
+				for (int i = 0; i < migrationInterval; i++) {
+					solver.singleIterationAllAnts();
+				}
+				writeTour(out, solver.getIterationCount(), solver.getBsfLength(), solver.getBsfTour());
+				out.flush();
+
+				if (in.readInt() == STOP) {
+					break;
+				}
+				double migrantLength = in.readDouble();
+				int[] migrant = readTour(in);
+				if (migrant.length > 0) {
+					solver.offerTour(migrant, migrantLength);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Error: colony " + colonyIndex + " lost its coordinator: " + e.getMessage());
+		}
+	}
+
+	// iterations, length, tour size, tour. a null tour goes out as size 0
+	static void writeTour(DataOutputStream out, int iterations, double tourLength, int[] tour) throws IOException {
+		out.writeInt(iterations);
+		out.writeDouble(tourLength);
+		writeTour(out, tour);
+	}
+
+	static void writeTour(DataOutputStream out, int[] tour) throws IOException {
+		if (tour == null) {
+			out.writeInt(0);
+			return;
+		}
+		out.writeInt(tour.length);
+		for (int node : tour) {
+			out.writeInt(node);
+		}
+	}
+
+	static int[] readTour(DataInputStream in) throws IOException {
+		int[] tour = new int[in.readInt()];
+		for (int i = 0; i < tour.length; i++) {
+			tour[i] = in.readInt();
+		}
+		return tour;
+	}
+
+}
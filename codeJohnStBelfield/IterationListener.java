@@ -0,0 +1,13 @@
+/*
+ * IterationListener: told about every finished iteration of an AntSystem (see addIterationListener).
+ * 
+ * The stats object is reused from one iteration to the next, so anything a listener wants to keep has to
+ * be copied out (IterationStats.copy). Listeners run on the solver's thread, so slow ones slow the solve.
+ * 
+ */
+
+public interface IterationListener {
+
+	public void iterationCompleted(IterationStats stats);
+
+}
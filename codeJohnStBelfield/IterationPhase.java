@@ -0,0 +1,22 @@
+/*
+ * IterationPhase: the steps of AntSystem.singleIterationAllAnts that IterationStats times separately.
+ * 
+ * There's no choice info rebuild phase: the next node weights are kept current by every pheromone change,
+ * so their upkeep is counted in PHEROMONE_UPDATE (and in CONSTRUCTION for ACS's local wear).
+ * 
+ */
+
+public enum IterationPhase {
+	CONSTRUCTION("construction"), TOUR_LENGTHS("tourLengths"), LOCAL_SEARCH("localSearch"), BSF_CHECK("bsfCheck"),
+	PHEROMONE_UPDATE("pheromoneUpdate");
+
+	private final String label; // column / field name in exported metrics
+
+	private IterationPhase(String label) {
+		this.label = label;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+}
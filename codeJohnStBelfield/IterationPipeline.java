@@ -0,0 +1,227 @@
+/*
+ * IterationPipeline: runs an AntSystem's iterations overlapped, so iteration t + 1's tours get built while
+ * iteration t's bsf check and pheromone update (which rebuilds the next node weights as it goes) are still
+ * running on another thread.
+ *
+ * Construction can't read the next node weights the update is in the middle of changing, so the updater
+ * thread copies them into a snapshot after each update, and ants build their tours from a snapshot instead
+ * of the live matrix. Two knobs:
+ * -depth: how many iterations can be in flight at once, one set of ants each. construction of iteration t
+ *  waits for the update of iteration t - depth, so depth 2 overlaps one update with the next construction
+ * -max staleness: how many iterations' pheromone updates construction is allowed to miss. anything above
+ *  depth - 1 means snapshots are only taken every (maxStaleness - depth + 2) iterations, which saves the
+ *  copies (a full sweep each) at the price of older pheromone
+ *
+ * Which snapshot each iteration builds from only depends on the iteration number, never on timing, so
+ * a seeded run still gives the same tours every time. They aren't the tours of the same run without the
+ * pipeline though: older pheromone means less focused ants, and the newBSFWasFound that comes back from an
+ * iteration belongs to the update that has just finished, not to the tours that were just built. How much
+ * that costs in tour quality for how much time saved is what PipelineBenchmark (in benchmarks/) measures.
+ *
+ * Variants whose ants change pheromone while they build tours (ACS) can't run pipelined, see
+ * AntSystem.setPipelineDepth.
+ *
+ */
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class IterationPipeline {
+
+	private final AntSystem solver;
+	private final int depth;
+	private final int snapshotInterval; // a snapshot after every this many updates
+	private final Ant[][] antSets; // set k % depth builds iteration k
+	private final IterationStats[] stats; // same, when there are listeners
+	private final boolean[] newBsfs; // whether each set's update found a new bsf
+	private final Matrix[] snapshots; // next node weights as of some iteration, see snapshotFor
+	private final ExecutorService updater;
+	private volatile Thread updaterThread;
+
+	// the rest is counted in pipeline iterations, 1 being the first one built by the pipeline.
+	// started is only touched by the calling thread; the updater writes the others, under this object's lock
+	private int started = 0;
+	private int completed = 0; // last iteration whose update is done
+	private int published = 0; // last iteration whose next node weights are in a snapshot (0: the starting ones)
+	private Throwable failure;
+
+	public IterationPipeline(AntSystem solver, int depth, int maxStaleness) {
+		this.solver = solver;
+		this.depth = Math.max(2, depth);
+		this.snapshotInterval = Math.max(1, maxStaleness - this.depth + 2);
+
+		// the solver's own ants are the first set
+		int numAnts = solver.getNumAnts();
+		this.antSets = new Ant[this.depth][];
+		this.antSets[0] = solver.getAnts();
+		for (int s = 1; s < this.depth; s++) {
+			this.antSets[s] = new Ant[numAnts];
+			for (int i = 0; i < numAnts; i++) {
+				this.antSets[s][i] = new Ant(solver.getNumNodes(), solver.getRandom().split());
+			}
+		}
+		this.stats = new IterationStats[this.depth];
+		this.newBsfs = new boolean[this.depth];
+
+		// one snapshot being built from, plus one for each that can be published while it's in use
+		this.snapshots = new Matrix[(this.depth + this.snapshotInterval - 2) / this.snapshotInterval + 1];
+		for (int i = 0; i < this.snapshots.length; i++) {
+			this.snapshots[i] = solver.createMatrix(solver.getNumNodes());
+		}
+		this.snapshots[0].copyFrom(solver.getNextNodeWeights());
+
+		this.updater = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "pheromone-updater");
+			thread.setDaemon(true);
+			this.updaterThread = thread;
+			solver.addWorkerThread(thread);
+			return thread;
+		});
+	}
+
+	// one pipelined iteration: build the tours for the next iteration, then hand its update to the updater.
+	// returns whether the update that was waited for found a new bsf
+	public boolean iterate() {
+		int k = ++this.started;
+		int set = k % this.depth;
+		int version = this.snapshotVersion(k);
+		this.await(Math.max(0, k - this.depth), version);
+
+		// the set was last used depth iterations ago, and that update is done. what it found is what this
+		// iteration reports
+		boolean newBSFWasFound = (k > this.depth) && this.newBsfs[set];
+		Ant[] ants = this.antSets[set];
+
+		int iteration = this.solver.getIterationCount() + 1;
+		this.solver.setIterationCount(iteration);
+		IterationStats stats = null;
+		if (this.solver.hasIterationListeners()) {
+			if (this.stats[set] == null) {
+				this.stats[set] = new IterationStats(this.solver);
+			}
+			stats = this.stats[set];
+			stats.startIteration(iteration);
+		}
+
+		this.solver.setConstructionWeights(this.snapshotFor(version));
+		this.solver.constructAllTours(ants);
+		if (stats != null) {
+			stats.endPhase(IterationPhase.CONSTRUCTION);
+		}
+		for (Ant ant : ants) {
+			this.solver.updateSingleAntTourLengths(ant);
+		}
+		if (stats != null) {
+			stats.endPhase(IterationPhase.TOUR_LENGTHS);
+		}
+		this.solver.improveTours(ants);
+		if (stats != null) {
+			stats.endPhase(IterationPhase.LOCAL_SEARCH);
+		}
+
+		IterationStats updateStats = stats;
+		this.updater.execute(() -> this.update(k, set, updateStats));
+		return newBSFWasFound;
+	}
+
+	// the newest snapshot construction of pipeline iteration k may use: updates up to k - depth have to be
+	// in it, and snapshots only come every snapshotInterval updates
+	private int snapshotVersion(int k) {
+		return Math.max(0, (k - this.depth) / this.snapshotInterval * this.snapshotInterval);
+	}
+
+	private Matrix snapshotFor(int version) {
+		return this.snapshots[(version / this.snapshotInterval) % this.snapshots.length];
+	}
+
+	// runs on the updater thread, in iteration order
+	private void update(int k, int set, IterationStats stats) {
+		try {
+			Ant[] ants = this.antSets[set];
+			this.solver.useAnts(ants);
+			if (stats != null) {
+				// don't count the time the update spent queued
+				stats.restartPhaseClock();
+			}
+			boolean newBSFWasFound = this.solver.identifyInterimBSF();
+			if (stats != null) {
+				stats.endPhase(IterationPhase.BSF_CHECK);
+			}
+			this.solver.updatePheromone();
+			if (stats != null) {
+				stats.endPhase(IterationPhase.PHEROMONE_UPDATE);
+				this.solver.notifyIterationListeners(stats, newBSFWasFound);
+			}
+			for (Ant ant : ants) {
+				ant.clearCurrTourHistory();
+			}
+			this.newBsfs[set] = newBSFWasFound;
+
+			// nothing is building from this snapshot: the one in use is always older than the last published
+			boolean publish = k % this.snapshotInterval == 0;
+			if (publish) {
+				this.snapshotFor(k).copyFrom(this.solver.getNextNodeWeights());
+			}
+			synchronized (this) {
+				this.completed = k;
+				if (publish) {
+					this.published = k;
+				}
+				this.notifyAll();
+			}
+		} catch (Throwable e) {
+			synchronized (this) {
+				this.failure = e;
+				this.notifyAll();
+			}
+		}
+	}
+
+	// wait until the update of iteration completed is done and the snapshot of iteration published is out
+	private synchronized void await(int completed, int published) {
+		boolean interrupted = false;
+		while (this.failure == null && (this.completed < completed || this.published < published)) {
+			try {
+				this.wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (this.failure != null) {
+			throw new IllegalStateException("pheromone update failed", this.failure);
+		}
+	}
+
+	// wait for every update handed over so far, so the solver's pheromone, next node weights and bsf are all
+	// caught up. pipelining carries on from there with the next iterate. does nothing on the updater thread
+	// itself (i.e. from an iteration listener), which couldn't wait for its own update
+	public void drain() {
+		if (Thread.currentThread() == this.updaterThread) {
+			return;
+		}
+		this.await(this.started, 0);
+	}
+
+	// drain, then stop the updater thread. the solver keeps whichever set of ants went through the last update
+	public void close() {
+		this.drain();
+		this.updater.shutdown();
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	// iterations the pheromone construction builds from can be behind
+	public int getMaxStaleness() {
+		return this.depth + this.snapshotInterval - 2;
+	}
+
+}
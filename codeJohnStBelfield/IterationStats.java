@@ -0,0 +1,231 @@
+/*
+ * IterationStats: what happened in one iteration of an AntSystem.
+ * 
+ * -wall time of each IterationPhase, and of the whole iteration
+ * -bytes allocated during the iteration, by the thread that ran it and the solver's own pool and updater
+ *  threads (see AntSystem.getWorkerThreads)
+ * -best, mean and worst tour length of the ants, and the bsf after the iteration
+ * -lambda branching factor of the pheromone, when it was measured this iteration (NaN otherwise)
+ * 
+ */
+
+import java.lang.management.ManagementFactory;
+
+public class IterationStats {
+
+	private final static IterationPhase[] PHASES = IterationPhase.values();
+	private final static com.sun.management.ThreadMXBean THREADS = threadBean();
+	private final static Thread[] NO_THREADS = new Thread[0];
+
+	private final AntSystem solver; // null for copies
+
+	private int iteration;
+	private final long[] phaseNanos = new long[PHASES.length];
+	private long totalNanos;
+	private long allocatedBytes = -1; // -1: the JVM can't tell
+	private double bestLength;
+	private double meanLength;
+	private double worstLength;
+	private double bsfLength;
+	private boolean newBsf;
+	private double branchingFactor = Double.NaN;
+
+	// for timing the phases as they go
+	private long iterationStart;
+	private long phaseStart;
+
+	// the threads counted at the start of the iteration and what they'd allocated by then. reused, and only
+	// grown when the solver gains threads, so counting doesn't allocate anything itself
+	private long[] threadIds = new long[0];
+	private long[] allocatedAtStart = new long[0];
+	private int numThreads;
+
+	public IterationStats(AntSystem solver) {
+		this.solver = solver;
+	}
+
+	private IterationStats() {
+		this.solver = null;
+	}
+
+	// start timing a new iteration
+	public void startIteration(int iteration) {
+		this.iteration = iteration;
+		for (int i = 0; i < this.phaseNanos.length; i++) {
+			this.phaseNanos[i] = 0;
+		}
+		this.branchingFactor = Double.NaN;
+		this.startAllocationCount();
+		this.iterationStart = System.nanoTime();
+		this.phaseStart = this.iterationStart;
+	}
+
+	// the phase that just finished; the next phase starts now
+	public void endPhase(IterationPhase phase) {
+		long now = System.nanoTime();
+		this.phaseNanos[phase.ordinal()] += now - this.phaseStart;
+		this.phaseStart = now;
+	}
+
+	// the next phase starts now; the time since the last one doesn't go to any phase (i.e. an update that sat
+	// waiting for the pipeline's updater thread)
+	public void restartPhaseClock() {
+		this.phaseStart = System.nanoTime();
+	}
+
+	// wrap up: total time, allocation, and tour lengths (the ants still have their tours at this point)
+	public void endIteration(Ant[] ants, double bsfLength, boolean newBsf) {
+		this.totalNanos = System.nanoTime() - this.iterationStart;
+		this.allocatedBytes = this.endAllocationCount();
+
+		double best = Double.MAX_VALUE;
+		double worst = 0;
+		double sum = 0;
+		for (Ant ant : ants) {
+			double tourLength = ant.getTourLength();
+			best = Math.min(best, tourLength);
+			worst = Math.max(worst, tourLength);
+			sum += tourLength;
+		}
+		this.bestLength = best;
+		this.worstLength = worst;
+		this.meanLength = sum / ants.length;
+		this.bsfLength = bsfLength;
+		this.newBsf = newBsf;
+	}
+
+	// null if the JVM doesn't count allocations per thread
+	private static com.sun.management.ThreadMXBean threadBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)
+				|| !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled()) {
+			return null;
+		}
+		return (com.sun.management.ThreadMXBean) bean;
+	}
+
+	// what the calling thread and the solver's threads have allocated so far
+	private void startAllocationCount() {
+		if (THREADS == null) {
+			return;
+		}
+		Thread[] workers = (this.solver == null) ? NO_THREADS : this.solver.getWorkerThreads();
+		if (this.threadIds.length < workers.length + 1) {
+			this.threadIds = new long[workers.length + 1];
+			this.allocatedAtStart = new long[workers.length + 1];
+		}
+		this.numThreads = 0;
+		this.startCounting(Thread.currentThread().getId());
+		for (Thread worker : workers) {
+			this.startCounting(worker.getId());
+		}
+	}
+
+	private void startCounting(long threadId) {
+		long allocated = THREADS.getThreadAllocatedBytes(threadId);
+		if (allocated >= 0) {
+			this.threadIds[this.numThreads] = threadId;
+			this.allocatedAtStart[this.numThreads] = allocated;
+			this.numThreads++;
+		}
+	}
+
+	// bytes allocated since startAllocationCount, or -1 if the JVM doesn't track it. a pool thread that
+	// started during the iteration counts in full; one that died takes its count with it
+	private long endAllocationCount() {
+		if (THREADS == null) {
+			return -1;
+		}
+		long total = 0;
+		for (int i = 0; i < this.numThreads; i++) {
+			long allocated = THREADS.getThreadAllocatedBytes(this.threadIds[i]);
+			if (allocated >= 0) {
+				total += allocated - this.allocatedAtStart[i];
+			}
+		}
+		Thread[] workers = (this.solver == null) ? NO_THREADS : this.solver.getWorkerThreads();
+		for (Thread worker : workers) {
+			if (!this.counted(worker.getId())) {
+				total += Math.max(0, THREADS.getThreadAllocatedBytes(worker.getId()));
+			}
+		}
+		return Math.max(0, total);
+	}
+
+	private boolean counted(long threadId) {
+		for (int i = 0; i < this.numThreads; i++) {
+			if (this.threadIds[i] == threadId) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// a snapshot that won't change when the solver reuses this object
+	public IterationStats copy() {
+		IterationStats copy = new IterationStats();
+		copy.iteration = this.iteration;
+		System.arraycopy(this.phaseNanos, 0, copy.phaseNanos, 0, this.phaseNanos.length);
+		copy.totalNanos = this.totalNanos;
+		copy.allocatedBytes = this.allocatedBytes;
+		copy.bestLength = this.bestLength;
+		copy.meanLength = this.meanLength;
+		copy.worstLength = this.worstLength;
+		copy.bsfLength = this.bsfLength;
+		copy.newBsf = this.newBsf;
+		copy.branchingFactor = this.branchingFactor;
+		return copy;
+	}
+
+	public int getIteration() {
+		return iteration;
+	}
+
+	public long getPhaseNanos(IterationPhase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public double getBestLength() {
+		return bestLength;
+	}
+
+	public double getMeanLength() {
+		return meanLength;
+	}
+
+	public double getWorstLength() {
+		return worstLength;
+	}
+
+	public double getBsfLength() {
+		return bsfLength;
+	}
+
+	public boolean isNewBsf() {
+		return newBsf;
+	}
+
+	public double getBranchingFactor() {
+		return branchingFactor;
+	}
+
+	public void setBranchingFactor(double branchingFactor) {
+		this.branchingFactor = branchingFactor;
+	}
+
+	@Override
+	public String toString() {
+		return "IterationStats [iteration=" + iteration + ", totalMs=" + totalNanos / 1e6 + ", allocatedBytes="
+				+ allocatedBytes + ", best=" + bestLength + ", mean=" + meanLength + ", worst=" + worstLength
+				+ ", bsf=" + bsfLength + ", branchingFactor=" + branchingFactor + "]";
+	}
+
+}
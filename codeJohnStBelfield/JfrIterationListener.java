@@ -0,0 +1,92 @@
+/*
+ * JfrIterationListener: turns every iteration into a JDK Flight Recorder event, so a solve can be looked at
+ * in JMC next to GC, allocation and lock events.
+ * 
+ * Costs next to nothing when no recording is running (the event is never committed), so it can stay
+ * attached. Record with i.e. java -XX:StartFlightRecording=filename=solve.jfr Playground (with jfrEvents on)
+ * 
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+public class JfrIterationListener implements IterationListener {
+
+	@Name("aco.Iteration")
+	@Label("ACO Iteration")
+	@Category("Ant Colony Optimization")
+	@StackTrace(false)
+	static class IterationEvent extends Event {
+		@Label("Iteration")
+		int iteration;
+
+		@Label("Construction")
+		@Timespan(Timespan.NANOSECONDS)
+		long constructionTime;
+
+		@Label("Tour Lengths")
+		@Timespan(Timespan.NANOSECONDS)
+		long tourLengthsTime;
+
+		@Label("Local Search")
+		@Timespan(Timespan.NANOSECONDS)
+		long localSearchTime;
+
+		@Label("BSF Check")
+		@Timespan(Timespan.NANOSECONDS)
+		long bsfCheckTime;
+
+		@Label("Pheromone Update")
+		@Timespan(Timespan.NANOSECONDS)
+		long pheromoneUpdateTime;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocatedBytes;
+
+		@Label("Best Length")
+		double bestLength;
+
+		@Label("Mean Length")
+		double meanLength;
+
+		@Label("Worst Length")
+		double worstLength;
+
+		@Label("BSF Length")
+		double bsfLength;
+
+		@Label("New BSF")
+		boolean newBsf;
+
+		@Label("Branching Factor")
+		double branchingFactor;
+	}
+
+	public void iterationCompleted(IterationStats stats) {
+		IterationEvent event = new IterationEvent();
+		if (!event.shouldCommit()) {
+			return;
+		}
+		event.iteration = stats.getIteration();
+		event.constructionTime = stats.getPhaseNanos(IterationPhase.CONSTRUCTION);
+		event.tourLengthsTime = stats.getPhaseNanos(IterationPhase.TOUR_LENGTHS);
+		event.localSearchTime = stats.getPhaseNanos(IterationPhase.LOCAL_SEARCH);
+		event.bsfCheckTime = stats.getPhaseNanos(IterationPhase.BSF_CHECK);
+		event.pheromoneUpdateTime = stats.getPhaseNanos(IterationPhase.PHEROMONE_UPDATE);
+		event.allocatedBytes = stats.getAllocatedBytes();
+		event.bestLength = stats.getBestLength();
+		event.meanLength = stats.getMeanLength();
+		event.worstLength = stats.getWorstLength();
+		event.bsfLength = stats.getBsfLength();
+		event.newBsf = stats.isNewBsf();
+		event.branchingFactor = stats.getBranchingFactor();
+		event.commit();
+	}
+
+}
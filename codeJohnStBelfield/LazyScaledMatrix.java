@@ -0,0 +1,92 @@
+/*
+ * LazyScaledMatrix: wraps another matrix and keeps one global scale factor for all of its entries.
+ * 
+ * The real value of (i, j) is inner(i, j) * scale. Scaling the whole matrix (i.e. evaporation) just
+ * multiplies the scale, which is O(1) instead of a sweep over all n^2 entries; get and set convert on the
+ * way in and out, so everything reading or writing through the matrix sees the real values.
+ * 
+ * Evaporation keeps shrinking the scale, which makes the stored values grow. Once the scale drops below
+ * minScale (well before the stored values could overflow) it is pushed into the entries with one real
+ * sweep and starts over at 1. At a 0.1 evaporation factor that's one sweep every couple thousand
+ * iterations for doubles.
+ * 
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+public class LazyScaledMatrix extends Matrix {
+
+	private final Matrix inner;
+	private final double minScale;
+	private double scale = 1.0;
+
+	public LazyScaledMatrix(Matrix inner, double minScale) {
+		super(inner.getNumNodes());
+		this.inner = inner;
+		this.minScale = minScale;
+	}
+
+	public double get(int node1, int node2) {
+		return this.inner.get(node1, node2) * this.scale;
+	}
+
+	public double getCandidate(int node1, int slot, int node2) {
+		return this.inner.getCandidate(node1, slot, node2) * this.scale;
+	}
+
+	public void set(int node1, int node2, double value) {
+		this.inner.set(node1, node2, value / this.scale);
+	}
+
+	public void fill(double value) {
+		this.inner.fill(value);
+		this.scale = 1.0;
+	}
+
+	public void scale(double factor) {
+		// scaling to 0 can't be undone by dividing later
+		if (factor == 0) {
+			this.fill(0);
+			return;
+		}
+		this.scale *= factor;
+		if (this.scale < this.minScale || this.scale > 1 / this.minScale) {
+			this.materialize();
+		}
+	}
+
+	// push the scale into the entries (one full sweep), so the stored values are the real values again
+	public void materialize() {
+		this.inner.scale(this.scale);
+		this.scale = 1.0;
+	}
+
+	public boolean isSymmetric() {
+		return this.inner.isSymmetric();
+	}
+
+	public long getMemoryFootprint() {
+		return this.inner.getMemoryFootprint();
+	}
+
+	// the scale goes first, then the inner matrix as it's stored, so nothing gets rounded on the way
+	public long writeEntries(FileChannel channel, long position) throws IOException {
+		position = MappedIO.writeDouble(channel, position, this.scale);
+		return this.inner.writeEntries(channel, position);
+	}
+
+	public long readEntries(FileChannel channel, long position) throws IOException {
+		this.scale = MappedIO.readDouble(channel, position);
+		return this.inner.readEntries(channel, position + 8);
+	}
+
+	public double getScale() {
+		return scale;
+	}
+
+	public Matrix getInner() {
+		return inner;
+	}
+
+}
@@ -0,0 +1,283 @@
+/*
+ * LocalSearch: 2-opt and Or-opt, the usual local search for ant tours.
+ * 
+ * -2-opt: remove two arcs, reconnect the other way around (reverses the piece in between)
+ * -Or-opt: move a segment of 1 to 3 nodes somewhere else in the tour, either way around
+ * 
+ * Both are driven by neighbor lists: a move has to add an arc to one of a node's nearest neighbors, and since
+ * the lists are sorted, the scan stops as soon as the new arc is longer than the one being removed.
+ * Don't-look bits keep it from re-checking nodes whose surroundings haven't changed: a queue holds the nodes
+ * worth looking at, and only the endpoints of an applied move go back in.
+ * 
+ * The tour is an array plus each node's position in it. Reversals always flip the shorter side of the tour,
+ * and the tour length is kept up to date with each move's gain, so nothing is ever recomputed from scratch.
+ * 
+ */
+
+public class LocalSearch implements TourImprover {
+
+	private final static double EPSILON = 1e-9; // gains smaller than this are rounding noise
+	private final static int MAX_SEGMENT_LENGTH = 3; // longest Or-opt segment
+
+	private final Matrix nodeDists;
+	private final int[][] neighborLists; // neighborLists[i]: nearest nodes to i, nearest first
+	private boolean useOrOpt = true;
+
+	// scratch space, one per thread, so several ants can be improved at once
+	private final ThreadLocal<Scratch> scratch;
+
+	private static class Scratch {
+		int[] tour;
+		int numNodes;
+		int[] positions; // positions[node] = index of node in tour
+		int[] queue; // circular queue of nodes whose don't-look bit is off
+		boolean[] queued;
+		int queueHead;
+		int queueSize;
+
+		Scratch(int numNodes) {
+			this.positions = new int[numNodes];
+			this.queue = new int[numNodes];
+			this.queued = new boolean[numNodes];
+		}
+	}
+
+	public LocalSearch(Matrix nodeDists, int[][] neighborLists) {
+		this.nodeDists = nodeDists;
+		this.neighborLists = neighborLists;
+		final int numNodes = nodeDists.getNumNodes();
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(numNodes));
+	}
+
+	public double improveTour(int[] tour, int tourSize, double tourLength) {
+		// too small for the moves to make sense
+		if (tourSize < 8) {
+			return tourLength;
+		}
+
+		Scratch s = this.scratch.get();
+		s.tour = tour;
+		s.numNodes = tourSize;
+		s.queueHead = 0;
+		s.queueSize = 0;
+		for (int i = 0; i < tourSize; i++) {
+			s.positions[tour[i]] = i;
+			s.queued[tour[i]] = false;
+		}
+		// everybody starts out worth a look
+		for (int i = 0; i < tourSize; i++) {
+			this.push(s, tour[i]);
+		}
+
+		while (s.queueSize > 0) {
+			int node = this.pop(s);
+			double gain = this.tryTwoOpt(s, node);
+			if (gain <= 0 && this.useOrOpt) {
+				gain = this.tryOrOpt(s, node);
+			}
+			if (gain > 0) {
+				tourLength -= gain;
+				// the endpoints were pushed by the move; node itself gets another look too
+				this.push(s, node);
+			}
+		}
+
+		s.tour = null;
+		return tourLength;
+	}
+
+	// 2-opt around node, first improvement. returns the gain (0 if nothing was found)
+	private double tryTwoOpt(Scratch s, int a) {
+		for (int direction = 0; direction < 2; direction++) {
+			boolean forward = (direction == 0);
+			int aNext = forward ? this.succ(s, a) : this.pred(s, a);
+			double removedA = this.dist(a, aNext);
+
+			for (int c : this.neighborLists[a]) {
+				double addedAC = this.dist(a, c);
+				// neighbors are sorted, so nothing further down can do better
+				if (addedAC >= removedA) {
+					break;
+				}
+				int cNext = forward ? this.succ(s, c) : this.pred(s, c);
+				if (c == aNext || cNext == a) {
+					continue;
+				}
+				double gain = removedA + this.dist(c, cNext) - addedAC - this.dist(aNext, cNext);
+				if (gain > EPSILON) {
+					// drop (a, aNext) and (c, cNext), add (a, c) and (aNext, cNext)
+					this.exchange(s, a, aNext, c, cNext);
+					this.push(s, aNext);
+					this.push(s, c);
+					this.push(s, cNext);
+					return gain;
+				}
+			}
+		}
+		return 0;
+	}
+
+	// Or-opt: move the segment that starts at node (1 to 3 nodes long) between two other nodes.
+	// returns the gain (0 if nothing was found)
+	private double tryOrOpt(Scratch s, int s1) {
+		int s2 = s1;
+		for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+			if (length > 1) {
+				s2 = this.succ(s, s2);
+			}
+			int p = this.pred(s, s1);
+			int nx = this.succ(s, s2);
+			if (nx == p || this.succ(s, nx) == p) {
+				return 0;
+			}
+			// what taking the segment out saves
+			double removeGain = this.dist(p, s1) + this.dist(s2, nx) - this.dist(p, nx);
+			if (removeGain <= EPSILON) {
+				continue;
+			}
+
+			for (int end = 0; end < 2; end++) {
+				int segmentEnd = (end == 0) ? s1 : s2;
+				for (int c : this.neighborLists[segmentEnd]) {
+					double addedEnd = this.dist(segmentEnd, c);
+					if (addedEnd >= removeGain) {
+						break;
+					}
+					if (this.inSegment(s, c, s1, length)) {
+						continue;
+					}
+					// the two arcs at c the segment could go into
+					for (int side = 0; side < 2; side++) {
+						int x = (side == 0) ? c : this.pred(s, c);
+						int y = (side == 0) ? this.succ(s, c) : c;
+						if (this.inSegment(s, x, s1, length) || this.inSegment(s, y, s1, length) || x == nx
+								|| y == p) {
+							continue;
+						}
+						double removedXY = this.dist(x, y);
+						double forwardGain = removeGain + removedXY - this.dist(x, s1) - this.dist(s2, y);
+						double reversedGain = removeGain + removedXY - this.dist(x, s2) - this.dist(s1, y);
+						boolean reversed = reversedGain > forwardGain;
+						double gain = Math.max(forwardGain, reversedGain);
+						if (gain > EPSILON) {
+							this.moveSegment(s, s1, s2, p, nx, x, y, reversed, length);
+							this.push(s, p);
+							this.push(s, nx);
+							this.push(s, s2);
+							this.push(s, x);
+							this.push(s, y);
+							return gain;
+						}
+					}
+				}
+			}
+		}
+		return 0;
+	}
+
+	// take segment s1 ... s2 (between p and nx) out, and put it back between x and y, where y = succ(x).
+	// done as 2-opt exchanges: two give x s2 ... s1 y, and a third flips the segment for x s1 ... s2 y
+	private void moveSegment(Scratch s, int s1, int s2, int p, int nx, int x, int y, boolean reversed,
+			int length) {
+		// is x after the segment, walking forward from nx?
+		boolean xAfter = this.forwardDistance(s, nx, x) < this.forwardDistance(s, nx, p);
+		if (xAfter) {
+			// p S nx ... x y  ->  p x ... nx s2..s1 y  ->  p nx ... x s2..s1 y
+			this.exchange(s, p, s1, x, y);
+			this.exchange(s, p, x, nx, s2);
+		} else {
+			// x y ... p S nx  ->  x s2..s1 p ... y nx  ->  x s2..s1 y ... p nx
+			this.exchange(s, x, y, s2, nx);
+			this.exchange(s, s1, p, y, nx);
+		}
+		if (!reversed && length > 1) {
+			// x s2..s1 y  ->  x s1..s2 y
+			this.exchange(s, x, s2, s1, y);
+		}
+	}
+
+	// drop arcs (x1, x2) and (y1, y2), add (x1, y1) and (x2, y2). the arcs have to run the same way round
+	// the tour, i.e. x2 = succ(x1) and y2 = succ(y1), or x1 = succ(x2) and y1 = succ(y2)
+	private void exchange(Scratch s, int x1, int x2, int y1, int y2) {
+		if (this.succ(s, x1) == x2) {
+			this.reversePath(s, x2, y1);
+		} else {
+			this.reversePath(s, x1, y2);
+		}
+	}
+
+	// reverse the path from node "from" forward to node "to". flipping everything else instead gives the
+	// same tour (just walked the other way round), so whichever side is shorter gets flipped
+	private void reversePath(Scratch s, int from, int to) {
+		int n = s.numNodes;
+		int i = s.positions[from];
+		int j = s.positions[to];
+		int length = ((j - i + n) % n) + 1;
+		if (2 * length > n) {
+			i = (j + 1) % n;
+			j = (s.positions[from] - 1 + n) % n;
+			length = n - length;
+		}
+		for (int k = 0; k < length / 2; k++) {
+			int nodeI = s.tour[i];
+			int nodeJ = s.tour[j];
+			s.tour[i] = nodeJ;
+			s.positions[nodeJ] = i;
+			s.tour[j] = nodeI;
+			s.positions[nodeI] = j;
+			i = (i + 1 == n) ? 0 : i + 1;
+			j = (j == 0) ? n - 1 : j - 1;
+		}
+	}
+
+	private boolean inSegment(Scratch s, int node, int s1, int length) {
+		return this.forwardDistance(s, s1, node) < length;
+	}
+
+	// steps forward from node "from" to node "to"
+	private int forwardDistance(Scratch s, int from, int to) {
+		int distance = s.positions[to] - s.positions[from];
+		return (distance < 0) ? distance + s.numNodes : distance;
+	}
+
+	private int succ(Scratch s, int node) {
+		int position = s.positions[node] + 1;
+		return s.tour[(position == s.numNodes) ? 0 : position];
+	}
+
+	private int pred(Scratch s, int node) {
+		int position = s.positions[node];
+		return s.tour[(position == 0) ? s.numNodes - 1 : position - 1];
+	}
+
+	private double dist(int node1, int node2) {
+		return this.nodeDists.get(node1, node2);
+	}
+
+	private void push(Scratch s, int node) {
+		if (s.queued[node]) {
+			return;
+		}
+		s.queued[node] = true;
+		s.queue[(s.queueHead + s.queueSize) % s.numNodes] = node;
+		s.queueSize++;
+	}
+
+	private int pop(Scratch s) {
+		int node = s.queue[s.queueHead];
+		s.queueHead = (s.queueHead + 1) % s.numNodes;
+		s.queueSize--;
+		s.queued[node] = false;
+		return node;
+	}
+
+	public boolean isUseOrOpt() {
+		return useOrOpt;
+	}
+
+	// 2-opt only, if Or-opt isn't worth its time
+	public void setUseOrOpt(boolean useOrOpt) {
+		this.useOrOpt = useOrOpt;
+	}
+
+}
@@ -0,0 +1,12 @@
+/*
+ * LocalSearchMode: which ants' tours get the TourImprover treatment each iteration.
+ * 
+ * NONE: plain ACO.
+ * ITERATION_BEST: only the shortest tour of the iteration. Cheap, and most of the benefit.
+ * ALL_ANTS: every tour. Costs the most, but every ant's deposit is on a locally optimal tour.
+ * 
+ */
+
+public enum LocalSearchMode {
+	NONE, ITERATION_BEST, ALL_ANTS
+}
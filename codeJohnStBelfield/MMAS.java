@@ -0,0 +1,296 @@
+/*
+ * MAX-MIN Ant System
+ * 
+ * Update pheromone requirements:
+ * -all pheromones evaporate a lil bit
+ * -pheromone added to ONE tour only: the iteration best, or every so often the bsf (see below)
+ * -every pheromone weight stays between tauMin and tauMax
+ * 
+ * The bounds are what keep it from stagnating like EAS does: no arc ever gets so little pheromone that
+ * the ants stop trying it. tauMax follows the bsf (1 / (evapFactor * bsfLength)), and tauMin is set so
+ * that a converged colony still builds the bsf tour with probability pBest.
+ * 
+ * Which tour deposits: early on the iteration best (keeps things exploring), later more and more often the
+ * bsf. The default schedule counts iterations since the last restart:
+ * -up to 25: iteration best only
+ * -up to 75: bsf every 5th iteration
+ * -up to 125: bsf every 3rd
+ * -up to 250: bsf every 2nd
+ * -after that: always the bsf
+ * 
+ * Restarts: when the colony has stagnated (average lambda branching factor within stagnationBranchingMargin
+ * of the settled value, see AntSystem.getSettledBranchingFactor, or no new bsf for stagnationIterations
+ * iterations), pheromone goes back up to tauMax. With a smoothing factor below 1 it
+ * only goes part of the way (tau += smoothingFactor * (tauMax - tau)), so some of what was learned sticks.
+ * 
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class MMAS extends AntSystem {
+
+	private final static double BRANCHING_LAMBDA = 0.05;
+	private final static int BRANCHING_CHECK_INTERVAL = 25; // branching factor isn't free, so not every iteration
+
+	private double pBest = 0.05; // probability of building the bsf tour once converged; sets tauMin
+	private double tauMax;
+	private double tauMin;
+
+	private int bsfUpdateInterval = 0; // deposit the bsf every this many iterations; 0 means use the schedule
+	private double smoothingFactor = 1.0; // 1: full reinitialisation on restart
+	private int stagnationIterations = 250; // iterations without a new bsf before a restart
+	private double stagnationBranchingMargin = 0.05; // above the settled branching factor
+
+	private int iterationsSinceRestart = 0;
+	private int iterationsSinceImprovement = 0;
+	private double lastBsfLength;
+	private int numRestarts = 0;
+
+	public MMAS(TSP problem, int numAnts, double alpha, double beta, double evapFactor) {
+		super(problem, numAnts, alpha, beta, evapFactor);
+
+		this.initBounds();
+	}
+
+	// same, but seeded: all randomness comes from the given stream
+	public MMAS(TSP problem, int numAnts, double alpha, double beta, double evapFactor, RandomStream random) {
+		this(problem, numAnts, alpha, beta, evapFactor, random, MatrixStorage.DENSE_DOUBLE);
+	}
+
+	// seeded, with the given storage for the solver's matrices
+	public MMAS(TSP problem, int numAnts, double alpha, double beta, double evapFactor, RandomStream random,
+			MatrixStorage storage) {
+		super(problem, numAnts, alpha, beta, evapFactor, random, storage);
+
+		this.initBounds();
+	}
+
+	// seeded, sharing the nearest neighbor length, candidate lists and heuristic info with other solvers
+	public MMAS(SharedProblemData shared, int numAnts, double alpha, double beta, double evapFactor,
+			RandomStream random) {
+		super(shared, numAnts, alpha, beta, evapFactor, random);
+
+		this.initBounds();
+	}
+
+	private void initBounds() {
+		this.tauMax = super.getInitPheromoneWeight();
+		this.tauMin = this.calcTauMin(this.tauMax);
+		this.lastBsfLength = super.getBsfLength();
+	}
+
+	@Override
+	// start at tauMax, with the nearest neighbor tour standing in for the bsf
+	public double calcInitPheromoneWeight(int numAnts, double nnLength) {
+		return 1 / (super.getEvapFactor() * nnLength);
+	}
+
+	// Stutzle and Hoos: pick tauMin so that, once every arc is at a bound, an ant builds the bsf tour with
+	// probability pBest. assumes an ant has n / 2 arcs to choose from on average
+	public double calcTauMin(double tauMax) {
+		int numNodes = super.getNumNodes();
+		double pDec = Math.pow(this.pBest, 1.0 / numNodes);
+		double avgChoices = numNodes / 2.0;
+		double tauMin = tauMax * (1 - pDec) / ((avgChoices - 1) * pDec);
+		// tiny instances can end up with tauMin above tauMax
+		return Math.min(tauMin, tauMax);
+	}
+
+	// self explanatory
+	public boolean addNextNodeForAnt(Ant ant) {
+		int nextNode = this.chooseNextNodeForAnt(ant);
+		double distanceToNextNode = super.getNodeDists().get(ant.getCurrNode(), nextNode);
+		return ant.addNodeToTour(nextNode, distanceToNextNode);
+	}
+
+	// same as EAS, all the difference is in the pheromone
+	public int chooseNextNodeForAnt(Ant ant) {
+		return super.chooseNextNodeForAntProbabilistically(ant);
+	}
+
+	// update pheromone weights. runs after the bsf check, so the bsf already includes this iteration
+	public void updatePheromone() {
+		this.iterationsSinceRestart++;
+		if (super.getBsfLength() < this.lastBsfLength) {
+			this.lastBsfLength = super.getBsfLength();
+			this.iterationsSinceImprovement = 0;
+			this.tauMax = 1 / (super.getEvapFactor() * super.getBsfLength());
+			this.tauMin = this.calcTauMin(this.tauMax);
+		} else {
+			this.iterationsSinceImprovement++;
+		}
+
+		super.scaleAllPheromoneWeights(1 - super.getEvapFactor());
+		if (this.isBsfIteration()) {
+			super.depositPheromoneSingleTour(super.getBsfLength(), super.getBsfTour(), 1.0);
+		} else {
+			Ant iterationBestAnt = this.findIterationBestAnt();
+			super.depositPheromoneSingleTour(iterationBestAnt.getTourLength(), iterationBestAnt.getTour(), 1.0);
+		}
+		this.boundPheromoneWeights();
+
+		if (this.isStagnated()) {
+			this.restart();
+		}
+	}
+
+	// is it the bsf's turn to deposit?
+	public boolean isBsfIteration() {
+		int interval = this.bsfUpdateInterval;
+		if (interval <= 0) {
+			if (this.iterationsSinceRestart <= 25) {
+				return false;
+			} else if (this.iterationsSinceRestart <= 75) {
+				interval = 5;
+			} else if (this.iterationsSinceRestart <= 125) {
+				interval = 3;
+			} else if (this.iterationsSinceRestart <= 250) {
+				interval = 2;
+			} else {
+				interval = 1;
+			}
+		}
+		return this.iterationsSinceRestart % interval == 0;
+	}
+
+	public Ant findIterationBestAnt() {
+		Ant[] ants = super.getAnts();
+		Ant iterationBestAnt = ants[0];
+		for (int i = 1; i < ants.length; i++) {
+			if (ants[i].getTourLength() < iterationBestAnt.getTourLength()) {
+				iterationBestAnt = ants[i];
+			}
+		}
+		return iterationBestAnt;
+	}
+
+	// clamp every pheromone weight into [tauMin, tauMax]
+	public void boundPheromoneWeights() {
+		final double tauMin = this.tauMin;
+		final double tauMax = this.tauMax;
+		super.transformAllPheromoneWeights(weight -> Math.min(Math.max(weight, tauMin), tauMax));
+	}
+
+	// stuck if nothing better has turned up in a long while, or (checked now and then) if the ants have
+	// all settled on the same arcs
+	public boolean isStagnated() {
+		if (this.iterationsSinceImprovement >= this.stagnationIterations) {
+			return true;
+		}
+		if (this.iterationsSinceRestart % BRANCHING_CHECK_INTERVAL != 0) {
+			return false;
+		}
+		return super.calcBranchingFactor(BRANCHING_LAMBDA) <= this.getSettledBranchingFactor()
+				+ this.stagnationBranchingMargin;
+	}
+
+	// pheromone back up to tauMax (or part of the way, with smoothing). the bsf is kept
+	public void restart() {
+		final double tauMax = this.tauMax;
+		final double smoothingFactor = this.smoothingFactor;
+		super.transformAllPheromoneWeights(weight -> weight + smoothingFactor * (tauMax - weight));
+		this.iterationsSinceRestart = 0;
+		this.iterationsSinceImprovement = 0;
+		this.numRestarts++;
+	}
+
+	// bounds, schedule and stagnation settings, and the counters behind them
+	@Override
+	public void writeVariantState(DataOutput out) throws IOException {
+		out.writeDouble(this.pBest);
+		out.writeDouble(this.tauMax);
+		out.writeDouble(this.tauMin);
+		out.writeInt(this.bsfUpdateInterval);
+		out.writeDouble(this.smoothingFactor);
+		out.writeInt(this.stagnationIterations);
+		out.writeDouble(this.stagnationBranchingMargin);
+		out.writeInt(this.iterationsSinceRestart);
+		out.writeInt(this.iterationsSinceImprovement);
+		out.writeDouble(this.lastBsfLength);
+		out.writeInt(this.numRestarts);
+	}
+
+	@Override
+	public void readVariantState(DataInput in) throws IOException {
+		this.pBest = in.readDouble();
+		this.tauMax = in.readDouble();
+		this.tauMin = in.readDouble();
+		this.bsfUpdateInterval = in.readInt();
+		this.smoothingFactor = in.readDouble();
+		this.stagnationIterations = in.readInt();
+		this.stagnationBranchingMargin = in.readDouble();
+		this.iterationsSinceRestart = in.readInt();
+		this.iterationsSinceImprovement = in.readInt();
+		this.lastBsfLength = in.readDouble();
+		this.numRestarts = in.readInt();
+	}
+
+	public double getTauMax() {
+		return tauMax;
+	}
+
+	// the bsf tour was patched up for the new cities, and the bounds go with it (tauMin depends on the number
+	// of cities as well)
+	@Override
+	public void problemChanged() {
+		if (super.getBsfTour() != null) {
+			this.tauMax = 1 / (super.getEvapFactor() * super.getBsfLength());
+		}
+		this.tauMin = this.calcTauMin(this.tauMax);
+		this.lastBsfLength = super.getBsfLength();
+	}
+
+	public double getTauMin() {
+		return tauMin;
+	}
+
+	public double getPBest() {
+		return pBest;
+	}
+
+	// takes effect from the next bound update
+	public void setPBest(double pBest) {
+		this.pBest = pBest;
+		this.tauMin = this.calcTauMin(this.tauMax);
+	}
+
+	public int getBsfUpdateInterval() {
+		return bsfUpdateInterval;
+	}
+
+	public void setBsfUpdateInterval(int bsfUpdateInterval) {
+		this.bsfUpdateInterval = bsfUpdateInterval;
+	}
+
+	public double getSmoothingFactor() {
+		return smoothingFactor;
+	}
+
+	// between 0 (restarts do nothing) and 1 (full reinitialisation)
+	public void setSmoothingFactor(double smoothingFactor) {
+		this.smoothingFactor = Math.min(1, Math.max(0, smoothingFactor));
+	}
+
+	public int getStagnationIterations() {
+		return stagnationIterations;
+	}
+
+	public void setStagnationIterations(int stagnationIterations) {
+		this.stagnationIterations = stagnationIterations;
+	}
+
+	public double getStagnationBranchingMargin() {
+		return stagnationBranchingMargin;
+	}
+
+	public void setStagnationBranchingMargin(double stagnationBranchingMargin) {
+		this.stagnationBranchingMargin = stagnationBranchingMargin;
+	}
+
+	public int getNumRestarts() {
+		return numRestarts;
+	}
+
+}
@@ -0,0 +1,275 @@
+/*
+ * MappedDistanceMatrix: distances from an EXPLICIT TSPLIB file (asymmetric ones too), kept in a memory
+ * mapped file instead of on the heap.
+ *
+ * A file's EDGE_WEIGHT_SECTION is parsed straight into a binary file, which is then mapped: nothing is
+ * copied, a get reads the entry out of the mapping, and the OS pages it in from the page cache (or the disk)
+ * as needed. So the distances never take any heap, and can be bigger than it. With TSP's largeInstance the
+ * solver's own matrices only cover the candidate lists too, which is what makes problems with more distances
+ * than heap solvable.
+ *
+ * The binary file takes 8n^2 bytes, so where it goes is up to ProblemCache: with a cache directory it's kept
+ * there as a .dist cache, and from then on it's just mapped again, which takes no time however big the
+ * matrix is. Without one it's a temporary file that goes away when the JVM exits, and the next run parses
+ * the file again.
+ *
+ * Cache layout, little endian: a header (magic, numNodes, whether the distances are symmetric, the size and
+ * modification time of the .tsp it came from, the content hash, name and comment), then from HEADER_BYTES on
+ * every entry (i, j) as a double, row-major. The content hash (see ProblemCache) is worked out while the
+ * file is written, so mapping the cache again doesn't have to read all of it. A cache whose .tsp has changed
+ * since is ignored and written again.
+ *
+ * Every entry is stored, so (i, j) and (j, i) are separate entries even when they're equal. Read only,
+ * apart from while the reader is filling a new cache.
+ *
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+public class MappedDistanceMatrix extends Matrix {
+
+	private final static long MAGIC = 0x3254534944505354L; // "TSPDIST2"
+	private final static int HEADER_BYTES = 4096;
+	private final static int MAX_TEXT_BYTES = 1024; // name and comment get cut off at this
+	private final static long CHUNK_BYTES = 1L << 30; // a mapping can't be bigger than 2 GB
+
+	private final DoubleBuffer[] rows; // one view per row, into the mapping its chunk is in
+	private final MappedByteBuffer[] chunks; // whole rows each
+	private final boolean writable; // only while a new cache is being filled
+	private final Path file;
+	private boolean symmetricDistances;
+	private String contentHash;
+	private String name;
+	private String comment;
+
+	private MappedDistanceMatrix(Path file, int numNodes, boolean writable) throws IOException {
+		super(numNodes);
+		this.file = file;
+		this.writable = writable;
+		this.rows = new DoubleBuffer[numNodes];
+
+		long rowBytes = 8L * numNodes;
+		int rowsPerChunk = (int) Math.max(1, CHUNK_BYTES / Math.max(1, rowBytes));
+		this.chunks = new MappedByteBuffer[(numNodes + rowsPerChunk - 1) / rowsPerChunk];
+		FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+		StandardOpenOption[] options = writable
+				? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+				: new StandardOpenOption[] { StandardOpenOption.READ };
+		// the mappings stay valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(file, options)) {
+			for (int c = 0; c < this.chunks.length; c++) {
+				int firstRow = c * rowsPerChunk;
+				int numRows = Math.min(rowsPerChunk, numNodes - firstRow);
+				this.chunks[c] = channel.map(mode, HEADER_BYTES + firstRow * rowBytes, numRows * rowBytes);
+				for (int r = 0; r < numRows; r++) {
+					ByteBuffer row = this.chunks[c].slice((int) (r * rowBytes), (int) rowBytes);
+					this.rows[firstRow + r] = row.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+				}
+			}
+		}
+	}
+
+	// the cache of fileName, mapped, or null if there isn't an up to date one (or no cache directory)
+	public static MappedDistanceMatrix load(String fileName) {
+		Path source = Paths.get(fileName);
+		Path file = cacheFile(source);
+		return (file == null) ? null : load(file, source);
+	}
+
+	private static MappedDistanceMatrix load(Path file, Path source) {
+		if (!Files.isRegularFile(file) || !Files.isRegularFile(source)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES) {
+				return null;
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					return null;
+				}
+			}
+			header.flip();
+			if (header.getLong() != MAGIC) {
+				return null;
+			}
+			int numNodes = header.getInt();
+			boolean symmetricDistances = header.get() != 0;
+			long sourceSize = header.getLong();
+			long sourceModified = header.getLong();
+			if (sourceSize != Files.size(source) || sourceModified != Files.getLastModifiedTime(source).toMillis()
+					|| channel.size() != HEADER_BYTES + 8L * numNodes * numNodes) {
+				return null;
+			}
+
+			MappedDistanceMatrix matrix = new MappedDistanceMatrix(file, numNodes, false);
+			matrix.symmetricDistances = symmetricDistances;
+			matrix.contentHash = getString(header);
+			matrix.name = getString(header);
+			matrix.comment = getString(header);
+			return matrix;
+		} catch (IOException e) {
+			System.out.println("Error: could not read " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	// a new, writable matrix for fileName, all zeros. it's only a temporary file until finish: a half written
+	// cache never gets loaded. throws UncheckedIOException, so it can go straight to TSPLIBReader.read
+	public static MappedDistanceMatrix create(String fileName, int numNodes) {
+		Path cache = cacheFile(Paths.get(fileName));
+		try {
+			Path file;
+			if (cache != null) {
+				file = temporaryFile(cache);
+			} else {
+				file = Files.createTempFile(Paths.get(fileName).getFileName() + "-", ".dist");
+				file.toFile().deleteOnExit();
+			}
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				// sparse where the file system allows it, so this doesn't write the whole thing twice
+				channel.write(ByteBuffer.allocate(1), HEADER_BYTES + 8L * numNodes * numNodes - 1);
+			}
+			return new MappedDistanceMatrix(file, numNodes, true);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// the reader is done with a matrix from create: work out whether it's symmetric, write the header and
+	// make the cache the real one (if there's a cache directory). returns it mapped read only, ready for the
+	// solver
+	public MappedDistanceMatrix finish(String fileName, String name, String comment) throws IOException {
+		Path source = Paths.get(fileName);
+		boolean symmetricDistances = this.hasSymmetricEntries();
+		MessageDigest digest = ProblemCache.newDigest(this.numNodes);
+		for (MappedByteBuffer chunk : this.chunks) {
+			chunk.force();
+			digest.update(chunk.duplicate().clear()); // the chunks are whole rows, in order
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putLong(MAGIC);
+		header.putInt(this.numNodes);
+		header.put((byte) (symmetricDistances ? 1 : 0));
+		header.putLong(Files.size(source));
+		header.putLong(Files.getLastModifiedTime(source).toMillis());
+		putString(header, ProblemCache.toHex(digest));
+		putString(header, name);
+		putString(header, comment);
+		header.position(0);
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+		}
+
+		Path cache = cacheFile(source);
+		if (cache == null) {
+			cache = this.file; // stays a temporary file
+		} else {
+			try {
+				Files.move(this.file, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(this.file, cache, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		MappedDistanceMatrix matrix = load(cache, source);
+		if (matrix == null) {
+			throw new IOException("could not map " + cache);
+		}
+		return matrix;
+	}
+
+	// in ProblemCache's directory, named after the whole path so two files with the same name don't share a
+	// cache. null if there's no cache directory
+	static Path cacheFile(Path source) {
+		ProblemCache problemCache = ProblemCache.get();
+		if (problemCache == null || problemCache.getDirectory() == null) {
+			return null;
+		}
+		Path absolute = source.toAbsolutePath();
+		return problemCache.getDirectory().resolve(
+				Integer.toHexString(absolute.toString().hashCode()) + "-" + absolute.getFileName() + ".dist");
+	}
+
+	private static Path temporaryFile(Path cache) {
+		return cache.resolveSibling(cache.getFileName() + ".tmp");
+	}
+
+	private static void putString(ByteBuffer header, String value) {
+		byte[] bytes = (value == null) ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, MAX_TEXT_BYTES);
+		header.putInt(length);
+		header.put(bytes, 0, length);
+	}
+
+	private static String getString(ByteBuffer header) {
+		byte[] bytes = new byte[header.getInt()];
+		header.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public double get(int node1, int node2) {
+		return this.rows[node1].get(node2);
+	}
+
+	public void set(int node1, int node2, double value) {
+		if (!this.writable) {
+			throw new UnsupportedOperationException("distances come from the file");
+		}
+		this.rows[node1].put(node2, value);
+	}
+
+	public void fill(double value) {
+		throw new UnsupportedOperationException("distances come from the file");
+	}
+
+	public void scale(double factor) {
+		throw new UnsupportedOperationException("distances come from the file");
+	}
+
+	public boolean isSymmetric() {
+		return false;
+	}
+
+	// the entries are in the mapping, not on the heap
+	public long getMemoryFootprint() {
+		return 0;
+	}
+
+	// whether (i, j) and (j, i) are always the same distance
+	public boolean hasSymmetricDistances() {
+		return symmetricDistances;
+	}
+
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getComment() {
+		return comment;
+	}
+
+}
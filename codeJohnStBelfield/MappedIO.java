@@ -0,0 +1,120 @@
+/*
+ * MappedIO: bulk copies between primitive arrays and a file, through memory mapped buffers.
+ * 
+ * A mapping can't be bigger than 2 GB, so big arrays go through in 1 GB chunks. Everything is little
+ * endian, which is what x86 and ARM use anyway, so the copies are straight memcpys.
+ * 
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class MappedIO {
+
+	private final static int CHUNK_BYTES = 1 << 30;
+
+	private MappedIO() {
+	}
+
+	// each of these returns the file position just past what it wrote/read
+
+	public static long writeDoubles(FileChannel channel, long position, double[] values) throws IOException {
+		int chunk = CHUNK_BYTES / 8;
+		for (int offset = 0; offset < values.length; offset += chunk) {
+			int length = Math.min(chunk, values.length - offset);
+			MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE, position, 8L * length);
+			buffer.asDoubleBuffer().put(values, offset, length);
+			buffer.force();
+			position += 8L * length;
+		}
+		return position;
+	}
+
+	public static long readDoubles(FileChannel channel, long position, double[] values) throws IOException {
+		int chunk = CHUNK_BYTES / 8;
+		for (int offset = 0; offset < values.length; offset += chunk) {
+			int length = Math.min(chunk, values.length - offset);
+			map(channel, FileChannel.MapMode.READ_ONLY, position, 8L * length).asDoubleBuffer().get(values, offset,
+					length);
+			position += 8L * length;
+		}
+		return position;
+	}
+
+	public static long writeFloats(FileChannel channel, long position, float[] values) throws IOException {
+		int chunk = CHUNK_BYTES / 4;
+		for (int offset = 0; offset < values.length; offset += chunk) {
+			int length = Math.min(chunk, values.length - offset);
+			MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE, position, 4L * length);
+			buffer.asFloatBuffer().put(values, offset, length);
+			buffer.force();
+			position += 4L * length;
+		}
+		return position;
+	}
+
+	public static long readFloats(FileChannel channel, long position, float[] values) throws IOException {
+		int chunk = CHUNK_BYTES / 4;
+		for (int offset = 0; offset < values.length; offset += chunk) {
+			int length = Math.min(chunk, values.length - offset);
+			map(channel, FileChannel.MapMode.READ_ONLY, position, 4L * length).asFloatBuffer().get(values, offset,
+					length);
+			position += 4L * length;
+		}
+		return position;
+	}
+
+	public static long writeInts(FileChannel channel, long position, int[] values) throws IOException {
+		int chunk = CHUNK_BYTES / 4;
+		for (int offset = 0; offset < values.length; offset += chunk) {
+			int length = Math.min(chunk, values.length - offset);
+			MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE, position, 4L * length);
+			buffer.asIntBuffer().put(values, offset, length);
+			buffer.force();
+			position += 4L * length;
+		}
+		return position;
+	}
+
+	public static long readInts(FileChannel channel, long position, int[] values) throws IOException {
+		int chunk = CHUNK_BYTES / 4;
+		for (int offset = 0; offset < values.length; offset += chunk) {
+			int length = Math.min(chunk, values.length - offset);
+			map(channel, FileChannel.MapMode.READ_ONLY, position, 4L * length).asIntBuffer().get(values, offset,
+					length);
+			position += 4L * length;
+		}
+		return position;
+	}
+
+	// single values aren't worth a mapping
+	public static long writeDouble(FileChannel channel, long position, double value) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putDouble(value).flip();
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		return position;
+	}
+
+	public static double readDouble(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("unexpected end of file");
+			}
+		}
+		return buffer.flip().getDouble();
+	}
+
+	public static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long size)
+			throws IOException {
+		MappedByteBuffer buffer = channel.map(mode, position, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Matrix: abstract n x n matrix of weights between nodes (distances, pheromone, heuristic info, ...).
+ * 
+ * The solver only ever needs get/set on single entries plus a couple of whole-matrix operations, so
+ * the storage behind it can change without the algorithm noticing:
+ * -DenseMatrix / DenseFloatMatrix: flat row-major array, one entry per (i, j)
+ * -PackedMatrix / PackedFloatMatrix: symmetric, only the upper triangle is stored, so (i, j) and (j, i)
+ *  are the same entry and the matrix takes about half the memory
+ * -CandidateMatrix: only the arcs in the candidate lists, for instances too big for n x n anything
+ * -CoordinateDistanceMatrix: distances worked out from coordinates on the fly, nothing stored
+ * 
+ * MatrixStorage picks between the dense and packed ones and estimates their memory before anything gets
+ * allocated.
+ * 
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+public abstract class Matrix {
+
+	protected final int numNodes;
+
+	public Matrix(int numNodes) {
+		this.numNodes = numNodes;
+	}
+
+	public int getNumNodes() {
+		return this.numNodes;
+	}
+
+	// the entry for (node1, node2)
+	public abstract double get(int node1, int node2);
+
+	// the entry for (node1, node2), where node2 is at position slot of node1's candidate list. matrices
+	// that are laid out by candidate list can skip looking node2 up
+	public double getCandidate(int node1, int slot, int node2) {
+		return this.get(node1, node2);
+	}
+
+	// for symmetric matrices this sets (node2, node1) as well
+	public abstract void set(int node1, int node2, double value);
+
+	// every entry gets the same value
+	public abstract void fill(double value);
+
+	// every entry gets multiplied by factor
+	public abstract void scale(double factor);
+
+	// every entry becomes source's. a lazily scaled source is copied as stored and then scaled, which is
+	// one pass over the entries instead of a multiply per get. subclasses copy a source laid out the same
+	// way as themselves straight across
+	public void copyFrom(Matrix source) {
+		if (source instanceof LazyScaledMatrix) {
+			LazyScaledMatrix lazy = (LazyScaledMatrix) source;
+			this.copyFrom(lazy.getInner());
+			this.scale(lazy.getScale());
+			return;
+		}
+
+		boolean symmetric = this.isSymmetric();
+		for (int i = 0; i < this.numNodes; i++) {
+			for (int j = symmetric ? i : 0; j < this.numNodes; j++) {
+				this.set(i, j, source.get(i, j));
+			}
+		}
+	}
+
+	// entry (i, j) becomes source's (sourceNodes[i], sourceNodes[j]), for when nodes have been added or
+	// removed (see TSP.addCity). entries of a node mapped to -1 are left alone. apart from the -1s,
+	// sourceNodes has to be increasing, so runs of neighboring nodes can be copied in one go
+	public void copyFrom(Matrix source, int[] sourceNodes) {
+		if (source instanceof LazyScaledMatrix) {
+			LazyScaledMatrix lazy = (LazyScaledMatrix) source;
+			this.copyFrom(lazy.getInner(), sourceNodes);
+			this.scale(lazy.getScale());
+			return;
+		}
+
+		boolean symmetric = this.isSymmetric();
+		for (int i = 0; i < this.numNodes; i++) {
+			if (sourceNodes[i] < 0) {
+				continue;
+			}
+			for (int j = symmetric ? i : 0; j < this.numNodes; j++) {
+				if (sourceNodes[j] >= 0) {
+					this.set(i, j, source.get(sourceNodes[i], sourceNodes[j]));
+				}
+			}
+		}
+	}
+
+	// how many nodes from node on map to consecutive source nodes (at least 1; sourceNodes[node] isn't -1)
+	protected static int runLength(int[] sourceNodes, int node, int end) {
+		int run = 1;
+		while (node + run < end && sourceNodes[node + run] == sourceNodes[node] + run) {
+			run++;
+		}
+		return run;
+	}
+
+	// true if (i, j) and (j, i) are stored as a single entry
+	public abstract boolean isSymmetric();
+
+	// true if (i, j) and (j, i) hold the same value for all i, j, however they're stored. a full sweep
+	// unless the matrix is symmetric by construction
+	public boolean hasSymmetricEntries() {
+		if (this.isSymmetric()) {
+			return true;
+		}
+		for (int i = 0; i < this.numNodes; i++) {
+			for (int j = i + 1; j < this.numNodes; j++) {
+				if (this.get(i, j) != this.get(j, i)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// bytes taken up by the entries
+	public abstract long getMemoryFootprint();
+
+	// raw entries, for checkpoints: written to / read from channel starting at position, and the position
+	// after them comes back. only a matrix of the same kind and size can read what another one wrote
+	public long writeEntries(FileChannel channel, long position) throws IOException {
+		throw new UnsupportedOperationException(this.getClass().getSimpleName() + " can't be checkpointed");
+	}
+
+	public long readEntries(FileChannel channel, long position) throws IOException {
+		throw new UnsupportedOperationException(this.getClass().getSimpleName() + " can't be checkpointed");
+	}
+
+}
@@ -0,0 +1,376 @@
+/*
+ * MatrixKernels: the loops that sweep whole matrices, over the flat entry arrays.
+ * -scale: every entry times a factor (evaporation)
+ * -next node weights: pheromone^alpha * heuristic info, entry for entry
+ * -heuristic info: (1 / distance)^beta, entry for entry
+ * -distances: one node against a run of others, straight from the coordinates
+ *
+ * This class is the plain scalar version, and the fallback. VectorMatrixKernels does the same with the
+ * Vector API (jdk.incubator.vector), which is picked at startup if the JVM was started with
+ * --add-modules jdk.incubator.vector and the hardware has real vectors. -Daco.kernels=scalar (or vector)
+ * forces the choice. checkEquivalence compares the two; KernelBenchmark runs it before timing anything.
+ * It isn't run at startup, since the first call of every vector op costs ~200 ms however small the input.
+ *
+ * Entry for entry only works when the matrices involved are stored the same way (same class), since then
+ * entry k of one is the same arc as entry k of the other, packed or not. The static helpers check that and
+ * return false when it doesn't hold, and the caller goes entry by entry with get/set instead.
+ *
+ * Integer exponents of 1, 2 and 3 (alpha = 1, beta = 2 or 3 are the usual settings) are done by
+ * multiplying, see power(). Everything that computes a next node weight or heuristic info goes through it,
+ * so the kernels, the incremental updates and the get/set fallbacks all agree. Other exponents use
+ * Math.pow here and the vector POW in VectorMatrixKernels, which can differ in the last bit or two.
+ *
+ */
+
+import java.util.Random;
+
+public class MatrixKernels {
+
+	private static MatrixKernels active = select();
+
+	// public so the vector version can be found reflectively; use get() instead
+	public MatrixKernels() {
+	}
+
+	// the kernels everything uses
+	public static MatrixKernels get() {
+		return active;
+	}
+
+	// switch to "scalar" or "vector" kernels (i.e. for benchmarks). false if that one isn't available
+	public static boolean use(String name) {
+		if (name.equals("scalar")) {
+			active = new MatrixKernels();
+			return true;
+		}
+		if (name.equals("vector")) {
+			MatrixKernels vector = loadVector();
+			if (vector == null) {
+				System.out.println("Error: vector kernels need --add-modules jdk.incubator.vector");
+				return false;
+			}
+			active = vector;
+			return true;
+		}
+		System.out.println("Error: unknown kernels " + name);
+		return false;
+	}
+
+	private static MatrixKernels select() {
+		String choice = System.getProperty("aco.kernels", "auto");
+		MatrixKernels scalar = new MatrixKernels();
+		if (choice.equals("scalar")) {
+			return scalar;
+		}
+		MatrixKernels vector = loadVector();
+		if (vector == null) {
+			if (choice.equals("vector")) {
+				System.out.println("Error: vector kernels not available, using scalar ones");
+			}
+			return scalar;
+		}
+		return vector;
+	}
+
+	// null if the module isn't there or the class won't load (VectorMatrixKernels also refuses hardware
+	// without vector registers, where the Vector API is slower than plain loops)
+	private static MatrixKernels loadVector() {
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			return null;
+		}
+		try {
+			return (MatrixKernels) Class.forName("VectorMatrixKernels").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	public String getName() {
+		return "scalar";
+	}
+
+	// x^exponent, by multiplying for the usual integer exponents
+	public static double power(double x, double exponent) {
+		if (exponent == 1) {
+			return x;
+		} else if (exponent == 2) {
+			return x * x;
+		} else if (exponent == 3) {
+			return x * x * x;
+		}
+		return Math.pow(x, exponent);
+	}
+
+	public static float power(float x, float exponent) {
+		if (exponent == 1) {
+			return x;
+		} else if (exponent == 2) {
+			return x * x;
+		} else if (exponent == 3) {
+			return x * x * x;
+		}
+		return (float) Math.pow(x, exponent);
+	}
+
+	// the kernels, over entries [from, to)
+
+	public void scale(double[] entries, int from, int to, double factor) {
+		for (int i = from; i < to; i++) {
+			entries[i] *= factor;
+		}
+	}
+
+	public void scale(float[] entries, int from, int to, float factor) {
+		for (int i = from; i < to; i++) {
+			entries[i] *= factor;
+		}
+	}
+
+	public void nextNodeWeights(double[] pheromone, double[] heuristic, double[] out, int from, int to,
+			double alpha) {
+		for (int i = from; i < to; i++) {
+			out[i] = power(pheromone[i], alpha) * heuristic[i];
+		}
+	}
+
+	public void nextNodeWeights(float[] pheromone, float[] heuristic, float[] out, int from, int to, float alpha) {
+		for (int i = from; i < to; i++) {
+			out[i] = power(pheromone[i], alpha) * heuristic[i];
+		}
+	}
+
+	public void heuristicInfo(double[] dists, double[] out, int from, int to, double beta) {
+		for (int i = from; i < to; i++) {
+			out[i] = power(1 / dists[i], beta);
+		}
+	}
+
+	public void heuristicInfo(float[] dists, float[] out, int from, int to, float beta) {
+		for (int i = from; i < to; i++) {
+			out[i] = power(1 / dists[i], beta);
+		}
+	}
+
+	// distances from node to nodes [from, to), into out starting at offset
+	public void distances(double[] xs, double[] ys, int node, int from, int to, double[] out, int offset) {
+		double x = xs[node];
+		double y = ys[node];
+		for (int j = from; j < to; j++) {
+			double deltaX = x - xs[j];
+			double deltaY = y - ys[j];
+			out[offset + j - from] = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+		}
+	}
+
+	// whole matrix helpers. false means the matrices aren't stored the same flat way
+
+	public static boolean scale(Matrix matrix, double factor) {
+		if (matrix instanceof DenseMatrix) {
+			double[] entries = ((DenseMatrix) matrix).getEntries();
+			active.scale(entries, 0, entries.length, factor);
+		} else if (matrix instanceof PackedMatrix) {
+			double[] entries = ((PackedMatrix) matrix).getEntries();
+			active.scale(entries, 0, entries.length, factor);
+		} else if (matrix instanceof DenseFloatMatrix) {
+			float[] entries = ((DenseFloatMatrix) matrix).getEntries();
+			active.scale(entries, 0, entries.length, (float) factor);
+		} else if (matrix instanceof PackedFloatMatrix) {
+			float[] entries = ((PackedFloatMatrix) matrix).getEntries();
+			active.scale(entries, 0, entries.length, (float) factor);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	public static boolean updateNextNodeWeights(Matrix pheromone, Matrix heuristic, Matrix out, double alpha) {
+		if (pheromone.getClass() != heuristic.getClass() || heuristic.getClass() != out.getClass()) {
+			return false;
+		}
+		double[] doubles = doubleEntries(out);
+		if (doubles != null) {
+			active.nextNodeWeights(doubleEntries(pheromone), doubleEntries(heuristic), doubles, 0, doubles.length,
+					alpha);
+			return true;
+		}
+		float[] floats = floatEntries(out);
+		if (floats != null) {
+			active.nextNodeWeights(floatEntries(pheromone), floatEntries(heuristic), floats, 0, floats.length,
+					(float) alpha);
+			return true;
+		}
+		return false;
+	}
+
+	public static boolean buildHeuristicInfo(Matrix dists, Matrix out, double beta) {
+		if (dists.getClass() != out.getClass()) {
+			return false;
+		}
+		double[] doubles = doubleEntries(out);
+		if (doubles != null) {
+			active.heuristicInfo(doubleEntries(dists), doubles, 0, doubles.length, beta);
+			return true;
+		}
+		float[] floats = floatEntries(out);
+		if (floats != null) {
+			active.heuristicInfo(floatEntries(dists), floats, 0, floats.length, (float) beta);
+			return true;
+		}
+		return false;
+	}
+
+	// euclidean distances between all the nodes (2D; anything past x, y is ignored), a row at a time for
+	// dense matrices and a column at a time for packed ones (column j is j's distances to 0 ... j).
+	// float matrices get each run worked out in doubles first, so they round the same as before
+	public static boolean fillDistances(Matrix out, double[][] nodeCoords) {
+		int numNodes = out.getNumNodes();
+		double[] xs = new double[numNodes];
+		double[] ys = new double[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			xs[i] = nodeCoords[i][0];
+			ys[i] = nodeCoords[i][1];
+		}
+
+		if (out instanceof DenseMatrix) {
+			double[] entries = ((DenseMatrix) out).getEntries();
+			for (int i = 0; i < numNodes; i++) {
+				active.distances(xs, ys, i, 0, numNodes, entries, i * numNodes);
+			}
+		} else if (out instanceof PackedMatrix) {
+			double[] entries = ((PackedMatrix) out).getEntries();
+			for (int j = 0; j < numNodes; j++) {
+				active.distances(xs, ys, j, 0, j + 1, entries, (int) ((long) j * (j + 1) / 2));
+			}
+		} else if (out instanceof DenseFloatMatrix || out instanceof PackedFloatMatrix) {
+			boolean packed = out instanceof PackedFloatMatrix;
+			float[] entries = packed ? ((PackedFloatMatrix) out).getEntries() : ((DenseFloatMatrix) out).getEntries();
+			double[] run = new double[numNodes];
+			for (int i = 0; i < numNodes; i++) {
+				int length = packed ? i + 1 : numNodes;
+				int offset = packed ? (int) ((long) i * (i + 1) / 2) : i * numNodes;
+				active.distances(xs, ys, i, 0, length, run, 0);
+				for (int j = 0; j < length; j++) {
+					entries[offset + j] = (float) run[j];
+				}
+			}
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private static double[] doubleEntries(Matrix matrix) {
+		if (matrix instanceof DenseMatrix) {
+			return ((DenseMatrix) matrix).getEntries();
+		} else if (matrix instanceof PackedMatrix) {
+			return ((PackedMatrix) matrix).getEntries();
+		}
+		return null;
+	}
+
+	private static float[] floatEntries(Matrix matrix) {
+		if (matrix instanceof DenseFloatMatrix) {
+			return ((DenseFloatMatrix) matrix).getEntries();
+		} else if (matrix instanceof PackedFloatMatrix) {
+			return ((PackedFloatMatrix) matrix).getEntries();
+		}
+		return null;
+	}
+
+	// run both sets of kernels over the same random data (size entries, plus an odd length so the tails
+	// get exercised) and compare. the multiply-only paths have to match exactly, the general exponents to
+	// within a few ulps (pow is allowed 1 ulp each way, and the product after it adds a little)
+	public static boolean checkEquivalence(MatrixKernels expected, MatrixKernels actual, int size, long seed) {
+		Random random = new Random(seed);
+		for (int length : new int[] { size, size + 3 }) {
+			double[] xs = new double[length];
+			double[] ys = new double[length];
+			double[] pheromone = new double[length];
+			float[] pheromoneFloats = new float[length];
+			for (int i = 0; i < length; i++) {
+				xs[i] = random.nextDouble() * 10000;
+				ys[i] = random.nextDouble() * 10000;
+				pheromone[i] = random.nextDouble() * 1e-3;
+				pheromoneFloats[i] = (float) pheromone[i];
+			}
+
+			double[] expectedDists = new double[length];
+			double[] actualDists = new double[length];
+			int node = random.nextInt(length);
+			expected.distances(xs, ys, node, 0, length, expectedDists, 0);
+			actual.distances(xs, ys, node, 0, length, actualDists, 0);
+			if (!matches(expectedDists, actualDists, 0)) {
+				return false;
+			}
+			float[] dists = new float[length];
+			for (int i = 0; i < length; i++) {
+				dists[i] = (float) expectedDists[i];
+			}
+
+			for (double exponent : new double[] { 1, 2, 3, 0.5, 1.7 }) {
+				int ulps = (exponent == Math.rint(exponent) && exponent <= 3) ? 0 : 8;
+
+				double[] expectedOut = new double[length];
+				double[] actualOut = new double[length];
+				expected.heuristicInfo(expectedDists, expectedOut, 0, length, exponent);
+				actual.heuristicInfo(expectedDists, actualOut, 0, length, exponent);
+				if (!matches(expectedOut, actualOut, ulps)) {
+					return false;
+				}
+				double[] heuristic = expectedOut;
+				expected.nextNodeWeights(pheromone, heuristic, expectedOut = new double[length], 0, length, exponent);
+				actual.nextNodeWeights(pheromone, heuristic, actualOut, 0, length, exponent);
+				if (!matches(expectedOut, actualOut, ulps)) {
+					return false;
+				}
+				expected.scale(expectedOut, 0, length, 1 - exponent / 10);
+				actual.scale(actualOut, 0, length, 1 - exponent / 10);
+				if (!matches(expectedOut, actualOut, ulps)) {
+					return false;
+				}
+
+				float[] expectedFloats = new float[length];
+				float[] actualFloats = new float[length];
+				expected.heuristicInfo(dists, expectedFloats, 0, length, (float) exponent);
+				actual.heuristicInfo(dists, actualFloats, 0, length, (float) exponent);
+				if (!matches(expectedFloats, actualFloats, ulps)) {
+					return false;
+				}
+				float[] heuristicFloats = expectedFloats;
+				expected.nextNodeWeights(pheromoneFloats, heuristicFloats, expectedFloats = new float[length], 0,
+						length, (float) exponent);
+				actual.nextNodeWeights(pheromoneFloats, heuristicFloats, actualFloats, 0, length, (float) exponent);
+				if (!matches(expectedFloats, actualFloats, ulps)) {
+					return false;
+				}
+				expected.scale(expectedFloats, 0, length, (float) (1 - exponent / 10));
+				actual.scale(actualFloats, 0, length, (float) (1 - exponent / 10));
+				if (!matches(expectedFloats, actualFloats, ulps)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean matches(double[] expected, double[] actual, int ulps) {
+		for (int i = 0; i < expected.length; i++) {
+			if (Double.compare(expected[i], actual[i]) != 0
+					&& !(Math.abs(expected[i] - actual[i]) <= ulps * Math.ulp(expected[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matches(float[] expected, float[] actual, int ulps) {
+		for (int i = 0; i < expected.length; i++) {
+			if (Float.compare(expected[i], actual[i]) != 0
+					&& !(Math.abs(expected[i] - actual[i]) <= ulps * Math.ulp(expected[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * MatrixStorage: how the n x n matrices get stored.
+ * 
+ * DENSE_* stores every entry and works for anything. PACKED_* stores one triangle, so it only makes sense
+ * for symmetric data; for pheromone it means an ant depositing on (i, j) also deposits on (j, i), which
+ * is the usual thing for a symmetric TSP anyway. *_FLOAT halves the memory again.
+ * 
+ * Rough sizes for rl5934: DENSE_DOUBLE 282 MB per matrix, PACKED_FLOAT 70 MB per matrix.
+ * 
+ */
+
+public enum MatrixStorage {
+
+	DENSE_DOUBLE(false, 8), DENSE_FLOAT(false, 4), PACKED_DOUBLE(true, 8), PACKED_FLOAT(true, 4);
+
+	private final boolean packed;
+	private final int bytesPerEntry;
+
+	private MatrixStorage(boolean packed, int bytesPerEntry) {
+		this.packed = packed;
+		this.bytesPerEntry = bytesPerEntry;
+	}
+
+	// a new matrix with this storage, all zeros
+	public Matrix create(int numNodes) {
+		switch (this) {
+		case DENSE_FLOAT:
+			return new DenseFloatMatrix(numNodes);
+		case PACKED_DOUBLE:
+			return new PackedMatrix(numNodes);
+		case PACKED_FLOAT:
+			return new PackedFloatMatrix(numNodes);
+		default:
+			return new DenseMatrix(numNodes);
+		}
+	}
+
+	// number of entries a numNodes x numNodes matrix needs
+	public long numEntries(int numNodes) {
+		if (this.packed) {
+			return (long) numNodes * (numNodes + 1) / 2;
+		}
+		return (long) numNodes * numNodes;
+	}
+
+	// same, but complains if it won't fit in a single java array
+	int checkedNumEntries(int numNodes) {
+		long numEntries = this.numEntries(numNodes);
+		if (numEntries > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException(numNodes + " nodes is too many for " + this + " storage");
+		}
+		return (int) numEntries;
+	}
+
+	// bytes a matrix would take, without allocating it
+	public long estimateBytes(int numNodes) {
+		return this.numEntries(numNodes) * this.bytesPerEntry;
+	}
+
+	public boolean isPacked() {
+		return packed;
+	}
+
+	public int getBytesPerEntry() {
+		return bytesPerEntry;
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * MetricsRecorder: IterationListener that keeps every iteration's stats, and writes them out as CSV or JSON.
+ * 
+ * One row per iteration: phase times (ms), allocated bytes, best/mean/worst/bsf tour length, whether the
+ * bsf improved, and the branching factor (empty in CSV, null in JSON, on iterations it wasn't measured).
+ * The bsf history is the rows where the bsf improved.
+ * 
+ */
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MetricsRecorder implements IterationListener {
+
+	private final static IterationPhase[] PHASES = IterationPhase.values();
+
+	private final List<IterationStats> records = new ArrayList<IterationStats>();
+
+	public void iterationCompleted(IterationStats stats) {
+		this.records.add(stats.copy());
+	}
+
+	// {iteration, bsf length} every time the bsf improved
+	public double[][] getBsfHistory() {
+		List<double[]> history = new ArrayList<double[]>();
+		for (IterationStats stats : this.records) {
+			if (stats.isNewBsf()) {
+				history.add(new double[] { stats.getIteration(), stats.getBsfLength() });
+			}
+		}
+		return history.toArray(new double[history.size()][]);
+	}
+
+	public List<IterationStats> getRecords() {
+		return records;
+	}
+
+	public void clear() {
+		this.records.clear();
+	}
+
+	// returns false (and says why) if the file couldn't be written
+	public boolean writeCsv(String fileName) {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(fileName)))) {
+			StringBuilder header = new StringBuilder("iteration,totalMs");
+			for (IterationPhase phase : PHASES) {
+				header.append(',').append(phase.getLabel()).append("Ms");
+			}
+			header.append(",allocatedBytes,bestLength,meanLength,worstLength,bsfLength,newBsf,branchingFactor");
+			out.println(header);
+
+			for (IterationStats stats : this.records) {
+				StringBuilder row = new StringBuilder();
+				row.append(stats.getIteration()).append(',').append(stats.getTotalNanos() / 1e6);
+				for (IterationPhase phase : PHASES) {
+					row.append(',').append(stats.getPhaseNanos(phase) / 1e6);
+				}
+				row.append(',').append(stats.getAllocatedBytes());
+				row.append(',').append(stats.getBestLength());
+				row.append(',').append(stats.getMeanLength());
+				row.append(',').append(stats.getWorstLength());
+				row.append(',').append(stats.getBsfLength());
+				row.append(',').append(stats.isNewBsf());
+				row.append(',');
+				if (!Double.isNaN(stats.getBranchingFactor())) {
+					row.append(stats.getBranchingFactor());
+				}
+				out.println(row);
+			}
+			return true;
+		} catch (IOException e) {
+			System.out.println("Error: could not write " + fileName);
+			return false;
+		}
+	}
+
+	// same rows, as a JSON array of objects
+	public boolean writeJson(String fileName) {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(fileName)))) {
+			out.println("[");
+			for (int i = 0; i < this.records.size(); i++) {
+				IterationStats stats = this.records.get(i);
+				StringBuilder row = new StringBuilder("  {");
+				row.append("\"iteration\": ").append(stats.getIteration());
+				row.append(", \"totalMs\": ").append(stats.getTotalNanos() / 1e6);
+				for (IterationPhase phase : PHASES) {
+					row.append(", \"").append(phase.getLabel()).append("Ms\": ")
+							.append(stats.getPhaseNanos(phase) / 1e6);
+				}
+				row.append(", \"allocatedBytes\": ").append(stats.getAllocatedBytes());
+				row.append(", \"bestLength\": ").append(stats.getBestLength());
+				row.append(", \"meanLength\": ").append(stats.getMeanLength());
+				row.append(", \"worstLength\": ").append(stats.getWorstLength());
+				row.append(", \"bsfLength\": ").append(stats.getBsfLength());
+				row.append(", \"newBsf\": ").append(stats.isNewBsf());
+				row.append(", \"branchingFactor\": ");
+				row.append(Double.isNaN(stats.getBranchingFactor()) ? "null" : stats.getBranchingFactor());
+				row.append((i + 1 < this.records.size()) ? "}," : "}");
+				out.println(row);
+			}
+			out.println("]");
+			return true;
+		} catch (IOException e) {
+			System.out.println("Error: could not write " + fileName);
+			return false;
+		}
+	}
+
+}
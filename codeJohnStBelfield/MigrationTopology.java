@@ -0,0 +1,28 @@
+/*
+ * MigrationTopology: which colonies an island takes migrants (bsf tours, pheromone) from.
+ * 
+ * RING: colony i only hears from colony i - 1, so good tours spread slowly and the colonies stay diverse.
+ * FULLY_CONNECTED: everyone hears from everyone; the best tour goes everywhere at once.
+ * 
+ */
+
+public enum MigrationTopology {
+	RING, FULLY_CONNECTED;
+
+	// colonies that colony takes migrants from
+	public int[] sources(int colony, int numColonies) {
+		if (numColonies <= 1) {
+			return new int[0];
+		}
+		if (this == RING) {
+			return new int[] { (colony + numColonies - 1) % numColonies };
+		}
+		int[] sources = new int[numColonies - 1];
+		for (int i = 0, c = 0; c < numColonies; c++) {
+			if (c != colony) {
+				sources[i++] = c;
+			}
+		}
+		return sources;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * PackedFloatMatrix: PackedMatrix, but entries are stored as floats. About a quarter of the memory
+ * of a dense double matrix.
+ * 
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class PackedFloatMatrix extends Matrix {
+
+	private final float[] entries;
+
+	public PackedFloatMatrix(int numNodes) {
+		super(numNodes);
+		this.entries = new float[MatrixStorage.PACKED_FLOAT.checkedNumEntries(numNodes)];
+	}
+
+	public double get(int node1, int node2) {
+		return this.entries[PackedMatrix.packedIndex(node1, node2)];
+	}
+
+	public void set(int node1, int node2, double value) {
+		this.entries[PackedMatrix.packedIndex(node1, node2)] = (float) value;
+	}
+
+	public void fill(double value) {
+		Arrays.fill(this.entries, (float) value);
+	}
+
+	public void scale(double factor) {
+		MatrixKernels.get().scale(this.entries, 0, this.entries.length, (float) factor);
+	}
+
+	public void copyFrom(Matrix source) {
+		if (source instanceof PackedFloatMatrix && source.getNumNodes() == this.numNodes) {
+			System.arraycopy(((PackedFloatMatrix) source).getEntries(), 0, this.entries, 0, this.entries.length);
+			return;
+		}
+		super.copyFrom(source);
+	}
+
+	// column by column of the upper triangle, a run of consecutive source nodes at a time. this is where
+	// sourceNodes being increasing matters: the source entries of a run have to be in the same column
+	public void copyFrom(Matrix source, int[] sourceNodes) {
+		if (!(source instanceof PackedFloatMatrix)) {
+			super.copyFrom(source, sourceNodes);
+			return;
+		}
+		float[] sourceEntries = ((PackedFloatMatrix) source).getEntries();
+		for (int j = 0; j < this.numNodes; j++) {
+			if (sourceNodes[j] < 0) {
+				continue;
+			}
+			int i = 0;
+			while (i <= j) {
+				if (sourceNodes[i] < 0) {
+					i++;
+					continue;
+				}
+				int run = runLength(sourceNodes, i, j + 1);
+				System.arraycopy(sourceEntries, PackedMatrix.packedIndex(sourceNodes[i], sourceNodes[j]), this.entries,
+						PackedMatrix.packedIndex(i, j), run);
+				i += run;
+			}
+		}
+	}
+
+	public boolean isSymmetric() {
+		return true;
+	}
+
+	public long getMemoryFootprint() {
+		return 4L * this.entries.length;
+	}
+
+	// backing array, for loops that want to run straight over the entries
+	public float[] getEntries() {
+		return entries;
+	}
+
+	public long writeEntries(FileChannel channel, long position) throws IOException {
+		return MappedIO.writeFloats(channel, position, this.entries);
+	}
+
+	public long readEntries(FileChannel channel, long position) throws IOException {
+		return MappedIO.readFloats(channel, position, this.entries);
+	}
+
+}
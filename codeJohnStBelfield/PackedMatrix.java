@@ -0,0 +1,105 @@
+/*
+ * PackedMatrix: symmetric matrix that only stores the upper triangle (diagonal included), as doubles.
+ * 
+ * Layout is the usual packed column layout: column j holds entries (0, j) ... (j, j), so entry (i, j) with
+ * i <= j is at j * (j + 1) / 2 + i. That's n * (n + 1) / 2 entries instead of n * n.
+ * 
+ * Since (i, j) and (j, i) are the same entry, setting one sets the other.
+ * 
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class PackedMatrix extends Matrix {
+
+	private final double[] entries;
+
+	public PackedMatrix(int numNodes) {
+		super(numNodes);
+		this.entries = new double[MatrixStorage.PACKED_DOUBLE.checkedNumEntries(numNodes)];
+	}
+
+	// index of (node1, node2) in the packed array
+	static int packedIndex(int node1, int node2) {
+		if (node1 > node2) {
+			int temp = node1;
+			node1 = node2;
+			node2 = temp;
+		}
+		return (int) (((long) node2 * (node2 + 1)) >>> 1) + node1;
+	}
+
+	public double get(int node1, int node2) {
+		return this.entries[packedIndex(node1, node2)];
+	}
+
+	public void set(int node1, int node2, double value) {
+		this.entries[packedIndex(node1, node2)] = value;
+	}
+
+	public void fill(double value) {
+		Arrays.fill(this.entries, value);
+	}
+
+	public void scale(double factor) {
+		MatrixKernels.get().scale(this.entries, 0, this.entries.length, factor);
+	}
+
+	public void copyFrom(Matrix source) {
+		if (source instanceof PackedMatrix && source.getNumNodes() == this.numNodes) {
+			System.arraycopy(((PackedMatrix) source).getEntries(), 0, this.entries, 0, this.entries.length);
+			return;
+		}
+		super.copyFrom(source);
+	}
+
+	// column by column of the upper triangle, a run of consecutive source nodes at a time. this is where
+	// sourceNodes being increasing matters: the source entries of a run have to be in the same column
+	public void copyFrom(Matrix source, int[] sourceNodes) {
+		if (!(source instanceof PackedMatrix)) {
+			super.copyFrom(source, sourceNodes);
+			return;
+		}
+		double[] sourceEntries = ((PackedMatrix) source).getEntries();
+		for (int j = 0; j < this.numNodes; j++) {
+			if (sourceNodes[j] < 0) {
+				continue;
+			}
+			int i = 0;
+			while (i <= j) {
+				if (sourceNodes[i] < 0) {
+					i++;
+					continue;
+				}
+				int run = runLength(sourceNodes, i, j + 1);
+				System.arraycopy(sourceEntries, packedIndex(sourceNodes[i], sourceNodes[j]), this.entries,
+						packedIndex(i, j), run);
+				i += run;
+			}
+		}
+	}
+
+	public boolean isSymmetric() {
+		return true;
+	}
+
+	public long getMemoryFootprint() {
+		return 8L * this.entries.length;
+	}
+
+	// backing array, for loops that want to run straight over the entries
+	public double[] getEntries() {
+		return entries;
+	}
+
+	public long writeEntries(FileChannel channel, long position) throws IOException {
+		return MappedIO.writeDoubles(channel, position, this.entries);
+	}
+
+	public long readEntries(FileChannel channel, long position) throws IOException {
+		return MappedIO.readDoubles(channel, position, this.entries);
+	}
+
+}
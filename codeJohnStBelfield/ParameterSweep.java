@@ -0,0 +1,415 @@
+/*
+ * ParameterSweep: tries out a grid (or a random sample) of solver parameters on one problem, racing style.
+ * 
+ * -every configuration runs numSeeds independently seeded solvers, all at once on numThreads threads
+ * -all solvers share one SharedProblemData, so the problem, distances, nearest neighbor length, candidate
+ *  lists and heuristic matrices (one per beta) are only worked out once
+ * -the race goes in stages of iterationsPerStage iterations. after each stage, a configuration whose mean
+ *  bsf is clearly worse than the leader's (by more than eliminationMargin, plus two standard errors) is
+ *  dropped and its solvers thrown away, so the time goes to the ones still in with a chance
+ * 
+ * Solvers keep running from stage to stage, so each configuration needs its pheromone and next node weight
+ * matrices for the whole race: use packed/float storage or a large instance TSP for big problems.
+ * 
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ParameterSweep {
+
+	private final SharedProblemData shared;
+
+	// values to sweep over. the defaults are what Playground uses
+	private SolverConfig.Variant[] variants = new SolverConfig.Variant[] { SolverConfig.Variant.EAS };
+	private int[] numAnts = new int[] { 20 };
+	private double[] alphas = new double[] { 1.0 };
+	private double[] betas = new double[] { 3.0 };
+	private double[] evapFactors = new double[] { 0.1 };
+	private double[] elitisms = new double[] { 20 };
+	private double[] wearFactors = new double[] { 0.1 };
+	private double[] bestNextNodeSelectionProbs = new double[] { 0.9 };
+
+	// how the race is run
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private int numSeeds = 3;
+	private int numStages = 5;
+	private int iterationsPerStage = 50;
+	private double eliminationMargin = 0.01;
+	private long timeLimitMillis = 0; // 0: no limit
+	private int numCandidates = 20;
+	private LocalSearchMode localSearchMode = LocalSearchMode.NONE;
+	private long seed = 42;
+
+	// one configuration in the race
+	private static class Entry {
+		final SolverConfig config;
+		final AntSystem[] solvers;
+		final double[] bsfLengths;
+		int eliminatedAfterStage = 0;
+		double meanLength;
+		double standardError;
+		double bestLength = Double.MAX_VALUE;
+		int[] bestTour;
+		int iterations = 0; // per seed
+
+		Entry(SolverConfig config, int numSeeds) {
+			this.config = config;
+			this.solvers = new AntSystem[numSeeds];
+			this.bsfLengths = new double[numSeeds];
+			Arrays.fill(this.bsfLengths, Double.NaN); // NaN: that seed hasn't finished a stage yet
+		}
+	}
+
+	public ParameterSweep(TSP problem) {
+		this(new SharedProblemData(problem));
+	}
+
+	public ParameterSweep(SharedProblemData shared) {
+		this.shared = shared;
+	}
+
+	// every combination of the parameter values. parameters a variant doesn't use don't multiply its share
+	public List<SolverConfig> gridConfigs() {
+		List<SolverConfig> configs = new ArrayList<SolverConfig>();
+		for (SolverConfig.Variant variant : this.variants) {
+			double[] elitisms = (variant == SolverConfig.Variant.EAS) ? this.elitisms : new double[] { 0 };
+			boolean acs = (variant == SolverConfig.Variant.ACS);
+			double[] wearFactors = acs ? this.wearFactors : new double[] { 0 };
+			double[] bestProbs = acs ? this.bestNextNodeSelectionProbs : new double[] { 0 };
+			for (int numAnts : this.numAnts) {
+				for (double alpha : this.alphas) {
+					for (double beta : this.betas) {
+						for (double evapFactor : this.evapFactors) {
+							for (double elitism : elitisms) {
+								for (double wearFactor : wearFactors) {
+									for (double bestProb : bestProbs) {
+										configs.add(new SolverConfig(variant, numAnts, alpha, beta, evapFactor,
+												elitism, wearFactor, bestProb));
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return configs;
+	}
+
+	// numConfigs random combinations of the parameter values, for when the full grid is too big
+	public List<SolverConfig> sampleConfigs(int numConfigs) {
+		RandomStream random = new RandomStream(this.seed);
+		List<SolverConfig> configs = new ArrayList<SolverConfig>();
+		for (int i = 0; i < numConfigs; i++) {
+			configs.add(new SolverConfig(this.variants[random.nextInt(this.variants.length)],
+					this.numAnts[random.nextInt(this.numAnts.length)], pick(this.alphas, random),
+					pick(this.betas, random), pick(this.evapFactors, random), pick(this.elitisms, random),
+					pick(this.wearFactors, random), pick(this.bestNextNodeSelectionProbs, random)));
+		}
+		return configs;
+	}
+
+	private static double pick(double[] values, RandomStream random) {
+		return values[random.nextInt(values.length)];
+	}
+
+	// race the whole grid
+	public List<SweepResult> run() {
+		return this.run(this.gridConfigs());
+	}
+
+	// race the given configurations. results come back best mean first
+	public List<SweepResult> run(List<SolverConfig> configs) {
+		// seeds are handed out up front, so the results don't depend on which thread got there first
+		RandomStream master = new RandomStream(this.seed);
+		List<Entry> entries = new ArrayList<Entry>();
+		final RandomStream[][] randoms = new RandomStream[configs.size()][this.numSeeds];
+		for (int c = 0; c < configs.size(); c++) {
+			entries.add(new Entry(configs.get(c), this.numSeeds));
+			for (int s = 0; s < this.numSeeds; s++) {
+				randoms[c][s] = master.split();
+			}
+		}
+		this.warnIfTooBig(configs);
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.numThreads);
+		final long deadline = (this.timeLimitMillis > 0) ? System.nanoTime() + this.timeLimitMillis * 1000000 : 0;
+		try {
+			for (int stage = 1; stage <= this.numStages; stage++) {
+				if (deadline != 0 && System.nanoTime() >= deadline) {
+					break;
+				}
+
+				List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+				for (int c = 0; c < entries.size(); c++) {
+					final Entry entry = entries.get(c);
+					if (entry.eliminatedAfterStage > 0) {
+						continue;
+					}
+					for (int s = 0; s < this.numSeeds; s++) {
+						final int seedIndex = s;
+						final RandomStream random = randoms[c][s];
+						tasks.add(() -> {
+							this.runStage(entry, seedIndex, random, deadline);
+							return null;
+						});
+					}
+				}
+				for (Future<Object> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+
+				if (this.eliminate(entries, stage) <= 1) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println("Error: parameter sweep interrupted");
+		} catch (ExecutionException e) {
+			System.out.println("Error: " + e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		List<SweepResult> results = new ArrayList<SweepResult>();
+		for (Entry entry : entries) {
+			this.updateStats(entry);
+			results.add(new SweepResult(entry.config, entry.meanLength, entry.bestLength, entry.bestTour,
+					entry.iterations, entry.eliminatedAfterStage));
+		}
+		results.sort(Comparator.comparingDouble(SweepResult::getMeanLength));
+		return results;
+	}
+
+	// one seed of one configuration, for one stage. the solver is made on the first stage. tasks still
+	// waiting for a thread when time runs out don't start
+	private void runStage(Entry entry, int seedIndex, RandomStream random, long deadline) {
+		long remainingMillis = (deadline == 0) ? 0 : (deadline - System.nanoTime()) / 1000000;
+		if (deadline != 0 && remainingMillis <= 0) {
+			return;
+		}
+		AntSystem solver = entry.solvers[seedIndex];
+		if (solver == null) {
+			solver = entry.config.createSolver(this.shared, random);
+			if (this.numCandidates > 0 && this.numCandidates != solver.getNumCandidates()) {
+				solver.setNumCandidates(this.numCandidates);
+			}
+			solver.setLocalSearchMode(this.localSearchMode);
+			entry.solvers[seedIndex] = solver;
+		}
+		SolverRunner runner = new SolverRunner(solver);
+		runner.setMaxIterations(this.iterationsPerStage);
+		runner.setTimeLimitMillis(remainingMillis);
+		runner.run();
+		entry.bsfLengths[seedIndex] = solver.getBsfLength();
+	}
+
+	// drop the configurations that are clearly behind; returns how many are left
+	private int eliminate(List<Entry> entries, int stage) {
+		Entry leader = null;
+		for (Entry entry : entries) {
+			if (entry.eliminatedAfterStage == 0) {
+				this.updateStats(entry);
+				if (leader == null || entry.meanLength < leader.meanLength) {
+					leader = entry;
+				}
+			}
+		}
+
+		int numLeft = 0;
+		for (Entry entry : entries) {
+			if (entry.eliminatedAfterStage > 0) {
+				continue;
+			}
+			// nothing to judge it on yet
+			if (entry.meanLength == Double.MAX_VALUE) {
+				numLeft++;
+				continue;
+			}
+			double noise = 2 * Math.sqrt(entry.standardError * entry.standardError
+					+ leader.standardError * leader.standardError);
+			if (entry.meanLength > leader.meanLength * (1 + this.eliminationMargin) + noise) {
+				entry.eliminatedAfterStage = stage;
+				// let the matrices go
+				for (int s = 0; s < entry.solvers.length; s++) {
+					entry.solvers[s] = null;
+				}
+			} else {
+				numLeft++;
+			}
+		}
+		return numLeft;
+	}
+
+	// mean and standard error of the seeds' bsf lengths, and the best tour so far. a configuration that
+	// ran out of time before any of its seeds finished a stage gets Double.MAX_VALUE, and ends up last
+	private void updateStats(Entry entry) {
+		int numRuns = 0;
+		double sum = 0;
+		for (double length : entry.bsfLengths) {
+			if (!Double.isNaN(length)) {
+				sum += length;
+				numRuns++;
+			}
+		}
+		if (numRuns == 0) {
+			entry.meanLength = Double.MAX_VALUE;
+			entry.standardError = 0;
+			return;
+		}
+		entry.meanLength = sum / numRuns;
+		double squares = 0;
+		for (double length : entry.bsfLengths) {
+			if (!Double.isNaN(length)) {
+				squares += (length - entry.meanLength) * (length - entry.meanLength);
+			}
+		}
+		entry.standardError = (numRuns > 1) ? Math.sqrt(squares / (numRuns - 1) / numRuns) : 0;
+
+		for (int s = 0; s < entry.solvers.length; s++) {
+			if (entry.solvers[s] == null) {
+				continue;
+			}
+			entry.iterations = Math.max(entry.iterations, entry.solvers[s].getIterationCount());
+			if (entry.solvers[s].getBsfLength() < entry.bestLength) {
+				entry.bestLength = entry.solvers[s].getBsfLength();
+				entry.bestTour = entry.solvers[s].getBsfTour().clone();
+			}
+		}
+	}
+
+	private void warnIfTooBig(List<SolverConfig> configs) {
+		TSP problem = this.shared.getProblem();
+		long bytes = 0;
+		for (SolverConfig config : configs) {
+			long solverBytes = problem.isLargeInstance()
+					? AntSystem.estimateMemoryFootprint(problem.getNumNodes(), config.getNumAnts(), this.numCandidates)
+					: AntSystem.estimateMemoryFootprint(problem.getNumNodes(), config.getNumAnts(),
+							this.shared.getStorage());
+			bytes += solverBytes * this.numSeeds;
+		}
+		if (bytes > Runtime.getRuntime().maxMemory()) {
+			System.out.println("Warning: sweep needs about " + (bytes >> 20) + " MB, but the heap is only "
+					+ (Runtime.getRuntime().maxMemory() >> 20) + " MB");
+		}
+	}
+
+	public void setVariants(SolverConfig.Variant... variants) {
+		this.variants = variants;
+	}
+
+	public void setNumAnts(int... numAnts) {
+		this.numAnts = numAnts;
+	}
+
+	public void setAlphas(double... alphas) {
+		this.alphas = alphas;
+	}
+
+	public void setBetas(double... betas) {
+		this.betas = betas;
+	}
+
+	public void setEvapFactors(double... evapFactors) {
+		this.evapFactors = evapFactors;
+	}
+
+	public void setElitisms(double... elitisms) {
+		this.elitisms = elitisms;
+	}
+
+	public void setWearFactors(double... wearFactors) {
+		this.wearFactors = wearFactors;
+	}
+
+	public void setBestNextNodeSelectionProbs(double... bestNextNodeSelectionProbs) {
+		this.bestNextNodeSelectionProbs = bestNextNodeSelectionProbs;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	public int getNumSeeds() {
+		return numSeeds;
+	}
+
+	public void setNumSeeds(int numSeeds) {
+		this.numSeeds = Math.max(1, numSeeds);
+	}
+
+	public int getNumStages() {
+		return numStages;
+	}
+
+	public void setNumStages(int numStages) {
+		this.numStages = numStages;
+	}
+
+	public int getIterationsPerStage() {
+		return iterationsPerStage;
+	}
+
+	public void setIterationsPerStage(int iterationsPerStage) {
+		this.iterationsPerStage = iterationsPerStage;
+	}
+
+	public double getEliminationMargin() {
+		return eliminationMargin;
+	}
+
+	// how far behind the leader (as a fraction of its mean) a configuration can fall before it's dropped
+	public void setEliminationMargin(double eliminationMargin) {
+		this.eliminationMargin = eliminationMargin;
+	}
+
+	public long getTimeLimitMillis() {
+		return timeLimitMillis;
+	}
+
+	public void setTimeLimitMillis(long timeLimitMillis) {
+		this.timeLimitMillis = timeLimitMillis;
+	}
+
+	public int getNumCandidates() {
+		return numCandidates;
+	}
+
+	public void setNumCandidates(int numCandidates) {
+		this.numCandidates = numCandidates;
+	}
+
+	public LocalSearchMode getLocalSearchMode() {
+		return localSearchMode;
+	}
+
+	public void setLocalSearchMode(LocalSearchMode localSearchMode) {
+		this.localSearchMode = localSearchMode;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public SharedProblemData getShared() {
+		return shared;
+	}
+
+}
@@ -1,59 +1,122 @@
-import javax.swing.plaf.synth.SynthSeparatorUI;
-
-public class Playground {
-
-	private static final String[] DEBUG_3000 = new String[] { "d2103", "u2152", "u2319", "pr2392" };
-	private static final String[] DEBUG_4000 = new String[] { "pcb3038", "fl3795" };
-	private static final String[] DEBUG_5000 = new String[] { "fnl4461" };
-	private static final String[] DEBUG_6000 = new String[] { "rl5915", "rl5934" };
-
-	private static final String[][] DEBUG = new String[][] { DEBUG_3000, DEBUG_4000, DEBUG_5000, DEBUG_6000 };
-
-	private static String fileName = "problems/" + DEBUG[0][0] + ".tsp";
-	// private static String fileName = "problems/att48.tsp";
-
-	public static void main(String[] args) {
-
-		TSP problem = new TSP(fileName);
-		// int numAnts = 30;
-
-		int numAntsEAS = 20;
-		int numAntsACS = 10;
-
-		int elitism = numAntsEAS;
-		double[] alphas = new double[]{.75, 1.125};
-		double beta = 3.0;
-		double evapFact = 0.1;
-		double wearFact = 0.1;
-		double bestNodeSelectionProb = 0.9;
-		double optimal = 10.0;
-		double breakRatio = 1.01;
-		
-		
-		//ACS sol = new ACS(problem, numAntsACS,  alpha,  beta, evapFact, wearFact, bestNodeSelectionProb);
-		for (int k = 0; k < 2; k++) {
-			double alpha = alphas[k];
-			double[] iters = new double[31];
-			EAS sol = new EAS(problem, numAntsEAS, alpha, beta, evapFact, elitism);
-			for (int i = 0; i <= 750; i++) {
-
-				sol.singleIterationAllAnts();
-				if (i % 25 == 0) {
-					iters[i/25] = sol.getBsfLength();
-				}
-				//statement to stop iterations if solution is within a certain ratio 
-				//of the optimal as defined by the constants above
-				if(optimal*breakRatio >= sol.getBsfLength()){
-					break;
-				}
-			}
-			System.out.println(alpha);
-			System.out.println(sol.getBsfLength());
-			for (int i = 0; i < 31; i++) {
-				System.out.println(iters[i]);
-			}
-		}
-
-	}
-
-}
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.plaf.synth.SynthSeparatorUI;
+
+public class Playground {
+
+	private static final String[] DEBUG_3000 = new String[] { "d2103", "u2152", "u2319", "pr2392" };
+	private static final String[] DEBUG_4000 = new String[] { "pcb3038", "fl3795" };
+	private static final String[] DEBUG_5000 = new String[] { "fnl4461" };
+	private static final String[] DEBUG_6000 = new String[] { "rl5915", "rl5934" };
+
+	private static final String[][] DEBUG = new String[][] { DEBUG_3000, DEBUG_4000, DEBUG_5000, DEBUG_6000 };
+
+	private static String fileName = "problems/" + DEBUG[0][0] + ".tsp";
+	// private static String fileName = "problems/att48.tsp";
+
+	public static void main(String[] args) {
+
+		TSP problem = new TSP(fileName);
+		// int numAnts = 30;
+
+		int numAntsEAS = 20;
+		int numAntsACS = 10;
+
+		int elitism = numAntsEAS;
+		double[] alphas = new double[]{.75, 1.125};
+		double beta = 3.0;
+		double evapFact = 0.1;
+		double wearFact = 0.1;
+		double bestNodeSelectionProb = 0.9;
+		double optimal = 10.0; // known optimal tour length, if there is one
+		double breakRatio = 1.01; // stop once within this ratio of the optimal
+		int maxIterations = 751;
+		// the rest is off unless switched on here, so a run is the plain EAS run from before
+		long timeLimitMillis = 0; // i.e. 10 * 60 * 1000; 0: no limit
+		int stagnationIterations = 0; // i.e. 250: stop after this many iterations without a new bsf
+		int numCandidates = 0; // i.e. 20: nearest neighbor candidate lists
+		int numThreads = 1; // i.e. Runtime.getRuntime().availableProcessors(): tour construction threads
+		boolean lazyEvaporation = false; // O(1) evaporation instead of a sweep over the whole pheromone matrix
+		LocalSearchMode localSearchMode = LocalSearchMode.NONE; // i.e. ITERATION_BEST: 2-opt + Or-opt on the tours
+		boolean jfrEvents = false; // an event per iteration for a flight recording (see JfrIterationListener)
+		boolean sweep = false; // race all the alphas against each other on every core instead
+		int numColonies = 0; // > 1: that many colonies, one per thread, swapping bsf tours (island model)
+		
+		if (sweep) {
+			ParameterSweep parameterSweep = new ParameterSweep(problem);
+			parameterSweep.setNumAnts(numAntsEAS);
+			parameterSweep.setAlphas(alphas);
+			parameterSweep.setBetas(beta);
+			parameterSweep.setEvapFactors(evapFact);
+			parameterSweep.setElitisms(elitism);
+			parameterSweep.setNumCandidates(numCandidates);
+			parameterSweep.setLocalSearchMode(localSearchMode);
+			parameterSweep.setTimeLimitMillis(timeLimitMillis);
+			for (SweepResult result : parameterSweep.run()) {
+				System.out.println(result);
+			}
+			return;
+		}
+
+		if (numColonies > 1) {
+			SharedProblemData shared = new SharedProblemData(problem);
+			List<AntSystem> colonies = new ArrayList<AntSystem>();
+			RandomStream random = new RandomStream();
+			for (int i = 0; i < numColonies; i++) {
+				// half EAS, half ACS
+				AntSystem colony = (i % 2 == 0)
+						? new EAS(shared, numAntsEAS, alphas[0], beta, evapFact, elitism, random.split())
+						: new ACS(shared, numAntsACS, alphas[0], beta, evapFact, wearFact, bestNodeSelectionProb,
+								random.split());
+				colony.setNumCandidates(numCandidates);
+				colony.setLocalSearchMode(localSearchMode);
+				colonies.add(colony);
+			}
+			IslandModel islandModel = new IslandModel(colonies);
+			islandModel.setMaxIterations(maxIterations);
+			islandModel.setTimeLimitMillis(timeLimitMillis);
+			islandModel.setTargetLength(optimal * breakRatio);
+			System.out.println(islandModel.run());
+			return;
+		}
+		
+		//ACS sol = new ACS(problem, numAntsACS,  alpha,  beta, evapFact, wearFact, bestNodeSelectionProb);
+		//MMAS sol = new MMAS(problem, numAntsEAS, alpha, beta, 0.02);
+		for (int k = 0; k < 2; k++) {
+			double alpha = alphas[k];
+			final double[] iters = new double[31];
+			EAS sol = new EAS(problem, numAntsEAS, alpha, beta, evapFact, elitism);
+			sol.setNumCandidates(numCandidates);
+			sol.setNumThreads(numThreads);
+			sol.setLazyEvaporation(lazyEvaporation);
+			sol.setLocalSearchMode(localSearchMode);
+			if (jfrEvents) {
+				sol.addIterationListener(new JfrIterationListener());
+			}
+			// bsf every 25 iterations
+			sol.addIterationListener(stats -> {
+				int i = stats.getIteration() - 1;
+				if (i % 25 == 0 && i / 25 < iters.length) {
+					iters[i / 25] = stats.getBsfLength();
+				}
+			});
+
+			SolverRunner runner = new SolverRunner(sol);
+			runner.setMaxIterations(maxIterations);
+			runner.setTimeLimitMillis(timeLimitMillis);
+			runner.setTargetLength(optimal * breakRatio);
+			runner.setStagnationIterations(stagnationIterations);
+			SolverResult result = runner.run();
+			sol.shutdown();
+
+			System.out.println(alpha);
+			System.out.println(result);
+			for (int i = 0; i < 31; i++) {
+				System.out.println(iters[i]);
+			}
+		}
+
+	}
+
+}
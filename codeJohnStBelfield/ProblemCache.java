@@ -0,0 +1,414 @@
+/*
+ * ProblemCache: what gets worked out from a problem before any solver parameter comes into it (the distance
+ * matrix, candidate lists per size, the nearest neighbor tour length), kept for the next solver on the same
+ * problem, in this process or a later one.
+ *
+ * Entries are keyed by a hash of the problem's contents (see TSP.getContentHash), not its file name, so the
+ * same cities read from two copies of a file, or sent to SolverService twice, find the same entries. They're
+ * also keyed by how the distances are stored (float distances can order candidates differently from double
+ * ones) and whether it's a large instance (which finds neighbors through its GridIndex), so an entry is
+ * always exactly what the solver would have worked out itself.
+ *
+ * In memory it's an LRU under a byte budget. With a directory, every entry is also written to a small binary
+ * file there as soon as it's been worked out; an entry that's been evicted, or that an earlier run worked
+ * out, is mapped back in from its file (see MappedIO) instead of being worked out again. Nothing in the
+ * directory is ever deleted, so it's up to whoever set it up to clear it out now and then.
+ *
+ * File layout, little endian: a header (magic, kind, numNodes, then the storage ordinal for a distance
+ * matrix, the list size for candidate lists, or the value itself for a tour length), then from HEADER_BYTES
+ * on the entries as Matrix.writeEntries writes them, or the candidate lists row after row. Files are written
+ * under a temporary name and moved into place, so a half written one never gets read.
+ *
+ * Off unless it's switched on: configure(directory, budgetBytes), or -Daco.cache.dir=... and/or
+ * -Daco.cache.bytes=... on the command line. Cached matrices are shared between TSPs, so they must not be
+ * written to (TSP copies its distances before changing a city).
+ *
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+public class ProblemCache {
+
+	public final static long DEFAULT_BUDGET_BYTES = 256L << 20;
+
+	// bumped whenever what gets stored changes (i.e. "ACOCACH1" nearest neighbor tours didn't close the tour)
+	private final static long MAGIC = 0x32484341434f4341L; // "ACOCACH2"
+	private final static int HEADER_BYTES = 64;
+	private final static int DISTANCES = 0, CANDIDATE_LISTS = 1, NN_LENGTH = 2;
+
+	private static ProblemCache instance;
+	private static boolean configured;
+
+	private final Path directory; // null: memory only
+	private final long budgetBytes;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long usedBytes;
+	private long hits;
+	private long fileHits;
+	private long misses;
+
+	private static class Entry {
+		private final Object value;
+		private final long bytes;
+
+		private Entry(Object value, long bytes) {
+			this.value = value;
+			this.bytes = bytes;
+		}
+	}
+
+	// directory may be null (nothing kept between runs); budgetBytes 0 keeps nothing in memory, so every get
+	// goes to the directory
+	public ProblemCache(String directory, long budgetBytes) {
+		this.directory = (directory == null) ? null : Paths.get(directory);
+		this.budgetBytes = budgetBytes;
+		if (this.directory != null) {
+			try {
+				Files.createDirectories(this.directory);
+			} catch (IOException e) {
+				System.out.println("Error: could not create " + directory + ": " + e.getMessage());
+			}
+		}
+	}
+
+	// the process wide cache, or null if it's off. the first call looks at -Daco.cache.dir and
+	// -Daco.cache.bytes, unless configure got there first
+	public static synchronized ProblemCache get() {
+		if (!configured) {
+			configured = true;
+			String directory = System.getProperty("aco.cache.dir");
+			String budget = System.getProperty("aco.cache.bytes");
+			if (directory != null || budget != null) {
+				try {
+					instance = new ProblemCache(directory,
+							(budget == null) ? DEFAULT_BUDGET_BYTES : Long.parseLong(budget.trim()));
+				} catch (NumberFormatException e) {
+					System.out.println("Error: aco.cache.bytes should be a number of bytes, not " + budget);
+				}
+			}
+		}
+		return instance;
+	}
+
+	// switch the process wide cache on (or off, with a null directory and a 0 budget) for every solver made
+	// after this
+	public static synchronized void configure(String directory, long budgetBytes) {
+		configured = true;
+		instance = (directory == null && budgetBytes <= 0) ? null : new ProblemCache(directory, budgetBytes);
+	}
+
+	// the problem's distance matrix in its storage, or null if nobody has put it here
+	public Matrix getDistances(TSP problem) {
+		return (Matrix) this.get(key(problem, "distances"));
+	}
+
+	public void putDistances(TSP problem, Matrix nodeDists) {
+		this.put(key(problem, "distances"), nodeDists, nodeDists.getMemoryFootprint());
+	}
+
+	public int[][] getCandidateLists(TSP problem, int numCandidates) {
+		return (int[][]) this.get(key(problem, "candidates" + numCandidates));
+	}
+
+	public void putCandidateLists(TSP problem, int numCandidates, int[][] candidateLists) {
+		this.put(key(problem, "candidates" + numCandidates), candidateLists,
+				(4L * numCandidates + 16) * candidateLists.length);
+	}
+
+	// -1 if nobody has put it here
+	public double getNnLength(TSP problem) {
+		Double nnLength = (Double) this.get(key(problem, "nnLength"));
+		return (nnLength == null) ? -1 : nnLength;
+	}
+
+	public void putNnLength(TSP problem, double nnLength) {
+		this.put(key(problem, "nnLength"), nnLength, 16);
+	}
+
+	// the content hash, then what the entry depends on besides the contents
+	private static String key(TSP problem, String what) {
+		String distances;
+		if (problem.isLargeInstance()) {
+			distances = "large";
+		} else if (problem.isExplicit()) {
+			distances = "explicit";
+		} else {
+			distances = problem.getStorage().name().toLowerCase();
+		}
+		return problem.getContentHash() + "-" + distances + "-" + what;
+	}
+
+	private Object get(String key) {
+		synchronized (this) {
+			Entry entry = this.entries.get(key);
+			if (entry != null) {
+				this.hits++;
+				return entry.value;
+			}
+		}
+		// the file is read outside the lock, so one big matrix coming in doesn't hold up everyone else. two
+		// threads after the same one both read it, and the second just replaces the first
+		Entry entry = (this.directory == null) ? null : this.readFile(key);
+		synchronized (this) {
+			if (entry == null) {
+				this.misses++;
+				return null;
+			}
+			this.fileHits++;
+			this.keep(key, entry);
+			return entry.value;
+		}
+	}
+
+	private void put(String key, Object value, long bytes) {
+		synchronized (this) {
+			this.keep(key, new Entry(value, bytes));
+		}
+		if (this.directory != null) {
+			this.writeFile(key, value);
+		}
+	}
+
+	// in memory, evicting the least recently used entries until it's back under budget. an entry that's
+	// over budget on its own isn't kept at all
+	private void keep(String key, Entry entry) {
+		Entry old = this.entries.remove(key);
+		if (old != null) {
+			this.usedBytes -= old.bytes;
+		}
+		if (entry.bytes > this.budgetBytes) {
+			return;
+		}
+		this.entries.put(key, entry);
+		this.usedBytes += entry.bytes;
+		Iterator<Entry> eldest = this.entries.values().iterator();
+		while (this.usedBytes > this.budgetBytes) {
+			this.usedBytes -= eldest.next().bytes;
+			eldest.remove();
+		}
+	}
+
+	private Entry readFile(String key) {
+		Path file = this.directory.resolve(key + ".bin");
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel);
+			if (header == null || header.getLong() != MAGIC) {
+				return null;
+			}
+			int kind = header.getInt();
+			int numNodes = header.getInt();
+			if (kind == DISTANCES) {
+				MatrixStorage storage = MatrixStorage.values()[header.getInt()];
+				long dataBytes = storage.numEntries(numNodes) * storage.getBytesPerEntry();
+				if (channel.size() != HEADER_BYTES + dataBytes) {
+					return null;
+				}
+				Matrix nodeDists = storage.create(numNodes);
+				nodeDists.readEntries(channel, HEADER_BYTES);
+				return new Entry(nodeDists, nodeDists.getMemoryFootprint());
+			}
+			if (kind == CANDIDATE_LISTS) {
+				int numCandidates = header.getInt();
+				if (channel.size() != HEADER_BYTES + 4L * numNodes * numCandidates) {
+					return null;
+				}
+				int[] flat = new int[numNodes * numCandidates];
+				MappedIO.readInts(channel, HEADER_BYTES, flat);
+				int[][] candidateLists = new int[numNodes][];
+				for (int i = 0; i < numNodes; i++) {
+					candidateLists[i] = new int[numCandidates];
+					System.arraycopy(flat, i * numCandidates, candidateLists[i], 0, numCandidates);
+				}
+				return new Entry(candidateLists, (4L * numCandidates + 16) * numNodes);
+			}
+			if (kind == NN_LENGTH) {
+				return new Entry(header.getDouble(), 16);
+			}
+			return null;
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Warning: ignoring " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining()) {
+			if (channel.read(header) < 0) {
+				return null;
+			}
+		}
+		return header.flip();
+	}
+
+	// only called after a miss, so a file that's already there is one that couldn't be read (or is from an
+	// older version), and gets replaced
+	private void writeFile(String key, Object value) {
+		Path file = this.directory.resolve(key + ".bin");
+		Path temporary = this.directory.resolve(key + "." + ProcessHandle.current().pid() + "-"
+				+ Thread.currentThread().getId() + ".tmp");
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putLong(MAGIC);
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			if (value instanceof Matrix) {
+				Matrix nodeDists = (Matrix) value;
+				header.putInt(DISTANCES).putInt(nodeDists.getNumNodes()).putInt(storageOf(nodeDists).ordinal());
+				nodeDists.writeEntries(channel, HEADER_BYTES);
+			} else if (value instanceof int[][]) {
+				int[][] candidateLists = (int[][]) value;
+				int numCandidates = (candidateLists.length == 0) ? 0 : candidateLists[0].length;
+				int[] flat = new int[candidateLists.length * numCandidates];
+				for (int i = 0; i < candidateLists.length; i++) {
+					if (candidateLists[i].length != numCandidates) {
+						throw new IOException("candidate lists of different sizes");
+					}
+					System.arraycopy(candidateLists[i], 0, flat, i * numCandidates, numCandidates);
+				}
+				header.putInt(CANDIDATE_LISTS).putInt(candidateLists.length).putInt(numCandidates);
+				MappedIO.writeInts(channel, HEADER_BYTES, flat);
+			} else {
+				header.putInt(NN_LENGTH).putInt(0).putDouble((Double) value);
+			}
+			header.position(0);
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Warning: could not write " + file + ": " + e.getMessage());
+			try {
+				Files.deleteIfExists(temporary);
+			} catch (IOException ignored) {
+			}
+			return;
+		}
+		try {
+			try {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			System.out.println("Warning: could not write " + file + ": " + e.getMessage());
+		}
+	}
+
+	private static MatrixStorage storageOf(Matrix matrix) throws IOException {
+		if (matrix instanceof DenseMatrix) {
+			return MatrixStorage.DENSE_DOUBLE;
+		} else if (matrix instanceof DenseFloatMatrix) {
+			return MatrixStorage.DENSE_FLOAT;
+		} else if (matrix instanceof PackedMatrix) {
+			return MatrixStorage.PACKED_DOUBLE;
+		} else if (matrix instanceof PackedFloatMatrix) {
+			return MatrixStorage.PACKED_FLOAT;
+		}
+		throw new IOException("can't store a " + matrix.getClass().getSimpleName());
+	}
+
+	// content hashes: the first 16 bytes of a SHA-256, in hex, over the node count and then the coordinates
+	// (or the distances, row-major), as little endian doubles
+
+	public static String hashCoordinates(double[][] nodeCoords) {
+		MessageDigest digest = newDigest(nodeCoords.length);
+		ByteBuffer bytes = ByteBuffer.allocate(8 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		for (double[] coords : nodeCoords) {
+			for (double coord : coords) {
+				if (!bytes.hasRemaining()) {
+					digest.update(bytes.flip());
+					bytes.clear();
+				}
+				bytes.putDouble(coord);
+			}
+		}
+		digest.update(bytes.flip());
+		return toHex(digest);
+	}
+
+	public static String hashDistances(Matrix nodeDists) {
+		int numNodes = nodeDists.getNumNodes();
+		MessageDigest digest = newDigest(numNodes);
+		ByteBuffer row = ByteBuffer.allocate(8 * numNodes).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < numNodes; i++) {
+			row.clear();
+			for (int j = 0; j < numNodes; j++) {
+				row.putDouble(nodeDists.get(i, j));
+			}
+			digest.update(row.flip());
+		}
+		return toHex(digest);
+	}
+
+	// for hashing distances that are already laid out as little endian doubles (see MappedDistanceMatrix)
+	static MessageDigest newDigest(int numNodes) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(numNodes).flip());
+			return digest;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JVM has SHA-256
+		}
+	}
+
+	static String toHex(MessageDigest digest) {
+		byte[] bytes = digest.digest();
+		StringBuilder hex = new StringBuilder();
+		for (int i = 0; i < 16; i++) {
+			hex.append(String.format("%02x", bytes[i]));
+		}
+		return hex.toString();
+	}
+
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+
+	// null if nothing is kept between runs
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public synchronized int getNumEntries() {
+		return entries.size();
+	}
+
+	// gets answered from memory / from a file / not at all
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getFileHits() {
+		return fileHits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public String toString() {
+		return "ProblemCache(" + ((this.directory == null) ? "memory only" : this.directory) + ", "
+				+ (this.budgetBytes >> 20) + " MB)";
+	}
+
+}
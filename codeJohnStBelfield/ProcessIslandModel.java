@@ -0,0 +1,354 @@
+/*
+ * ProcessIslandModel: the island model with every colony in its own JVM (see IslandWorker), talking to this
+ * coordinator over local sockets. Useful when one JVM can't make good use of the whole machine (heap
+ * size, GC pauses, NUMA), or to keep a crashed colony from taking the rest down.
+ * 
+ * Every migrationInterval iterations each worker sends its bsf, the coordinator decides whether to stop,
+ * and otherwise sends every worker the best bsf among the colonies it hears from (topology as in
+ * IslandModel). Only tours migrate: shipping whole pheromone matrices between processes costs more than
+ * it's worth, so pheromone blending is IslandModel only.
+ * 
+ * A worker that dies (or whose socket breaks) is dropped: the others carry on without it, and its last bsf
+ * still counts. Only when every worker is gone does the run stop early, with WORKERS_LOST.
+ * 
+ * Workers load the problem from the file themselves, with the same class path as this JVM, and by default
+ * the same --add-modules and -Daco.* options (so they get the same kernels and ProblemCache).
+ * 
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ProcessIslandModel {
+
+	private final static int CONNECT_TIMEOUT_MILLIS = 60000;
+
+	private final String fileName;
+	private final boolean largeInstance;
+	private final List<SolverConfig> configs; // one per colony
+
+	private MigrationTopology topology = MigrationTopology.RING;
+	private int migrationInterval = 25;
+	private int maxIterations = 1000;
+	private long timeLimitMillis = 0;
+	private double targetLength = 0;
+	private int numCandidates = 20;
+	private LocalSearchMode localSearchMode = LocalSearchMode.NONE;
+	private long seed = 42;
+	private List<String> jvmOptions = parentJvmOptions();
+
+	private volatile boolean cancelled;
+
+	public ProcessIslandModel(String fileName, List<SolverConfig> configs) {
+		this(fileName, false, configs);
+	}
+
+	public ProcessIslandModel(String fileName, boolean largeInstance, List<SolverConfig> configs) {
+		this.fileName = fileName;
+		this.largeInstance = largeInstance;
+		this.configs = configs;
+	}
+
+	// start the workers, run the migration rounds, and collect the best tour. returns null if the workers
+	// couldn't be started
+	public SolverResult run() {
+		int numColonies = this.configs.size();
+		List<Process> processes = new ArrayList<Process>();
+		Socket[] sockets = new Socket[numColonies];
+		DataInputStream[] ins = new DataInputStream[numColonies];
+		DataOutputStream[] outs = new DataOutputStream[numColonies];
+		long start = System.nanoTime();
+
+		try (ServerSocket server = new ServerSocket(0, numColonies, InetAddress.getLoopbackAddress())) {
+			server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+			RandomStream master = new RandomStream(this.seed);
+			for (int c = 0; c < numColonies; c++) {
+				processes.add(this.startWorker(server.getLocalPort(), c, master.nextLong()));
+			}
+			for (int c = 0; c < numColonies; c++) {
+				Socket socket = server.accept();
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				int colony = in.readInt();
+				sockets[colony] = socket;
+				ins[colony] = in;
+				outs[colony] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			}
+		} catch (IOException e) {
+			System.out.println("Error: island workers: " + e.getMessage());
+			for (Socket socket : sockets) {
+				closeQuietly(socket);
+			}
+			for (Process process : processes) {
+				this.waitForWorker(process);
+			}
+			return null;
+		}
+
+		try {
+
+			double bestLength = AntSystem.getHuuuuuuuuuuuuge();
+			int[] bestTour = null;
+			long timeToBest = 0;
+			int iterationOfBest = 0;
+			int iterations = 0;
+			double[] bsfLengths = new double[numColonies];
+			int[][] bsfTours = new int[numColonies][];
+			for (int c = 0; c < numColonies; c++) {
+				bsfTours[c] = new int[0];
+			}
+			int numAlive = numColonies;
+			StopReason stopReason = null;
+
+			while (stopReason == null) {
+				// one report from every colony that's still there
+				for (int c = 0; c < numColonies; c++) {
+					if (sockets[c] == null) {
+						continue;
+					}
+					try {
+						int colonyIterations = ins[c].readInt();
+						double bsfLength = ins[c].readDouble();
+						bsfTours[c] = IslandWorker.readTour(ins[c]);
+						bsfLengths[c] = bsfLength;
+						iterations = Math.max(iterations, colonyIterations);
+					} catch (IOException e) {
+						numAlive = this.dropColony(c, sockets, e);
+						continue;
+					}
+					if (bsfTours[c].length > 0 && bsfLengths[c] < bestLength) {
+						bestLength = bsfLengths[c];
+						bestTour = bsfTours[c];
+						timeToBest = System.nanoTime() - start;
+						iterationOfBest = iterations;
+					}
+				}
+
+				if (numAlive == 0) {
+					stopReason = StopReason.WORKERS_LOST;
+				} else if (this.cancelled) {
+					stopReason = StopReason.CANCELLED;
+				} else if (this.targetLength > 0 && bestLength <= this.targetLength) {
+					stopReason = StopReason.TARGET_REACHED;
+				} else if (this.maxIterations > 0 && iterations >= this.maxIterations) {
+					stopReason = StopReason.MAX_ITERATIONS;
+				} else if (this.timeLimitMillis > 0 && System.nanoTime() - start >= this.timeLimitMillis * 1000000) {
+					stopReason = StopReason.TIME_LIMIT;
+				}
+
+				// a dead colony's last bsf still migrates
+				for (int c = 0; c < numColonies; c++) {
+					if (sockets[c] == null) {
+						continue;
+					}
+					try {
+						if (stopReason != null) {
+							outs[c].writeInt(IslandWorker.STOP);
+							outs[c].flush();
+							continue;
+						}
+						int best = -1;
+						for (int source : this.topology.sources(c, numColonies)) {
+							if (bsfTours[source].length > 0
+									&& (best == -1 || bsfLengths[source] < bsfLengths[best])) {
+								best = source;
+							}
+						}
+						outs[c].writeInt(IslandWorker.CONTINUE);
+						outs[c].writeDouble((best == -1) ? 0 : bsfLengths[best]);
+						IslandWorker.writeTour(outs[c], (best == -1) ? null : bsfTours[best]);
+						outs[c].flush();
+					} catch (IOException e) {
+						numAlive = this.dropColony(c, sockets, e);
+					}
+				}
+			}
+
+			// only now, so a cancel from before the run isn't lost
+			this.cancelled = false;
+			return new SolverResult(bestTour, bestLength, iterations, iterationOfBest, timeToBest,
+					System.nanoTime() - start, stopReason);
+		} finally {
+			for (Socket socket : sockets) {
+				closeQuietly(socket);
+			}
+			for (Process process : processes) {
+				this.waitForWorker(process);
+			}
+		}
+	}
+
+	// colony's worker is gone: close its end and leave it out from now on. returns how many are left
+	private int dropColony(int colony, Socket[] sockets, IOException e) {
+		System.out.println("Warning: lost island worker " + colony + ": " + e);
+		closeQuietly(sockets[colony]);
+		sockets[colony] = null;
+		int numAlive = 0;
+		for (Socket socket : sockets) {
+			if (socket != null) {
+				numAlive++;
+			}
+		}
+		return numAlive;
+	}
+
+	// the options of this JVM that workers need to behave the same: modules (the Vector API kernels) and
+	// this project's own -Daco.* settings
+	static List<String> parentJvmOptions() {
+		List<String> options = new ArrayList<String>();
+		List<String> arguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
+		for (int i = 0; i < arguments.size(); i++) {
+			String argument = arguments.get(i);
+			if (argument.equals("--add-modules") && i + 1 < arguments.size()) {
+				options.add(argument);
+				options.add(arguments.get(++i));
+			} else if (argument.startsWith("--add-modules=") || argument.startsWith("-Daco.")) {
+				options.add(argument);
+			}
+		}
+		return options;
+	}
+
+	private Process startWorker(int port, int colony, long workerSeed) throws IOException {
+		SolverConfig config = this.configs.get(colony);
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		List<String> command = new ArrayList<String>();
+		command.add(java);
+		command.addAll(this.jvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add("IslandWorker");
+		command.add(String.valueOf(port));
+		command.add(String.valueOf(colony));
+		command.add(this.fileName);
+		command.add(String.valueOf(this.largeInstance));
+		command.add(String.valueOf(workerSeed));
+		command.add(String.valueOf(this.numCandidates));
+		command.add(this.localSearchMode.name());
+		command.add(String.valueOf(this.migrationInterval));
+		command.add(config.getVariant().name());
+		command.add(String.valueOf(config.getNumAnts()));
+		command.add(String.valueOf(config.getAlpha()));
+		command.add(String.valueOf(config.getBeta()));
+		command.add(String.valueOf(config.getEvapFactor()));
+		command.add(String.valueOf(config.getElitism()));
+		command.add(String.valueOf(config.getWearFactor()));
+		command.add(String.valueOf(config.getBestNextNodeSelectionProb()));
+		// workers only print when something's wrong, so their output can go straight to ours
+		return new ProcessBuilder(command).inheritIO().start();
+	}
+
+	// workers exit on STOP (or when their socket goes away); anything still around after that gets killed
+	private void waitForWorker(Process process) {
+		try {
+			if (!process.waitFor(10, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+			}
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		if (socket == null) {
+			return;
+		}
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// nothing left to do with it anyway
+		}
+	}
+
+	// stop at the next migration round. safe to call from any thread, also before run()
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	public MigrationTopology getTopology() {
+		return topology;
+	}
+
+	public void setTopology(MigrationTopology topology) {
+		this.topology = topology;
+	}
+
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	public void setMigrationInterval(int migrationInterval) {
+		this.migrationInterval = Math.max(1, migrationInterval);
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	// per colony, rounded up to whole migration intervals; 0 means no limit
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public long getTimeLimitMillis() {
+		return timeLimitMillis;
+	}
+
+	public void setTimeLimitMillis(long timeLimitMillis) {
+		this.timeLimitMillis = timeLimitMillis;
+	}
+
+	public double getTargetLength() {
+		return targetLength;
+	}
+
+	public void setTargetLength(double targetLength) {
+		this.targetLength = targetLength;
+	}
+
+	public int getNumCandidates() {
+		return numCandidates;
+	}
+
+	public void setNumCandidates(int numCandidates) {
+		this.numCandidates = numCandidates;
+	}
+
+	public LocalSearchMode getLocalSearchMode() {
+		return localSearchMode;
+	}
+
+	public void setLocalSearchMode(LocalSearchMode localSearchMode) {
+		this.localSearchMode = localSearchMode;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public List<String> getJvmOptions() {
+		return jvmOptions;
+	}
+
+	// i.e. -Xmx2g for each worker. replaces the ones copied from this JVM, so pass those along too if they
+	// matter (see parentJvmOptions)
+	public void setJvmOptions(List<String> jvmOptions) {
+		this.jvmOptions = jvmOptions;
+	}
+
+}
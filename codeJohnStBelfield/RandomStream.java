@@ -0,0 +1,99 @@
+/*
+ * RandomStream: a seedable, splittable random number generator (the SplitMix64 algorithm, same as
+ * java.util.SplittableRandom).
+ * 
+ * Every ant gets its own stream split off the colony's master stream, so ants never share (and never
+ * fight over) a generator, and a fixed master seed gives the same tours every run.
+ * 
+ * Unlike SplittableRandom, the state (seed and gamma) can be read back out and restored.
+ * 
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RandomStream {
+
+	private final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private final static double DOUBLE_UNIT = 0x1.0p-53; // 1 / 2^53
+
+	// hands out different seeds to streams created without one
+	private final static AtomicLong SEED_UNIQUIFIER = new AtomicLong(System.nanoTime());
+
+	private long seed; // advanced by gamma for every value
+	private long gamma; // odd step size, different for every stream
+
+	// stream with a fixed seed: the same seed always gives the same numbers
+	public RandomStream(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	// stream with a seed nobody else has
+	public RandomStream() {
+		this(randomSeed());
+	}
+
+	private RandomStream(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	// a seed that's different every call (and every run)
+	public static long randomSeed() {
+		return mix64(SEED_UNIQUIFIER.getAndAdd(GOLDEN_GAMMA) ^ System.nanoTime());
+	}
+
+	// a new, independent stream. also advances this one, so splitting twice gives two different streams
+	public RandomStream split() {
+		return new RandomStream(this.nextLong(), mixGamma(this.nextSeed()));
+	}
+
+	public long nextLong() {
+		return mix64(this.nextSeed());
+	}
+
+	// uniform in [0, 1)
+	public double nextDouble() {
+		return (this.nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	// uniform in [0, bound)
+	public int nextInt(int bound) {
+		// lemire's multiply and shift; the bias is at most bound / 2^32, which is nothing for us
+		return (int) (((this.nextLong() >>> 32) * bound) >>> 32);
+	}
+
+	private long nextSeed() {
+		return this.seed += this.gamma;
+	}
+
+	// Stafford variant 13 of the 64 bit finalizer
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	// gammas need to be odd and have enough bit flips to give good streams
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+
+	// the state, so a stream can be saved and restored exactly
+	public long getSeed() {
+		return seed;
+	}
+
+	public long getGamma() {
+		return gamma;
+	}
+
+	public void setState(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma | 1L;
+	}
+
+}
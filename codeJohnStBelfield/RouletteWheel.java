@@ -0,0 +1,69 @@
+/*
+ * RouletteWheel: the selection kernel behind the ants' probabilistic choices.
+ * 
+ * The wheel is a prefix sum array: prefixSums[0] = 0 and prefixSums[i + 1] = prefixSums[i] + weight of
+ * entry i, so entry i owns [prefixSums[i], prefixSums[i + 1]). A spin is a random point in
+ * [0, total), and the chosen entry is the one whose slot contains it.
+ * 
+ * The caller owns the array (ants keep one around, see Ant.getSelectionWeights), so spinning doesn't
+ * allocate. Small wheels (candidate lists) are scanned linearly, which beats the branchy binary search
+ * at that size; big ones get the binary search. Both pick the same entry.
+ * 
+ * Floating point edges:
+ * -nextDouble() * total can round up to total itself, so the point is clamped just below it
+ * -entries with no weight (or weight lost to rounding) have empty slots and can't be picked
+ * So as long as the total is positive and finite, the result is always an entry with positive weight
+ * (never -1, never past the end). Callers check the total first, see isSpinnable().
+ * 
+ */
+
+public class RouletteWheel {
+
+	private final static int MAX_LINEAR_SCAN = 64; // entries; past this the binary search wins
+
+	private RouletteWheel() {
+	}
+
+	// false if there's nothing to choose (total of 0, or weights that went NaN or infinite)
+	public static boolean isSpinnable(double total) {
+		return total > 0 && total < Double.POSITIVE_INFINITY;
+	}
+
+	// spin a wheel of numEntries entries, prefixSums[0..numEntries] filled in, with a uniform random
+	// number in [0, 1)
+	public static int spin(double[] prefixSums, int numEntries, double random) {
+		double total = prefixSums[numEntries];
+		double point = Math.min(random * total, Math.nextDown(total));
+		if (numEntries <= MAX_LINEAR_SCAN) {
+			return linearSearch(prefixSums, numEntries, point);
+		}
+		return binarySearch(prefixSums, numEntries, point);
+	}
+
+	// first entry whose slot ends past point
+	public static int linearSearch(double[] prefixSums, int numEntries, double point) {
+		for (int i = 0; i < numEntries - 1; i++) {
+			if (point < prefixSums[i + 1]) {
+				return i;
+			}
+		}
+		return numEntries - 1;
+	}
+
+	// last entry whose slot starts at or before point, i.e. prefixSums[i] <= point < prefixSums[i + 1]
+	// for a point inside the wheel. points outside get the first or last entry
+	public static int binarySearch(double[] prefixSums, int numEntries, double point) {
+		int low = 0;
+		int high = numEntries - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (prefixSums[middle] <= point) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * SharedProblemData: the read-only things every solver on the same TSP works out the same way, worked out
+ * once and handed to all of them:
+ * -the nearest neighbor tour length (for the initial pheromone)
+ * -candidate lists, per list size
+ * -heuristic info matrices, per beta (and candidate list size, for large instances)
+ * 
+ * Each one is built by the first solver that asks for it, and after that nobody writes to it, so solvers
+ * on different threads can share them (i.e. ParameterSweep runs dozens of configurations off one of these).
+ * A solver made from a plain TSP just gets its own private one.
+ * With the ProblemCache on, the nearest neighbor tour length and candidate lists come from there when
+ * it has them (and go there when it doesn't), so they outlive this and even the process. Heuristic info
+ * depends on beta, and is cheap next to the rest, so it stays here.
+ * 
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class SharedProblemData {
+
+	private final TSP problem;
+	private final MatrixStorage storage;
+
+	private double nnLength = -1;
+	private final Map<Integer, int[][]> candidateLists = new HashMap<Integer, int[][]>();
+	private final Map<String, Matrix> heuristicInfos = new HashMap<String, Matrix>();
+
+	public SharedProblemData(TSP problem) {
+		this(problem, MatrixStorage.DENSE_DOUBLE);
+	}
+
+	// storage is what the heuristic matrices (and so the solvers' other matrices) use. packed storage can't
+	// hold asymmetric distances' heuristic info, so those get the dense storage of the same precision
+	public SharedProblemData(TSP problem, MatrixStorage storage) {
+		this.problem = problem;
+		if (storage.isPacked() && !problem.isSymmetric()) {
+			MatrixStorage dense = (storage.getBytesPerEntry() == 4) ? MatrixStorage.DENSE_FLOAT
+					: MatrixStorage.DENSE_DOUBLE;
+			System.out.println("Warning: distances are asymmetric, using " + dense + " storage instead of "
+					+ storage);
+			storage = dense;
+		}
+		this.storage = storage;
+	}
+
+	public synchronized double getNnLength(AntSystem builder) {
+		if (this.nnLength < 0) {
+			ProblemCache cache = ProblemCache.get();
+			if (cache != null) {
+				this.nnLength = cache.getNnLength(this.problem);
+			}
+			if (this.nnLength < 0) {
+				this.nnLength = builder.calcNearestNeighborTourLength();
+				if (cache != null) {
+					cache.putNnLength(this.problem, this.nnLength);
+				}
+			}
+		}
+		return this.nnLength;
+	}
+
+	public synchronized int[][] getCandidateLists(int numCandidates, AntSystem builder) {
+		int[][] lists = this.candidateLists.get(numCandidates);
+		if (lists == null) {
+			ProblemCache cache = ProblemCache.get();
+			if (cache != null) {
+				lists = cache.getCandidateLists(this.problem, numCandidates);
+			}
+			if (lists == null) {
+				lists = builder.buildCandidateLists(this.problem.getNodeDists(), numCandidates);
+				if (cache != null) {
+					cache.putCandidateLists(this.problem, numCandidates, lists);
+				}
+			}
+			this.candidateLists.put(numCandidates, lists);
+		}
+		return lists;
+	}
+
+	// large instances store heuristic info only for the candidate arcs, so their matrices also depend on the
+	// candidate list size
+	public synchronized Matrix getHeuristicInfo(double beta, int numCandidates, AntSystem builder) {
+		String key = beta + "/" + (this.problem.isLargeInstance() ? numCandidates : 0);
+		Matrix heuristicInfo = this.heuristicInfos.get(key);
+		if (heuristicInfo == null) {
+			heuristicInfo = builder.buildHeuristicInfoMatrix(this.problem.getNodeDists(), beta);
+			this.heuristicInfos.put(key, heuristicInfo);
+		}
+		return heuristicInfo;
+	}
+
+	// a solver has added, removed or moved a city (see AntSystem.addCity) and brought its candidate lists and
+	// heuristic info along. those replace whatever was here; everything else gets worked out again when
+	// somebody asks
+	public synchronized void problemChanged(int numCandidates, int[][] candidateLists, double beta,
+			Matrix heuristicInfo) {
+		this.nnLength = -1;
+		this.candidateLists.clear();
+		if (candidateLists != null) {
+			this.candidateLists.put(numCandidates, candidateLists);
+		}
+		this.heuristicInfos.clear();
+		this.heuristicInfos.put(beta + "/" + (this.problem.isLargeInstance() ? numCandidates : 0), heuristicInfo);
+	}
+
+	public TSP getProblem() {
+		return problem;
+	}
+
+	public MatrixStorage getStorage() {
+		return storage;
+	}
+
+}
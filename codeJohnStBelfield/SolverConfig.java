@@ -0,0 +1,93 @@
+/*
+ * SolverConfig: one combination of parameters for one variant, i.e. a single point of a ParameterSweep.
+ * 
+ * Only the parameters the variant uses matter: elitism is EAS only, wearFactor and
+ * bestNextNodeSelectionProb are ACS only.
+ * 
+ */
+
+public class SolverConfig {
+
+	public enum Variant {
+		EAS, ACS, MMAS
+	}
+
+	private final Variant variant;
+	private final int numAnts;
+	private final double alpha;
+	private final double beta;
+	private final double evapFactor;
+	private final double elitism;
+	private final double wearFactor;
+	private final double bestNextNodeSelectionProb;
+
+	public SolverConfig(Variant variant, int numAnts, double alpha, double beta, double evapFactor, double elitism,
+			double wearFactor, double bestNextNodeSelectionProb) {
+		this.variant = variant;
+		this.numAnts = numAnts;
+		this.alpha = alpha;
+		this.beta = beta;
+		this.evapFactor = evapFactor;
+		this.elitism = elitism;
+		this.wearFactor = wearFactor;
+		this.bestNextNodeSelectionProb = bestNextNodeSelectionProb;
+	}
+
+	// a new solver with these parameters, sharing whatever it can with the other solvers on the problem
+	public AntSystem createSolver(SharedProblemData shared, RandomStream random) {
+		switch (this.variant) {
+		case ACS:
+			return new ACS(shared, this.numAnts, this.alpha, this.beta, this.evapFactor, this.wearFactor,
+					this.bestNextNodeSelectionProb, random);
+		case MMAS:
+			return new MMAS(shared, this.numAnts, this.alpha, this.beta, this.evapFactor, random);
+		default:
+			return new EAS(shared, this.numAnts, this.alpha, this.beta, this.evapFactor, this.elitism, random);
+		}
+	}
+
+	public Variant getVariant() {
+		return variant;
+	}
+
+	public int getNumAnts() {
+		return numAnts;
+	}
+
+	public double getAlpha() {
+		return alpha;
+	}
+
+	public double getBeta() {
+		return beta;
+	}
+
+	public double getEvapFactor() {
+		return evapFactor;
+	}
+
+	public double getElitism() {
+		return elitism;
+	}
+
+	public double getWearFactor() {
+		return wearFactor;
+	}
+
+	public double getBestNextNodeSelectionProb() {
+		return bestNextNodeSelectionProb;
+	}
+
+	@Override
+	public String toString() {
+		String s = variant + " [numAnts=" + numAnts + ", alpha=" + alpha + ", beta=" + beta + ", evapFactor="
+				+ evapFactor;
+		if (variant == Variant.EAS) {
+			s += ", elitism=" + elitism;
+		} else if (variant == Variant.ACS) {
+			s += ", wearFactor=" + wearFactor + ", bestNextNodeSelectionProb=" + bestNextNodeSelectionProb;
+		}
+		return s + "]";
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * SolverResult: what a SolverRunner hands back once it stops.
+ * 
+ * Times are wall clock from the start of the run. timeToBest is when the returned tour was found, which
+ * on a converged solve can be a lot earlier than the end. If the solver's bsf came from an earlier run and
+ * this one never beat it, iterationOfBest and timeToBest are 0.
+ * 
+ */
+
+import java.util.Arrays;
+
+public class SolverResult {
+
+	private final int[] tour;
+	private final double tourLength;
+	private final int iterations;
+	private final int iterationOfBest;
+	private final long timeToBestNanos;
+	private final long totalTimeNanos;
+	private final StopReason stopReason;
+
+	public SolverResult(int[] tour, double tourLength, int iterations, int iterationOfBest, long timeToBestNanos,
+			long totalTimeNanos, StopReason stopReason) {
+		this.tour = tour;
+		this.tourLength = tourLength;
+		this.iterations = iterations;
+		this.iterationOfBest = iterationOfBest;
+		this.timeToBestNanos = timeToBestNanos;
+		this.totalTimeNanos = totalTimeNanos;
+		this.stopReason = stopReason;
+	}
+
+	// null if no tour was built (i.e. cancelled before the first iteration)
+	public int[] getTour() {
+		return tour;
+	}
+
+	public double getTourLength() {
+		return tourLength;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public int getIterationOfBest() {
+		return iterationOfBest;
+	}
+
+	public long getTimeToBestNanos() {
+		return timeToBestNanos;
+	}
+
+	public double getTimeToBestMillis() {
+		return timeToBestNanos / 1e6;
+	}
+
+	public long getTotalTimeNanos() {
+		return totalTimeNanos;
+	}
+
+	public double getTotalTimeMillis() {
+		return totalTimeNanos / 1e6;
+	}
+
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	@Override
+	public String toString() {
+		return "SolverResult [tourLength=" + tourLength + ", iterations=" + iterations + ", iterationOfBest="
+				+ iterationOfBest + ", timeToBestMs=" + this.getTimeToBestMillis() + ", totalTimeMs="
+				+ this.getTotalTimeMillis() + ", stopReason=" + stopReason + ", tour="
+				+ ((tour == null) ? "null" : "[" + tour.length + " nodes]") + "]";
+	}
+
+	// the whole tour, for when it's actually wanted
+	public String tourToString() {
+		return Arrays.toString(tour);
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * SolverRunner: runs any AntSystem until one of the stopping criteria is hit:
+ * -time limit (wall clock)
+ * -number of iterations
+ * -target tour length (i.e. a known optimum plus some slack)
+ * -stagnation: no new bsf for stagnationIterations iterations, or the lambda branching factor below
+ *  minBranchingFactor (checked every branchingCheckInterval iterations, since it's a pheromone sweep)
+ * 
+ * Criteria that aren't set (0) don't apply, except the iteration count, which defaults to 1000 so a run
+ * always ends. cancel() can be called from any thread, also before run(); the runner stops after the
+ * iteration it's on. A cancel is used up by the run it stops (or by reset()), so the next run starts clean.
+ * 
+ * With a checkpoint file set, the solver is saved (see Checkpoint) every checkpointInterval iterations and
+ * once more when the run stops.
+ * 
+ */
+
+public class SolverRunner {
+
+	private final static double BRANCHING_LAMBDA = 0.05;
+
+	private final AntSystem solver;
+
+	private long timeLimitNanos = 0;
+	private int maxIterations = 1000;
+	private double targetLength = 0;
+	private int stagnationIterations = 0;
+	private double minBranchingFactor = 0;
+	private int branchingCheckInterval = 25;
+	private String checkpointFile;
+	private int checkpointInterval = 0; // 0: only when the run stops
+
+	private volatile boolean cancelled = false;
+
+	public SolverRunner(AntSystem solver) {
+		this.solver = solver;
+	}
+
+	// iterate until something says stop. can be called again to keep going with a fresh budget
+	public SolverResult run() {
+		long start = System.nanoTime();
+		long timeToBest = 0;
+		int iterationOfBest = 0;
+		int iterationsSinceImprovement = 0;
+		int iterations = 0;
+		StopReason stopReason;
+
+		while (true) {
+			// checked up front, so a cancel that came in before the run still stops it
+			if (this.cancelled) {
+				stopReason = StopReason.CANCELLED;
+				break;
+			}
+
+			iterations++;
+			if (this.solver.singleIterationAllAnts()) {
+				timeToBest = System.nanoTime() - start;
+				iterationOfBest = iterations;
+				iterationsSinceImprovement = 0;
+			} else {
+				iterationsSinceImprovement++;
+			}
+			if (this.checkpointFile != null && this.checkpointInterval > 0
+					&& iterations % this.checkpointInterval == 0) {
+				Checkpoint.save(this.solver, this.checkpointFile);
+			}
+
+			if (this.targetLength > 0 && this.solver.getBsfLength() <= this.targetLength) {
+				stopReason = StopReason.TARGET_REACHED;
+				break;
+			}
+			if (this.maxIterations > 0 && iterations >= this.maxIterations) {
+				stopReason = StopReason.MAX_ITERATIONS;
+				break;
+			}
+			if (this.timeLimitNanos > 0 && System.nanoTime() - start >= this.timeLimitNanos) {
+				stopReason = StopReason.TIME_LIMIT;
+				break;
+			}
+			if (this.stagnationIterations > 0 && iterationsSinceImprovement >= this.stagnationIterations) {
+				stopReason = StopReason.STAGNATION;
+				break;
+			}
+			if (this.minBranchingFactor > 0 && iterations % this.branchingCheckInterval == 0
+					&& this.solver.calcBranchingFactor(BRANCHING_LAMBDA) < this.minBranchingFactor) {
+				stopReason = StopReason.STAGNATION;
+				break;
+			}
+		}
+
+		// a pipelined solver still has updates going; the result should include them
+		this.solver.drainPipeline();
+		if (this.checkpointFile != null) {
+			Checkpoint.save(this.solver, this.checkpointFile);
+		}
+
+		// only now, so a cancel from before the run (or during it) isn't lost
+		this.cancelled = false;
+
+		int[] bsfTour = this.solver.getBsfTour();
+		return new SolverResult((bsfTour == null) ? null : bsfTour.clone(), this.solver.getBsfLength(), iterations,
+				iterationOfBest, timeToBest, System.nanoTime() - start, stopReason);
+	}
+
+	// ask a running solve to stop after its current iteration. safe to call from any thread
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	// drop a cancel that hasn't stopped a run yet
+	public void reset() {
+		this.cancelled = false;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public AntSystem getSolver() {
+		return solver;
+	}
+
+	public long getTimeLimitMillis() {
+		return timeLimitNanos / 1000000;
+	}
+
+	public void setTimeLimitMillis(long timeLimitMillis) {
+		this.timeLimitNanos = timeLimitMillis * 1000000;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	// 0 means no limit on iterations (so some other criterion had better be set)
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public double getTargetLength() {
+		return targetLength;
+	}
+
+	public void setTargetLength(double targetLength) {
+		this.targetLength = targetLength;
+	}
+
+	public int getStagnationIterations() {
+		return stagnationIterations;
+	}
+
+	public void setStagnationIterations(int stagnationIterations) {
+		this.stagnationIterations = stagnationIterations;
+	}
+
+	public double getMinBranchingFactor() {
+		return minBranchingFactor;
+	}
+
+	// a settled colony sits at 1 or 2, depending on the pheromone matrix (see
+	// AntSystem.getSettledBranchingFactor), so this wants to be a little above that
+	public void setMinBranchingFactor(double minBranchingFactor) {
+		this.minBranchingFactor = minBranchingFactor;
+	}
+
+	public int getBranchingCheckInterval() {
+		return branchingCheckInterval;
+	}
+
+	public void setBranchingCheckInterval(int branchingCheckInterval) {
+		this.branchingCheckInterval = Math.max(1, branchingCheckInterval);
+	}
+
+	public String getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	// null: no checkpoints
+	public void setCheckpointFile(String checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+}
@@ -0,0 +1,535 @@
+/*
+ * SolverService: a solver that stays up, answering solve requests over HTTP on localhost. Starting a JVM per
+ * solve pays for JVM startup, JIT warm up, parsing and the problem's setup every time; here all of that is
+ * paid once, and a small job costs about as much as its iterations.
+ *
+ * usage: java SolverService [port] [workers]
+ *
+ * Requests:
+ * -POST /solve?variant=EAS|ACS|MMAS&... with the problem as the body: a TSPLIB file's contents (coordinates
+ *  or EXPLICIT distances), or just "x y" per line. Or no body and file=path, for a file the service can read
+ *  itself. The other parameters are optional:
+ *  -solver: numAnts, alpha, beta, evapFactor, elitism (EAS), wearFactor and q0 (ACS), seed, candidates
+ *   (0: no candidate lists), localSearch (NONE, ITERATION_BEST, ALL_ANTS), initialTour (NEAREST_NEIGHBOR,
+ *   GREEDY_EDGE, SPACE_FILLING_CURVE, CHEAPEST_INSERTION: start the bsf from a tour built that way)
+ *  -stopping: iterations, timeLimitMillis, targetLength, stagnation (see SolverRunner)
+ *  -stream=true: the response is one JSON object per line (NDJSON): "started" with the job id, an
+ *   "improved" with the tour for every new bsf (at most one per streamInterval milliseconds, if that's set),
+ *   a "progress" with the iteration and bsf length whenever nothing else went out for HEARTBEAT_MILLIS,
+ *   then "done" with the result. without it, the response is just the result once the job is done
+ * -POST /cancel?job=id stops a job after its current iteration, or before its first if it's still queued.
+ *  a streaming job is also cancelled when its client goes away: the next line that doesn't get through
+ *  (an improvement, or at the latest the next progress line) stops it
+ * -GET /status: workers, running and queued jobs, cached problems
+ *
+ * Jobs run on a fixed pool of worker threads (one per core by default), with a bounded queue behind it; a
+ * request that doesn't fit gets a 503 straight away. Requests themselves are handled on virtual threads
+ * when the JVM has them (JDK 21+), and on a plain thread pool otherwise, since a streaming request waits
+ * for its whole job.
+ *
+ * Problems are cached by a hash of their contents (or the file's path and modification time), as
+ * SharedProblemData: the second job on the same problem skips parsing and the distance matrix, and gets
+ * the nearest neighbor tour, candidate lists and heuristic info of earlier jobs for free. The cache keeps
+ * the most recently used problems, up to MAX_CACHED_PROBLEMS.
+ *
+ * Before it starts listening, the service solves a few throwaway problems with each variant so the JIT has
+ * compiled the hot paths by the time the first real job comes in.
+ *
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class SolverService {
+
+	private final static int DEFAULT_PORT = 8642;
+	private final static int MAX_QUEUED_JOBS = 64;
+	private final static int MAX_CACHED_PROBLEMS = 64;
+	private final static int WARMUP_NODES = 200;
+	private final static int WARMUP_ITERATIONS = 300;
+	private final static long HEARTBEAT_MILLIS = 1000;
+
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+	private final ExecutorService requestThreads;
+	private final boolean virtualThreads;
+
+	// most recently used last
+	private final LinkedHashMap<String, SharedProblemData> problems = new LinkedHashMap<String, SharedProblemData>(
+			16, 0.75f, true);
+	// queued and running, so /cancel finds a job before it starts too
+	private final Map<Long, SolverRunner> runningJobs = new ConcurrentHashMap<Long, SolverRunner>();
+	private final AtomicLong nextJobId = new AtomicLong(1);
+
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int numWorkers = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		SolverService service = new SolverService(port, numWorkers);
+		long start = System.nanoTime();
+		service.warmUp();
+		System.out.printf("warmed up in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+		service.start();
+		System.out.println("listening on http://localhost:" + service.getPort() + " with " + numWorkers
+				+ " workers" + (service.usesVirtualThreads() ? ", virtual threads for requests" : ""));
+	}
+
+	// port 0 picks a free one (see getPort)
+	public SolverService(int port, int numWorkers) throws IOException {
+		// the JDK's server leaves Nagle on by default, and then every small response sits waiting for a delayed
+		// ack: ~40 ms a request. it reads this once, when the first server is made
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.workers = new ThreadPoolExecutor(numWorkers, numWorkers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(MAX_QUEUED_JOBS), task -> {
+					Thread thread = new Thread(task, "solver-worker");
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		ExecutorService virtual = newVirtualThreadExecutor();
+		this.virtualThreads = virtual != null;
+		this.requestThreads = this.virtualThreads ? virtual : Executors.newCachedThreadPool(task -> {
+			Thread thread = new Thread(task, "solver-request");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.server.setExecutor(this.requestThreads);
+
+		this.server.createContext("/solve", exchange -> this.handle(exchange, "POST", this::solve));
+		this.server.createContext("/cancel", exchange -> this.handle(exchange, "POST", this::cancel));
+		this.server.createContext("/status", exchange -> this.handle(exchange, "GET", this::status));
+	}
+
+	// Executors.newVirtualThreadPerTaskExecutor, on JVMs that have it. looked up reflectively so this still
+	// compiles and runs on 17
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			// not there, or a preview feature that isn't switched on
+			return null;
+		}
+	}
+
+	public void start() {
+		this.server.start();
+	}
+
+	// stops listening, cancels whatever is running, and lets the worker threads go
+	public void stop() {
+		this.server.stop(0);
+		for (SolverRunner runner : this.runningJobs.values()) {
+			runner.cancel();
+		}
+		this.workers.shutdown();
+		this.requestThreads.shutdown();
+	}
+
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	// a few small solves of every variant through the whole job path, apart from HTTP
+	public void warmUp() {
+		RandomStream random = new RandomStream(1);
+		StringBuilder coords = new StringBuilder();
+		for (int i = 0; i < WARMUP_NODES; i++) {
+			coords.append(random.nextDouble() * 1000).append(' ').append(random.nextDouble() * 1000).append('\n');
+		}
+		TSP problem = new TSP(coords.toString().getBytes(StandardCharsets.US_ASCII));
+		SharedProblemData shared = new SharedProblemData(problem);
+		for (SolverConfig.Variant variant : SolverConfig.Variant.values()) {
+			Map<String, String> params = new HashMap<String, String>();
+			params.put("variant", variant.name());
+			params.put("iterations", Integer.toString(WARMUP_ITERATIONS));
+			params.put("seed", "1");
+			this.createRunner(shared, params).run();
+		}
+	}
+
+	// request handling
+
+	private interface Handler {
+		void handle(HttpExchange exchange, Map<String, String> params) throws IOException;
+	}
+
+	// thrown for anything wrong with a request; becomes a 400 (or whatever status) with the message
+	private static class RequestException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private final int status;
+
+		RequestException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	private void handle(HttpExchange exchange, String method, Handler handler) {
+		try {
+			if (!exchange.getRequestMethod().equals(method)) {
+				throw new RequestException(405, "use " + method);
+			}
+			handler.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+		} catch (RequestException e) {
+			respond(exchange, e.status, "text/plain", "Error: " + e.getMessage() + "\n");
+		} catch (IOException | UncheckedIOException e) {
+			// the client went away; nothing to tell it
+		} catch (RuntimeException e) {
+			respond(exchange, 500, "text/plain", "Error: " + e + "\n");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void solve(HttpExchange exchange, Map<String, String> params) throws IOException {
+		long received = System.nanoTime();
+		byte[] body = exchange.getRequestBody().readAllBytes();
+		SharedProblemData shared = this.getProblem(params.get("file"), body);
+		SolverRunner runner = this.createRunner(shared, params);
+		long jobId = this.nextJobId.getAndIncrement();
+		boolean stream = Boolean.parseBoolean(params.get("stream"));
+		long streamIntervalNanos = (long) (getDouble(params, "streamInterval", 0) * 1e6);
+
+		OutputStream out = null;
+		if (stream) {
+			exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+			exchange.sendResponseHeaders(200, 0);
+			out = exchange.getResponseBody();
+			writeLine(out, "{\"event\": \"started\", \"job\": " + jobId + ", \"numNodes\": "
+					+ shared.getProblem().getNumNodes() + "}");
+			runner.getSolver().addIterationListener(new ImprovementStreamer(runner, out, streamIntervalNanos));
+		}
+
+		long setupNanos = System.nanoTime() - received;
+		Future<SolverResult> job;
+		this.runningJobs.put(jobId, runner);
+		try {
+			job = this.workers.submit(() -> {
+				try {
+					return runner.run();
+				} finally {
+					this.runningJobs.remove(jobId);
+					runner.getSolver().shutdown();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.runningJobs.remove(jobId);
+			runner.getSolver().shutdown();
+			if (stream) {
+				writeLine(out, "{\"event\": \"rejected\", \"error\": \"too many jobs\"}");
+				return;
+			}
+			throw new RequestException(503, "too many jobs");
+		}
+
+		SolverResult result;
+		try {
+			result = job.get();
+		} catch (InterruptedException e) {
+			runner.cancel();
+			Thread.currentThread().interrupt();
+			throw new RequestException(503, "interrupted");
+		} catch (ExecutionException e) {
+			if (stream) {
+				writeLine(out, "{\"event\": \"failed\", \"error\": \"" + jsonEscape(e.getCause().toString()) + "\"}");
+				return;
+			}
+			throw new RequestException(500, "job failed: " + e.getCause());
+		}
+
+		StringBuilder json = new StringBuilder("{");
+		if (stream) {
+			json.append("\"event\": \"done\", ");
+		}
+		json.append("\"job\": ").append(jobId);
+		json.append(", \"length\": ").append(result.getTourLength());
+		json.append(", \"iterations\": ").append(result.getIterations());
+		json.append(", \"iterationOfBest\": ").append(result.getIterationOfBest());
+		json.append(", \"timeToBestMs\": ").append(result.getTimeToBestNanos() / 1e6);
+		json.append(", \"solveMs\": ").append(result.getTotalTimeNanos() / 1e6);
+		json.append(", \"setupMs\": ").append(setupNanos / 1e6);
+		json.append(", \"totalMs\": ").append((System.nanoTime() - received) / 1e6);
+		json.append(", \"stopReason\": \"").append(result.getStopReason()).append('"');
+		json.append(", \"tour\": ");
+		appendTour(json, result.getTour());
+		json.append('}');
+
+		if (stream) {
+			writeLine(out, json.toString());
+		} else {
+			respond(exchange, 200, "application/json", json.append('\n').toString());
+		}
+	}
+
+	private void cancel(HttpExchange exchange, Map<String, String> params) {
+		SolverRunner runner = this.runningJobs.get((long) getDouble(params, "job", -1));
+		if (runner == null) {
+			throw new RequestException(404, "no such job running");
+		}
+		runner.cancel();
+		respond(exchange, 200, "application/json", "{\"cancelled\": true}\n");
+	}
+
+	private void status(HttpExchange exchange, Map<String, String> params) {
+		int numCachedProblems;
+		synchronized (this.problems) {
+			numCachedProblems = this.problems.size();
+		}
+		String json = "{\"workers\": " + this.workers.getMaximumPoolSize() + ", \"running\": "
+				+ this.workers.getActiveCount() + ", \"queued\": " + this.workers.getQueue().size()
+				+ ", \"cachedProblems\": " + numCachedProblems + ", \"virtualThreads\": " + this.virtualThreads
+				+ "}\n";
+		respond(exchange, 200, "application/json", json);
+	}
+
+	// writes a line for every new bsf, and a progress line when it's been quiet for HEARTBEAT_MILLIS, on the
+	// solver's thread. writing is the only way to find out the client is gone, which cancels the job
+	private static class ImprovementStreamer implements IterationListener {
+
+		private final SolverRunner runner;
+		private final OutputStream out;
+		private final long intervalNanos;
+		private long lastImprovementSent;
+		private long lastWritten;
+
+		ImprovementStreamer(SolverRunner runner, OutputStream out, long intervalNanos) {
+			this.runner = runner;
+			this.out = out;
+			this.intervalNanos = intervalNanos;
+			this.lastWritten = System.nanoTime(); // the "started" line
+		}
+
+		public void iterationCompleted(IterationStats stats) {
+			long now = System.nanoTime();
+			boolean improved = stats.isNewBsf()
+					&& (this.lastImprovementSent == 0 || now - this.lastImprovementSent >= this.intervalNanos);
+			if (!improved && now - this.lastWritten < HEARTBEAT_MILLIS * 1000000) {
+				return;
+			}
+			StringBuilder json = new StringBuilder("{\"event\": \"" + (improved ? "improved" : "progress") + "\"");
+			json.append(", \"iteration\": ").append(stats.getIteration());
+			json.append(", \"length\": ").append(stats.getBsfLength());
+			if (improved) {
+				json.append(", \"tour\": ");
+				appendTour(json, this.runner.getSolver().getBsfTour());
+				this.lastImprovementSent = now;
+			}
+			json.append('}');
+			this.lastWritten = now;
+			try {
+				writeLine(this.out, json.toString());
+			} catch (IOException e) {
+				this.runner.cancel();
+			}
+		}
+
+	}
+
+	// problems and solvers
+
+	// the cached problem for file (if set) or the body, read and cached if it isn't there yet. reading
+	// happens outside the lock; if two requests read the same new problem at once, the first one to finish
+	// wins, so the two still share one SharedProblemData
+	private SharedProblemData getProblem(String file, byte[] body) {
+		String key;
+		if (file != null) {
+			File source = new File(file);
+			if (!source.isFile()) {
+				throw new RequestException(400, "no such file: " + file);
+			}
+			key = "file:" + source.getAbsolutePath() + "@" + source.lastModified();
+		} else {
+			if (body.length == 0) {
+				throw new RequestException(400, "no problem: send one as the body, or set file");
+			}
+			key = hash(body);
+		}
+
+		synchronized (this.problems) {
+			SharedProblemData shared = this.problems.get(key);
+			if (shared != null) {
+				return shared;
+			}
+		}
+
+		TSP problem = (file != null) ? new TSP(file) : new TSP(body);
+		if (problem.getNodeDists() == null || problem.getNumNodes() < 3) {
+			throw new RequestException(400, "could not read the problem (it needs at least 3 cities)");
+		}
+		SharedProblemData shared = new SharedProblemData(problem);
+		synchronized (this.problems) {
+			SharedProblemData other = this.problems.putIfAbsent(key, shared);
+			if (other != null) {
+				return other;
+			}
+			if (this.problems.size() > MAX_CACHED_PROBLEMS) {
+				this.problems.remove(this.problems.keySet().iterator().next());
+			}
+		}
+		return shared;
+	}
+
+	private SolverRunner createRunner(SharedProblemData shared, Map<String, String> params) {
+		SolverConfig.Variant variant;
+		try {
+			variant = SolverConfig.Variant.valueOf(params.getOrDefault("variant", "EAS").toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new RequestException(400, "unknown variant " + params.get("variant"));
+		}
+		boolean acs = variant == SolverConfig.Variant.ACS;
+		int numAnts = (int) getDouble(params, "numAnts", acs ? 10 : 20);
+		double evapFactor = getDouble(params, "evapFactor", (variant == SolverConfig.Variant.MMAS) ? 0.02 : 0.1);
+		SolverConfig config = new SolverConfig(variant, numAnts, getDouble(params, "alpha", 1),
+				getDouble(params, "beta", 3), evapFactor, getDouble(params, "elitism", numAnts),
+				getDouble(params, "wearFactor", 0.1), getDouble(params, "q0", 0.9));
+		RandomStream random = params.containsKey("seed") ? new RandomStream((long) getDouble(params, "seed", 0))
+				: new RandomStream();
+		AntSystem solver = config.createSolver(shared, random);
+
+		int numCandidates = (int) getDouble(params, "candidates", 20);
+		if (numCandidates > 0) {
+			solver.setNumCandidates(numCandidates);
+		}
+		if (params.containsKey("localSearch")) {
+			LocalSearchMode localSearchMode;
+			try {
+				localSearchMode = LocalSearchMode.valueOf(params.get("localSearch").toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new RequestException(400, "unknown localSearch " + params.get("localSearch"));
+			}
+			solver.setLocalSearchMode(localSearchMode);
+			if (solver.getLocalSearchMode() != localSearchMode) {
+				throw new RequestException(400, "local search needs symmetric distances");
+			}
+		}
+
+		if (params.containsKey("initialTour")) {
+			ConstructionHeuristic heuristic;
+			try {
+				heuristic = ConstructionHeuristic.valueOf(params.get("initialTour").toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new RequestException(400, "unknown initialTour " + params.get("initialTour"));
+			}
+			solver.seedBsf(heuristic);
+		}
+
+		SolverRunner runner = new SolverRunner(solver);
+		runner.setMaxIterations((int) getDouble(params, "iterations", runner.getMaxIterations()));
+		runner.setTimeLimitMillis((long) getDouble(params, "timeLimitMillis", 0));
+		runner.setTargetLength(getDouble(params, "targetLength", 0));
+		runner.setStagnationIterations((int) getDouble(params, "stagnation", 0));
+		return runner;
+	}
+
+	// little helpers
+
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> params = new HashMap<String, String>();
+		if (query == null) {
+			return params;
+		}
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			String name = (equals < 0) ? pair : pair.substring(0, equals);
+			String value = (equals < 0) ? "" : pair.substring(equals + 1);
+			params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return params;
+	}
+
+	private static double getDouble(Map<String, String> params, String name, double defaultValue) {
+		String value = params.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new RequestException(400, "bad value for " + name + ": " + value);
+		}
+	}
+
+	// first 16 bytes of the SHA-256, in hex
+	private static String hash(byte[] contents) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(contents);
+			StringBuilder hex = new StringBuilder();
+			for (int i = 0; i < 16; i++) {
+				hex.append(String.format("%02x", digest[i]));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JVM has SHA-256
+		}
+	}
+
+	private static void appendTour(StringBuilder json, int[] tour) {
+		if (tour == null) {
+			json.append("null");
+			return;
+		}
+		json.append('[');
+		for (int i = 0; i < tour.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append(tour[i]);
+		}
+		json.append(']');
+	}
+
+	private static String jsonEscape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	private static void writeLine(OutputStream out, String line) throws IOException {
+		out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, String body) {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		try {
+			exchange.getResponseHeaders().set("Content-Type", contentType);
+			exchange.sendResponseHeaders(status, bytes.length);
+			exchange.getResponseBody().write(bytes);
+		} catch (IOException e) {
+			// the client went away, or the headers are already out (a streaming response)
+		}
+	}
+
+}
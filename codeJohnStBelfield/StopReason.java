@@ -0,0 +1,9 @@
+/*
+ * StopReason: why a SolverRunner stopped.
+ * WORKERS_LOST is ProcessIslandModel only: every worker process went away before anything else stopped it.
+ * 
+ */
+
+public enum StopReason {
+	TIME_LIMIT, MAX_ITERATIONS, TARGET_REACHED, STAGNATION, CANCELLED, WORKERS_LOST
+}
@@ -0,0 +1,59 @@
+/*
+ * SweepResult: how one SolverConfig did in a ParameterSweep, over all of its seeds.
+ * 
+ */
+
+public class SweepResult {
+
+	private final SolverConfig config;
+	private final double meanLength; // mean of the seeds' bsf lengths
+	private final double bestLength;
+	private final int[] bestTour;
+	private final int iterations; // per seed
+	private final int eliminatedAfterStage; // 0 if it made it to the end
+
+	public SweepResult(SolverConfig config, double meanLength, double bestLength, int[] bestTour, int iterations,
+			int eliminatedAfterStage) {
+		this.config = config;
+		this.meanLength = meanLength;
+		this.bestLength = bestLength;
+		this.bestTour = bestTour;
+		this.iterations = iterations;
+		this.eliminatedAfterStage = eliminatedAfterStage;
+	}
+
+	public SolverConfig getConfig() {
+		return config;
+	}
+
+	public double getMeanLength() {
+		return meanLength;
+	}
+
+	public double getBestLength() {
+		return bestLength;
+	}
+
+	public int[] getBestTour() {
+		return bestTour;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public int getEliminatedAfterStage() {
+		return eliminatedAfterStage;
+	}
+
+	public boolean isEliminated() {
+		return eliminatedAfterStage > 0;
+	}
+
+	@Override
+	public String toString() {
+		return "SweepResult [meanLength=" + meanLength + ", bestLength=" + bestLength + ", iterations=" + iterations
+				+ ", eliminatedAfterStage=" + eliminatedAfterStage + ", config=" + config + "]";
+	}
+
+}
@@ -1,182 +1,508 @@
-/*
- * Class to read in the TSP problem.
- * It is assumed that the TSP problem is symmetric, and 2D-Euclidean.
- * 
- * Important instance variables include: 
- * -the number of nodes (int numNodes)
- * -the distance between nodes (a double[][] nodeDists).
- * 
- * Important methods include:
- * auxiliary method calcNodeDistances, which basically is the distance function that every highschooler knows,
- * and then is applied to every pair of nodes.
- * 
- * Admittedly, the method readFile is pretty long, but it happens.
- * The star method of this class is the nodeDistances, which is pretty much the only product that
- * the algorithm will use.
- * 
- */
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.Scanner;
-
-public class TSP {
-
-	private String fileName; // if you want to print nice things out
-	private String fileDescription; // unnecessary but cool to have I guess
-	private String edgeWeightType; // unnecessary as well
-	private int dimension; // not super necessary, since we're only working with 2D
-
-	private int numNodes; // the number of nodes
-	private double[][] nodeCoords; // coordinates of the nodes
-	private double[][] nodeDists; //distances between pairs of nodes, indicated by index
-
-	public TSP(String fileName) {
-		if (this.readFile(fileName)) { // if the reading of the file is successful
-			this.nodeDists = this.calcNodeDistances(); // calculate node distances
-			return;
-		}
-		System.out.println("Error: could not read file");
-	}
-
-	public boolean readFile(String fileName) {
-		try {
-			Scanner fileScan = new Scanner(new File(fileName));
-
-			if (!fileScan.hasNext()) {
-				System.out.println("Error: file is empty.");
-				fileScan.close();
-				return false;
-			}
-
-			while (fileScan.hasNextLine()) {
-				String nextLine = fileScan.nextLine();
-
-				while (!nextLine.startsWith("NODE_COORD")) {
-
-					if (nextLine.startsWith("NAME")) {
-						this.fileName = nextLine.split("\\s+:\\s+")[1];
-					}
-
-					else if (nextLine.startsWith("COMMENT")) {
-						this.fileDescription = nextLine.split("\\s+:\\s+")[1];
-					}
-
-					else if (nextLine.startsWith("DIMENSION")) {
-						this.numNodes = Integer.parseInt(nextLine.split("\\s+:\\s+")[1]);
-					}
-
-					else if (nextLine.startsWith("EDGE_WEIGHT_TYPE")) {
-						this.edgeWeightType = nextLine.split("\\s+:\\s+")[1];
-						// stack overflow
-						// this.dimension =
-						// Integer.parseInt(this.edgeWeightType.replaceAll("[\\D]",
-						// ""));
-						
-						// ended up just fixing this because some files have weird names for the edgeWeightTYpe
-						this.dimension = 2; 
-						
-					}
-
-					nextLine = fileScan.nextLine();
-
-				}
-
-				nextLine = fileScan.nextLine();
-
-				// importing node coordinates
-				// for a node i, nodeCoords[i][0] contains the x-coord, and
-				// nodeCoords[i][1] contains the y-coord
-				double[][] nodeCoords = new double[this.numNodes][this.dimension];
-				for (int i = 0; i < this.numNodes; i++) {
-					String[] node = nextLine.split("\\s+");
-					for (int j = 0; j < this.dimension; j++) {
-						nodeCoords[i][j] = Double.parseDouble(node[j + 1]);
-					}
-					nextLine = fileScan.nextLine();
-				}
-				this.nodeCoords = nodeCoords;
-
-			}
-
-			fileScan.close();
-		} catch (FileNotFoundException e) {
-			System.out.println("Error: file not found.");
-			return false;
-		}
-
-		// successfully imported the problem
-		return true;
-
-	}
-
-	// for each pair of cities, calc distance and put it in an array
-	// such that the distance between city i and j is at array[i][j]
-	public double[][] calcNodeDistances() {
-		double[][] nodeDists = new double[numNodes][numNodes];
-		for (int i = 0; i < numNodes; i++) {
-			for (int j = i; j < numNodes; j++) {
-				double deltaX = this.nodeCoords[i][0] - this.nodeCoords[j][0];
-				double deltaY = this.nodeCoords[i][1] - this.nodeCoords[j][1];
-				nodeDists[i][j] = Math.sqrt(Math.pow(deltaX, 2) + Math.pow(deltaY, 2));
-				nodeDists[j][i] = nodeDists[i][j];
-			}
-		}
-		return nodeDists;
-	}
-
-	public String toString() {
-		return this.fileName + ": " + this.numNodes + " nodes";
-	}
-
-	// Getters and Setters
-	public String getFileName() {
-		return fileName;
-	}
-
-	public double[][] getNodeDists() {
-		return nodeDists;
-	}
-
-	public void setNodeDists(double[][] nodeDists) {
-		this.nodeDists = nodeDists;
-	}
-
-	public void setNodeCoords(double[][] nodeCoords) {
-		this.nodeCoords = nodeCoords;
-	}
-
-	public void setFileName(String fileName) {
-		this.fileName = fileName;
-	}
-
-	public String getFileDescription() {
-		return fileDescription;
-	}
-
-	public void setFileDescription(String fileDescription) {
-		this.fileDescription = fileDescription;
-	}
-
-	public int getNumNodes() {
-		return numNodes;
-	}
-
-	public void setNumNodes(int numNodes) {
-		this.numNodes = numNodes;
-	}
-
-	public int getDimension() {
-		return dimension;
-	}
-
-	public void setDimension(int dimension) {
-		this.dimension = dimension;
-	}
-
-	public double[][] getNodeCoords() {
-		return nodeCoords;
-	}
-
-}
+/*
+ * Class to read in the TSP problem.
+ * Usually it's 2D-Euclidean, and so symmetric. EDGE_WEIGHT_TYPE EXPLICIT files give the distances themselves
+ * instead (asymmetric ones too, i.e. ATSP files); those live in a MappedDistanceMatrix off the heap, and
+ * there are no coordinates.
+ * 
+ * Important instance variables include: 
+ * -the number of nodes (int numNodes)
+ * -the distance between nodes (a Matrix nodeDists, stored however the caller asked for).
+ * 
+ * Important methods include:
+ * auxiliary method calcNodeDistances, which basically is the distance function that every highschooler knows,
+ * and then is applied to every pair of nodes.
+ * 
+ * readFile hands the parsing to TSPLIBReader, which is a lot faster on big files. The original Scanner based
+ * reader is still around as readFileWithScanner (it's pretty long, but it happens).
+ * The star method of this class is the nodeDistances, which is pretty much the only product that
+ * the algorithm will use.
+ * 
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Scanner;
+
+public class TSP {
+
+	private String fileName; // if you want to print nice things out
+	private String fileDescription; // unnecessary but cool to have I guess
+	private String edgeWeightType; // unnecessary as well
+	private int dimension; // not super necessary, since we're only working with 2D
+
+	private int numNodes; // the number of nodes
+	private double[][] nodeCoords; // coordinates of the nodes
+	private Matrix nodeDists; //distances between pairs of nodes, indicated by index
+	private MatrixStorage storage; // how nodeDists is stored
+
+	// large instances don't get a distance matrix at all: distances are worked out from nodeCoords on demand,
+	// and nearest neighbor questions go to a spatial index, so memory stays O(n)
+	private boolean largeInstance;
+	private GridIndex spatialIndex; // built the first time somebody asks for it
+
+	// distances straight from the file, in a MappedDistanceMatrix. no coordinates, and maybe asymmetric
+	private boolean explicit;
+	private boolean symmetric = true; // dist(i, j) == dist(j, i) for all i, j
+
+	private String contentHash; // worked out the first time somebody asks for it
+	private boolean sharedDists; // nodeDists came out of the ProblemCache, so other TSPs may have it too
+
+	// empty problem: nothing read, nothing calculated. for calling the readers by hand (i.e. benchmarks)
+	TSP() {
+	}
+
+	public TSP(String fileName) {
+		this(fileName, MatrixStorage.DENSE_DOUBLE);
+	}
+
+	// distances are symmetric, so PACKED_DOUBLE gives the exact same distances in half the memory
+	public TSP(String fileName, MatrixStorage storage) {
+		this.readWithDistanceMatrix(fileName, storage);
+	}
+
+	// largeInstance = true skips the n x n distance matrix entirely. use it for anything past ~30k nodes
+	public TSP(String fileName, boolean largeInstance) {
+		if (!largeInstance) {
+			this.readWithDistanceMatrix(fileName, MatrixStorage.DENSE_DOUBLE);
+			return;
+		}
+
+		this.largeInstance = true;
+		if (this.readFile(fileName)) {
+			// explicit distances are already off the heap, and there's nothing to index
+			if (!this.explicit) {
+				this.nodeDists = new CoordinateDistanceMatrix(this.nodeCoords);
+				this.spatialIndex = new GridIndex(this.nodeCoords);
+			}
+			return;
+		}
+		System.out.println("Error: could not read file");
+	}
+
+	// a problem that isn't in a file (i.e. sent to SolverService): the contents of a TSPLIB file, or just "x y"
+	// per line. explicit distances stay on the heap
+	public TSP(byte[] contents) {
+		this.storage = MatrixStorage.DENSE_DOUBLE;
+		if (this.readContents(contents)) {
+			if (!this.explicit) {
+				this.nodeDists = this.cachedNodeDistances();
+			}
+			return;
+		}
+		System.out.println("Error: could not read problem");
+	}
+
+	// the usual way in: read the file, then the distance matrix in the given storage (unless the file had
+	// explicit distances, which are already in theirs)
+	private void readWithDistanceMatrix(String fileName, MatrixStorage storage) {
+		this.storage = storage;
+		if (this.readFile(fileName)) { // if the reading of the file is successful
+			if (!this.explicit) {
+				this.nodeDists = this.cachedNodeDistances(); // calculate node distances (or find them)
+			}
+			return;
+		}
+		System.out.println("Error: could not read file");
+	}
+
+	// EXPLICIT distances go into a mapped file (see MappedDistanceMatrix). with a ProblemCache directory that
+	// file is kept, and after the first time it's all that gets read
+	public boolean readFile(String fileName) {
+		MappedDistanceMatrix cached = MappedDistanceMatrix.load(fileName);
+		if (cached != null) {
+			this.useExplicitDistances(cached, cached.getName(), cached.getComment(), cached.hasSymmetricDistances());
+			return true;
+		}
+
+		TSPLIBReader reader;
+		try {
+			reader = TSPLIBReader.read(fileName, numNodes -> MappedDistanceMatrix.create(fileName, numNodes));
+			if (reader.getEdgeWeights() != null) {
+				MappedDistanceMatrix edgeWeights = ((MappedDistanceMatrix) reader.getEdgeWeights()).finish(fileName,
+						reader.getName(), reader.getComment());
+				this.useExplicitDistances(edgeWeights, edgeWeights.getName(), edgeWeights.getComment(),
+						edgeWeights.hasSymmetricDistances());
+				return true;
+			}
+		} catch (IOException e) {
+			System.out.println("Error: " + e.getMessage());
+			return false;
+		}
+		return this.useReader(reader);
+	}
+
+	// same as readFile, for contents that are already in memory
+	public boolean readContents(byte[] contents) {
+		TSPLIBReader reader;
+		try {
+			reader = TSPLIBReader.read(contents);
+		} catch (IOException e) {
+			System.out.println("Error: " + e.getMessage());
+			return false;
+		}
+		if (reader.getEdgeWeights() != null) {
+			Matrix edgeWeights = reader.getEdgeWeights();
+			this.useExplicitDistances(edgeWeights, reader.getName(), reader.getComment(),
+					edgeWeights.hasSymmetricEntries());
+			return true;
+		}
+		return this.useReader(reader);
+	}
+
+	private boolean useReader(TSPLIBReader reader) {
+		if (reader.getNodeCoords() == null) {
+			System.out.println("Error: no node coordinates in file.");
+			return false;
+		}
+		if (reader.getNodeCoords().length == 0) {
+			System.out.println("Error: no cities in file.");
+			return false;
+		}
+		this.fileName = reader.getName();
+		this.fileDescription = reader.getComment();
+		this.edgeWeightType = reader.getEdgeWeightType();
+		this.numNodes = reader.getNodeCoords().length;
+		this.nodeCoords = reader.getNodeCoords();
+		this.dimension = this.nodeCoords[0].length;
+
+		// successfully imported the problem
+		return true;
+	}
+
+	private void useExplicitDistances(Matrix nodeDists, String fileName, String fileDescription, boolean symmetric) {
+		this.explicit = true;
+		this.fileName = fileName;
+		this.fileDescription = fileDescription;
+		this.edgeWeightType = "EXPLICIT";
+		this.numNodes = nodeDists.getNumNodes();
+		this.nodeDists = nodeDists;
+		this.symmetric = symmetric;
+	}
+
+	// the original reader: assumes the header lines come first, then NODE_COORD_SECTION, 2D coordinates only
+	public boolean readFileWithScanner(String fileName) {
+		try {
+			Scanner fileScan = new Scanner(new File(fileName));
+
+			if (!fileScan.hasNext()) {
+				System.out.println("Error: file is empty.");
+				fileScan.close();
+				return false;
+			}
+
+			while (fileScan.hasNextLine()) {
+				String nextLine = fileScan.nextLine();
+
+				while (!nextLine.startsWith("NODE_COORD")) {
+
+					if (nextLine.startsWith("NAME")) {
+						this.fileName = nextLine.split("\\s+:\\s+")[1];
+					}
+
+					else if (nextLine.startsWith("COMMENT")) {
+						this.fileDescription = nextLine.split("\\s+:\\s+")[1];
+					}
+
+					else if (nextLine.startsWith("DIMENSION")) {
+						this.numNodes = Integer.parseInt(nextLine.split("\\s+:\\s+")[1]);
+					}
+
+					else if (nextLine.startsWith("EDGE_WEIGHT_TYPE")) {
+						this.edgeWeightType = nextLine.split("\\s+:\\s+")[1];
+						// stack overflow
+						// this.dimension =
+						// Integer.parseInt(this.edgeWeightType.replaceAll("[\\D]",
+						// ""));
+						
+						// ended up just fixing this because some files have weird names for the edgeWeightTYpe
+						this.dimension = 2; 
+						
+					}
+
+					nextLine = fileScan.nextLine();
+
+				}
+
+				nextLine = fileScan.nextLine();
+
+				// importing node coordinates
+				// for a node i, nodeCoords[i][0] contains the x-coord, and
+				// nodeCoords[i][1] contains the y-coord
+				double[][] nodeCoords = new double[this.numNodes][this.dimension];
+				for (int i = 0; i < this.numNodes; i++) {
+					String[] node = nextLine.split("\\s+");
+					for (int j = 0; j < this.dimension; j++) {
+						nodeCoords[i][j] = Double.parseDouble(node[j + 1]);
+					}
+					nextLine = fileScan.nextLine();
+				}
+				this.nodeCoords = nodeCoords;
+
+			}
+
+			fileScan.close();
+		} catch (FileNotFoundException e) {
+			System.out.println("Error: file not found.");
+			return false;
+		}
+
+		// successfully imported the problem
+		return true;
+
+	}
+
+	// for each pair of cities, calc distance and put it in an array
+	// such that the distance between city i and j is at array[i][j]
+	public Matrix calcNodeDistances() {
+		Matrix nodeDists = this.storage.create(numNodes);
+		// the usual storages get filled a row (or column) at a time, vectorised if possible
+		if (MatrixKernels.fillDistances(nodeDists, this.nodeCoords)) {
+			return nodeDists;
+		}
+		for (int i = 0; i < numNodes; i++) {
+			for (int j = i; j < numNodes; j++) {
+				double deltaX = this.nodeCoords[i][0] - this.nodeCoords[j][0];
+				double deltaY = this.nodeCoords[i][1] - this.nodeCoords[j][1];
+				double dist = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+				nodeDists.set(i, j, dist);
+				if (!nodeDists.isSymmetric()) {
+					nodeDists.set(j, i, dist);
+				}
+			}
+		}
+		return nodeDists;
+	}
+
+	// calcNodeDistances, unless the ProblemCache is on and has them already. what it doesn't have goes in, for
+	// the next TSP with the same cities
+	private Matrix cachedNodeDistances() {
+		ProblemCache cache = ProblemCache.get();
+		if (cache == null) {
+			return this.calcNodeDistances();
+		}
+		Matrix nodeDists = cache.getDistances(this);
+		if (nodeDists == null) {
+			nodeDists = this.calcNodeDistances();
+			cache.putDistances(this, nodeDists);
+		}
+		this.sharedDists = true;
+		return nodeDists;
+	}
+
+	// cities can come and go after the problem has been read. only the distances to the city that changed get
+	// worked out; everything else is copied over (when the number of cities changes) or left where it is.
+	// nodes are numbered like a list: a new city is numbered numNodes, and removing city k moves every city
+	// after it down by one. a solver on this problem has to go through its own addCity / removeCity /
+	// moveCity (see AntSystem), which call these and then bring the solver along
+
+	// returns the new city's node number (-1 if there's no adding cities to this problem)
+	public int addCity(double x, double y) {
+		if (this.explicit) {
+			System.out.println("Error: cities of an explicit problem have no coordinates");
+			return -1;
+		}
+		double[][] nodeCoords = Arrays.copyOf(this.nodeCoords, this.numNodes + 1);
+		nodeCoords[this.numNodes] = new double[] { x, y };
+		int node = this.numNodes;
+		this.citiesChanged(nodeCoords, sourceNodesAfterAdd(this.numNodes), node);
+		return node;
+	}
+
+	public boolean removeCity(int node) {
+		if (this.explicit) {
+			System.out.println("Error: cities of an explicit problem have no coordinates");
+			return false;
+		}
+		if (node < 0 || node >= this.numNodes) {
+			System.out.println("Error: there is no city " + node);
+			return false;
+		}
+		if (this.numNodes <= 3) {
+			System.out.println("Error: a tour needs at least 3 cities");
+			return false;
+		}
+		double[][] nodeCoords = new double[this.numNodes - 1][];
+		System.arraycopy(this.nodeCoords, 0, nodeCoords, 0, node);
+		System.arraycopy(this.nodeCoords, node + 1, nodeCoords, node, this.numNodes - node - 1);
+		this.citiesChanged(nodeCoords, sourceNodesAfterRemove(this.numNodes, node), -1);
+		return true;
+	}
+
+	public boolean moveCity(int node, double x, double y) {
+		if (this.explicit) {
+			System.out.println("Error: cities of an explicit problem have no coordinates");
+			return false;
+		}
+		if (node < 0 || node >= this.numNodes) {
+			System.out.println("Error: there is no city " + node);
+			return false;
+		}
+		double[][] nodeCoords = this.nodeCoords.clone();
+		nodeCoords[node] = new double[] { x, y };
+		this.citiesChanged(nodeCoords, null, node);
+		return true;
+	}
+
+	// for each node after adding a city to numNodes of them, the node it was before (-1: the new one)
+	static int[] sourceNodesAfterAdd(int numNodes) {
+		int[] sourceNodes = new int[numNodes + 1];
+		for (int i = 0; i < numNodes; i++) {
+			sourceNodes[i] = i;
+		}
+		sourceNodes[numNodes] = -1;
+		return sourceNodes;
+	}
+
+	// same, after removing node
+	static int[] sourceNodesAfterRemove(int numNodes, int node) {
+		int[] sourceNodes = new int[numNodes - 1];
+		for (int i = 0; i < sourceNodes.length; i++) {
+			sourceNodes[i] = (i < node) ? i : i + 1;
+		}
+		return sourceNodes;
+	}
+
+	// new coordinates in, distances brought along. sourceNodes null means the nodes stayed put.
+	// changedNode is the city whose distances are new (-1: none, i.e. one was removed)
+	private void citiesChanged(double[][] nodeCoords, int[] sourceNodes, int changedNode) {
+		this.nodeCoords = nodeCoords;
+		this.numNodes = nodeCoords.length;
+		this.contentHash = null;
+		if (this.largeInstance) {
+			// nothing stored, so nothing to copy. the index is O(n) to rebuild
+			this.nodeDists = new CoordinateDistanceMatrix(nodeCoords);
+			this.spatialIndex = new GridIndex(nodeCoords);
+			return;
+		}
+
+		this.spatialIndex = null;
+		if (sourceNodes != null) {
+			Matrix nodeDists = this.storage.create(this.numNodes);
+			nodeDists.copyFrom(this.nodeDists, sourceNodes);
+			this.nodeDists = nodeDists;
+		} else if (this.sharedDists) {
+			// somebody else's distances too, so change a copy
+			Matrix nodeDists = this.storage.create(this.numNodes);
+			nodeDists.copyFrom(this.nodeDists);
+			this.nodeDists = nodeDists;
+		}
+		this.sharedDists = false;
+		if (changedNode >= 0) {
+			for (int j = 0; j < this.numNodes; j++) {
+				double dist = this.calcNodeDistance(changedNode, j);
+				this.nodeDists.set(changedNode, j, dist);
+				if (!this.nodeDists.isSymmetric()) {
+					this.nodeDists.set(j, changedNode, dist);
+				}
+			}
+		}
+	}
+
+	// same arithmetic as the sweep in MatrixKernels, so a city that's added gets the distances it would have
+	// had if it had been in the file
+	private double calcNodeDistance(int node1, int node2) {
+		double deltaX = this.nodeCoords[node1][0] - this.nodeCoords[node2][0];
+		double deltaY = this.nodeCoords[node1][1] - this.nodeCoords[node2][1];
+		return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+	}
+
+	public String toString() {
+		return this.fileName + ": " + this.numNodes + " nodes";
+	}
+
+	// Getters and Setters
+	public String getFileName() {
+		return fileName;
+	}
+
+	public Matrix getNodeDists() {
+		return nodeDists;
+	}
+
+	public void setNodeDists(Matrix nodeDists) {
+		this.nodeDists = nodeDists;
+		this.sharedDists = false;
+		this.contentHash = null;
+	}
+
+	public void setNodeCoords(double[][] nodeCoords) {
+		this.nodeCoords = nodeCoords;
+		this.contentHash = null;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public String getFileDescription() {
+		return fileDescription;
+	}
+
+	public void setFileDescription(String fileDescription) {
+		this.fileDescription = fileDescription;
+	}
+
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+	public void setNumNodes(int numNodes) {
+		this.numNodes = numNodes;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public void setDimension(int dimension) {
+		this.dimension = dimension;
+	}
+
+	public double[][] getNodeCoords() {
+		return nodeCoords;
+	}
+
+	public MatrixStorage getStorage() {
+		return storage;
+	}
+
+	public boolean isLargeInstance() {
+		return largeInstance;
+	}
+
+	public boolean isExplicit() {
+		return explicit;
+	}
+
+	public boolean isSymmetric() {
+		return symmetric;
+	}
+
+	// hash of what the problem is, whatever file it came from: the coordinates, or the distances of an explicit
+	// problem (a mapped one has it in its cache file already). see ProblemCache
+	public String getContentHash() {
+		if (this.contentHash == null) {
+			if (this.nodeDists instanceof MappedDistanceMatrix) {
+				this.contentHash = ((MappedDistanceMatrix) this.nodeDists).getContentHash();
+			} else if (this.explicit) {
+				this.contentHash = ProblemCache.hashDistances(this.nodeDists);
+			} else {
+				this.contentHash = ProblemCache.hashCoordinates(this.nodeCoords);
+			}
+		}
+		return contentHash;
+	}
+
+	// spatial index over the node coordinates (built on first use for ordinary instances too). null for
+	// explicit problems, which don't have any coordinates
+	public GridIndex getSpatialIndex() {
+		if (this.spatialIndex == null && this.nodeCoords != null) {
+			this.spatialIndex = new GridIndex(this.nodeCoords);
+		}
+		return spatialIndex;
+	}
+
+}
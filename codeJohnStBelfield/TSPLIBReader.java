@@ -0,0 +1,530 @@
+/*
+ * TSPLIBReader: fast reader for TSPLIB files (.tsp, .tour).
+ * 
+ * The file is memory mapped, copied out in big bulk reads, and numbers are parsed straight out of the bytes,
+ * so there's no String per line or per token (only the handful of header values become Strings). A file
+ * that fits in one window (anything but big EXPLICIT ones) is a single copy; bigger ones go through the
+ * window a piece at a time, so they don't need to fit in the heap. Header lines can come in any order, and
+ * the reader understands:
+ * -NAME, COMMENT, TYPE, DIMENSION, EDGE_WEIGHT_TYPE, EDGE_WEIGHT_FORMAT, NODE_COORD_TYPE, DISPLAY_DATA_TYPE
+ * -NODE_COORD_SECTION (2D or 3D), DISPLAY_DATA_SECTION, TOUR_SECTION
+ * -EDGE_WEIGHT_SECTION, in any of the matrix formats (FULL_MATRIX, UPPER_ROW, LOWER_DIAG_COL, ...). the
+ *  weights go into whatever matrix the caller hands over, i.e. a MappedDistanceMatrix
+ * -EOF, or just the end of the file
+ * 
+ * Node ids in the sections are 1-based, like the files; they come back 0-based.
+ * 
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+public class TSPLIBReader {
+
+	private final static int WINDOW_BYTES = 1 << 24; // bigger files are read 16 MB at a time
+	private final static int MAX_TOKEN_BYTES = 1 << 16; // longest line or number that can't straddle two windows
+
+	// exact powers of ten: a mantissa below 2^53 times/divided by one of these is correctly rounded
+	private final static double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// header values
+	private String name;
+	private String comment;
+	private String type;
+	private String edgeWeightType;
+	private String edgeWeightFormat;
+	private int numNodes = -1;
+	private int coordDimension = 2; // 3 for THREED_COORDS / *_3D
+
+	// sections
+	private double[][] nodeCoords; // nodeCoords[i] = {x, y} (or {x, y, z})
+	private double[][] displayCoords; // DISPLAY_DATA_SECTION, always 2D
+	private int[] tour; // TOUR_SECTION, 0-based
+	private Matrix edgeWeights; // EDGE_WEIGHT_SECTION, in the matrix edgeWeightMatrix made
+	private final IntFunction<Matrix> edgeWeightMatrix;
+
+	// the window of the file being parsed: bytes[0] is byte windowStart of the file
+	private final FileChannel channel;
+	private final long fileSize;
+	private byte[] bytes;
+	private long windowStart;
+	private int pos;
+	private int limit;
+
+	private TSPLIBReader(FileChannel channel, IntFunction<Matrix> edgeWeightMatrix) throws IOException {
+		this.channel = channel;
+		this.fileSize = channel.size();
+		this.edgeWeightMatrix = edgeWeightMatrix;
+		this.bytes = new byte[(int) Math.min(this.fileSize, WINDOW_BYTES)];
+	}
+
+	// the whole file's contents already in memory. the channel is never touched, since the window is all of it
+	private TSPLIBReader(byte[] bytes) {
+		this.channel = null;
+		this.fileSize = bytes.length;
+		this.edgeWeightMatrix = DenseMatrix::new;
+		this.bytes = bytes;
+		this.limit = bytes.length;
+	}
+
+	// read a whole TSPLIB file. edge weights, if there are any, go into a DenseMatrix
+	public static TSPLIBReader read(String fileName) throws IOException {
+		return read(fileName, DenseMatrix::new);
+	}
+
+	// same, with the edge weights going into edgeWeightMatrix(numNodes). that can throw UncheckedIOException,
+	// which comes out of here as the IOException inside it
+	public static TSPLIBReader read(String fileName, IntFunction<Matrix> edgeWeightMatrix) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			if (channel.size() == 0) {
+				throw new IOException("file is empty.");
+			}
+			TSPLIBReader reader = new TSPLIBReader(channel, edgeWeightMatrix);
+			reader.refill();
+			reader.parse();
+			reader.bytes = null;
+			return reader;
+		} catch (NoSuchFileException e) {
+			throw new IOException("file not found.", e);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// parse a TSPLIB file's contents (edge weights into a DenseMatrix). contents that start with a number
+	// are taken as a bare list of coordinates instead, "x y" per node
+	public static TSPLIBReader read(byte[] contents) throws IOException {
+		TSPLIBReader reader = new TSPLIBReader(contents);
+		reader.skipWhitespace();
+		if (reader.pos < reader.limit && reader.atNumber()) {
+			reader.nodeCoords = reader.readCoordinateList();
+			reader.numNodes = reader.nodeCoords.length;
+		} else {
+			reader.parse();
+		}
+		reader.bytes = null;
+		return reader;
+	}
+
+	private void parse() throws IOException {
+		while (true) {
+			this.skipWhitespace();
+			if (this.pos >= this.limit) {
+				return;
+			}
+			this.ensure(MAX_TOKEN_BYTES);
+			String keyword = this.readKeyword();
+
+			switch (keyword) {
+			case "EOF":
+				return;
+			case "NODE_COORD_SECTION":
+				this.nodeCoords = this.readCoordSection(this.coordDimension);
+				break;
+			case "DISPLAY_DATA_SECTION":
+				this.displayCoords = this.readCoordSection(2);
+				break;
+			case "TOUR_SECTION":
+				this.tour = this.readTourSection();
+				break;
+			case "EDGE_WEIGHT_SECTION":
+				this.edgeWeights = this.readEdgeWeightSection();
+				break;
+			default:
+				this.readHeader(keyword);
+			}
+		}
+	}
+
+	// "KEY : value" (the colon and the spaces around it are optional)
+	private void readHeader(String keyword) throws IOException {
+		this.skipSpaces();
+		if (this.pos < this.limit && this.bytes[this.pos] == ':') {
+			this.pos++;
+		}
+		this.ensure(MAX_TOKEN_BYTES);
+		String value = this.readRestOfLine();
+
+		switch (keyword) {
+		case "NAME":
+			this.name = value;
+			break;
+		case "COMMENT":
+			// some files have several comment lines
+			this.comment = (this.comment == null) ? value : this.comment + " " + value;
+			break;
+		case "TYPE":
+			this.type = value;
+			break;
+		case "DIMENSION":
+			try {
+				this.numNodes = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw new IOException("bad DIMENSION: " + value);
+			}
+			if (this.numNodes < 1) {
+				throw new IOException("bad DIMENSION: " + value + " (a problem needs cities)");
+			}
+			break;
+		case "EDGE_WEIGHT_TYPE":
+			this.edgeWeightType = value;
+			if (value.endsWith("_3D")) {
+				this.coordDimension = 3;
+			}
+			break;
+		case "EDGE_WEIGHT_FORMAT":
+			this.edgeWeightFormat = value;
+			break;
+		case "NODE_COORD_TYPE":
+			this.coordDimension = value.equals("THREED_COORDS") ? 3 : 2;
+			break;
+		default:
+			// DISPLAY_DATA_TYPE, CAPACITY and friends: nothing we need
+		}
+	}
+
+	// numNodes lines of "id x y [z]"
+	private double[][] readCoordSection(int coordDimension) throws IOException {
+		if (this.numNodes < 0) {
+			throw new IOException("coordinate section before DIMENSION");
+		}
+		double[][] coords = new double[this.numNodes][coordDimension];
+		for (int i = 0; i < this.numNodes; i++) {
+			int id = (int) this.readLong() - 1;
+			if (id < 0 || id >= this.numNodes) {
+				throw new IOException("node id " + (id + 1) + " out of range");
+			}
+			for (int j = 0; j < coordDimension; j++) {
+				coords[id][j] = this.readDouble();
+			}
+		}
+		return coords;
+	}
+
+	// "x y" pairs until the end
+	private double[][] readCoordinateList() throws IOException {
+		double[][] coords = new double[16][];
+		int numCoords = 0;
+		while (true) {
+			this.skipWhitespace();
+			if (this.pos >= this.limit) {
+				break;
+			}
+			if (numCoords == coords.length) {
+				coords = Arrays.copyOf(coords, 2 * coords.length);
+			}
+			coords[numCoords++] = new double[] { this.readDouble(), this.readDouble() };
+		}
+		return Arrays.copyOf(coords, numCoords);
+	}
+
+	// node ids until -1 (or EOF)
+	private int[] readTourSection() throws IOException {
+		int[] tour = new int[Math.max(this.numNodes, 16)];
+		int tourSize = 0;
+		while (true) {
+			this.skipWhitespace();
+			if (this.pos >= this.limit || !this.atNumber()) {
+				break;
+			}
+			long id = this.readLong();
+			if (id == -1) {
+				break;
+			}
+			if (tourSize == tour.length) {
+				tour = Arrays.copyOf(tour, 2 * tour.length);
+			}
+			tour[tourSize++] = (int) id - 1;
+		}
+		return Arrays.copyOf(tour, tourSize);
+	}
+
+	// numNodes x numNodes weights, in edgeWeightFormat order. the triangle formats are symmetric, so each
+	// weight goes in both ways round. a column-wise triangle lists the same weights as the opposite
+	// row-wise one (UPPER_COL is LOWER_ROW and so on), and the diagonal is 0 unless the format has it
+	private Matrix readEdgeWeightSection() throws IOException {
+		if (this.numNodes < 0) {
+			throw new IOException("edge weight section before DIMENSION");
+		}
+		String format = (this.edgeWeightFormat == null) ? "FULL_MATRIX" : this.edgeWeightFormat;
+		int n = this.numNodes;
+		Matrix weights = this.edgeWeightMatrix.apply(n);
+
+		switch (format) {
+		case "FULL_MATRIX":
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					weights.set(i, j, this.readDouble());
+				}
+			}
+			return weights;
+		case "UPPER_ROW":
+		case "LOWER_COL":
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					setBothWays(weights, i, j, this.readDouble());
+				}
+			}
+			return weights;
+		case "UPPER_DIAG_ROW":
+		case "LOWER_DIAG_COL":
+			for (int i = 0; i < n; i++) {
+				for (int j = i; j < n; j++) {
+					setBothWays(weights, i, j, this.readDouble());
+				}
+			}
+			return weights;
+		case "LOWER_ROW":
+		case "UPPER_COL":
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < i; j++) {
+					setBothWays(weights, i, j, this.readDouble());
+				}
+			}
+			return weights;
+		case "LOWER_DIAG_ROW":
+		case "UPPER_DIAG_COL":
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j <= i; j++) {
+					setBothWays(weights, i, j, this.readDouble());
+				}
+			}
+			return weights;
+		default:
+			throw new IOException("unsupported EDGE_WEIGHT_FORMAT: " + format);
+		}
+	}
+
+	private static void setBothWays(Matrix weights, int i, int j, double weight) {
+		weights.set(i, j, weight);
+		if (!weights.isSymmetric()) {
+			weights.set(j, i, weight);
+		}
+	}
+
+	// byte level helpers. everything reads from bytes[pos .. limit); the whitespace skippers move the window
+	// along when they run off its end, and anything that reads a token makes sure MAX_TOKEN_BYTES are in the
+	// window first, so a token never straddles two windows
+
+	// move the unread bytes to the front and fill the rest of the window from the file. false if there was
+	// nothing left to read
+	private boolean refill() throws IOException {
+		long next = this.windowStart + this.limit;
+		if (next >= this.fileSize) {
+			return false;
+		}
+		int unread = this.limit - this.pos;
+		System.arraycopy(this.bytes, this.pos, this.bytes, 0, unread);
+		this.windowStart += this.pos;
+		this.pos = 0;
+		int length = (int) Math.min(this.bytes.length - unread, this.fileSize - next);
+		// the mapping is only needed for the one bulk copy
+		this.channel.map(FileChannel.MapMode.READ_ONLY, next, length).get(this.bytes, unread, length);
+		this.limit = unread + length;
+		return true;
+	}
+
+	private void ensure(int numBytes) throws IOException {
+		if (this.limit - this.pos < numBytes) {
+			this.refill();
+		}
+	}
+
+	private void skipSpaces() throws IOException {
+		do {
+			while (this.pos < this.limit) {
+				byte b = this.bytes[this.pos];
+				if (b != ' ' && b != '\t') {
+					return;
+				}
+				this.pos++;
+			}
+		} while (this.refill());
+	}
+
+	private void skipWhitespace() throws IOException {
+		do {
+			while (this.pos < this.limit && this.bytes[this.pos] <= ' ') {
+				this.pos++;
+			}
+		} while (this.pos >= this.limit && this.refill());
+	}
+
+	private boolean atNumber() {
+		byte b = this.bytes[this.pos];
+		return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.';
+	}
+
+	// a keyword ends at whitespace or a colon
+	private String readKeyword() {
+		int start = this.pos;
+		while (this.pos < this.limit) {
+			byte b = this.bytes[this.pos];
+			if (b <= ' ' || b == ':') {
+				break;
+			}
+			this.pos++;
+		}
+		return this.string(start, this.pos);
+	}
+
+	// the rest of the line, trimmed
+	private String readRestOfLine() {
+		int start = this.pos;
+		while (this.pos < this.limit && this.bytes[this.pos] != '\n') {
+			this.pos++;
+		}
+		return this.string(start, this.pos).trim();
+	}
+
+	private String string(int start, int end) {
+		return new String(this.bytes, start, end - start, StandardCharsets.US_ASCII);
+	}
+
+	private long readLong() throws IOException {
+		this.skipWhitespace();
+		this.ensure(MAX_TOKEN_BYTES);
+		return this.parseLong();
+	}
+
+	// readLong without moving the window: the number starts right at pos
+	private long parseLong() throws IOException {
+		int signStart = this.pos;
+		boolean negative = false;
+		if (this.pos < this.limit && (this.bytes[this.pos] == '-' || this.bytes[this.pos] == '+')) {
+			negative = this.bytes[this.pos] == '-';
+			this.pos++;
+		}
+		int start = this.pos;
+		long value = 0;
+		while (this.pos < this.limit) {
+			int digit = this.bytes[this.pos] - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			value = 10 * value + digit;
+			this.pos++;
+		}
+		if (this.pos == start) {
+			throw new IOException("expected a number at byte " + (this.windowStart + this.pos));
+		}
+		// some files write integer ids as "1.0". back to the sign, so "-1.0" stays negative
+		if (this.pos < this.limit && this.bytes[this.pos] == '.') {
+			this.pos = signStart;
+			return (long) this.readDouble();
+		}
+		return negative ? -value : value;
+	}
+
+	// [sign] digits [. digits] [e [sign] digits]
+	private double readDouble() throws IOException {
+		this.skipWhitespace();
+		this.ensure(MAX_TOKEN_BYTES);
+		int start = this.pos;
+		boolean negative = false;
+		if (this.pos < this.limit && (this.bytes[this.pos] == '-' || this.bytes[this.pos] == '+')) {
+			negative = this.bytes[this.pos] == '-';
+			this.pos++;
+		}
+
+		long mantissa = 0;
+		int numDigits = 0; // significant digits in the mantissa
+		int exponent = 0;
+		boolean sawDigit = false;
+		boolean seenPoint = false;
+		while (this.pos < this.limit) {
+			byte b = this.bytes[this.pos];
+			if (b >= '0' && b <= '9') {
+				sawDigit = true;
+				if (numDigits < 18) {
+					mantissa = 10 * mantissa + (b - '0');
+					if (mantissa != 0) {
+						numDigits++;
+					}
+					if (seenPoint) {
+						exponent--;
+					}
+				} else if (!seenPoint) {
+					// digits we can't keep still count for the magnitude
+					exponent++;
+				}
+			} else if (b == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				break;
+			}
+			this.pos++;
+		}
+		if (!sawDigit) {
+			throw new IOException("expected a number at byte " + (this.windowStart + start));
+		}
+		if (this.pos < this.limit && (this.bytes[this.pos] == 'e' || this.bytes[this.pos] == 'E')) {
+			this.pos++;
+			exponent += (int) this.parseLong();
+		}
+
+		// fast path: exact mantissa and an exact power of ten
+		if (mantissa < (1L << 53) && Math.abs(exponent) < POWERS_OF_TEN.length) {
+			double value = (exponent >= 0) ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+			return negative ? -value : value;
+		}
+		// anything else is rare enough to hand to the JDK
+		return Double.parseDouble(this.string(start, this.pos));
+	}
+
+	// Getters
+	public String getName() {
+		return name;
+	}
+
+	public String getComment() {
+		return comment;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public String getEdgeWeightType() {
+		return edgeWeightType;
+	}
+
+	public String getEdgeWeightFormat() {
+		return edgeWeightFormat;
+	}
+
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+	public int getCoordDimension() {
+		return coordDimension;
+	}
+
+	// NODE_COORD_SECTION, or DISPLAY_DATA_SECTION if that's the only coordinates in the file
+	public double[][] getNodeCoords() {
+		return (nodeCoords != null) ? nodeCoords : displayCoords;
+	}
+
+	public double[][] getDisplayCoords() {
+		return displayCoords;
+	}
+
+	public int[] getTour() {
+		return tour;
+	}
+
+	// EDGE_WEIGHT_SECTION, null if the file doesn't have one
+	public Matrix getEdgeWeights() {
+		return edgeWeights;
+	}
+
+}
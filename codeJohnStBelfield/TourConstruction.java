@@ -0,0 +1,363 @@
+/*
+ * TourConstruction: quick ways to get a whole tour without any ants, for the nearest neighbor tour length
+ * (which sets the initial pheromone) and for an incumbent to start the bsf from (see AntSystem.seedBsf).
+ *
+ * -nearest neighbor: from node 0, always on to the nearest unvisited node. With coordinates the GridIndex
+ *  finds it, so this is about O(n log n) instead of O(n^2). About 25% above optimal on uniform random
+ *  instances (the other figures are for those too).
+ * -greedy edge: go through the candidate arcs (each node's NUM_NEAREST nearest) shortest first, taking
+ *  every arc that doesn't give a node a third arc or close a cycle early. What's left is a handful of
+ *  paths, which get joined nearest end first. About 20% above optimal.
+ * -space filling curve: visit the nodes in the order they come along a Hilbert curve over the bounding box.
+ *  Just a sort, so the fastest, but about 40% above optimal.
+ * -cheapest insertion: add the nodes in random order (seeded, so it's always the same tour), each one
+ *  where it adds the least length. Only the tour arcs at the node's nearest nodes are tried (further out
+ *  if none of those are in the tour yet), so it's about O(n log n) too. About 15-20% above optimal.
+ *
+ * Every tour is a permutation of the nodes, closed back to the first one: tourLength gives the length of
+ * the whole round trip. Explicit problems have no coordinates, so they get their neighbors from the
+ * distance matrix instead of a GridIndex, and no space filling curve (it falls back to nearest neighbor).
+ * Asymmetric distances are fine, the arcs are just taken in the direction the tour goes.
+ *
+ */
+
+import java.util.Arrays;
+
+public class TourConstruction {
+
+	private final static int NUM_NEAREST = 10; // candidate arcs per node for greedy edge and insertion
+	private final static int CURVE_ORDER = 16; // Hilbert curve over a 2^16 x 2^16 grid
+	private final static long INSERTION_SEED = 1;
+
+	private TourConstruction() {
+	}
+
+	// length of the closed tour: every arc, plus the one from the last node back to the first
+	public static double tourLength(Matrix nodeDists, int[] tour) {
+		double length = 0;
+		for (int i = 0; i < tour.length; i++) {
+			length += nodeDists.get(tour[i], tour[(i + 1) % tour.length]);
+		}
+		return length;
+	}
+
+	public static int[] nearestNeighborTour(TSP problem) {
+		int numNodes = problem.getNumNodes();
+		Matrix nodeDists = problem.getNodeDists();
+		GridIndex spatialIndex = problem.getSpatialIndex();
+		Ant ant = new Ant(numNodes, 0);
+		int currNode = 0;
+		while (ant.getNumUnvisitedNodes() > 0) {
+			int nextNode;
+			if (spatialIndex != null) {
+				nextNode = spatialIndex.nearestUnvisited(currNode, ant);
+			} else {
+				nextNode = -1;
+				double nearestDist = Double.MAX_VALUE;
+				for (int i = 0; i < ant.getNumUnvisitedNodes(); i++) {
+					int node = ant.getUnvisitedNode(i);
+					if (nodeDists.get(currNode, node) < nearestDist) {
+						nearestDist = nodeDists.get(currNode, node);
+						nextNode = node;
+					}
+				}
+			}
+			ant.addNodeToTour(nextNode, 0);
+			currNode = nextNode;
+		}
+		return ant.copyTour();
+	}
+
+	public static int[] greedyEdgeTour(TSP problem) {
+		int numNodes = problem.getNumNodes();
+		Matrix nodeDists = problem.getNodeDists();
+		if (numNodes < 3) {
+			return identityTour(numNodes);
+		}
+		int[][] nearest = nearestNodes(problem, NUM_NEAREST);
+
+		// candidate arcs, shortest first. the key is the length as float bits (which sort like the lengths,
+		// since they're never negative) over the arc's number, node * NUM_NEAREST + its place in the list
+		int numCandidates = nearest[0].length;
+		long[] arcs = new long[numNodes * numCandidates];
+		for (int i = 0; i < numNodes; i++) {
+			for (int c = 0; c < numCandidates; c++) {
+				float dist = (float) nodeDists.get(i, nearest[i][c]);
+				arcs[i * numCandidates + c] = ((long) Float.floatToIntBits(dist) << 32) | (i * numCandidates + c);
+			}
+		}
+		Arrays.sort(arcs);
+
+		// take what fits. fragments are tracked with union-find, so closing a cycle is one lookup
+		int[] links = new int[2 * numNodes]; // the (up to) two nodes each node is joined to
+		Arrays.fill(links, -1);
+		int[] degrees = new int[numNodes];
+		int[] fragments = new int[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			fragments[i] = i;
+		}
+		int numArcs = 0;
+		for (long arc : arcs) {
+			int number = (int) arc;
+			int node1 = number / numCandidates;
+			int node2 = nearest[node1][number % numCandidates];
+			if (degrees[node1] == 2 || degrees[node2] == 2) {
+				continue;
+			}
+			int fragment1 = find(fragments, node1);
+			int fragment2 = find(fragments, node2);
+			if (fragment1 == fragment2) {
+				continue;
+			}
+			fragments[fragment1] = fragment2;
+			links[2 * node1 + degrees[node1]++] = node2;
+			links[2 * node2 + degrees[node2]++] = node1;
+			if (++numArcs == numNodes - 1) {
+				break;
+			}
+		}
+
+		// join the paths: walk one to its other end, then on to the nearest end of a path not walked yet
+		int[] ends = new int[numNodes];
+		int numEnds = 0;
+		for (int i = 0; i < numNodes; i++) {
+			if (degrees[i] < 2) {
+				ends[numEnds++] = i;
+			}
+		}
+		boolean[] visited = new boolean[numNodes];
+		int[] tour = new int[numNodes];
+		int tourSize = 0;
+		int node = ends[0];
+		while (true) {
+			// along the path from this end to the other
+			int previous = -1;
+			while (true) {
+				tour[tourSize++] = node;
+				visited[node] = true;
+				int next = (links[2 * node] != previous) ? links[2 * node] : links[2 * node + 1];
+				if (next == -1) {
+					break;
+				}
+				previous = node;
+				node = next;
+			}
+			if (tourSize == numNodes) {
+				break;
+			}
+			int nearestEnd = -1;
+			double nearestDist = Double.MAX_VALUE;
+			for (int e = 0; e < numEnds; e++) {
+				if (visited[ends[e]]) {
+					// done with, so drop it
+					ends[e--] = ends[--numEnds];
+					continue;
+				}
+				double dist = nodeDists.get(node, ends[e]);
+				if (dist < nearestDist) {
+					nearestDist = dist;
+					nearestEnd = ends[e];
+				}
+			}
+			node = nearestEnd;
+		}
+		return tour;
+	}
+
+	private static int find(int[] fragments, int node) {
+		while (fragments[node] != node) {
+			fragments[node] = fragments[fragments[node]]; // path halving
+			node = fragments[node];
+		}
+		return node;
+	}
+
+	public static int[] spaceFillingCurveTour(TSP problem) {
+		double[][] nodeCoords = problem.getNodeCoords();
+		if (nodeCoords == null) {
+			System.out.println("Warning: no coordinates for a space filling curve, using nearest neighbor");
+			return nearestNeighborTour(problem);
+		}
+		int numNodes = nodeCoords.length;
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (double[] coords : nodeCoords) {
+			minX = Math.min(minX, coords[0]);
+			minY = Math.min(minY, coords[1]);
+			maxX = Math.max(maxX, coords[0]);
+			maxY = Math.max(maxY, coords[1]);
+		}
+		// the same scale both ways, so the curve isn't squashed
+		double scale = ((1 << CURVE_ORDER) - 1) / Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+
+		// curve position over node number, so one sort of plain longs does it
+		long[] keys = new long[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			int x = (int) ((nodeCoords[i][0] - minX) * scale);
+			int y = (int) ((nodeCoords[i][1] - minY) * scale);
+			keys[i] = (hilbertIndex(x, y) << 32) | i;
+		}
+		Arrays.sort(keys);
+		int[] tour = new int[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			tour[i] = (int) keys[i];
+		}
+		return tour;
+	}
+
+	// how far along the Hilbert curve (x, y) is: two bits per level, rotating the quadrants as it goes down
+	private static long hilbertIndex(int x, int y) {
+		int side = 1 << CURVE_ORDER;
+		long index = 0;
+		for (int s = side / 2; s > 0; s /= 2) {
+			int rx = ((x & s) != 0) ? 1 : 0;
+			int ry = ((y & s) != 0) ? 1 : 0;
+			index += (long) s * s * ((3 * rx) ^ ry);
+			if (ry == 0) {
+				if (rx == 1) {
+					x = side - 1 - x;
+					y = side - 1 - y;
+				}
+				int swap = x;
+				x = y;
+				y = swap;
+			}
+		}
+		return index;
+	}
+
+	public static int[] cheapestInsertionTour(TSP problem) {
+		int numNodes = problem.getNumNodes();
+		Matrix nodeDists = problem.getNodeDists();
+		if (numNodes < 4) {
+			return identityTour(numNodes);
+		}
+		int[][] nearest = nearestNodes(problem, NUM_NEAREST);
+		GridIndex spatialIndex = problem.getSpatialIndex();
+
+		int[] order = identityTour(numNodes);
+		RandomStream random = new RandomStream(INSERTION_SEED);
+		for (int i = numNodes - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		// the tour as a linked list, starting as a triangle of the first three
+		int[] next = new int[numNodes];
+		int[] previous = new int[numNodes];
+		boolean[] inTour = new boolean[numNodes];
+		for (int i = 0; i < 3; i++) {
+			next[order[i]] = order[(i + 1) % 3];
+			previous[order[(i + 1) % 3]] = order[i];
+			inTour[order[i]] = true;
+		}
+
+		for (int i = 3; i < numNodes; i++) {
+			int node = order[i];
+			int bestAfter = -1;
+			double bestCost = Double.MAX_VALUE;
+			// the arcs on either side of each of the node's nearest nodes that's already in. if none of them
+			// are in yet (mostly early on, while the tour is small), look further out, and once that would
+			// mean looking at more nodes than the tour has, try every arc
+			int[] neighbors = nearest[node];
+			for (int k = 4 * NUM_NEAREST; ; k *= 4) {
+				for (int neighbor : neighbors) {
+					if (!inTour[neighbor]) {
+						continue;
+					}
+					double cost = insertionCost(nodeDists, neighbor, node, next[neighbor]);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestAfter = neighbor;
+					}
+					cost = insertionCost(nodeDists, previous[neighbor], node, neighbor);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestAfter = previous[neighbor];
+					}
+				}
+				if (bestAfter != -1 || spatialIndex == null || k >= i) {
+					break;
+				}
+				neighbors = spatialIndex.kNearest(node, k);
+			}
+			if (bestAfter == -1) {
+				int after = order[0];
+				do {
+					double cost = insertionCost(nodeDists, after, node, next[after]);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestAfter = after;
+					}
+					after = next[after];
+				} while (after != order[0]);
+			}
+			next[node] = next[bestAfter];
+			previous[node] = bestAfter;
+			previous[next[bestAfter]] = node;
+			next[bestAfter] = node;
+			inTour[node] = true;
+		}
+
+		int[] tour = new int[numNodes];
+		int node = 0;
+		for (int i = 0; i < numNodes; i++) {
+			tour[i] = node;
+			node = next[node];
+		}
+		return tour;
+	}
+
+	// extra length from putting node between after and before
+	private static double insertionCost(Matrix nodeDists, int after, int node, int before) {
+		return nodeDists.get(after, node) + nodeDists.get(node, before) - nodeDists.get(after, before);
+	}
+
+	// each node's numNearest nearest other nodes: from the GridIndex if there are coordinates, otherwise
+	// from a scan of the node's row
+	private static int[][] nearestNodes(TSP problem, int numNearest) {
+		int numNodes = problem.getNumNodes();
+		numNearest = Math.min(numNearest, numNodes - 1);
+		int[][] nearest = new int[numNodes][];
+		GridIndex spatialIndex = problem.getSpatialIndex();
+		if (spatialIndex != null) {
+			for (int i = 0; i < numNodes; i++) {
+				nearest[i] = spatialIndex.kNearest(i, numNearest);
+			}
+			return nearest;
+		}
+
+		Matrix nodeDists = problem.getNodeDists();
+		double[] nearestDists = new double[numNearest];
+		for (int i = 0; i < numNodes; i++) {
+			nearest[i] = new int[numNearest];
+			int numFound = 0;
+			for (int j = 0; j < numNodes; j++) {
+				double dist = nodeDists.get(i, j);
+				if (i == j || (numFound == numNearest && dist >= nearestDists[numFound - 1])) {
+					continue;
+				}
+				int spot = (numFound < numNearest) ? numFound++ : numFound - 1;
+				while (spot > 0 && nearestDists[spot - 1] > dist) {
+					nearestDists[spot] = nearestDists[spot - 1];
+					nearest[i][spot] = nearest[i][spot - 1];
+					spot--;
+				}
+				nearestDists[spot] = dist;
+				nearest[i][spot] = j;
+			}
+		}
+		return nearest;
+	}
+
+	private static int[] identityTour(int numNodes) {
+		int[] tour = new int[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			tour[i] = i;
+		}
+		return tour;
+	}
+
+}
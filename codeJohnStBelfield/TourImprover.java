@@ -0,0 +1,15 @@
+/*
+ * TourImprover: anything that can take a finished tour and make it shorter (i.e. LocalSearch).
+ * 
+ * AntSystem runs its improver between building the tours and updating the pheromone, so the pheromone is
+ * laid down on the improved tours. Implementations have to be safe to call from several threads at once,
+ * since with parallel construction each ant's tour gets improved on its own thread.
+ * 
+ */
+
+public interface TourImprover {
+
+	// improve the first tourSize entries of tour in place, and return the new tour length
+	public double improveTour(int[] tour, int tourSize, double tourLength);
+
+}
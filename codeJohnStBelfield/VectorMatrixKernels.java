@@ -0,0 +1,130 @@
+/*
+ * VectorMatrixKernels: MatrixKernels with the Vector API (jdk.incubator.vector), as many lanes at a time
+ * as the hardware's widest vectors hold. The leftover entries at the end of each run go through the scalar
+ * kernels, so the two agree exactly wherever the arithmetic is the same (everything except the general
+ * POW, see MatrixKernels).
+ *
+ * Only ever loaded reflectively by MatrixKernels, since it needs --add-modules jdk.incubator.vector both to
+ * compile and to run.
+ *
+ */
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorMatrixKernels extends MatrixKernels {
+
+	private final static VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	private final static VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+	public VectorMatrixKernels() {
+		// without real vector registers the Vector API falls back to (slow) java code
+		if (DOUBLES.length() < 2) {
+			throw new UnsupportedOperationException("no vector hardware");
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "vector (" + DOUBLES.vectorBitSize() + " bit)";
+	}
+
+	@Override
+	public void scale(double[] entries, int from, int to, double factor) {
+		int i = from;
+		for (int bound = from + DOUBLES.loopBound(to - from); i < bound; i += DOUBLES.length()) {
+			DoubleVector.fromArray(DOUBLES, entries, i).mul(factor).intoArray(entries, i);
+		}
+		super.scale(entries, i, to, factor);
+	}
+
+	@Override
+	public void scale(float[] entries, int from, int to, float factor) {
+		int i = from;
+		for (int bound = from + FLOATS.loopBound(to - from); i < bound; i += FLOATS.length()) {
+			FloatVector.fromArray(FLOATS, entries, i).mul(factor).intoArray(entries, i);
+		}
+		super.scale(entries, i, to, factor);
+	}
+
+	@Override
+	public void nextNodeWeights(double[] pheromone, double[] heuristic, double[] out, int from, int to,
+			double alpha) {
+		int i = from;
+		for (int bound = from + DOUBLES.loopBound(to - from); i < bound; i += DOUBLES.length()) {
+			DoubleVector weights = power(DoubleVector.fromArray(DOUBLES, pheromone, i), alpha);
+			weights.mul(DoubleVector.fromArray(DOUBLES, heuristic, i)).intoArray(out, i);
+		}
+		super.nextNodeWeights(pheromone, heuristic, out, i, to, alpha);
+	}
+
+	@Override
+	public void nextNodeWeights(float[] pheromone, float[] heuristic, float[] out, int from, int to, float alpha) {
+		int i = from;
+		for (int bound = from + FLOATS.loopBound(to - from); i < bound; i += FLOATS.length()) {
+			FloatVector weights = power(FloatVector.fromArray(FLOATS, pheromone, i), alpha);
+			weights.mul(FloatVector.fromArray(FLOATS, heuristic, i)).intoArray(out, i);
+		}
+		super.nextNodeWeights(pheromone, heuristic, out, i, to, alpha);
+	}
+
+	@Override
+	public void heuristicInfo(double[] dists, double[] out, int from, int to, double beta) {
+		DoubleVector ones = DoubleVector.broadcast(DOUBLES, 1.0);
+		int i = from;
+		for (int bound = from + DOUBLES.loopBound(to - from); i < bound; i += DOUBLES.length()) {
+			power(ones.div(DoubleVector.fromArray(DOUBLES, dists, i)), beta).intoArray(out, i);
+		}
+		super.heuristicInfo(dists, out, i, to, beta);
+	}
+
+	@Override
+	public void heuristicInfo(float[] dists, float[] out, int from, int to, float beta) {
+		FloatVector ones = FloatVector.broadcast(FLOATS, 1.0f);
+		int i = from;
+		for (int bound = from + FLOATS.loopBound(to - from); i < bound; i += FLOATS.length()) {
+			power(ones.div(FloatVector.fromArray(FLOATS, dists, i)), beta).intoArray(out, i);
+		}
+		super.heuristicInfo(dists, out, i, to, beta);
+	}
+
+	@Override
+	public void distances(double[] xs, double[] ys, int node, int from, int to, double[] out, int offset) {
+		DoubleVector x = DoubleVector.broadcast(DOUBLES, xs[node]);
+		DoubleVector y = DoubleVector.broadcast(DOUBLES, ys[node]);
+		int j = from;
+		for (int bound = from + DOUBLES.loopBound(to - from); j < bound; j += DOUBLES.length()) {
+			DoubleVector deltaX = x.sub(DoubleVector.fromArray(DOUBLES, xs, j));
+			DoubleVector deltaY = y.sub(DoubleVector.fromArray(DOUBLES, ys, j));
+			// mul then add, not fma: the scalar version rounds twice too
+			deltaX.mul(deltaX).add(deltaY.mul(deltaY)).sqrt().intoArray(out, offset + j - from);
+		}
+		super.distances(xs, ys, node, j, to, out, offset + j - from);
+	}
+
+	// same multiplications as MatrixKernels.power, in the same order
+	private static DoubleVector power(DoubleVector x, double exponent) {
+		if (exponent == 1) {
+			return x;
+		} else if (exponent == 2) {
+			return x.mul(x);
+		} else if (exponent == 3) {
+			return x.mul(x).mul(x);
+		}
+		return x.lanewise(VectorOperators.POW, exponent);
+	}
+
+	private static FloatVector power(FloatVector x, float exponent) {
+		if (exponent == 1) {
+			return x;
+		} else if (exponent == 2) {
+			return x.mul(x);
+		} else if (exponent == 3) {
+			return x.mul(x).mul(x);
+		}
+		return x.lanewise(VectorOperators.POW, exponent);
+	}
+
+}